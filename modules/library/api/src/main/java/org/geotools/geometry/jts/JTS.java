@@ -22,9 +22,11 @@ import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.geotools.geometry.AbstractDirectPosition;
 import org.geotools.geometry.Envelope2D;
@@ -442,6 +444,138 @@ public final class JTS {
         return transformer.transform(geom);
     }
 
+    /**
+     * Transforms a large buffer of packed coordinates using the
+     * {@linkplain ForkJoinPool#commonPool() common fork-join pool}.
+     * 
+     * @see #parallelTransform(MathTransform, double[], int, double[], int, int, ForkJoinPool)
+     */
+    public static void parallelTransform(final MathTransform transform, final double[] src,
+            final int srcOff, final double[] dst, final int dstOff, final int numPts)
+            throws TransformException {
+        parallelTransform(transform, src, srcOff, dst, dstOff, numPts, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Transforms a large buffer of packed coordinates, splitting the work in chunks that are
+     * transformed in parallel by the given fork-join pool. Each chunk is transformed by
+     * {@link MathTransform#transform(double[], int, double[], int, int)}, so the results are the
+     * same as the sequential path. Small buffers, and buffers whose source and destination
+     * regions overlap (other than an in place transformation with the same source and target
+     * dimensions), are transformed on the calling thread.
+     * <p>
+     * The math transform is shared among the worker threads, so it must be thread safe, as the
+     * transforms built by the GeoTools referencing factories are.
+     * 
+     * @param transform
+     *            the transform to use
+     * @param src
+     *            the source coordinates, packed according to the transform source dimensions
+     * @param srcOff
+     *            the offset of the first coordinate in the source array
+     * @param dst
+     *            the destination array, may be the source one
+     * @param dstOff
+     *            the offset of the first coordinate in the destination array
+     * @param numPts
+     *            the number of points to transform
+     * @param pool
+     *            the pool running the transformation
+     * @throws TransformException
+     *             if a point can't be transformed. When several chunks fail, the exception of
+     *             the first failing chunk in the buffer is thrown. Unlike the sequential path,
+     *             the chunks following the failing one are transformed anyway.
+     */
+    public static void parallelTransform(final MathTransform transform, final double[] src,
+            final int srcOff, final double[] dst, final int dstOff, final int numPts,
+            final ForkJoinPool pool) throws TransformException {
+        ensureNonNull("transform", transform);
+        ensureNonNull("src", src);
+        ensureNonNull("dst", dst);
+        ensureNonNull("pool", pool);
+
+        final int sourceDim = transform.getSourceDimensions();
+        final int targetDim = transform.getTargetDimensions();
+        final boolean overlap = src == dst && !(srcOff == dstOff && sourceDim == targetDim)
+                && srcOff < dstOff + (long) numPts * targetDim
+                && dstOff < srcOff + (long) numPts * sourceDim;
+        if (numPts <= ParallelTransform.PARALLEL_THRESHOLD || overlap || pool.getParallelism() < 2) {
+            transform.transform(src, srcOff, dst, dstOff, numPts);
+            return;
+        }
+        final ParallelTransform.CoordinateAction action = new ParallelTransform.CoordinateAction(
+                transform, src, srcOff, dst, dstOff, numPts,
+                ParallelTransform.getChunkSize(numPts, pool));
+        pool.invoke(action);
+        if (action.failure != null) {
+            throw action.failure;
+        }
+    }
+
+    /**
+     * Transforms a collection of geometries using the
+     * {@linkplain ForkJoinPool#commonPool() common fork-join pool}.
+     * 
+     * @see #parallelTransform(Collection, MathTransform, ForkJoinPool)
+     */
+    public static List<Geometry> parallelTransform(final Collection<? extends Geometry> geometries,
+            final MathTransform transform) throws MismatchedDimensionException,
+            TransformException {
+        return parallelTransform(geometries, transform, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Transforms a collection of geometries, splitting the work in chunks of about the same
+     * number of coordinates that are transformed in parallel by the given fork-join pool. Each
+     * geometry is transformed as {@link #transform(Geometry, MathTransform)} would, so the
+     * results are the same as the sequential path. Small collections are transformed on the
+     * calling thread.
+     * <p>
+     * The math transform is shared among the worker threads, so it must be thread safe, as the
+     * transforms built by the GeoTools referencing factories are.
+     * 
+     * @param geometries
+     *            the geometries to transform
+     * @param transform
+     *            the transform to use
+     * @param pool
+     *            the pool running the transformation
+     * @return the transformed geometries, in the same order as the collection iterator
+     * @throws MismatchedDimensionException
+     *             if a geometry doesn't have the expected dimension for the specified transform.
+     * @throws TransformException
+     *             if a point can't be transformed. When several chunks fail, the exception of
+     *             the first failing chunk in iteration order is thrown.
+     */
+    public static List<Geometry> parallelTransform(final Collection<? extends Geometry> geometries,
+            final MathTransform transform, final ForkJoinPool pool)
+            throws MismatchedDimensionException, TransformException {
+        ensureNonNull("geometries", geometries);
+        ensureNonNull("transform", transform);
+        ensureNonNull("pool", pool);
+
+        final Geometry[] source = geometries.toArray(new Geometry[geometries.size()]);
+        final Geometry[] result = new Geometry[source.length];
+        final long[] counts = new long[source.length + 1];
+        for (int i = 0; i < source.length; i++) {
+            counts[i + 1] = counts[i] + source[i].getNumPoints();
+        }
+        final long numPts = counts[source.length];
+        if (numPts <= ParallelTransform.PARALLEL_THRESHOLD || source.length < 2
+                || pool.getParallelism() < 2) {
+            ParallelTransform.transform(transform, source, result, 0, source.length);
+        } else {
+            final ParallelTransform.GeometryAction action = new ParallelTransform.GeometryAction(
+                    transform, source, result, counts, 0, source.length,
+                    ParallelTransform.getChunkSize(numPts, pool));
+            pool.invoke(action);
+            if (action.failure != null) {
+                throw action.failure;
+            }
+        }
+        return Arrays.asList(result);
+    }
+
     
     /**
      * Transforms the coordinate using the provided math transform.
@@ -0,0 +1,217 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geometry.jts;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Splits the transformation of large coordinate buffers and geometry arrays in chunks that are
+ * transformed in parallel by a fork-join pool. Each point (or geometry) is transformed by the
+ * same code used on the sequential path, so the results are the same. See
+ * {@link JTS#parallelTransform(MathTransform, double[], int, double[], int, int, ForkJoinPool)}
+ * and {@link JTS#parallelTransform(java.util.Collection, MathTransform, ForkJoinPool)} for the
+ * public entry points.
+ */
+final class ParallelTransform {
+
+    /**
+     * Below this number of points the work is not split any further, the fork-join overhead
+     * would be larger than the gain
+     */
+    static final int PARALLEL_THRESHOLD = 8192;
+
+    /**
+     * Number of chunks per worker thread, more than one to balance the load when some chunks
+     * are slower than others (e.g., points far from the projection center)
+     */
+    static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelTransform() {
+    }
+
+    /**
+     * Returns the chunk size, in points, for the given amount of work and pool
+     */
+    static long getChunkSize(long numPts, ForkJoinPool pool) {
+        return Math.max(PARALLEL_THRESHOLD, numPts / ((long) pool.getParallelism() * CHUNKS_PER_THREAD));
+    }
+
+    /**
+     * Transforms a packed coordinate buffer, splitting it in halves until the chunks are small
+     * enough to be transformed directly
+     */
+    @SuppressWarnings("serial")
+    static class CoordinateAction extends RecursiveAction {
+
+        final MathTransform transform;
+
+        final double[] src;
+
+        final int srcOff;
+
+        final double[] dst;
+
+        final int dstOff;
+
+        final int numPts;
+
+        final long chunkSize;
+
+        /**
+         * The first failure in this chunk (or in the first failing sub-chunk), if any
+         */
+        TransformException failure;
+
+        CoordinateAction(MathTransform transform, double[] src, int srcOff, double[] dst,
+                int dstOff, int numPts, long chunkSize) {
+            this.transform = transform;
+            this.src = src;
+            this.srcOff = srcOff;
+            this.dst = dst;
+            this.dstOff = dstOff;
+            this.numPts = numPts;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (numPts <= chunkSize) {
+                try {
+                    transform.transform(src, srcOff, dst, dstOff, numPts);
+                } catch (TransformException e) {
+                    failure = e;
+                }
+            } else {
+                final int half = numPts / 2;
+                CoordinateAction first = new CoordinateAction(transform, src, srcOff, dst,
+                        dstOff, half, chunkSize);
+                CoordinateAction second = new CoordinateAction(transform, src,
+                        srcOff + half * transform.getSourceDimensions(), dst,
+                        dstOff + half * transform.getTargetDimensions(), numPts - half,
+                        chunkSize);
+                invokeAll(first, second);
+                failure = first.failure != null ? first.failure : second.failure;
+            }
+        }
+    }
+
+    /**
+     * Transforms a range of geometries, splitting it in halves by coordinate count until the
+     * ranges contain few enough coordinates to be transformed directly. Each leaf uses its own
+     * {@link GeometryCoordinateSequenceTransformer}, since the transformer is not thread safe.
+     */
+    @SuppressWarnings("serial")
+    static class GeometryAction extends RecursiveAction {
+
+        final MathTransform transform;
+
+        final Geometry[] geometries;
+
+        final Geometry[] result;
+
+        /**
+         * Cumulative number of coordinates, {@code counts[i]} is the number of coordinates in
+         * the geometries before {@code i}
+         */
+        final long[] counts;
+
+        final int start;
+
+        final int end;
+
+        final long chunkSize;
+
+        /**
+         * The first failure in this range (or in the first failing sub-range), if any
+         */
+        TransformException failure;
+
+        GeometryAction(MathTransform transform, Geometry[] geometries, Geometry[] result,
+                long[] counts, int start, int end, long chunkSize) {
+            this.transform = transform;
+            this.geometries = geometries;
+            this.result = result;
+            this.counts = counts;
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start < 2 || counts[end] - counts[start] <= chunkSize) {
+                try {
+                    transform(transform, geometries, result, start, end);
+                } catch (TransformException e) {
+                    failure = e;
+                }
+            } else {
+                final int half = split(counts, start, end);
+                GeometryAction first = new GeometryAction(transform, geometries, result, counts,
+                        start, half, chunkSize);
+                GeometryAction second = new GeometryAction(transform, geometries, result, counts,
+                        half, end, chunkSize);
+                invokeAll(first, second);
+                failure = first.failure != null ? first.failure : second.failure;
+            }
+        }
+    }
+
+    /**
+     * Returns the index splitting the geometries in the given range in two parts with about the
+     * same number of coordinates, both parts containing at least one geometry. Binary searches
+     * the cumulative coordinate counts for the coordinate midpoint.
+     */
+    static int split(long[] counts, int start, int end) {
+        final long target = counts[start] + (counts[end] - counts[start]) / 2;
+        int low = start + 1;
+        int high = end - 1;
+        // first index whose cumulative count reaches the target, or end - 1
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (counts[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // the previous boundary might be closer to the midpoint
+        if (low > start + 1 && target - counts[low - 1] < counts[low] - target) {
+            low--;
+        }
+        return low;
+    }
+
+    /**
+     * Transforms sequentially the geometries in the given range, stopping at the first failure
+     * like the sequential path would
+     */
+    static void transform(MathTransform transform, Geometry[] geometries, Geometry[] result,
+            int start, int end) throws TransformException {
+        final GeometryCoordinateSequenceTransformer transformer = new GeometryCoordinateSequenceTransformer();
+        transformer.setMathTransform(transform);
+        for (int i = start; i < end; i++) {
+            result[i] = transformer.transform(geometries[i]);
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.geotools.geometry.jts;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -23,7 +24,10 @@ import static org.junit.Assert.assertTrue;
 import java.awt.Polygon;
 import java.awt.Shape;
 import java.awt.geom.GeneralPath;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.geotools.geometry.Envelope2D;
 import org.geotools.geometry.GeneralDirectPosition;
@@ -335,4 +339,103 @@ public class JTSTest extends JTSTestBase {
         assertEquals(5, polygon1.getNumPoints());
         assertEquals(5, polygon2.getNumPoints());
     }
+
+    /**
+     * A UTM zone, used to test the parallel transformations
+     */
+    private static final String UTM_32N = "PROJCS[\"WGS 84 / UTM zone 32N\","
+            + " GEOGCS[\"WGS 84\", DATUM[\"WGS_1984\", SPHEROID[\"WGS 84\", 6378137.0, 298.257223563]],"
+            + "  PRIMEM[\"Greenwich\", 0.0], UNIT[\"degree\", 0.017453292519943295],"
+            + "  AXIS[\"Geodetic longitude\", EAST], AXIS[\"Geodetic latitude\", NORTH]],"
+            + " PROJECTION[\"Transverse_Mercator\"], PARAMETER[\"central_meridian\", 9.0],"
+            + " PARAMETER[\"latitude_of_origin\", 0.0], PARAMETER[\"scale_factor\", 0.9996],"
+            + " PARAMETER[\"false_easting\", 500000.0], PARAMETER[\"false_northing\", 0.0],"
+            + " UNIT[\"m\", 1.0], AXIS[\"Easting\", EAST], AXIS[\"Northing\", NORTH]]";
+
+    @Test
+    public void testParallelTransformCoordinates() throws Exception {
+        MathTransform transform = CRS.findMathTransform(DefaultGeographicCRS.WGS84,
+                CRS.parseWKT(UTM_32N));
+        Random random = new Random(0);
+        int numPts = 100000;
+        double[] source = new double[numPts * 2];
+        for (int i = 0; i < source.length; i += 2) {
+            source[i] = 6 + random.nextDouble() * 6;
+            source[i + 1] = random.nextDouble() * 70;
+        }
+        double[] expected = new double[source.length];
+        transform.transform(source, 0, expected, 0, numPts);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            double[] actual = new double[source.length + 2];
+            JTS.parallelTransform(transform, source, 0, actual, 2, numPts, pool);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], actual[i + 2], 0d);
+            }
+
+            // in place
+            double[] inPlace = source.clone();
+            JTS.parallelTransform(transform, inPlace, 0, inPlace, 0, numPts, pool);
+            assertArrayEquals(expected, inPlace, 0d);
+
+            // overlapping regions, transformed sequentially
+            double[] shifted = new double[source.length + 2];
+            System.arraycopy(source, 0, shifted, 0, source.length);
+            JTS.parallelTransform(transform, shifted, 0, shifted, 2, numPts, pool);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], shifted[i + 2], 0d);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelTransformGeometries() throws Exception {
+        MathTransform transform = CRS.findMathTransform(DefaultGeographicCRS.WGS84,
+                CRS.parseWKT(UTM_32N));
+        GeometryFactory factory = new GeometryFactory();
+        Random random = new Random(0);
+        List<Geometry> geometries = new ArrayList<Geometry>();
+        for (int i = 0; i < 2000; i++) {
+            Coordinate[] coordinates = new Coordinate[1 + random.nextInt(40)];
+            for (int j = 0; j < coordinates.length; j++) {
+                coordinates[j] = new Coordinate(6 + random.nextDouble() * 6,
+                        random.nextDouble() * 70);
+            }
+            if (coordinates.length == 1) {
+                geometries.add(factory.createPoint(coordinates[0]));
+            } else {
+                geometries.add(factory.createLineString(coordinates));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Geometry> transformed = JTS.parallelTransform(geometries, transform, pool);
+            assertEquals(geometries.size(), transformed.size());
+            for (int i = 0; i < geometries.size(); i++) {
+                Geometry expected = JTS.transform(geometries.get(i), transform);
+                assertTrue(expected.equalsExact(transformed.get(i)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelTransformSplit() {
+        // one large geometry followed by many small ones
+        long[] counts = new long[] { 0, 1000, 1001, 1002, 1003, 1004, 1005 };
+        assertEquals(1, ParallelTransform.split(counts, 0, 6));
+        assertEquals(3, ParallelTransform.split(counts, 1, 6));
+        // many small geometries followed by a large one
+        counts = new long[] { 0, 1, 2, 3, 4, 5, 1005 };
+        assertEquals(5, ParallelTransform.split(counts, 0, 6));
+        // balanced
+        counts = new long[] { 0, 10, 20, 30, 40 };
+        assertEquals(2, ParallelTransform.split(counts, 0, 4));
+        assertEquals(1, ParallelTransform.split(counts, 0, 2));
+    }
 }
@@ -39,6 +39,7 @@ import org.geotools.data.LockingManager;
 import org.geotools.data.Query;
 import org.geotools.data.ServiceInfo;
 import org.geotools.data.Transaction;
+import org.geotools.data.directory.DirectoryTypeCache.FileEntry;
 import org.geotools.data.simple.SimpleFeatureLocking;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.simple.SimpleFeatureStore;
@@ -50,7 +51,9 @@ import org.opengis.feature.type.Name;
 import org.opengis.filter.Filter;
 
 /**
- * 
+ * A data store exposing all the feature types provided by the files in a directory. The file
+ * data stores are opened lazily and kept in a bounded pool, see
+ * {@link #setMaxOpenStores(int)} and {@link #setMaxIdleTime(long)}
  *
  * @source $URL$
  */
@@ -66,35 +69,110 @@ public class DirectoryDataStore implements DataStore {
     public FeatureReader<SimpleFeatureType, SimpleFeature> getFeatureReader(
             Query query, Transaction transaction) throws IOException {
         String typeName = query.getTypeName();
-        return getDataStore(typeName).getFeatureReader(query, transaction);
+        FileEntry entry = cache.getFileEntry(typeName, true);
+        DataStore store = acquire(entry, typeName);
+        boolean leased = false;
+        entry.addTransaction(transaction);
+        try {
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader = new LeasedFeatureReader(
+                    store.getFeatureReader(query, transaction), entry);
+            leased = true;
+            return reader;
+        } finally {
+            if (!leased) {
+                entry.release();
+            }
+        }
     }
 
     public SimpleFeatureSource getFeatureSource(
             String typeName) throws IOException {
-        SimpleFeatureSource fs = getDataStore(typeName).getFeatureSource(typeName);
-        if(fs instanceof SimpleFeatureLocking) {
-            return new DirectoryFeatureLocking((SimpleFeatureLocking) fs);
-        } else if(fs instanceof FeatureStore) {
-            return new DirectoryFeatureStore((SimpleFeatureStore) fs);
-        } else {
-            return new DirectoryFeatureSource((SimpleFeatureSource) fs);
+        FileEntry entry = cache.getFileEntry(typeName, true);
+        DataStore store = acquire(entry, typeName);
+        try {
+            SimpleFeatureSource fs = store.getFeatureSource(typeName);
+            SimpleFeatureSource result;
+            if(fs instanceof SimpleFeatureLocking) {
+                result = new DirectoryFeatureLocking((SimpleFeatureLocking) fs);
+            } else if(fs instanceof FeatureStore) {
+                result = new DirectoryFeatureStore((SimpleFeatureStore) fs);
+            } else {
+                result = new DirectoryFeatureSource((SimpleFeatureSource) fs);
+            }
+            if (result instanceof DirectoryFeatureStore) {
+                ((DirectoryFeatureStore) result).entry = entry;
+            }
+            // the store won't be closed as long as the source is referenced
+            entry.addUser(result);
+            return result;
+        } finally {
+            entry.release();
         }
     }
 
     public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(
             String typeName, Filter filter, Transaction transaction)
             throws IOException {
-        return getDataStore(typeName).getFeatureWriter(typeName, filter, transaction);
+        FileEntry entry = cache.getFileEntry(typeName, true);
+        DataStore store = acquire(entry, typeName);
+        boolean leased = false;
+        entry.addTransaction(transaction);
+        try {
+            FeatureWriter<SimpleFeatureType, SimpleFeature> writer = new LeasedFeatureWriter(
+                    store.getFeatureWriter(typeName, filter, transaction), entry);
+            leased = true;
+            return writer;
+        } finally {
+            if (!leased) {
+                entry.release();
+            }
+        }
     }
 
     public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(
             String typeName, Transaction transaction) throws IOException {
-        return getDataStore(typeName).getFeatureWriter(typeName, transaction);
+        FileEntry entry = cache.getFileEntry(typeName, true);
+        DataStore store = acquire(entry, typeName);
+        boolean leased = false;
+        entry.addTransaction(transaction);
+        try {
+            FeatureWriter<SimpleFeatureType, SimpleFeature> writer = new LeasedFeatureWriter(
+                    store.getFeatureWriter(typeName, transaction), entry);
+            leased = true;
+            return writer;
+        } finally {
+            if (!leased) {
+                entry.release();
+            }
+        }
     }
 
     public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriterAppend(
             String typeName, Transaction transaction) throws IOException {
-        return getDataStore(typeName).getFeatureWriterAppend(typeName, transaction);
+        FileEntry entry = cache.getFileEntry(typeName, true);
+        DataStore store = acquire(entry, typeName);
+        boolean leased = false;
+        entry.addTransaction(transaction);
+        try {
+            FeatureWriter<SimpleFeatureType, SimpleFeature> writer = new LeasedFeatureWriter(
+                    store.getFeatureWriterAppend(typeName, transaction), entry);
+            leased = true;
+            return writer;
+        } finally {
+            if (!leased) {
+                entry.release();
+            }
+        }
+    }
+
+    /**
+     * Acquires the store of the specified entry, it has to be released once done using it
+     */
+    DataStore acquire(FileEntry entry, String typeName) throws IOException {
+        DataStore store = entry.acquire();
+        if (store == null)
+            throw new IOException("Feature type " + typeName + " is unknown");
+        return store;
     }
 
     public LockingManager getLockingManager() {
@@ -105,7 +183,7 @@ public class DirectoryDataStore implements DataStore {
     }
 
     public SimpleFeatureType getSchema(String typeName) throws IOException {
-        return getDataStore(typeName).getSchema(typeName);
+        return cache.getSchema(typeName);
     }
 
     public String[] getTypeNames() throws IOException {
@@ -115,7 +193,14 @@ public class DirectoryDataStore implements DataStore {
 
     public void updateSchema(String typeName, SimpleFeatureType featureType)
             throws IOException {
-        getDataStore(typeName).updateSchema(typeName, featureType);
+        FileEntry entry = cache.getFileEntry(typeName, true);
+        DataStore store = acquire(entry, typeName);
+        try {
+            store.updateSchema(typeName, featureType);
+        } finally {
+            entry.release();
+        }
+        cache.clearSchema(typeName);
     }
 
     public void createSchema(SimpleFeatureType featureType) throws IOException {
@@ -180,17 +265,24 @@ public class DirectoryDataStore implements DataStore {
     }
     
     /**
-     * Returns the native store for a specified type name
+     * Returns the native store for a specified type name. The store is kept open as long as the
+     * returned object is referenced, and it's owned by this directory store, calling
+     * {@link DataStore#dispose()} on it has no effect
      * @param typeName
      * @return
      * @throws IOException
      */
     public DataStore getDataStore(String typeName) throws IOException {
         // grab the store for a specific feature type, making sure it's actually there
-        DataStore store = cache.getDataStore(typeName, true);
-        if(store == null)
-            throw new IOException("Feature type " + typeName + " is unknown");
-        return store;
+        FileEntry entry = cache.getFileEntry(typeName, true);
+        DataStore store = acquire(entry, typeName);
+        try {
+            DataStore result = new LeasedDataStore(store);
+            entry.addUser(result);
+            return result;
+        } finally {
+            entry.release();
+        }
     }
 
     @Override
@@ -201,7 +293,33 @@ public class DirectoryDataStore implements DataStore {
 
     @Override
     public void removeSchema(String name) throws IOException {
-        getDataStore(name).removeSchema(name);
+        FileEntry entry = cache.getFileEntry(name, true);
+        DataStore store = acquire(entry, name);
+        try {
+            store.removeSchema(name);
+        } finally {
+            entry.release();
+        }
+        cache.clearSchema(name);
+    }
+
+    /**
+     * Sets the maximum number of file data stores kept open at any given time, the least recently
+     * used ones are closed when the limit is exceeded
+     * 
+     * @param maxOpenStores
+     */
+    public void setMaxOpenStores(int maxOpenStores) {
+        cache.setMaxOpenStores(maxOpenStores);
+    }
+
+    /**
+     * Sets the time after which an unused file data store is closed, in milliseconds
+     * 
+     * @param maxIdleTime
+     */
+    public void setMaxIdleTime(long maxIdleTime) {
+        cache.setMaxIdleTime(maxIdleTime);
     }
 
 }
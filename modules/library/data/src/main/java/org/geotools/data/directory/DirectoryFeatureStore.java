@@ -23,6 +23,7 @@ import org.geotools.data.FeatureListener;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.FeatureStore;
 import org.geotools.data.Transaction;
+import org.geotools.data.directory.DirectoryTypeCache.FileEntry;
 import org.geotools.data.simple.SimpleFeatureStore;
 import org.geotools.feature.FeatureCollection;
 import org.opengis.feature.simple.SimpleFeature;
@@ -42,6 +43,11 @@ public class DirectoryFeatureStore extends DirectoryFeatureSource implements
 
     SimpleFeatureStore fstore;
 
+    /**
+     * The pooled entry of the wrapped store, kept in use while transactions are pending
+     */
+    FileEntry entry;
+
     public DirectoryFeatureStore(SimpleFeatureStore store) {
         super(store);
         this.fstore = store;
@@ -96,6 +102,9 @@ public class DirectoryFeatureStore extends DirectoryFeatureSource implements
 
     public void setTransaction(Transaction transaction) {
         fstore.setTransaction(transaction);
+        if (entry != null) {
+            entry.addTransaction(transaction);
+        }
     }
 
     public List<FeatureId> addFeatures(
@@ -0,0 +1,258 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.directory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * A persisted index of the type names provided by each file in a directory, used to avoid opening
+ * all the data stores in the directory just to list the available feature types.
+ * <p>
+ * Each record is associated to the file last modification time and size, if either changed the
+ * record is considered stale. The index files are stored in the folder pointed by the
+ * <code>org.geotools.data.directory.indexCacheDir</code> system variable, which defaults to a
+ * <code>geotools-directory-index</code> folder in the temporary directory. Setting the variable
+ * to an empty string disables persistence.
+ */
+class DirectoryIndex {
+    static final Logger LOGGER = Logging.getLogger(DirectoryIndex.class);
+
+    static final int VERSION = 1;
+
+    /**
+     * The folder holding the index files, or null if the index is not persisted
+     */
+    static final File INDEX_CACHE_DIR;
+
+    static {
+        File dir = null;
+        try {
+            String path = System.getProperty("org.geotools.data.directory.indexCacheDir");
+            if (path == null) {
+                dir = new File(System.getProperty("java.io.tmpdir"), "geotools-directory-index");
+            } else if (path.trim().length() > 0) {
+                dir = new File(path);
+            }
+        } catch (Throwable t) {
+            LOGGER.log(Level.SEVERE, "Could not set the directory index cache folder", t);
+        }
+        INDEX_CACHE_DIR = dir;
+    }
+
+    /**
+     * The type names provided by a file, along with the file state they have been computed for
+     */
+    static class Record {
+        long lastModified;
+
+        long length;
+
+        List<String> typeNames;
+
+        Record(long lastModified, long length, List<String> typeNames) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.typeNames = typeNames;
+        }
+    }
+
+    /**
+     * The directory being indexed
+     */
+    String directory;
+
+    /**
+     * The class of the factory opening the files, the type names depend on it too
+     */
+    String factoryName;
+
+    /**
+     * The file the index is persisted into, or null if not persisted
+     */
+    File indexFile;
+
+    Map<String, Record> records = new HashMap<String, Record>();
+
+    boolean dirty;
+
+    DirectoryIndex(File directory, FileStoreFactory factory) {
+        this(directory, factory, INDEX_CACHE_DIR);
+    }
+
+    DirectoryIndex(File directory, FileStoreFactory factory, File indexCacheDir) {
+        String path;
+        try {
+            path = directory.getCanonicalPath();
+        } catch (IOException e) {
+            path = directory.getAbsolutePath();
+        }
+        this.directory = path;
+        this.factoryName = factory.getClass().getName();
+        if (indexCacheDir != null) {
+            String key = path + "|" + factoryName;
+            indexFile = new File(indexCacheDir, Integer.toHexString(key.hashCode()) + "-"
+                    + Integer.toHexString(key.length()) + ".idx");
+            load();
+        }
+    }
+
+    /**
+     * Returns the type names provided by the file, or null if the file is not indexed, or has
+     * been modified since it was indexed
+     */
+    synchronized List<String> getTypeNames(File file) {
+        Record record = records.get(file.getName());
+        if (record == null || record.lastModified != file.lastModified()
+                || record.length != file.length()) {
+            return null;
+        }
+        return record.typeNames;
+    }
+
+    /**
+     * Records the type names provided by the file
+     */
+    synchronized void put(File file, List<String> typeNames) {
+        records.put(file.getName(),
+                new Record(file.lastModified(), file.length(), new ArrayList<String>(typeNames)));
+        dirty = true;
+    }
+
+    /**
+     * Removes the records of the files that are no longer in the directory
+     */
+    synchronized void retain(Collection<String> fileNames) {
+        for (Iterator<String> it = records.keySet().iterator(); it.hasNext();) {
+            if (!fileNames.contains(it.next())) {
+                it.remove();
+                dirty = true;
+            }
+        }
+    }
+
+    void load() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        DataInputStream is = null;
+        try {
+            is = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            if (is.readInt() != VERSION || !directory.equals(is.readUTF())
+                    || !factoryName.equals(is.readUTF())) {
+                return;
+            }
+            Map<String, Record> loaded = new HashMap<String, Record>();
+            int count = is.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = is.readUTF();
+                long lastModified = is.readLong();
+                long length = is.readLong();
+                int typeCount = is.readInt();
+                List<String> typeNames = new ArrayList<String>(typeCount);
+                for (int j = 0; j < typeCount; j++) {
+                    typeNames.add(is.readUTF());
+                }
+                loaded.put(name, new Record(lastModified, length, typeNames));
+            }
+            records = loaded;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not read the directory index " + indexFile, e);
+        } finally {
+            close(is);
+        }
+    }
+
+    /**
+     * Persists the index, if it has been modified since the last save
+     */
+    synchronized void save() {
+        if (indexFile == null || !dirty) {
+            return;
+        }
+        File parent = indexFile.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            LOGGER.log(Level.FINE, "Could not create the directory index folder " + parent);
+            return;
+        }
+        DataOutputStream os = null;
+        File tmp = null;
+        try {
+            // write and rename, so that concurrent readers never see a partial file
+            tmp = File.createTempFile("index", ".tmp", parent);
+            os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            os.writeInt(VERSION);
+            os.writeUTF(directory);
+            os.writeUTF(factoryName);
+            os.writeInt(records.size());
+            for (Map.Entry<String, Record> entry : records.entrySet()) {
+                Record record = entry.getValue();
+                os.writeUTF(entry.getKey());
+                os.writeLong(record.lastModified);
+                os.writeLong(record.length);
+                os.writeInt(record.typeNames.size());
+                for (String typeName : record.typeNames) {
+                    os.writeUTF(typeName);
+                }
+            }
+            os.close();
+            os = null;
+            if (indexFile.exists()) {
+                indexFile.delete();
+            }
+            if (!tmp.renameTo(indexFile)) {
+                throw new IOException("Could not rename " + tmp + " to " + indexFile);
+            }
+            tmp = null;
+            dirty = false;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not save the directory index " + indexFile, e);
+        } finally {
+            close(os);
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Error closing the directory index " + indexFile, e);
+            }
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.geotools.data.DataStore;
 import org.geotools.data.FeatureLock;
 import org.geotools.data.LockingManager;
 import org.geotools.data.Transaction;
+import org.geotools.data.directory.DirectoryTypeCache.FileEntry;
 
 /**
  * Locking manager that will delegate its work to the locking managers of the 
@@ -83,22 +84,34 @@ public class DirectoryLockingManager implements LockingManager {
     public void unLockFeatureID(String typeName, String authID,
         Transaction transaction, FeatureLock featureLock)
         throws IOException {
-        DataStore store = cache.getDataStore(typeName, false);
-
-        if ((store != null) && (store.getLockingManager() != null)) {
-            store.getLockingManager().unLockFeatureID(typeName, authID,
-                transaction, featureLock);
+        FileEntry entry = cache.getFileEntry(typeName, false);
+        DataStore store = entry.acquire();
+        try {
+            if ((store != null) && (store.getLockingManager() != null)) {
+                store.getLockingManager().unLockFeatureID(typeName, authID,
+                    transaction, featureLock);
+            }
+        } finally {
+            if (store != null) {
+                entry.release();
+            }
         }
     }
 
     public void lockFeatureID(String typeName, String authID,
         Transaction transaction, FeatureLock featureLock)
         throws IOException {
-        DataStore store = cache.getDataStore(typeName, false);
-
-        if ((store != null) && (store.getLockingManager() != null)) {
-            store.getLockingManager().lockFeatureID(typeName, authID,
-                transaction, featureLock);
+        FileEntry entry = cache.getFileEntry(typeName, false);
+        DataStore store = entry.acquire();
+        try {
+            if ((store != null) && (store.getLockingManager() != null)) {
+                store.getLockingManager().lockFeatureID(typeName, authID,
+                    transaction, featureLock);
+            }
+        } finally {
+            if (store != null) {
+                entry.release();
+            }
         }
     }
 
@@ -20,19 +20,21 @@ package org.geotools.data.directory;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
-import java.lang.ref.SoftReference;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -42,18 +44,54 @@ import org.geotools.data.DataStore;
 import org.geotools.data.DataStoreFactorySpi;
 import org.geotools.data.DataStoreFinder;
 import org.geotools.data.DataAccessFactory.Param;
+import org.geotools.data.InProcessLockingManager;
+import org.geotools.data.LockingManager;
+import org.geotools.data.Transaction;
 import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeatureType;
 
 /**
  * <p>Handles all of the data stores that a directory data store relies onto,
  * centralizing the gathering and caching policies and code.</p>
  * <p>The class is completely thread safe</p>
+ * <p>The data stores are opened lazily, on first access, and kept in a pool of bounded size,
+ * closing the least recently used ones when the pool is full, or when they have been idle for
+ * too long. Stores that are still in use, that is, with open readers or writers, feature
+ * sources still referenced, pending transactions or feature locks, are never closed by the pool. The limits default to 256 stores and
+ * 5 minutes, and can be changed using the
+ * <code>org.geotools.data.directory.maxOpenStores</code> and
+ * <code>org.geotools.data.directory.maxIdleTime</code> (milliseconds) system variables. The type
+ * names are cached in a {@link DirectoryIndex}, so that listing them does not require opening the
+ * stores, and the schemas are cached as well once loaded.</p>
  * 
  * @author Andrea Aime - OpenGeo
  */
 class DirectoryTypeCache {
     static final Logger LOGGER = Logging.getLogger(DirectoryTypeCache.class);
 
+    static final int DEFAULT_MAX_OPEN_STORES;
+
+    static final long DEFAULT_MAX_IDLE_TIME;
+
+    static {
+        int maxOpenStores = 256;
+        long maxIdleTime = 5 * 60 * 1000;
+        try {
+            String value = System.getProperty("org.geotools.data.directory.maxOpenStores");
+            if (value != null) {
+                maxOpenStores = Integer.parseInt(value);
+            }
+            value = System.getProperty("org.geotools.data.directory.maxIdleTime");
+            if (value != null) {
+                maxIdleTime = Long.parseLong(value);
+            }
+        } catch (Throwable t) {
+            LOGGER.log(Level.SEVERE, "Could not set the directory store pool limits", t);
+        }
+        DEFAULT_MAX_OPEN_STORES = maxOpenStores;
+        DEFAULT_MAX_IDLE_TIME = maxIdleTime;
+    }
+
     /**
      * The feature type cache, a map from the feature type to the 
      * information of where the feature type is coming from
@@ -80,6 +118,27 @@ class DirectoryTypeCache {
      * Will create the delegate stores
      */
     FileStoreFactory factory;
+
+    /**
+     * The type names provided by each file
+     */
+    DirectoryIndex index;
+
+    /**
+     * The entries with an open store, in least recently used order
+     */
+    LinkedHashMap<File, FileEntry> openEntries = new LinkedHashMap<File, FileEntry>(16, 0.75f,
+            true);
+
+    /**
+     * Maximum number of stores kept open
+     */
+    int maxOpenStores = DEFAULT_MAX_OPEN_STORES;
+
+    /**
+     * Time after which an unused store gets closed, in milliseconds
+     */
+    long maxIdleTime = DEFAULT_MAX_IDLE_TIME;
     
     /**
      * Builds a new cache.
@@ -108,6 +167,7 @@ class DirectoryTypeCache {
         
         this.directory = directory;
         this.factory = factory;
+        this.index = new DirectoryIndex(directory, factory);
 
         this.watcher = new ImmediateDirectoryWatcher(directory);
     }
@@ -121,21 +181,57 @@ class DirectoryTypeCache {
      * @return
      */
     DataStore getDataStore(String typeName, boolean forceUpdate) throws IOException {
+        return getFileEntry(typeName, forceUpdate).getStore(true);
+    }
+
+    /**
+     * Returns the entry of the file providing a specific feature type
+     * 
+     * @param typeName
+     * @param forceUpdate If true, it will force the update
+     * @throws IOException if the feature type is not available
+     */
+    FileEntry getFileEntry(String typeName, boolean forceUpdate) throws IOException {
         lock.readLock().lock();
         try {
             if(forceUpdate)
                 updateCache();
-            // TODO: check about re-creating the datastore when the cache
-            // is turned into a soft map
             FileEntry fileEntry = ftCache.get(typeName);
             if( fileEntry == null){
                 throw new IOException("Not available: "+typeName );
             }
-            return fileEntry.getStore(true);
+            return fileEntry;
         } finally {
             lock.readLock().unlock();
         }
     }
+
+    /**
+     * Returns the schema of the specified feature type, opening its store only if the schema has
+     * not been loaded before
+     */
+    SimpleFeatureType getSchema(String typeName) throws IOException {
+        lock.readLock().lock();
+        try {
+            FileEntry fileEntry = ftCache.get(typeName);
+            if (fileEntry == null) {
+                throw new IOException("Not available: " + typeName);
+            }
+            return fileEntry.getSchema(typeName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the cached schema of the specified feature type, to be called after schema changes
+     */
+    void clearSchema(String typeName) {
+        FileEntry fileEntry = ftCache.get(typeName);
+        if (fileEntry != null) {
+            fileEntry.schemas.remove(typeName);
+        }
+    }
     
     /**
      * Returns all the type names known
@@ -232,27 +328,53 @@ class DirectoryTypeCache {
         }
         
         // grab all the candidate files
+        Set<String> fileNames = new HashSet<String>();
         for (File file : directory.listFiles()) {
             // skip over directories, we don't recurse
             if(file.isDirectory()) {
                 continue;
             }
+            fileNames.add(file.getName());
             
             // do we have the same datastore in the current cache? If so keep it, we don't
             // want to rebuild over and over the same stores
             FileEntry entry = fileCache.get(file);
             
-            // if missing build a new one
-            if(entry == null) {
-                DataStore store = factory.getDataStore(file);
-                if(store != null) {
-                    entry = new FileEntry(file, store);
+            // the index tells us the type names of the files that did not change since they
+            // were last opened, without opening them again
+            List<String> typeNames = index.getTypeNames(file);
+            if (typeNames == null) {
+                // if missing build a new one
+                if(entry == null) {
+                    DataStore store = factory.getDataStore(file);
+                    if(store != null) {
+                        entry = new FileEntry(file, store);
+                    }
+                } else {
+                    entry.schemas.clear();
+                }
+                DataStore store = entry != null ? entry.getStore(true) : null;
+                if (store != null) {
+                    typeNames = Arrays.asList(store.getTypeNames());
+                } else {
+                    typeNames = Collections.emptyList();
+                }
+                if (typeNames.isEmpty() && entry != null) {
+                    // entries coming from the current cache are disposed below
+                    if (entry != fileCache.get(file)) {
+                        entry.dispose();
+                    }
+                    entry = null;
                 }
+                index.put(file, typeNames);
+            } else if (entry == null && !typeNames.isEmpty()) {
+                // will be opened on first access
+                entry = new FileEntry(file);
             }
             
             // if we managed to build an entry collect its feature types
             if(entry != null) {
-                for (String typeName : entry.getStore(true).getTypeNames()) {
+                for (String typeName : typeNames) {
                     // don't override existing entries
                     if (!result.containsKey(typeName))
                         result.put(typeName, entry);
@@ -295,6 +417,51 @@ class DirectoryTypeCache {
         for (String newFeatureType : added) {
             ftCache.put(newFeatureType, result.get(newFeatureType));
         }
+
+        // persist the type names for the next startup
+        index.retain(fileNames);
+        index.save();
+    }
+
+    /**
+     * Marks the entry as just used, closing the least recently used stores if the pool is full,
+     * and the ones that have been idle for too long. Stores still in use are skipped, the pool
+     * can temporarily grow over its limit if all of them are.
+     */
+    void touch(FileEntry entry) {
+        List<FileEntry> evicted = new ArrayList<FileEntry>();
+        synchronized (openEntries) {
+            long now = System.currentTimeMillis();
+            entry.lastAccess = now;
+            openEntries.put(entry.file, entry);
+            for (Iterator<FileEntry> it = openEntries.values().iterator(); it.hasNext();) {
+                FileEntry eldest = it.next();
+                if (eldest == entry || (openEntries.size() <= maxOpenStores
+                        && now - eldest.lastAccess <= maxIdleTime)) {
+                    break;
+                }
+                if (eldest.isInUse()) {
+                    continue;
+                }
+                it.remove();
+                evicted.add(eldest);
+            }
+        }
+        // close the stores outside of the pool lock, unless they got acquired in the meantime
+        // (in that case they are back in the pool already)
+        for (FileEntry fileEntry : evicted) {
+            if (fileEntry.close() && LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Closed the store for " + fileEntry.file);
+            }
+        }
+    }
+
+    void setMaxOpenStores(int maxOpenStores) {
+        this.maxOpenStores = maxOpenStores;
+    }
+
+    void setMaxIdleTime(long maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
     }
 
     /**
@@ -368,27 +535,202 @@ class DirectoryTypeCache {
     class FileEntry {
         File file;
 
-        SoftReference<DataStore> ref;
-        
+        DataStore store;
+
+        long lastAccess;
+
+        /**
+         * Number of open readers and writers using the store
+         */
+        int leases;
+
+        /**
+         * The feature sources wrapping the store, the store is in use as long as they are
+         * referenced
+         */
+        Set<Object> users = Collections.newSetFromMap(new WeakHashMap<Object, Boolean>());
+
+        /**
+         * The schemas already loaded, they survive the store being closed
+         */
+        Map<String, SimpleFeatureType> schemas = new ConcurrentHashMap<String, SimpleFeatureType>();
+
+        public FileEntry(File file) {
+            this.file = file;
+        }
+
         public FileEntry(File file, DataStore store) {
             this.file = file;
-            ref = new DataStoreSoftReference(store);
+            this.store = store;
+            touch(this);
         }
         
         DataStore getStore(boolean force) throws IOException {
-            DataStore store = ref != null ? ref.get() : null;
-            if(store == null && force) {
-                store = factory.getDataStore(file);
-                ref = new DataStoreSoftReference(store);
-            } 
-            return store;
+            DataStore result;
+            synchronized (this) {
+                if (store == null && force) {
+                    store = factory.getDataStore(file);
+                }
+                result = store;
+            }
+            if (result != null && force) {
+                touch(this);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the store, opening it if necessary, and marks it as in use until
+         * {@link #release()} is called. Returns null if the store could not be opened.
+         */
+        DataStore acquire() throws IOException {
+            DataStore result;
+            synchronized (this) {
+                if (store == null) {
+                    store = factory.getDataStore(file);
+                }
+                result = store;
+                if (result != null) {
+                    leases++;
+                }
+            }
+            if (result != null) {
+                touch(this);
+            }
+            return result;
+        }
+
+        /**
+         * Releases a store acquired with {@link #acquire()}, the idle time starts from now
+         */
+        void release() {
+            synchronized (this) {
+                leases--;
+            }
+            touch(this);
+        }
+
+        /**
+         * Marks the store as in use for as long as the specified object is referenced
+         */
+        synchronized void addUser(Object user) {
+            users.add(user);
+        }
+
+        /**
+         * Marks the store as in use until the specified transaction is closed
+         */
+        void addTransaction(Transaction transaction) {
+            if (transaction == null || transaction == Transaction.AUTO_COMMIT) {
+                return;
+            }
+            synchronized (transaction) {
+                if (transaction.getState(this) == null) {
+                    transaction.putState(this, new LeaseState());
+                }
+            }
+        }
+
+        synchronized boolean isInUse() {
+            return leases > 0 || !users.isEmpty() || holdsLocks();
+        }
+
+        /**
+         * Returns true if the store holds feature locks, they would be lost by closing it. Locking
+         * managers other than {@link InProcessLockingManager} cannot be inspected, so the store is
+         * assumed to hold locks
+         */
+        boolean holdsLocks() {
+            if (store == null) {
+                return false;
+            }
+            LockingManager lm = store.getLockingManager();
+            if (lm instanceof InProcessLockingManager) {
+                return !((InProcessLockingManager) lm).allLocks().isEmpty();
+            }
+            return lm != null;
+        }
+
+        SimpleFeatureType getSchema(String typeName) throws IOException {
+            SimpleFeatureType schema = schemas.get(typeName);
+            if (schema == null) {
+                DataStore store = getStore(true);
+                if (store == null) {
+                    throw new IOException("Not available: " + typeName);
+                }
+                schema = store.getSchema(typeName);
+                schemas.put(typeName, schema);
+            }
+            return schema;
+        }
+
+        /**
+         * Closes the store unless it's in use, it will be opened again on the next access
+         * 
+         * @return true if the store got closed
+         */
+        boolean close() {
+            DataStore closed;
+            synchronized (this) {
+                if (isInUse()) {
+                    return false;
+                }
+                closed = store;
+                store = null;
+            }
+            if (closed != null) {
+                closed.dispose();
+            }
+            return closed != null;
         }
         
+        /**
+         * Closes the store even if it's still in use, the file has been removed or the whole
+         * cache is being disposed
+         */
         void dispose() {
-            DataStore store = ref != null ? ref.get() : null;
-            if(store != null)
-                store.dispose();
-            ref.clear();
+            synchronized (openEntries) {
+                if (openEntries.get(file) == this) {
+                    openEntries.remove(file);
+                }
+            }
+            DataStore closed;
+            synchronized (this) {
+                closed = store;
+                store = null;
+            }
+            if (closed != null) {
+                closed.dispose();
+            }
+        }
+
+        /**
+         * Leases the store for the lifetime of a transaction, the transaction state might need it
+         * to commit or roll back
+         */
+        class LeaseState implements Transaction.State {
+            boolean leased;
+
+            public void setTransaction(Transaction transaction) {
+                if (transaction != null) {
+                    synchronized (FileEntry.this) {
+                        leases++;
+                    }
+                    leased = true;
+                } else if (leased) {
+                    leased = false;
+                    release();
+                }
+            }
+
+            public void addAuthorization(String AuthID) throws IOException {
+            }
+
+            public void commit() throws IOException {
+            }
+
+            public void rollback() throws IOException {
+            }
         }
     }
     
@@ -0,0 +1,78 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.directory;
+
+import java.io.IOException;
+
+import org.geotools.data.DelegatingFeatureWriter;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.directory.DirectoryTypeCache.FileEntry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Keeps the file data store in use while the writer is open, so that the store pool does not
+ * close it under the writer
+ */
+class LeasedFeatureWriter implements
+        DelegatingFeatureWriter<SimpleFeatureType, SimpleFeature> {
+
+    FeatureWriter<SimpleFeatureType, SimpleFeature> delegate;
+
+    FileEntry entry;
+
+    LeasedFeatureWriter(FeatureWriter<SimpleFeatureType, SimpleFeature> delegate, FileEntry entry) {
+        this.delegate = delegate;
+        this.entry = entry;
+    }
+
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getDelegate() {
+        return delegate;
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return delegate.getFeatureType();
+    }
+
+    public SimpleFeature next() throws IOException {
+        return delegate.next();
+    }
+
+    public void remove() throws IOException {
+        delegate.remove();
+    }
+
+    public void write() throws IOException {
+        delegate.write();
+    }
+
+    public boolean hasNext() throws IOException {
+        return delegate.hasNext();
+    }
+
+    public void close() throws IOException {
+        if (entry != null) {
+            try {
+                delegate.close();
+            } finally {
+                entry.release();
+                entry = null;
+            }
+        }
+    }
+
+}
@@ -241,7 +241,10 @@ public class MemoryDataStore extends ContentDataStore {
         SimpleFeatureType featureType = feature.getFeatureType();
         try {
             MemoryEntry entry = entry(featureType);
-            entry.memory.put( feature.getID(),  feature );
+            synchronized (entry) {
+                entry.memory.put( feature.getID(),  feature );
+                entry.invalidate();
+            }
         } catch (IOException e) {
             LOGGER.log(Level.FINER, e.getMessage(), e);
         }
@@ -27,10 +27,13 @@ import org.opengis.feature.simple.SimpleFeatureType;
  * Entry used to store features (of a single FeatureType).
  * <p>
  * <p>
- * Please be sure to synchronize on entry before access:
+ * Please be sure to synchronize on entry before access, and to invalidate the snapshot after
+ * changes:
  * <pre><code> synchronize ( entry ){
  *     entry.memory.put( feature.getID(), feature );
+ *     entry.invalidate();
  * }</code></pre>
+ * Readers should use the snapshot instead, which does not require synchronization.
  * 
  * @author Jody Garnett (Boundless)
  */
@@ -51,6 +54,13 @@ public class MemoryEntry extends ContentEntry {
      */
     Map<String, SimpleFeature> memory;
 
+    /**
+     * Read-only copy of {@link #memory} shared by the readers, rebuilt on demand after each
+     * modification. Make sure to call {@link #invalidate()} after changing the contents of
+     * {@link #memory}.
+     */
+    volatile MemorySnapshot snapshot;
+
     /**
      * Entry to store content of the provided SimpleFeatureType.
      * 
@@ -63,6 +73,34 @@ public class MemoryEntry extends ContentEntry {
         memory = new LinkedHashMap<String, SimpleFeature>();
     }
 
+    /**
+     * Returns the current snapshot of the features. Readers can use it without synchronizing on
+     * the entry, and it won't be affected by later additions or removals.
+     * 
+     * @return
+     */
+    MemorySnapshot getSnapshot() {
+        MemorySnapshot result = snapshot;
+        if (result == null) {
+            synchronized (this) {
+                result = snapshot;
+                if (result == null) {
+                    result = new MemorySnapshot(memory.values());
+                    snapshot = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops the current snapshot, to be called while synchronized on the entry after each change
+     * to {@link #memory}
+     */
+    void invalidate() {
+        snapshot = null;
+    }
+
     protected MemoryState createContentState(ContentEntry entry) {
         return new MemoryState( (MemoryEntry) entry );
     }
@@ -17,9 +17,7 @@
 package org.geotools.data.memory;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.geotools.data.DataSourceException;
@@ -27,9 +25,16 @@ import org.geotools.data.FeatureReader;
 import org.geotools.data.Query;
 import org.geotools.data.store.ContentState;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
 import org.opengis.feature.IllegalAttributeException;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Envelope;
 
 /**
  * Read contents from MemoryDataStore.
@@ -42,12 +47,43 @@ public class MemoryFeatureReader implements FeatureReader<SimpleFeatureType, Sim
     public MemoryFeatureReader(ContentState state, Query query) throws IOException {
         featureType = state.getFeatureType();
         MemoryEntry entry = (MemoryEntry) state.getEntry();
-        
-        synchronized (entry) {
-            final List<SimpleFeature> internalCollection = new ArrayList<SimpleFeature>(
-                    entry.memory.values());
-            iterator = internalCollection.iterator();
+
+        // the snapshot is immutable, no need to lock or copy, just use the spatial index
+        // to narrow down the features if the filter has a spatial component
+        MemorySnapshot snapshot = entry.getSnapshot();
+        Envelope bbox = getTargetBBox(query);
+        if (bbox != null) {
+            iterator = snapshot.getFeatures(bbox).iterator();
+        } else {
+            iterator = snapshot.getFeatures().iterator();
+        }
+    }
+
+    /**
+     * Returns the bbox the features must intersect to possibly match the query filter, or null if
+     * the filter has no (usable) spatial component
+     */
+    Envelope getTargetBBox(Query query) {
+        if (query == null || query.getFilter() == null || query.getFilter() == Filter.INCLUDE) {
+            return null;
+        }
+        Envelope bbox = (Envelope) query.getFilter().accept(
+                ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+        if (bbox == null || bbox.isNull() || Double.isInfinite(bbox.getWidth())
+                || Double.isInfinite(bbox.getHeight())) {
+            return null;
+        }
+        // the index is built in the native CRS, bail out if the filter uses a different one
+        if (bbox instanceof ReferencedEnvelope && featureType != null) {
+            CoordinateReferenceSystem bboxCRS = ((ReferencedEnvelope) bbox)
+                    .getCoordinateReferenceSystem();
+            CoordinateReferenceSystem nativeCRS = featureType.getCoordinateReferenceSystem();
+            if (bboxCRS != null && nativeCRS != null
+                    && !CRS.equalsIgnoreMetadata(bboxCRS, nativeCRS)) {
+                return null;
+            }
         }
+        return bbox;
     }
 
     public SimpleFeatureType getFeatureType() {
@@ -63,18 +63,9 @@ public class MemoryFeatureSource extends ContentFeatureSource {
     @Override
     protected ReferencedEnvelope getBoundsInternal(Query query) throws IOException {
         if (query.getFilter() == Filter.INCLUDE) { //filtering not implemented
-            FeatureReader<SimpleFeatureType, SimpleFeature> featureReader = getReaderInternal(query);
-            CoordinateReferenceSystem crs = featureReader.getFeatureType().getCoordinateReferenceSystem();
-            ReferencedEnvelope bounds = ReferencedEnvelope.create(crs);
-            try {
-                while (featureReader.hasNext()) {
-                    SimpleFeature feature = featureReader.next();
-                    bounds.include(feature.getBounds());
-                }
-            } finally {
-                featureReader.close();
-            }
-            return bounds;
+            // bounds are cached in the snapshot until the next modification
+            CoordinateReferenceSystem crs = getSchema().getCoordinateReferenceSystem();
+            return getEntry().getSnapshot().getBounds(crs);
         }
         return null; // feature by feature scan required to count records
     }
@@ -82,10 +73,7 @@ public class MemoryFeatureSource extends ContentFeatureSource {
     @Override
     protected int getCountInternal(Query query) throws IOException {
         if (query.getFilter() == Filter.INCLUDE) {
-            MemoryEntry entry = getEntry();
-            synchronized (entry) {
-                return entry.memory.size();
-            }
+            return getEntry().getSnapshot().size();
         }
         //feature by feature count required
         return -1;
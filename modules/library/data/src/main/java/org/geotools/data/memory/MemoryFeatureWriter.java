@@ -96,7 +96,11 @@ public class MemoryFeatureWriter implements FeatureWriter<SimpleFeatureType, Sim
 
         if (live != null) {
             // remove existing content
-            iterator.remove();
+            MemoryEntry entry = state.getEntry();
+            synchronized (entry) {
+                iterator.remove();
+                entry.invalidate();
+            }
             live = null;
             current = null;
         } else {
@@ -123,11 +127,17 @@ public class MemoryFeatureWriter implements FeatureWriter<SimpleFeatureType, Sim
             } else {
                 // accept modifications
                 //
-                try {
-                    live.setAttributes(current.getAttributes());
-                } catch (Exception e) {
-                    throw new DataSourceException("Unable to accept modifications to "
-                        + live.getID() + " on " + typeName);
+                MemoryEntry entry = state.getEntry();
+                synchronized (entry) {
+                    try {
+                        live.setAttributes(current.getAttributes());
+                    } catch (Exception e) {
+                        throw new DataSourceException("Unable to accept modifications to "
+                            + live.getID() + " on " + typeName);
+                    } finally {
+                        // the geometry might have changed, the spatial index must be rebuilt
+                        entry.invalidate();
+                    }
                 }
     
                 ReferencedEnvelope bounds = new ReferencedEnvelope();
@@ -141,6 +151,7 @@ public class MemoryFeatureWriter implements FeatureWriter<SimpleFeatureType, Sim
             MemoryEntry entry = state.getEntry();
             synchronized (entry) {
                 entry.memory.put(current.getID(), current);    
+                entry.invalidate();
             }
             current = null;
         }
@@ -0,0 +1,158 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.memory;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * Immutable view of the contents of a {@link MemoryEntry}, shared by all the readers until the
+ * entry is modified. The spatial index and the bounds are computed lazily, on first request, so
+ * that write-heavy usage does not pay for them.
+ */
+class MemorySnapshot {
+
+    /**
+     * Below this size a linear scan is faster than building and querying the spatial index
+     */
+    static final int MIN_INDEXED_SIZE = 64;
+
+    final SimpleFeature[] features;
+
+    volatile STRtree index;
+
+    volatile ReferencedEnvelope bounds;
+
+    MemorySnapshot(Collection<SimpleFeature> features) {
+        this.features = features.toArray(new SimpleFeature[features.size()]);
+    }
+
+    /**
+     * The number of features in the snapshot
+     */
+    public int size() {
+        return features.length;
+    }
+
+    /**
+     * All the features, in insertion order
+     */
+    public List<SimpleFeature> getFeatures() {
+        return Collections.unmodifiableList(Arrays.asList(features));
+    }
+
+    /**
+     * The features whose geometries might intersect the envelope, in insertion order
+     */
+    public List<SimpleFeature> getFeatures(Envelope envelope) {
+        if (features.length < MIN_INDEXED_SIZE) {
+            return getFeatures();
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Integer> positions = getIndex().query(envelope);
+        final int[] sorted = new int[positions.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = positions.get(i);
+        }
+        Arrays.sort(sorted);
+        return new AbstractList<SimpleFeature>() {
+
+            @Override
+            public SimpleFeature get(int index) {
+                return features[sorted[index]];
+            }
+
+            @Override
+            public int size() {
+                return sorted.length;
+            }
+        };
+    }
+
+    /**
+     * The bounds of all the features in the snapshot
+     */
+    public ReferencedEnvelope getBounds(CoordinateReferenceSystem crs) {
+        ReferencedEnvelope result = bounds;
+        if (result == null) {
+            result = ReferencedEnvelope.create(crs);
+            for (SimpleFeature feature : features) {
+                Envelope envelope = getEnvelope(feature);
+                if (envelope != null) {
+                    result.expandToInclude(envelope);
+                }
+            }
+            bounds = result;
+        }
+        return new ReferencedEnvelope(result);
+    }
+
+    STRtree getIndex() {
+        STRtree result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = new STRtree();
+                    for (int i = 0; i < features.length; i++) {
+                        Envelope envelope = getEnvelope(features[i]);
+                        if (envelope != null) {
+                            result.insert(envelope, Integer.valueOf(i));
+                        }
+                    }
+                    // build eagerly, the tree is read-only afterwards and can be queried
+                    // concurrently
+                    result.build();
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the envelope of all the geometries in the feature, or null if there are none
+     */
+    static Envelope getEnvelope(SimpleFeature feature) {
+        Envelope result = null;
+        for (Object value : feature.getAttributes()) {
+            if (value instanceof Geometry) {
+                Envelope envelope = ((Geometry) value).getEnvelopeInternal();
+                if (!envelope.isNull()) {
+                    if (result == null) {
+                        result = new Envelope(envelope);
+                    } else {
+                        result.expandToInclude(envelope);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.directory;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.geotools.data.DataStore;
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.FeatureLock;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Tests the {@link DirectoryTypeCache} store pooling and eviction
+ */
+public class DirectoryTypeCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    File directory;
+
+    File indexDir;
+
+    CountingFactory factory = new CountingFactory();
+
+    /**
+     * Opens a memory store for each .txt file, counting opened and closed stores
+     */
+    static class CountingFactory implements FileStoreFactory {
+        int opened;
+
+        int disposed;
+
+        public DataStore getDataStore(File file) throws IOException {
+            String name = file.getName();
+            if (!name.endsWith(".txt")) {
+                return null;
+            }
+            opened++;
+            MemoryDataStore store = new MemoryDataStore() {
+                @Override
+                public void dispose() {
+                    disposed++;
+                    super.dispose();
+                }
+            };
+            try {
+                store.createSchema(DataUtilities.createType(
+                        name.substring(0, name.length() - 4), "geom:Point,name:String"));
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            return store;
+        }
+    }
+
+    @Before
+    public void setup() throws IOException {
+        directory = folder.newFolder("data");
+        indexDir = folder.newFolder("index");
+        for (String name : new String[] { "a.txt", "b.txt", "c.txt", "d.txt", "readme.md" }) {
+            assertTrue(new File(directory, name).createNewFile());
+        }
+    }
+
+    DirectoryTypeCache buildCache() throws IOException {
+        DirectoryTypeCache cache = new DirectoryTypeCache(directory, factory);
+        cache.index = new DirectoryIndex(directory, factory, indexDir);
+        return cache;
+    }
+
+    @Test
+    public void testTypeNamesFromIndex() throws IOException {
+        DirectoryTypeCache cache = buildCache();
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c", "d")),
+                cache.getTypeNames());
+        assertEquals(4, factory.opened);
+        cache.dispose();
+        assertEquals(4, factory.disposed);
+
+        // a new cache gets the type names from the persisted index
+        cache = buildCache();
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c", "d")),
+                cache.getTypeNames());
+        assertEquals(4, factory.opened);
+
+        // the store is opened on first access, the schema is cached
+        assertEquals("c", cache.getSchema("c").getTypeName());
+        assertEquals(5, factory.opened);
+        assertNotNull(cache.getDataStore("c", false));
+        assertEquals(5, factory.opened);
+        cache.getDataStore("d", false);
+        assertEquals(6, factory.opened);
+        cache.dispose();
+    }
+
+    @Test
+    public void testIndexInvalidation() throws IOException {
+        buildCache().getTypeNames();
+        assertEquals(4, factory.opened);
+
+        // a file changed since the index was built is opened again
+        File a = new File(directory, "a.txt");
+        assertTrue(a.setLastModified(a.lastModified() - 10000));
+        DirectoryTypeCache cache = buildCache();
+        cache.getTypeNames();
+        assertEquals(5, factory.opened);
+        cache.dispose();
+    }
+
+    @Test
+    public void testMaxOpenStores() throws IOException {
+        DirectoryTypeCache cache = buildCache();
+        cache.setMaxOpenStores(2);
+        cache.getTypeNames();
+        assertEquals(2, cache.getDataStores().size());
+        assertEquals(2, factory.disposed);
+
+        cache.getDataStore("a", false);
+        cache.getDataStore("b", false);
+        cache.getDataStore("c", false);
+        assertEquals(2, cache.getDataStores().size());
+        assertNull(cache.ftCache.get("a").getStore(false));
+        assertNotNull(cache.ftCache.get("b").getStore(false));
+        assertNotNull(cache.ftCache.get("c").getStore(false));
+
+        // the schemas survive the store being closed
+        int opened = factory.opened;
+        cache.getSchema("b");
+        cache.getDataStore("d", false);
+        cache.getSchema("b");
+        assertEquals(opened + 1, factory.opened);
+        cache.dispose();
+    }
+
+    @Test
+    public void testIdleStoresClosed() throws Exception {
+        DirectoryTypeCache cache = buildCache();
+        cache.getTypeNames();
+        cache.setMaxIdleTime(50);
+        cache.getDataStore("a", false);
+        Thread.sleep(100);
+        cache.getDataStore("b", false);
+        assertNull(cache.ftCache.get("a").getStore(false));
+        assertNotNull(cache.ftCache.get("b").getStore(false));
+        cache.dispose();
+    }
+
+    @Test
+    public void testStoresInUseNotClosed() throws Exception {
+        DirectoryDataStore store = new DirectoryDataStore(directory, factory);
+        store.cache = buildCache();
+        store.setMaxOpenStores(1);
+        DirectoryTypeCache cache = store.cache;
+
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = store.getFeatureReader(
+                new Query("a"), Transaction.AUTO_COMMIT);
+        SimpleFeatureSource source = store.getFeatureSource("b");
+        store.getFeatureReader(new Query("c"), Transaction.AUTO_COMMIT).close();
+        // the pool is over its limit, but the stores in use are kept open
+        assertNotNull(cache.ftCache.get("a").getStore(false));
+        assertNotNull(cache.ftCache.get("b").getStore(false));
+        assertFalse(reader.hasNext());
+
+        // once the reader is closed the store can be evicted, the source is still referenced
+        reader.close();
+        store.getFeatureReader(new Query("d"), Transaction.AUTO_COMMIT).close();
+        assertNull(cache.ftCache.get("a").getStore(false));
+        assertNull(cache.ftCache.get("c").getStore(false));
+        assertNotNull(cache.ftCache.get("b").getStore(false));
+        assertEquals(0, source.getCount(Query.ALL));
+        store.dispose();
+    }
+
+    @Test
+    public void testStoresWithLocksOrTransactionsNotClosed() throws Exception {
+        DirectoryDataStore store = new DirectoryDataStore(directory, factory);
+        store.cache = buildCache();
+        store.setMaxOpenStores(1);
+        DirectoryTypeCache cache = store.cache;
+        cache.getTypeNames();
+
+        // a feature lock held on a, a transaction pending on b, a native store handed out for c
+        store.getLockingManager().lockFeatureID("a", "a.1", Transaction.AUTO_COMMIT,
+                new FeatureLock("test", 60000));
+        Transaction transaction = new DefaultTransaction();
+        store.getFeatureWriter("b", transaction).close();
+        DataStore c = store.getDataStore("c");
+        store.getFeatureReader(new Query("d"), Transaction.AUTO_COMMIT).close();
+        assertNotNull(cache.ftCache.get("a").getStore(false));
+        assertNotNull(cache.ftCache.get("b").getStore(false));
+        assertNotNull(cache.ftCache.get("c").getStore(false));
+
+        // once the lock is released and the transaction closed the stores can be evicted
+        transaction.addAuthorization("test");
+        assertTrue(store.getLockingManager().release("test", transaction));
+        transaction.close();
+        store.getFeatureReader(new Query("d"), Transaction.AUTO_COMMIT).close();
+        assertNull(cache.ftCache.get("a").getStore(false));
+        assertNull(cache.ftCache.get("b").getStore(false));
+        assertEquals(2, c.getSchema("c").getAttributeCount());
+        store.dispose();
+    }
+}
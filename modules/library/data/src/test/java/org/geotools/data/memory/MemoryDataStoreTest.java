@@ -58,6 +58,7 @@ import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.Name;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
+import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.Id;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -1516,4 +1517,60 @@ public class MemoryDataStoreTest extends DataTestCase {
 
         assertEquals(roadFeatures.length + 1, mds.entry("road").memory.size());
 
-    }}
+    }
+    public void testSpatialIndexQuery() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("point", "geom:Point,id:Integer");
+        GeometryFactory gf = new GeometryFactory();
+        MemoryDataStore mds = new MemoryDataStore();
+        for (int i = 0; i < 1000; i++) {
+            mds.addFeature(SimpleFeatureBuilder.build(type,
+                    new Object[] { gf.createPoint(new Coordinate(i % 40, i / 40)), i },
+                    "point." + i));
+        }
+
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        Filter filter = ff.bbox("geom", 10, 10, 15, 15, null);
+        SimpleFeatureCollection features = mds.getFeatureSource("point").getFeatures(filter);
+        assertEquals(36, features.size());
+        // features are returned in insertion order
+        int previous = -1;
+        SimpleFeatureIterator it = features.features();
+        try {
+            while (it.hasNext()) {
+                int id = (Integer) it.next().getAttribute("id");
+                assertTrue(id > previous);
+                previous = id;
+            }
+        } finally {
+            it.close();
+        }
+
+        // the index is rebuilt after modifications
+        mds.addFeature(SimpleFeatureBuilder.build(type,
+                new Object[] { gf.createPoint(new Coordinate(12.5, 12.5)), 1000 }, "point.1000"));
+        assertEquals(37, mds.getFeatureSource("point").getFeatures(filter).size());
+        assertEquals(new ReferencedEnvelope(0, 39, 0, 24, null), mds.getFeatureSource("point")
+                .getBounds());
+    }
+
+    public void testReaderSnapshot() throws Exception {
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = data.getFeatureReader(new Query(
+                "road"), Transaction.AUTO_COMMIT);
+        try {
+            SimpleFeatureBuilder fb = new SimpleFeatureBuilder(roadType);
+            fb.init(roadFeatures[0]);
+            data.addFeature(fb.buildFeature("road.new"));
+
+            // the reader is not affected by the addition
+            int count = 0;
+            while (reader.hasNext()) {
+                reader.next();
+                count++;
+            }
+            assertEquals(roadFeatures.length, count);
+        } finally {
+            reader.close();
+        }
+        assertEquals(roadFeatures.length + 1, data.getFeatureSource("road").getCount(Query.ALL));
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.geotools.feature.AttributeImpl;
+import org.geotools.feature.GeometryAttributeImpl;
+import org.geotools.feature.IllegalAttributeException;
+import org.geotools.feature.type.AttributeDescriptorImpl;
+import org.geotools.feature.type.Types;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.feature.Property;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.geometry.BoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Lightweight {@link SimpleFeature} view over a row of a {@link ColumnarFeatureCollection}.
+ * Values are read from the columns on demand, setters write straight into the collection.
+ */
+class ColumnarFeature implements SimpleFeature {
+
+    final ColumnarFeatureCollection collection;
+
+    final int row;
+
+    ColumnarFeature(ColumnarFeatureCollection collection, int row) {
+        this.collection = collection;
+        this.row = row;
+    }
+
+    public FeatureId getIdentifier() {
+        return new FeatureIdImpl(getID());
+    }
+
+    public String getID() {
+        return collection.getId(row);
+    }
+
+    public SimpleFeatureType getType() {
+        return collection.getSchema();
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return collection.getSchema();
+    }
+
+    public List<Object> getAttributes() {
+        int count = getAttributeCount();
+        List<Object> result = new ArrayList<Object>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(getAttribute(i));
+        }
+        return result;
+    }
+
+    public void setAttributes(List<Object> values) {
+        for (int i = 0; i < values.size(); i++) {
+            setAttribute(i, values.get(i));
+        }
+    }
+
+    public void setAttributes(Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            setAttribute(i, values[i]);
+        }
+    }
+
+    public Object getAttribute(String name) {
+        int index = getType().indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        return getAttribute(index);
+    }
+
+    public void setAttribute(String name, Object value) {
+        int index = getType().indexOf(name);
+        if (index < 0) {
+            throw new IllegalAttributeException("Unknown attribute " + name);
+        }
+        setAttribute(index, value);
+    }
+
+    public Object getAttribute(Name name) {
+        return getAttribute(name.getLocalPart());
+    }
+
+    public void setAttribute(Name name, Object value) {
+        setAttribute(name.getLocalPart(), value);
+    }
+
+    public Object getAttribute(int index) throws IndexOutOfBoundsException {
+        return collection.getValue(row, index);
+    }
+
+    public void setAttribute(int index, Object value) throws IndexOutOfBoundsException {
+        collection.setValue(row, index, value);
+    }
+
+    public int getAttributeCount() {
+        return getType().getAttributeCount();
+    }
+
+    public Object getDefaultGeometry() {
+        GeometryDescriptor descriptor = getType().getGeometryDescriptor();
+        return descriptor != null ? getAttribute(descriptor.getLocalName()) : null;
+    }
+
+    public void setDefaultGeometry(Object geometry) {
+        GeometryDescriptor descriptor = getType().getGeometryDescriptor();
+        if (descriptor != null) {
+            setAttribute(descriptor.getLocalName(), geometry);
+        }
+    }
+
+    public BoundingBox getBounds() {
+        CoordinateReferenceSystem crs = getType().getCoordinateReferenceSystem();
+        Envelope bounds = ReferencedEnvelope.create(crs);
+        for (int i = 0; i < getAttributeCount(); i++) {
+            if (collection.columns[i] instanceof FeatureColumn.GeometryColumnSupport) {
+                Object value = getAttribute(i);
+                if (value instanceof Geometry) {
+                    Geometry g = (Geometry) value;
+                    if (bounds.isNull()) {
+                        bounds.init(JTS.bounds(g, crs));
+                    } else {
+                        bounds.expandToInclude(JTS.bounds(g, crs));
+                    }
+                }
+            }
+        }
+        return (BoundingBox) bounds;
+    }
+
+    public GeometryAttribute getDefaultGeometryProperty() {
+        GeometryDescriptor descriptor = getType().getGeometryDescriptor();
+        if (descriptor == null) {
+            return null;
+        }
+        return new GeometryAttributeImpl(getDefaultGeometry(), descriptor, null);
+    }
+
+    public void setDefaultGeometryProperty(GeometryAttribute geometryAttribute) {
+        if (geometryAttribute != null) {
+            setDefaultGeometry(geometryAttribute.getValue());
+        } else {
+            setDefaultGeometry(null);
+        }
+    }
+
+    /**
+     * Returns a detached list of properties, changes to the properties will not be reflected in
+     * the collection
+     */
+    public Collection<Property> getProperties() {
+        int count = getAttributeCount();
+        List<Property> result = new ArrayList<Property>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(buildProperty(i));
+        }
+        return result;
+    }
+
+    public Collection<Property> getProperties(Name name) {
+        return getProperties(name.getLocalPart());
+    }
+
+    public Collection<Property> getProperties(String name) {
+        Property property = getProperty(name);
+        if (property == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(property);
+    }
+
+    public Property getProperty(Name name) {
+        return getProperty(name.getLocalPart());
+    }
+
+    public Property getProperty(String name) {
+        int index = getType().indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        return buildProperty(index);
+    }
+
+    Property buildProperty(int index) {
+        AttributeDescriptor descriptor = getType().getDescriptor(index);
+        if (descriptor instanceof GeometryDescriptor) {
+            return new GeometryAttributeImpl(getAttribute(index), (GeometryDescriptor) descriptor,
+                    null);
+        }
+        return new AttributeImpl(getAttribute(index), descriptor, null);
+    }
+
+    public Collection<? extends Property> getValue() {
+        return getProperties();
+    }
+
+    public void setValue(Collection<Property> values) {
+        int i = 0;
+        for (Property p : values) {
+            setAttribute(i++, p.getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setValue(Object newValue) {
+        setValue((Collection<Property>) newValue);
+    }
+
+    public AttributeDescriptor getDescriptor() {
+        return new AttributeDescriptorImpl(getType(), getType().getName(), 0, Integer.MAX_VALUE,
+                true, null);
+    }
+
+    public Name getName() {
+        return getType().getName();
+    }
+
+    public boolean isNillable() {
+        return true;
+    }
+
+    public Map<Object, Object> getUserData() {
+        return new RowUserData();
+    }
+
+    public void validate() {
+        for (int i = 0; i < getAttributeCount(); i++) {
+            Types.validate(getType().getDescriptor(i), getAttribute(i));
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        String id = getID();
+        return (id == null ? 0 : id.hashCode()) * getType().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof SimpleFeature)) {
+            return false;
+        }
+        SimpleFeature other = (SimpleFeature) obj;
+        String id = getID();
+        if (id == null ? other.getID() != null : !id.equals(other.getID())) {
+            return false;
+        }
+        if (!getType().equals(other.getFeatureType())) {
+            return false;
+        }
+        for (int i = 0; i < getAttributeCount(); i++) {
+            Object value = getAttribute(i);
+            Object otherValue = other.getAttribute(i);
+            if (value == null ? otherValue != null : !value.equals(otherValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ColumnarFeature:");
+        sb.append(getType().getName().getLocalPart());
+        sb.append("=");
+        sb.append(getValue());
+        return sb.toString();
+    }
+
+    /**
+     * User data map backed by the collection sparse storage, the backing map is created only
+     * when something is actually stored
+     */
+    class RowUserData extends AbstractMap<Object, Object> {
+
+        @Override
+        public Object get(Object key) {
+            Map<Object, Object> map = collection.getUserData(row, false);
+            return map == null ? null : map.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Map<Object, Object> map = collection.getUserData(row, false);
+            return map != null && map.containsKey(key);
+        }
+
+        @Override
+        public Object put(Object key, Object value) {
+            return collection.getUserData(row, true).put(key, value);
+        }
+
+        @Override
+        public Object remove(Object key) {
+            Map<Object, Object> map = collection.getUserData(row, false);
+            return map == null ? null : map.remove(key);
+        }
+
+        @Override
+        public Set<Entry<Object, Object>> entrySet() {
+            Map<Object, Object> map = collection.getUserData(row, false);
+            if (map == null) {
+                return Collections.emptySet();
+            }
+            return map.entrySet();
+        }
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.collection.FeatureColumn.GeometryColumnSupport;
+import org.geotools.data.collection.FeatureColumn.NumericColumn;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.collection.AbstractFeatureCollection;
+import org.geotools.feature.visitor.AverageVisitor;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Converters;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.util.ProgressListener;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * In memory feature collection storing its contents column wise.
+ * <p>
+ * Instead of holding on to {@link SimpleFeature} objects each attribute is stored in its own
+ * column, using primitive arrays for numbers, dictionary encoding for strings and packed
+ * coordinate arrays for geometries. This makes the collection significantly more compact than
+ * {@link ListFeatureCollection} when large amounts of features need to be kept in memory.
+ * <p>
+ * Usage notes:
+ * <ul>
+ * <li>The collection is append only, features can be added but not removed
+ * <li>Iteration returns lightweight views of the stored rows, no data is copied until an
+ * attribute is actually read. The views are live, calling a setter on them modifies the
+ * collection contents
+ * <li>Geometries are rebuilt on access, so the returned objects are equal but not identical to
+ * the ones originally added. The user data of points is not preserved
+ * <li>Count, bounds, sum, min, max and average visitors working against a plain attribute are
+ * computed directly on the columns, without creating any feature
+ * <li>Like {@link ListFeatureCollection} this class is not thread safe while being modified
+ * </ul>
+ */
+public class ColumnarFeatureCollection extends AbstractFeatureCollection {
+
+    static final int DEFAULT_CAPACITY = 16;
+
+    /** The attribute columns, one per attribute in the schema */
+    FeatureColumn[] columns;
+
+    /** The feature identifiers */
+    String[] ids;
+
+    /** Sparse user data storage, only rows that actually have user data are tracked */
+    Map<Integer, Map<Object, Object>> userData;
+
+    /** Number of features stored */
+    int size;
+
+    /** Cached bounds */
+    ReferencedEnvelope bounds;
+
+    /**
+     * Creates an empty collection for the provided schema
+     * 
+     * @param schema
+     */
+    public ColumnarFeatureCollection(SimpleFeatureType schema) {
+        this(schema, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty collection for the provided schema, sizing the columns so that they can
+     * hold the specified number of features without growing
+     * 
+     * @param schema
+     * @param capacity
+     */
+    public ColumnarFeatureCollection(SimpleFeatureType schema, int capacity) {
+        super(schema);
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        List<AttributeDescriptor> descriptors = schema.getAttributeDescriptors();
+        this.columns = new FeatureColumn[descriptors.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = FeatureColumn.create(descriptors.get(i), capacity);
+        }
+        this.ids = new String[capacity];
+    }
+
+    /**
+     * Creates a columnar copy of the provided feature collection
+     * 
+     * @param copy
+     * @throws IOException
+     */
+    public ColumnarFeatureCollection(SimpleFeatureCollection copy) throws IOException {
+        this(copy.getSchema());
+        SimpleFeatureIterator it = copy.features();
+        try {
+            while (it.hasNext()) {
+                add(it.next());
+            }
+        } finally {
+            it.close();
+        }
+    }
+
+    /**
+     * Adds a feature to the collection, its values are copied in the columns and the feature
+     * itself is not retained
+     * 
+     * @param feature
+     * @return true, the collection is always modified
+     */
+    public boolean add(SimpleFeature feature) {
+        ensureCapacity(size + 1);
+        int row = size;
+        // fast path when the feature shares the schema, otherwise go by name
+        boolean sameType = feature.getFeatureType() == schema;
+        for (int i = 0; i < columns.length; i++) {
+            Object value;
+            if (sameType) {
+                value = feature.getAttribute(i);
+            } else {
+                value = feature.getAttribute(schema.getDescriptor(i).getLocalName());
+            }
+            columns[i].set(row, convert(i, value));
+        }
+        ids[row] = feature.getID();
+        Map<Object, Object> featureUserData = feature.getUserData();
+        if (featureUserData != null && !featureUserData.isEmpty()) {
+            getUserData(row, true).putAll(featureUserData);
+        }
+        size++;
+        bounds = null;
+        return true;
+    }
+
+    /**
+     * Adds all the features in the collection
+     * 
+     * @param features
+     * @return true if at least one feature was added
+     */
+    public boolean addAll(Collection<? extends SimpleFeature> features) {
+        ensureCapacity(size + features.size());
+        boolean changed = false;
+        for (SimpleFeature feature : features) {
+            changed |= add(feature);
+        }
+        return changed;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (ids.length >= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1) + 1);
+        String[] newIds = new String[newCapacity];
+        System.arraycopy(ids, 0, newIds, 0, size);
+        ids = newIds;
+        for (FeatureColumn column : columns) {
+            column.ensureCapacity(newCapacity);
+        }
+    }
+
+    Object convert(int column, Object value) {
+        if (value == null) {
+            return null;
+        }
+        return Converters.convert(value, columns[column].binding);
+    }
+
+    //
+    // Row access, used by the feature views
+    //
+    String getId(int row) {
+        return ids[row];
+    }
+
+    Object getValue(int row, int column) {
+        return columns[column].get(row);
+    }
+
+    void setValue(int row, int column, Object value) {
+        columns[column].set(row, convert(column, value));
+        if (columns[column] instanceof GeometryColumnSupport) {
+            bounds = null;
+        }
+    }
+
+    Map<Object, Object> getUserData(int row, boolean create) {
+        Map<Object, Object> result = userData == null ? null : userData.get(row);
+        if (result == null && create) {
+            if (userData == null) {
+                userData = new HashMap<Integer, Map<Object, Object>>();
+            }
+            result = new HashMap<Object, Object>();
+            userData.put(row, result);
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    protected Iterator<SimpleFeature> openIterator() {
+        return new ColumnarFeatureIterator(size);
+    }
+
+    @Override
+    public synchronized ReferencedEnvelope getBounds() {
+        if (bounds == null) {
+            Envelope envelope = new Envelope();
+            for (FeatureColumn column : columns) {
+                if (column instanceof GeometryColumnSupport) {
+                    ((GeometryColumnSupport) column).expandEnvelope(envelope, size);
+                }
+            }
+            bounds = new ReferencedEnvelope(envelope, schema.getCoordinateReferenceSystem());
+        }
+        return bounds;
+    }
+
+    @Override
+    public void accepts(FeatureVisitor visitor, ProgressListener progress) throws IOException {
+        if (!handleVisitor(visitor)) {
+            super.accepts(visitor, progress);
+        }
+    }
+
+    /**
+     * Computes the most common aggregates directly on the columns, without building any
+     * feature. Only visitors that have not accumulated any result yet are handled, so that
+     * the outcome is the same as visiting each feature in turn.
+     * 
+     * @param visitor
+     * @return true if the visitor has been handled, false if a full scan is needed
+     */
+    protected boolean handleVisitor(FeatureVisitor visitor) {
+        // only the well known classes, subclasses might have extra state we don't know about
+        Class<?> clazz = visitor.getClass();
+        if (clazz == CountVisitor.class) {
+            CountVisitor cv = (CountVisitor) visitor;
+            if (size > 0) {
+                cv.setValue(cv.getCount() + size);
+            }
+            return true;
+        } else if (clazz == BoundsVisitor.class) {
+            ReferencedEnvelope envelope = getBounds();
+            if (!envelope.isNull()) {
+                ((BoundsVisitor) visitor).getBounds().include(envelope);
+            }
+            return true;
+        } else if (!(visitor instanceof FeatureCalc)
+                || ((FeatureCalc) visitor).getResult() != CalcResult.NULL_RESULT) {
+            return false;
+        }
+
+        if (clazz == SumVisitor.class) {
+            SumVisitor sv = (SumVisitor) visitor;
+            NumericColumn column = getNumericColumn(sv.getExpression());
+            if (column == null) {
+                return false;
+            }
+            Number sum = column.sum(size);
+            if (sum != null) {
+                sv.setValue(sum);
+            }
+            return true;
+        } else if (clazz == AverageVisitor.class) {
+            AverageVisitor av = (AverageVisitor) visitor;
+            NumericColumn column = getNumericColumn(av.getExpression());
+            if (column == null) {
+                return false;
+            }
+            Number sum = column.sum(size);
+            if (sum != null) {
+                av.setValue(column.count(size), sum);
+            }
+            return true;
+        } else if (clazz == MinVisitor.class) {
+            MinVisitor mv = (MinVisitor) visitor;
+            NumericColumn column = getNumericColumn(mv.getExpression());
+            if (column == null) {
+                return false;
+            }
+            int row = column.minRow(size);
+            if (row >= 0) {
+                mv.setValue(column.get(row));
+            }
+            return true;
+        } else if (clazz == MaxVisitor.class) {
+            MaxVisitor mv = (MaxVisitor) visitor;
+            NumericColumn column = getNumericColumn(mv.getExpression());
+            if (column == null) {
+                return false;
+            }
+            int row = column.maxRow(size);
+            if (row >= 0) {
+                mv.setValue(column.get(row));
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the numeric column the expression refers to, or null if the expression is not a
+     * plain reference to a numeric attribute
+     */
+    NumericColumn getNumericColumn(Expression expression) {
+        if (!(expression instanceof PropertyName)) {
+            return null;
+        }
+        Object descriptor = expression.evaluate(schema);
+        if (!(descriptor instanceof AttributeDescriptor)) {
+            return null;
+        }
+        int index = schema.indexOf(((AttributeDescriptor) descriptor).getLocalName());
+        if (index < 0 || !(columns[index] instanceof NumericColumn)) {
+            return null;
+        }
+        return (NumericColumn) columns[index];
+    }
+
+    /**
+     * Iterates over the rows available when the iterator got created, returning a view for each
+     */
+    class ColumnarFeatureIterator implements Iterator<SimpleFeature>, SimpleFeatureIterator {
+        int row;
+
+        final int max;
+
+        ColumnarFeatureIterator(int max) {
+            this.max = max;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < max;
+        }
+
+        @Override
+        public SimpleFeature next() throws NoSuchElementException {
+            if (row >= max) {
+                throw new NoSuchElementException("No more features in the collection");
+            }
+            return new ColumnarFeature(ColumnarFeatureCollection.this, row++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Columnar collections are append only");
+        }
+
+        @Override
+        public void close() {
+            // nothing to do
+        }
+    }
+}
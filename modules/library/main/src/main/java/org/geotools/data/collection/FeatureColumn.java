@@ -0,0 +1,698 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opengis.feature.type.AttributeDescriptor;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateFilter;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.PrecisionModel;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * A single attribute column of a {@link ColumnarFeatureCollection}. Values are stored in
+ * primitive arrays whenever the attribute binding allows it, and are boxed back only when
+ * a feature view asks for them.
+ */
+abstract class FeatureColumn {
+
+    /**
+     * Builds the most compact column able to store values of the given attribute
+     */
+    static FeatureColumn create(AttributeDescriptor descriptor, int capacity) {
+        Class<?> binding = descriptor.getType().getBinding();
+        if (Point.class.equals(binding)) {
+            return new PointColumn(capacity);
+        } else if (Geometry.class.isAssignableFrom(binding)) {
+            return new GeometryColumn(binding, capacity);
+        } else if (Integer.class.equals(binding) || Short.class.equals(binding)
+                || Byte.class.equals(binding)) {
+            return new IntColumn(binding, capacity);
+        } else if (Long.class.equals(binding)) {
+            return new LongColumn(capacity);
+        } else if (Double.class.equals(binding)) {
+            return new DoubleColumn(capacity);
+        } else if (Float.class.equals(binding)) {
+            return new FloatColumn(capacity);
+        } else if (String.class.equals(binding)) {
+            return new StringColumn(capacity);
+        } else {
+            return new ObjectColumn(binding, capacity);
+        }
+    }
+
+    final Class<?> binding;
+
+    FeatureColumn(Class<?> binding) {
+        this.binding = binding;
+    }
+
+    /**
+     * Returns the value at the specified row, boxed into the column binding
+     */
+    abstract Object get(int row);
+
+    /**
+     * Sets the value at the specified row. The value is expected to be already converted to
+     * the column binding
+     */
+    abstract void set(int row, Object value);
+
+    /**
+     * Grows the column storage so that it can hold at least the specified number of rows
+     */
+    abstract void ensureCapacity(int capacity);
+
+    /**
+     * Base class for columns storing primitive values, tracks nulls in a bit set
+     */
+    static abstract class PrimitiveColumn extends FeatureColumn {
+        final BitSet nulls = new BitSet();
+
+        PrimitiveColumn(Class<?> binding) {
+            super(binding);
+        }
+
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        @Override
+        final Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            return getValue(row);
+        }
+
+        @Override
+        final void set(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+            } else {
+                nulls.clear(row);
+                setValue(row, value);
+            }
+        }
+
+        abstract Object getValue(int row);
+
+        abstract void setValue(int row, Object value);
+    }
+
+    /**
+     * Base class for numeric columns, provides the aggregates used by the visitor fast path.
+     * The results mimic the types and accumulation order used by the visitors in
+     * {@link org.geotools.feature.visitor}, so that the fast path returns the same values as a
+     * full scan would.
+     */
+    static abstract class NumericColumn extends PrimitiveColumn {
+
+        NumericColumn(Class<?> binding) {
+            super(binding);
+        }
+
+        /**
+         * Number of non null values in the first <code>size</code> rows
+         */
+        int count(int size) {
+            return size - nulls.get(0, size).cardinality();
+        }
+
+        /**
+         * Sum of the non null values, or null if there are none
+         */
+        abstract Number sum(int size);
+
+        /**
+         * Row of the minimum value, or -1 if there are only null values
+         */
+        abstract int minRow(int size);
+
+        /**
+         * Row of the maximum value, or -1 if there are only null values
+         */
+        abstract int maxRow(int size);
+    }
+
+    static final class IntColumn extends NumericColumn {
+        int[] values;
+
+        IntColumn(Class<?> binding, int capacity) {
+            super(binding);
+            values = new int[capacity];
+        }
+
+        @Override
+        Object getValue(int row) {
+            int value = values[row];
+            if (binding == Short.class) {
+                return Short.valueOf((short) value);
+            } else if (binding == Byte.class) {
+                return Byte.valueOf((byte) value);
+            }
+            return Integer.valueOf(value);
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = ((Number) value).intValue();
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        @Override
+        Number sum(int size) {
+            if (count(size) == 0) {
+                return null;
+            }
+            if (binding == Integer.class) {
+                int sum = 0;
+                for (int i = 0; i < size; i++) {
+                    if (!nulls.get(i)) {
+                        sum += values[i];
+                    }
+                }
+                return sum;
+            } else {
+                // shorts and bytes are summed as doubles by the visitors
+                double sum = 0;
+                for (int i = 0; i < size; i++) {
+                    if (!nulls.get(i)) {
+                        sum += values[i];
+                    }
+                }
+                return sum;
+            }
+        }
+
+        @Override
+        int minRow(int size) {
+            int result = -1;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i) && (result == -1 || values[i] < values[result])) {
+                    result = i;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        int maxRow(int size) {
+            int result = -1;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i) && (result == -1 || values[i] > values[result])) {
+                    result = i;
+                }
+            }
+            return result;
+        }
+    }
+
+    static final class LongColumn extends NumericColumn {
+        long[] values;
+
+        LongColumn(int capacity) {
+            super(Long.class);
+            values = new long[capacity];
+        }
+
+        @Override
+        Object getValue(int row) {
+            return Long.valueOf(values[row]);
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = ((Number) value).longValue();
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        @Override
+        Number sum(int size) {
+            if (count(size) == 0) {
+                return null;
+            }
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i)) {
+                    sum += values[i];
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        int minRow(int size) {
+            int result = -1;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i) && (result == -1 || values[i] < values[result])) {
+                    result = i;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        int maxRow(int size) {
+            int result = -1;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i) && (result == -1 || values[i] > values[result])) {
+                    result = i;
+                }
+            }
+            return result;
+        }
+    }
+
+    static final class DoubleColumn extends NumericColumn {
+        double[] values;
+
+        DoubleColumn(int capacity) {
+            super(Double.class);
+            values = new double[capacity];
+        }
+
+        @Override
+        Object getValue(int row) {
+            return Double.valueOf(values[row]);
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = ((Number) value).doubleValue();
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        @Override
+        Number sum(int size) {
+            if (count(size) == 0) {
+                return null;
+            }
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i)) {
+                    sum += values[i];
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        int minRow(int size) {
+            int result = -1;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i)
+                        && (result == -1 || Double.compare(values[i], values[result]) < 0)) {
+                    result = i;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        int maxRow(int size) {
+            // MaxVisitor ignores NaN and infinite doubles
+            int result = -1;
+            for (int i = 0; i < size; i++) {
+                if (nulls.get(i)) {
+                    continue;
+                }
+                double value = values[i];
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    continue;
+                }
+                if (result == -1 || Double.compare(value, values[result]) > 0) {
+                    result = i;
+                }
+            }
+            return result;
+        }
+    }
+
+    static final class FloatColumn extends NumericColumn {
+        float[] values;
+
+        FloatColumn(int capacity) {
+            super(Float.class);
+            values = new float[capacity];
+        }
+
+        @Override
+        Object getValue(int row) {
+            return Float.valueOf(values[row]);
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = ((Number) value).floatValue();
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        @Override
+        Number sum(int size) {
+            if (count(size) == 0) {
+                return null;
+            }
+            float sum = 0;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i)) {
+                    sum += values[i];
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        int minRow(int size) {
+            int result = -1;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i)
+                        && (result == -1 || Float.compare(values[i], values[result]) < 0)) {
+                    result = i;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        int maxRow(int size) {
+            // unlike doubles, MaxVisitor does not skip NaN and infinite floats
+            int result = -1;
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i)
+                        && (result == -1 || Float.compare(values[i], values[result]) > 0)) {
+                    result = i;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Dictionary encoded string column, each distinct value is stored only once
+     */
+    static final class StringColumn extends FeatureColumn {
+        int[] codes;
+
+        List<String> dictionary = new ArrayList<String>();
+
+        Map<String, Integer> lookup = new HashMap<String, Integer>();
+
+        StringColumn(int capacity) {
+            super(String.class);
+            codes = new int[capacity];
+        }
+
+        @Override
+        Object get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        @Override
+        void set(int row, Object value) {
+            if (value == null) {
+                codes[row] = -1;
+            } else {
+                Integer code = lookup.get(value);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.add((String) value);
+                    lookup.put((String) value, code);
+                }
+                codes[row] = code;
+            }
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (codes.length < capacity) {
+                codes = Arrays.copyOf(codes, capacity);
+            }
+        }
+    }
+
+    /**
+     * Base class for geometry columns, can compute the envelope of its contents without
+     * building the geometries
+     */
+    static abstract class GeometryColumnSupport extends FeatureColumn {
+
+        GeometryColumnSupport(Class<?> binding) {
+            super(binding);
+        }
+
+        /**
+         * Expands the envelope to include the non empty geometries in the first
+         * <code>size</code> rows
+         */
+        abstract void expandEnvelope(Envelope envelope, int size);
+    }
+
+    /**
+     * Stores points as a packed array of ordinates, the z array is allocated only if 3D points
+     * are found
+     */
+    static final class PointColumn extends GeometryColumnSupport {
+        double[] xy;
+
+        double[] z;
+
+        final BitSet nulls = new BitSet();
+
+        final BitSet empties = new BitSet();
+
+        GeometryFactory factory;
+
+        PointColumn(int capacity) {
+            super(Point.class);
+            xy = new double[capacity * 2];
+        }
+
+        @Override
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            } else if (empties.get(row)) {
+                return factory.createPoint((Coordinate) null);
+            }
+            double zValue = z == null ? Double.NaN : z[row];
+            return factory.createPoint(new Coordinate(xy[row * 2], xy[row * 2 + 1], zValue));
+        }
+
+        @Override
+        void set(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+                return;
+            }
+            nulls.clear(row);
+            Point point = (Point) value;
+            if (factory == null) {
+                factory = point.getFactory();
+            }
+            if (point.isEmpty()) {
+                empties.set(row);
+                return;
+            }
+            empties.clear(row);
+            Coordinate c = point.getCoordinate();
+            xy[row * 2] = c.x;
+            xy[row * 2 + 1] = c.y;
+            if (!Double.isNaN(c.z) && z == null) {
+                z = new double[xy.length / 2];
+                Arrays.fill(z, Double.NaN);
+            }
+            if (z != null) {
+                z[row] = c.z;
+            }
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (xy.length < capacity * 2) {
+                xy = Arrays.copyOf(xy, capacity * 2);
+                if (z != null) {
+                    int length = z.length;
+                    z = Arrays.copyOf(z, capacity);
+                    Arrays.fill(z, length, capacity, Double.NaN);
+                }
+            }
+        }
+
+        @Override
+        void expandEnvelope(Envelope envelope, int size) {
+            for (int i = 0; i < size; i++) {
+                if (!nulls.get(i) && !empties.get(i)) {
+                    envelope.expandToInclude(xy[i * 2], xy[i * 2 + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores generic geometries, converting their coordinates into packed coordinate sequences
+     */
+    static final class GeometryColumn extends GeometryColumnSupport {
+        Geometry[] values;
+
+        GeometryFactory packed2D;
+
+        GeometryFactory packed3D;
+
+        GeometryColumn(Class<?> binding, int capacity) {
+            super(binding);
+            values = new Geometry[capacity];
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = pack((Geometry) value);
+        }
+
+        Geometry pack(Geometry geometry) {
+            if (geometry == null || geometry.getFactory()
+                    .getCoordinateSequenceFactory() instanceof PackedCoordinateSequenceFactory) {
+                return geometry;
+            }
+            GeometryFactory factory = getPackedFactory(geometry);
+            Geometry result = factory.createGeometry(geometry);
+            result.setUserData(geometry.getUserData());
+            return result;
+        }
+
+        GeometryFactory getPackedFactory(Geometry geometry) {
+            PrecisionModel pm = geometry.getPrecisionModel();
+            int srid = geometry.getSRID();
+            if (hasZ(geometry)) {
+                if (packed3D == null || packed3D.getSRID() != srid
+                        || !packed3D.getPrecisionModel().equals(pm)) {
+                    packed3D = new GeometryFactory(pm, srid, new PackedCoordinateSequenceFactory(
+                            PackedCoordinateSequenceFactory.DOUBLE, 3));
+                }
+                return packed3D;
+            } else {
+                if (packed2D == null || packed2D.getSRID() != srid
+                        || !packed2D.getPrecisionModel().equals(pm)) {
+                    packed2D = new GeometryFactory(pm, srid, new PackedCoordinateSequenceFactory(
+                            PackedCoordinateSequenceFactory.DOUBLE, 2));
+                }
+                return packed2D;
+            }
+        }
+
+        boolean hasZ(Geometry geometry) {
+            final boolean[] result = new boolean[1];
+            geometry.apply(new CoordinateFilter() {
+
+                @Override
+                public void filter(Coordinate coord) {
+                    if (!Double.isNaN(coord.z)) {
+                        result[0] = true;
+                    }
+                }
+            });
+            return result[0];
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        @Override
+        void expandEnvelope(Envelope envelope, int size) {
+            for (int i = 0; i < size; i++) {
+                Geometry geometry = values[i];
+                if (geometry != null && !geometry.isEmpty()) {
+                    envelope.expandToInclude(geometry.getEnvelopeInternal());
+                }
+            }
+        }
+    }
+
+    /**
+     * Fallback column for bindings that do not have a compact representation
+     */
+    static final class ObjectColumn extends FeatureColumn {
+        Object[] values;
+
+        ObjectColumn(Class<?> binding, int capacity) {
+            super(binding);
+            values = new Object[capacity];
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+    }
+}
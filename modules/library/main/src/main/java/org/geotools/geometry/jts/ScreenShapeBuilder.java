@@ -0,0 +1,644 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geometry.jts;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Turns JTS geometries into screen space {@link Shape} objects without building an intermediate
+ * geometry. Unlike {@link LiteShape2} the source geometry is never cloned: its coordinates are
+ * read straight from the {@link CoordinateSequence}, decimated with the same span based logic as
+ * {@link Decimator}, transformed and clipped into primitive arrays that are reused from one
+ * geometry to the next.
+ * <p>
+ * The shape returned by {@link #build(Geometry)} is a view over the builder internal buffers, it
+ * is valid only until the next call to {@link #build(Geometry)} or {@link #reset()}. Use
+ * {@link #toPath()} to get a standalone copy that can be kept around (e.g., queued for painting
+ * in another thread).
+ * <p>
+ * The builder works on two dimensional coordinates only (higher dimensions are ignored), and is
+ * not thread safe, each rendering thread should use its own instance.
+ */
+public final class ScreenShapeBuilder {
+
+    static final int INITIAL_SIZE = 256;
+
+    /** Source to screen transform, null if the coordinates are already in screen space */
+    MathTransform transform;
+
+    /** Decimation spans, in source units */
+    double spanx;
+
+    double spany;
+
+    /** The screen space clipping area, or null if no clipping should be performed */
+    double clipMinX, clipMinY, clipMaxX, clipMaxY;
+
+    boolean clip;
+
+    /** Coordinates of the current part being processed */
+    double[] part = new double[INITIAL_SIZE * 2];
+
+    /** Scratch buffer used while clipping rings */
+    double[] scratch = new double[INITIAL_SIZE * 2];
+
+    /** The output coordinates, in screen space */
+    double[] coords = new double[INITIAL_SIZE * 2];
+
+    int coordCount;
+
+    /** The output segment types */
+    byte[] types = new byte[INITIAL_SIZE];
+
+    int typeCount;
+
+    /** Liang-Barsky parametric interval of the segment being clipped */
+    double clipT0, clipT1;
+
+    final ScreenShape shape = new ScreenShape();
+
+    /**
+     * Builds a new screen shape builder
+     *
+     * @param transform The transform from source to screen, can be null if the source geometries
+     *        are already in screen space
+     * @param spanx The horizontal decimation span in source units (see {@link Decimator#getSpanX()}
+     *        ), a zero or negative value disables decimation
+     * @param spany The vertical decimation span in source units (see {@link Decimator#getSpanY()}
+     *        ), a zero or negative value disables decimation
+     * @param clip The screen area the geometries should be clipped to, or null if no clipping is
+     *        desired. Should be a bit larger than the actual painting area, to avoid showing the
+     *        artificial borders generated by the clipping when stroking lines.
+     */
+    public ScreenShapeBuilder(MathTransform transform, double spanx, double spany, Rectangle2D clip) {
+        if (transform != null && !transform.isIdentity()) {
+            if (transform.getSourceDimensions() != 2 || transform.getTargetDimensions() != 2) {
+                throw new IllegalArgumentException(
+                        "The transform must be two dimensional, but it's going from "
+                                + transform.getSourceDimensions() + " to "
+                                + transform.getTargetDimensions() + " dimensions");
+            }
+            this.transform = transform;
+        }
+        this.spanx = spanx;
+        this.spany = spany;
+        setClip(clip);
+    }
+
+    /**
+     * Builds a new screen shape builder using the transform and the spans of the specified
+     * decimator
+     *
+     * @param transform The transform from source to screen, can be null
+     * @param decimator The decimator providing the generalization spans, can be null
+     * @param clip The screen area the geometries should be clipped to, can be null
+     */
+    public ScreenShapeBuilder(MathTransform transform, Decimator decimator, Rectangle2D clip) {
+        this(transform, decimator != null ? decimator.getSpanX() : -1,
+                decimator != null ? decimator.getSpanY() : -1, clip);
+    }
+
+    /**
+     * Sets the screen area the next geometries will be clipped to, or null to disable clipping
+     *
+     * @param clip
+     */
+    public void setClip(Rectangle2D clip) {
+        this.clip = clip != null;
+        if (clip != null) {
+            this.clipMinX = clip.getMinX();
+            this.clipMinY = clip.getMinY();
+            this.clipMaxX = clip.getMaxX();
+            this.clipMaxY = clip.getMaxY();
+        }
+    }
+
+    /**
+     * Clears the buffers, without releasing them
+     */
+    public void reset() {
+        coordCount = 0;
+        typeCount = 0;
+    }
+
+    /**
+     * Transforms, decimates and clips the geometry into the internal buffers, and returns a shape
+     * view over them. The returned shape is the same object at each invocation, and its contents
+     * are valid only until the next call to this method.
+     *
+     * @param geometry The geometry to be turned into a screen space shape
+     * @return A shape view over the builder buffers, empty if the geometry is null, empty, or
+     *         falls outside of the clipping area
+     * @throws TransformException
+     */
+    public Shape build(Geometry geometry) throws TransformException {
+        reset();
+        if (geometry != null && !geometry.isEmpty()) {
+            append(geometry);
+        }
+        return shape;
+    }
+
+    /**
+     * Returns true if the last built shape is empty (no geometry, or geometry fully clipped away)
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return typeCount == 0;
+    }
+
+    /**
+     * Returns the number of points in the last built shape
+     *
+     * @return
+     */
+    public int getPointCount() {
+        return coordCount / 2;
+    }
+
+    /**
+     * Returns a standalone copy of the last built shape, that will not be affected by further
+     * calls to {@link #build(Geometry)}
+     *
+     * @return
+     */
+    public Path2D.Float toPath() {
+        Path2D.Float path = new Path2D.Float(PathIterator.WIND_EVEN_ODD, typeCount);
+        path.append(shape.getPathIterator(null), false);
+        return path;
+    }
+
+    private void append(Geometry geometry) throws TransformException {
+        if (geometry instanceof Point) {
+            appendPoint((Point) geometry);
+        } else if (geometry instanceof LineString) {
+            LineString ls = (LineString) geometry;
+            boolean ring = ls instanceof LinearRing;
+            double spanx = this.spanx;
+            double spany = this.spany;
+            if (ls instanceof CurvedGeometry<?>) {
+                CurvedGeometry<LineString> curved = (CurvedGeometry<LineString>) ls;
+                ls = curved.linearize(Math.min(Math.abs(spanx), Math.abs(spany)));
+                // already a good representation, no need to generalize further
+                spanx = -1;
+                spany = -1;
+            }
+            appendSequence(ls.getCoordinateSequence(), ring && ls.isClosed(), spanx, spany);
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            append(polygon.getExteriorRing());
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                append(polygon.getInteriorRingN(i));
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Geometry g = geometry.getGeometryN(i);
+                if (!g.isEmpty()) {
+                    append(g);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type "
+                    + geometry.getGeometryType());
+        }
+    }
+
+    private void appendPoint(Point point) throws TransformException {
+        part[0] = point.getX();
+        part[1] = point.getY();
+        if (transform != null) {
+            transform.transform(part, 0, part, 0, 1);
+        }
+        double x = part[0];
+        double y = part[1];
+        if (clip && (x < clipMinX || x > clipMaxX || y < clipMinY || y > clipMaxY)) {
+            return;
+        }
+        // same as PointIterator, a zero length segment
+        emit(PathIterator.SEG_MOVETO, x, y);
+        emit(PathIterator.SEG_LINETO, x, y);
+    }
+
+    private void appendSequence(CoordinateSequence cs, boolean ring, double spanx, double spany)
+            throws TransformException {
+        final int size = cs.size();
+        if (size == 0) {
+            return;
+        }
+        ensurePartCapacity(size);
+
+        // decimate in the source space, just like Decimator does
+        int count = decimate(cs, size, ring, spanx, spany);
+
+        // transform all the surviving points in one shot
+        if (transform != null) {
+            transform.transform(part, 0, part, 0, count);
+        }
+
+        if (!clip) {
+            emitPart(part, count, ring);
+            return;
+        }
+
+        // check if we can avoid clipping altogether
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count * 2; i += 2) {
+            double x = part[i];
+            double y = part[i + 1];
+            if (x < minX) minX = x;
+            if (x > maxX) maxX = x;
+            if (y < minY) minY = y;
+            if (y > maxY) maxY = y;
+        }
+        if (maxX < clipMinX || minX > clipMaxX || maxY < clipMinY || minY > clipMaxY) {
+            return;
+        } else if (minX >= clipMinX && maxX <= clipMaxX && minY >= clipMinY && maxY <= clipMaxY) {
+            emitPart(part, count, ring);
+        } else if (ring) {
+            clipRing(count);
+        } else {
+            clipLine(count);
+        }
+    }
+
+    /**
+     * Copies the coordinates in the part buffer, removing the ones that fall within the
+     * decimation spans of the previous one. Returns the number of points copied.
+     */
+    private int decimate(CoordinateSequence cs, int size, boolean ring, double spanx, double spany) {
+        double lastX = cs.getOrdinate(0, 0);
+        double lastY = cs.getOrdinate(0, 1);
+        part[0] = lastX;
+        part[1] = lastY;
+        if (size == 1) {
+            return 1;
+        }
+        if (spanx <= 0 && spany <= 0 || size <= 4) {
+            for (int i = 1; i < size; i++) {
+                part[i * 2] = cs.getOrdinate(i, 0);
+                part[i * 2 + 1] = cs.getOrdinate(i, 1);
+            }
+            return size;
+        }
+
+        int count = 1;
+        for (int i = 1; i < size - 1; i++) {
+            double x = cs.getOrdinate(i, 0);
+            double y = cs.getOrdinate(i, 1);
+            if (Math.abs(x - lastX) > spanx || Math.abs(y - lastY) > spany) {
+                part[count * 2] = x;
+                part[count * 2 + 1] = y;
+                lastX = x;
+                lastY = y;
+                count++;
+            }
+        }
+        if (ring && count < 3) {
+            // keep the ring a ring, fall back on the first three points
+            for (int i = 1; i < 3; i++) {
+                part[i * 2] = cs.getOrdinate(i, 0);
+                part[i * 2 + 1] = cs.getOrdinate(i, 1);
+            }
+            count = 3;
+        }
+        // always have the last one
+        part[count * 2] = cs.getOrdinate(size - 1, 0);
+        part[count * 2 + 1] = cs.getOrdinate(size - 1, 1);
+        return count + 1;
+    }
+
+    /**
+     * Clips a line against the clipping area using the Liang-Barsky algorithm, starting a new sub
+     * path every time the line gets back into the clipping area
+     */
+    private void clipLine(int count) {
+        boolean penDown = false;
+        for (int i = 0; i < count - 1; i++) {
+            double x0 = part[i * 2];
+            double y0 = part[i * 2 + 1];
+            double x1 = part[i * 2 + 2];
+            double y1 = part[i * 2 + 3];
+            double dx = x1 - x0;
+            double dy = y1 - y0;
+
+            clipT0 = 0;
+            clipT1 = 1;
+            boolean visible = clipTest(-dx, x0 - clipMinX) && clipTest(dx, clipMaxX - x0)
+                    && clipTest(-dy, y0 - clipMinY) && clipTest(dy, clipMaxY - y0);
+            if (!visible) {
+                penDown = false;
+                continue;
+            }
+            if (!penDown || clipT0 > 0) {
+                emit(PathIterator.SEG_MOVETO, x0 + clipT0 * dx, y0 + clipT0 * dy);
+            }
+            emit(PathIterator.SEG_LINETO, x0 + clipT1 * dx, y0 + clipT1 * dy);
+            penDown = clipT1 == 1;
+        }
+    }
+
+    /**
+     * Updates the Liang-Barsky parametric interval against one of the clipping area borders,
+     * returns false if the segment is fully outside of it
+     */
+    private boolean clipTest(double p, double q) {
+        if (p == 0) {
+            return q >= 0;
+        }
+        double r = q / p;
+        if (p < 0) {
+            if (r > clipT1) {
+                return false;
+            } else if (r > clipT0) {
+                clipT0 = r;
+            }
+        } else {
+            if (r < clipT0) {
+                return false;
+            } else if (r < clipT1) {
+                clipT1 = r;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clips a ring against the clipping area with the Sutherland-Hodgman algorithm. The result
+     * might contain degenerate edges running along the clipping area border, which is fine as
+     * long as the clipping area is larger than the painting area.
+     */
+    private void clipRing(int count) {
+        // the ring is closed, work on the open version
+        if (count > 1 && part[0] == part[count * 2 - 2] && part[1] == part[count * 2 - 1]) {
+            count--;
+        }
+        for (int edge = 0; edge < 4 && count > 0; edge++) {
+            // each input edge can contribute at most two points to the output
+            if (scratch.length < count * 4) {
+                scratch = new double[count * 4];
+            }
+            double[] in = part;
+            double[] out = scratch;
+            int outCount = 0;
+            double px = in[count * 2 - 2];
+            double py = in[count * 2 - 1];
+            boolean pInside = inside(edge, px, py);
+            for (int i = 0; i < count; i++) {
+                double cx = in[i * 2];
+                double cy = in[i * 2 + 1];
+                boolean cInside = inside(edge, cx, cy);
+                if (cInside != pInside) {
+                    // add the intersection with the clipping edge
+                    double t = intersection(edge, px, py, cx, cy);
+                    out[outCount * 2] = px + t * (cx - px);
+                    out[outCount * 2 + 1] = py + t * (cy - py);
+                    outCount++;
+                }
+                if (cInside) {
+                    out[outCount * 2] = cx;
+                    out[outCount * 2 + 1] = cy;
+                    outCount++;
+                }
+                px = cx;
+                py = cy;
+                pInside = cInside;
+            }
+            // swap the buffers, the output becomes the next input
+            part = out;
+            scratch = in;
+            count = outCount;
+        }
+
+        if (count >= 3) {
+            emitPart(part, count, true);
+        }
+    }
+
+    private boolean inside(int edge, double x, double y) {
+        switch (edge) {
+        case 0:
+            return x >= clipMinX;
+        case 1:
+            return x <= clipMaxX;
+        case 2:
+            return y >= clipMinY;
+        default:
+            return y <= clipMaxY;
+        }
+    }
+
+    private double intersection(int edge, double x0, double y0, double x1, double y1) {
+        switch (edge) {
+        case 0:
+            return (clipMinX - x0) / (x1 - x0);
+        case 1:
+            return (clipMaxX - x0) / (x1 - x0);
+        case 2:
+            return (clipMinY - y0) / (y1 - y0);
+        default:
+            return (clipMaxY - y0) / (y1 - y0);
+        }
+    }
+
+    private void emitPart(double[] source, int count, boolean ring) {
+        if (count == 0) {
+            return;
+        }
+        // closed rings are closed with a SEG_CLOSE instead of repeating the first point
+        if (ring && count > 1 && source[0] == source[count * 2 - 2]
+                && source[1] == source[count * 2 - 1]) {
+            count--;
+        }
+        ensureOutputCapacity(count + 2);
+        emit(PathIterator.SEG_MOVETO, source[0], source[1]);
+        if (count == 1) {
+            // keep single point parts visible when stroked, like LiteShape2 does
+            emit(PathIterator.SEG_LINETO, source[0], source[1]);
+        }
+        for (int i = 1; i < count; i++) {
+            emit(PathIterator.SEG_LINETO, source[i * 2], source[i * 2 + 1]);
+        }
+        if (ring) {
+            ensureOutputCapacity(1);
+            types[typeCount++] = PathIterator.SEG_CLOSE;
+        }
+    }
+
+    private void emit(int type, double x, double y) {
+        ensureOutputCapacity(1);
+        types[typeCount++] = (byte) type;
+        coords[coordCount++] = x;
+        coords[coordCount++] = y;
+    }
+
+    private void ensurePartCapacity(int points) {
+        if (part.length < points * 2) {
+            part = new double[Math.max(points * 2, part.length * 2)];
+        }
+    }
+
+    private void ensureOutputCapacity(int segments) {
+        // SEG_CLOSE does not use coordinates, but sizing them the same way keeps things simple
+        if (types.length < typeCount + segments) {
+            int size = Math.max(typeCount + segments, types.length * 2);
+            types = Arrays.copyOf(types, size);
+            coords = Arrays.copyOf(coords, size * 2);
+        }
+    }
+
+    /**
+     * A shape view over the builder buffers
+     */
+    final class ScreenShape implements Shape {
+
+        public Rectangle getBounds() {
+            return getBounds2D().getBounds();
+        }
+
+        public Rectangle2D getBounds2D() {
+            if (coordCount == 0) {
+                return new Rectangle2D.Double();
+            }
+            double minX = coords[0];
+            double minY = coords[1];
+            double maxX = minX;
+            double maxY = minY;
+            for (int i = 2; i < coordCount; i += 2) {
+                double x = coords[i];
+                double y = coords[i + 1];
+                if (x < minX) minX = x;
+                if (x > maxX) maxX = x;
+                if (y < minY) minY = y;
+                if (y > maxY) maxY = y;
+            }
+            return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+        }
+
+        public boolean contains(double x, double y) {
+            return Path2D.contains(getPathIterator(null), x, y);
+        }
+
+        public boolean contains(Point2D p) {
+            return contains(p.getX(), p.getY());
+        }
+
+        public boolean intersects(double x, double y, double w, double h) {
+            return Path2D.intersects(getPathIterator(null), x, y, w, h);
+        }
+
+        public boolean intersects(Rectangle2D r) {
+            return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+        }
+
+        public boolean contains(double x, double y, double w, double h) {
+            return Path2D.contains(getPathIterator(null), x, y, w, h);
+        }
+
+        public boolean contains(Rectangle2D r) {
+            return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+        }
+
+        public PathIterator getPathIterator(AffineTransform at) {
+            return new ScreenPathIterator(at);
+        }
+
+        public PathIterator getPathIterator(AffineTransform at, double flatness) {
+            // only straight segments in here
+            return new ScreenPathIterator(at);
+        }
+    }
+
+    /**
+     * Iterates over the builder buffers
+     */
+    final class ScreenPathIterator implements PathIterator {
+
+        AffineTransform at;
+
+        int typeIdx;
+
+        int coordIdx;
+
+        ScreenPathIterator(AffineTransform at) {
+            if (at != null && !at.isIdentity()) {
+                this.at = at;
+            }
+        }
+
+        public int getWindingRule() {
+            return WIND_EVEN_ODD;
+        }
+
+        public boolean isDone() {
+            return typeIdx >= typeCount;
+        }
+
+        public void next() {
+            if (types[typeIdx++] != SEG_CLOSE) {
+                coordIdx += 2;
+            }
+        }
+
+        public int currentSegment(float[] result) {
+            int type = types[typeIdx];
+            if (type != SEG_CLOSE) {
+                if (at != null) {
+                    at.transform(coords, coordIdx, result, 0, 1);
+                } else {
+                    result[0] = (float) coords[coordIdx];
+                    result[1] = (float) coords[coordIdx + 1];
+                }
+            }
+            return type;
+        }
+
+        public int currentSegment(double[] result) {
+            int type = types[typeIdx];
+            if (type != SEG_CLOSE) {
+                if (at != null) {
+                    at.transform(coords, coordIdx, result, 0, 1);
+                } else {
+                    result[0] = coords[coordIdx];
+                    result[1] = coords[coordIdx + 1];
+                }
+            }
+            return type;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.collection;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.feature.visitor.AverageVisitor;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.expression.Expression;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * Unit tests for ColumnarFeatureCollection
+ */
+public class ColumnarFeatureCollectionTest {
+
+    static final FilterFactory FF = CommonFactoryFinder.getFilterFactory(null);
+
+    static final ReferencedEnvelope BOUNDS = new ReferencedEnvelope(0, 99, 0, 9,
+            DefaultEngineeringCRS.CARTESIAN_2D);
+
+    static final String[] NUMERIC = { "i", "l", "d", "f", "s" };
+
+    GeometryFactory gf = new GeometryFactory();
+
+    SimpleFeatureType type;
+
+    ListFeatureCollection features;
+
+    @Before
+    public void setup() {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("columnar");
+        tb.setCRS(DefaultEngineeringCRS.CARTESIAN_2D);
+        tb.add("geom", Point.class);
+        tb.add("i", Integer.class);
+        tb.add("l", Long.class);
+        tb.add("d", Double.class);
+        tb.add("f", Float.class);
+        tb.add("s", Short.class);
+        tb.add("name", String.class);
+        tb.add("date", Date.class);
+        type = tb.buildFeatureType();
+
+        features = new ListFeatureCollection(type);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        for (int i = 0; i < 100; i++) {
+            boolean nulls = i % 7 == 3;
+            fb.add(i % 11 == 5 ? null : gf.createPoint(new Coordinate(i, i % 10)));
+            fb.add(nulls ? null : (i * 37) % 101 - 50);
+            fb.add(nulls ? null : (long) i * 1000000007L);
+            fb.add(nulls ? null : i == 20 ? Double.NaN : i / 3d);
+            fb.add(nulls ? null : i / 7f);
+            fb.add(nulls ? null : (short) (i % 13));
+            fb.add(nulls ? null : "name" + (i % 5));
+            fb.add(nulls ? null : new Date(i * 1000L));
+            features.add(fb.buildFeature("columnar." + i));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ColumnarFeatureCollection columnar = new ColumnarFeatureCollection(features);
+        assertEquals(features.size(), columnar.size());
+        assertEquals(BOUNDS, columnar.getBounds());
+
+        List<SimpleFeature> original = DataUtilities.list(features);
+        SimpleFeatureIterator it = columnar.features();
+        try {
+            int i = 0;
+            while (it.hasNext()) {
+                SimpleFeature expected = original.get(i++);
+                SimpleFeature actual = it.next();
+                assertEquals(expected.getID(), actual.getID());
+                assertEquals(expected.getAttributes(), actual.getAttributes());
+                assertEquals(expected.getBounds(), actual.getBounds());
+                assertEquals(actual, expected);
+            }
+            assertEquals(original.size(), i);
+        } finally {
+            it.close();
+        }
+    }
+
+    @Test
+    public void testAggregates() throws Exception {
+        ColumnarFeatureCollection columnar = new ColumnarFeatureCollection(features);
+        for (String name : NUMERIC) {
+            Expression property = FF.property(name);
+            assertSameResult(columnar, new SumVisitor(property), new SumVisitor(property));
+            assertSameResult(columnar, new MinVisitor(property), new MinVisitor(property));
+            assertSameResult(columnar, new MaxVisitor(property), new MaxVisitor(property));
+            assertSameResult(columnar, new AverageVisitor(property),
+                    new AverageVisitor(property));
+        }
+        assertSameResult(columnar, new CountVisitor(), new CountVisitor());
+
+        BoundsVisitor bounds = new BoundsVisitor();
+        columnar.accepts(bounds, null);
+        assertEquals(BOUNDS, bounds.getBounds());
+
+        // non numeric attributes go through the normal path
+        assertSameResult(columnar, new MaxVisitor(FF.property("name")),
+                new MaxVisitor(FF.property("name")));
+    }
+
+    @Test
+    public void testVisitorSubclassesScanned() throws Exception {
+        ColumnarFeatureCollection columnar = new ColumnarFeatureCollection(features);
+        final List<String> visited = new ArrayList<String>();
+        CountVisitor count = new CountVisitor() {
+            @Override
+            public void visit(org.opengis.feature.Feature feature) {
+                visited.add(feature.getIdentifier().getID());
+                super.visit(feature);
+            }
+        };
+        columnar.accepts(count, null);
+        assertEquals(100, count.getCount());
+        assertEquals(100, visited.size());
+    }
+
+    @Test
+    public void testFloatColumn() throws Exception {
+        ColumnarFeatureCollection columnar = new ColumnarFeatureCollection(features);
+        FeatureColumn column = columnar.columns[type.indexOf("f")];
+        assertTrue(column instanceof FeatureColumn.FloatColumn);
+        assertEquals(Float.valueOf(11 / 7f), column.get(11));
+        assertNull(column.get(3));
+    }
+
+    @Test
+    public void testAggregatesAllNull() throws Exception {
+        ColumnarFeatureCollection columnar = new ColumnarFeatureCollection(type);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        columnar.add(fb.buildFeature("columnar.1"));
+        SumVisitor sum = new SumVisitor(FF.property("d"));
+        columnar.accepts(sum, null);
+        assertNull(sum.getResult().getValue());
+        MinVisitor min = new MinVisitor(FF.property("i"));
+        columnar.accepts(min, null);
+        assertNull(min.getResult().getValue());
+    }
+
+    void assertSameResult(SimpleFeatureCollection columnar, FeatureCalc expected,
+            FeatureCalc actual) throws Exception {
+        features.accepts(expected, null);
+        columnar.accepts(actual, null);
+        assertEquals(expected.getResult().getValue(), actual.getResult().getValue());
+    }
+
+    @Test
+    public void testUpdateThroughView() throws Exception {
+        ColumnarFeatureCollection columnar = new ColumnarFeatureCollection(features);
+        SimpleFeatureIterator it = columnar.features();
+        SimpleFeature first;
+        try {
+            first = it.next();
+        } finally {
+            it.close();
+        }
+        first.setAttribute("geom", gf.createPoint(new Coordinate(-10, -10)));
+        first.setAttribute("name", "updated");
+        first.setAttribute("i", "12");
+        first.getUserData().put("key", "value");
+
+        SimpleFeature reread = DataUtilities.first(columnar);
+        assertEquals("updated", reread.getAttribute("name"));
+        assertEquals(12, reread.getAttribute("i"));
+        assertEquals("value", reread.getUserData().get("key"));
+        assertEquals(-10, columnar.getBounds().getMinX(), 0d);
+        assertEquals(-10, columnar.getBounds().getMinY(), 0d);
+
+        // other rows have no user data attached
+        assertTrue(DataUtilities.list(columnar).get(1).getUserData().isEmpty());
+    }
+
+    @Test
+    public void testPackedGeometries() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("lines");
+        tb.add("geom", LineString.class);
+        SimpleFeatureType lineType = tb.buildFeatureType();
+
+        ColumnarFeatureCollection columnar = new ColumnarFeatureCollection(lineType, 1);
+        List<LineString> lines = new ArrayList<LineString>();
+        for (int i = 0; i < 10; i++) {
+            LineString line = gf.createLineString(new Coordinate[] { new Coordinate(i, 0),
+                    new Coordinate(i, 10), new Coordinate(i + 1, 10, i) });
+            lines.add(line);
+            columnar.add(SimpleFeatureBuilder.build(lineType, new Object[] { line }, null));
+        }
+        assertEquals(10, columnar.size());
+
+        List<SimpleFeature> result = DataUtilities.list(columnar);
+        for (int i = 0; i < 10; i++) {
+            LineString line = (LineString) result.get(i).getDefaultGeometry();
+            assertTrue(line.getCoordinateSequence() instanceof PackedCoordinateSequence);
+            assertTrue(line.equalsExact(lines.get(i)));
+            assertEquals(i, line.getCoordinateN(2).z, 0d);
+        }
+    }
+
+    @Test
+    public void testSubCollection() throws Exception {
+        ColumnarFeatureCollection columnar = new ColumnarFeatureCollection(features);
+        SimpleFeatureCollection filtered = columnar.subCollection(FF.equals(FF.property("name"),
+                FF.literal("name2")));
+        assertEquals(features.subCollection(FF.equals(FF.property("name"),
+                FF.literal("name2"))).size(), filtered.size());
+    }
+}
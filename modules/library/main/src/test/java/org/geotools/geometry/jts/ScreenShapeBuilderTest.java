@@ -0,0 +1,197 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geometry.jts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.referencing.operation.transform.ProjectiveTransform;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class ScreenShapeBuilderTest {
+
+    WKTReader reader = new WKTReader();
+
+    @Test
+    public void testSameAsLiteShape() throws Exception {
+        Geometry g = reader.read("MULTIPOLYGON(((0 0, 10 0, 10 10, 0 10, 0 0), "
+                + "(2 2, 2 4, 4 4, 4 2, 2 2)), ((20 20, 30 20, 30 30, 20 20)))");
+        AffineTransform at = AffineTransform.getScaleInstance(2, -2);
+        at.translate(5, -40);
+
+        ScreenShapeBuilder builder = new ScreenShapeBuilder(ProjectiveTransform.create(at), -1,
+                -1, null);
+        Shape shape = builder.build(g);
+        LiteShape2 liteShape = new LiteShape2(g, ProjectiveTransform.create(at), null, false);
+        Path2D expected = new Path2D.Double(liteShape);
+
+        assertEquals(liteShape.getBounds2D(), shape.getBounds2D());
+        Rectangle2D bounds = expected.getBounds2D();
+        for (double x = bounds.getMinX() + 0.35; x < bounds.getMaxX(); x += 0.7) {
+            for (double y = bounds.getMinY() + 0.35; y < bounds.getMaxY(); y += 0.7) {
+                assertEquals(expected.contains(x, y), shape.contains(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testDecimation() throws Exception {
+        Geometry g = reader.read("LINESTRING(0 0, 0.1 0.1, 0.2 0.2, 5 5, 5.1 5.1, 10 10)");
+        ScreenShapeBuilder builder = new ScreenShapeBuilder(null, 1, 1, null);
+        Shape shape = builder.build(g);
+
+        List<double[]> points = points(shape);
+        assertEquals(3, points.size());
+        assertPoint(0, 0, points.get(0));
+        assertPoint(5, 5, points.get(1));
+        assertPoint(10, 10, points.get(2));
+    }
+
+    @Test
+    public void testDecimationKeepsRings() throws Exception {
+        Geometry g = reader.read("POLYGON((0 0, 0.1 0, 0.1 0.1, 0 0.1, 0 0.05, 0 0))");
+        ScreenShapeBuilder builder = new ScreenShapeBuilder(null, 1, 1, null);
+        Shape shape = builder.build(g);
+
+        // moveto, two linetos and close
+        PathIterator pi = shape.getPathIterator(null);
+        List<Integer> types = new ArrayList<Integer>();
+        double[] coords = new double[6];
+        for (; !pi.isDone(); pi.next()) {
+            types.add(pi.currentSegment(coords));
+        }
+        assertEquals(4, types.size());
+        assertEquals(PathIterator.SEG_MOVETO, (int) types.get(0));
+        assertEquals(PathIterator.SEG_CLOSE, (int) types.get(3));
+    }
+
+    @Test
+    public void testClipLine() throws Exception {
+        Geometry g = reader.read("LINESTRING(-10 5, 5 5, 5 20, 8 20, 8 5, 20 5)");
+        ScreenShapeBuilder builder = new ScreenShapeBuilder(null, -1, -1,
+                new Rectangle2D.Double(0, 0, 10, 10));
+        Shape shape = builder.build(g);
+
+        // the line goes out of the clip area and then comes back, two sub paths
+        PathIterator pi = shape.getPathIterator(null);
+        double[] coords = new double[6];
+        int moves = 0;
+        for (; !pi.isDone(); pi.next()) {
+            int type = pi.currentSegment(coords);
+            if (type == PathIterator.SEG_MOVETO) {
+                moves++;
+            }
+            assertTrue(coords[0] >= 0 && coords[0] <= 10);
+            assertTrue(coords[1] >= 0 && coords[1] <= 10);
+        }
+        assertEquals(2, moves);
+        assertEquals(new Rectangle2D.Double(0, 5, 10, 5), shape.getBounds2D());
+    }
+
+    @Test
+    public void testClipPolygon() throws Exception {
+        Geometry g = reader.read("POLYGON((-10 -10, 20 -10, 20 20, -10 20, -10 -10), "
+                + "(2 2, 2 4, 4 4, 4 2, 2 2))");
+        ScreenShapeBuilder builder = new ScreenShapeBuilder(null, -1, -1,
+                new Rectangle2D.Double(0, 0, 10, 10));
+        Shape shape = builder.build(g);
+
+        assertEquals(new Rectangle2D.Double(0, 0, 10, 10), shape.getBounds2D());
+        assertTrue(shape.contains(1, 1));
+        assertTrue(shape.contains(9, 9));
+        // the hole is preserved
+        assertFalse(shape.contains(3, 3));
+    }
+
+    @Test
+    public void testFullyOutside() throws Exception {
+        Geometry g = reader.read("POLYGON((20 20, 30 20, 30 30, 20 30, 20 20))");
+        ScreenShapeBuilder builder = new ScreenShapeBuilder(null, -1, -1,
+                new Rectangle2D.Double(0, 0, 10, 10));
+        builder.build(g);
+        assertTrue(builder.isEmpty());
+        assertEquals(0, builder.getPointCount());
+
+        builder.build(reader.read("POINT(20 20)"));
+        assertTrue(builder.isEmpty());
+
+        // same builder, larger clip
+        builder.setClip(new Rectangle2D.Double(0, 0, 40, 40));
+        builder.build(g);
+        assertFalse(builder.isEmpty());
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        ScreenShapeBuilder builder = new ScreenShapeBuilder(null, -1, -1, null);
+        Shape first = builder.build(reader.read("LINESTRING(0 0, 10 10)"));
+        Path2D copy = builder.toPath();
+        Shape second = builder.build(reader.read("LINESTRING(0 0, 5 5)"));
+
+        // same view, new contents, while the copy is unaffected
+        assertSame(first, second);
+        assertEquals(new Rectangle2D.Double(0, 0, 5, 5), second.getBounds2D());
+        assertEquals(new Rectangle2D.Double(0, 0, 10, 10), copy.getBounds2D());
+        assertEquals(2, builder.getPointCount());
+    }
+
+    @Test
+    public void testBufferGrowth() throws Exception {
+        StringBuilder sb = new StringBuilder("LINESTRING(");
+        int count = ScreenShapeBuilder.INITIAL_SIZE * 3;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(i).append(" ").append(i % 2);
+        }
+        sb.append(")");
+        ScreenShapeBuilder builder = new ScreenShapeBuilder(null, -1, -1, null);
+        Shape shape = builder.build(reader.read(sb.toString()));
+        assertEquals(count, points(shape).size());
+    }
+
+    List<double[]> points(Shape shape) {
+        List<double[]> result = new ArrayList<double[]>();
+        PathIterator pi = shape.getPathIterator(null);
+        double[] coords = new double[6];
+        for (; !pi.isDone(); pi.next()) {
+            if (pi.currentSegment(coords) != PathIterator.SEG_CLOSE) {
+                result.add(new double[] { coords[0], coords[1] });
+            }
+        }
+        return result;
+    }
+
+    void assertPoint(double x, double y, double[] actual) {
+        assertEquals(x, actual[0], 0d);
+        assertEquals(y, actual[1], 0d);
+    }
+}
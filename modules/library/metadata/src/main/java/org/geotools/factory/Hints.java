@@ -869,7 +869,9 @@ public class Hints extends RenderingHints {
      * {@link org.geotools.referencing.factory.AbstractAuthorityMediator} instances such as
      * {@link org.geotools.referencing.factory.epsg.HsqlDialectEpsgMediator}. As such this
      * will be the absolute limit on the number of database connections the mediator will
-     * make use of.
+     * make use of. It also limits the number of database connections used by
+     * {@link org.geotools.referencing.factory.epsg.ThreadedEpsgFactory} for creating
+     * the objects not found in its cache.
      * <p>
      * When this limit it reached, code will be forced to block while waiting
      * for a connection to become available.
@@ -19,15 +19,12 @@
  */
 package org.geotools.referencing.factory;
 
-import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.Set;
-import java.util.Iterator;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.WeakHashMap;
-import java.util.LinkedHashMap;
 import java.util.logging.LogRecord;
 import java.util.logging.Level;
 import javax.measure.unit.Unit;
@@ -93,17 +90,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
     volatile AbstractAuthorityFactory backingStore;
 
     /**
-     * The pool of cached objects.
+     * The cache for referencing objects. Lookups in this cache do not lock, so objects
+     * already created are returned without contention. Only cache misses are delegated
+     * to the backing store.
      */
-    private final LinkedHashMap<Object,Object> pool =
-            new LinkedHashMap<Object,Object>(32, 0.75f, true);
-
-    /**
-     * The maximum number of objects to keep by strong reference. If a greater amount of
-     * objects are created, then the strong references for the oldest ones are replaced by
-     * weak references.
-     */
-    private final int maxStrongReferences;
+    private final OldReferencingObjectCache objectCache;
 
     /**
      * The pool of objects identified by {@link #find}.
@@ -145,8 +136,8 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
         while (factory instanceof BufferedAuthorityFactory) {
             factory = ((BufferedAuthorityFactory) factory).backingStore;
         }
-        this.backingStore        = factory;
-        this.maxStrongReferences = maxStrongReferences;
+        this.backingStore = factory;
+        this.objectCache  = new OldReferencingObjectCache(maxStrongReferences);
         completeHints();
     }
 
@@ -164,7 +155,7 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      */
     BufferedAuthorityFactory(final int priority, final int maxStrongReferences) {
         super(priority);
-        this.maxStrongReferences = maxStrongReferences;
+        this.objectCache = new OldReferencingObjectCache(maxStrongReferences);
         // completeHints() will be invoked by DeferredAuthorityFactory.getBackingStore()
     }
 
@@ -224,6 +215,28 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
         return backingStore;
     }
 
+    /**
+     * Returns the backing store to use for creating an object which was not found in the
+     * cache. Every invocation of this method must be followed by a call to {@link #releaseWorker}
+     * in a {@code finally} block. The default implementation returns the {@linkplain
+     * #getBackingStore backing store}; {@link DeferredAuthorityFactory} may return one of
+     * a pool of backing stores instead.
+     *
+     * @return The backing store to use for a single {@code createXXX(...)} call.
+     * @throws FactoryException if the creation of backing store failed.
+     */
+    AbstractAuthorityFactory acquireWorker() throws FactoryException {
+        return getBackingStore();
+    }
+
+    /**
+     * Gives back a backing store obtained by {@link #acquireWorker}.
+     *
+     * @param worker The backing store to release.
+     */
+    void releaseWorker(final AbstractAuthorityFactory worker) {
+    }
+
     /**
      * Returns {@code true} if this factory is available. The default implementation returns
      * {@code false} if no backing store were setup and
@@ -351,19 +364,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized IdentifiedObject createObject(final String code)
+    public IdentifiedObject createObject(final String code)
             throws FactoryException
     {
-        final IdentifiedObject object;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof IdentifiedObject) {
-            object = (IdentifiedObject) cached;
-        } else {
-            object = getBackingStore().createObject(code);
+            return (IdentifiedObject) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createObject(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, object);
-        return object;
     }
 
     /**
@@ -372,19 +386,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Datum createDatum(final String code)
+    public Datum createDatum(final String code)
             throws FactoryException
     {
-        final Datum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof Datum) {
-            datum = (Datum) cached;
-        } else {
-            datum = getBackingStore().createDatum(code);
+            return (Datum) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createDatum(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, datum);
-        return datum;
     }
 
     /**
@@ -393,19 +408,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized EngineeringDatum createEngineeringDatum(final String code)
+    public EngineeringDatum createEngineeringDatum(final String code)
             throws FactoryException
     {
-        final EngineeringDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof EngineeringDatum) {
-            datum = (EngineeringDatum) cached;
-        } else {
-            datum = getBackingStore().createEngineeringDatum(code);
+            return (EngineeringDatum) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createEngineeringDatum(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, datum);
-        return datum;
     }
 
     /**
@@ -414,19 +430,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized ImageDatum createImageDatum(final String code)
+    public ImageDatum createImageDatum(final String code)
             throws FactoryException
     {
-        final ImageDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof ImageDatum) {
-            datum = (ImageDatum) cached;
-        } else {
-            datum = getBackingStore().createImageDatum(code);
+            return (ImageDatum) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createImageDatum(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, datum);
-        return datum;
     }
 
     /**
@@ -435,19 +452,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized VerticalDatum createVerticalDatum(final String code)
+    public VerticalDatum createVerticalDatum(final String code)
             throws FactoryException
     {
-        final VerticalDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof VerticalDatum) {
-            datum = (VerticalDatum) cached;
-        } else {
-            datum = getBackingStore().createVerticalDatum(code);
+            return (VerticalDatum) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createVerticalDatum(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, datum);
-        return datum;
     }
 
     /**
@@ -456,19 +474,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized TemporalDatum createTemporalDatum(final String code)
+    public TemporalDatum createTemporalDatum(final String code)
             throws FactoryException
     {
-        final TemporalDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof TemporalDatum) {
-            datum = (TemporalDatum) cached;
-        } else {
-            datum = getBackingStore().createTemporalDatum(code);
+            return (TemporalDatum) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createTemporalDatum(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, datum);
-        return datum;
     }
 
     /**
@@ -477,19 +496,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized GeodeticDatum createGeodeticDatum(final String code)
+    public GeodeticDatum createGeodeticDatum(final String code)
             throws FactoryException
     {
-        final GeodeticDatum datum;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof GeodeticDatum) {
-            datum = (GeodeticDatum) cached;
-        } else {
-            datum = getBackingStore().createGeodeticDatum(code);
+            return (GeodeticDatum) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createGeodeticDatum(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, datum);
-        return datum;
     }
 
     /**
@@ -498,19 +518,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Ellipsoid createEllipsoid(final String code)
+    public Ellipsoid createEllipsoid(final String code)
             throws FactoryException
     {
-        final Ellipsoid ellipsoid;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof Ellipsoid) {
-            ellipsoid = (Ellipsoid) cached;
-        } else {
-            ellipsoid = getBackingStore().createEllipsoid(code);
+            return (Ellipsoid) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createEllipsoid(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, ellipsoid);
-        return ellipsoid;
     }
 
     /**
@@ -519,19 +540,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized PrimeMeridian createPrimeMeridian(final String code)
+    public PrimeMeridian createPrimeMeridian(final String code)
             throws FactoryException
     {
-        final PrimeMeridian meridian;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof PrimeMeridian) {
-            meridian = (PrimeMeridian) cached;
-        } else {
-            meridian = getBackingStore().createPrimeMeridian(code);
+            return (PrimeMeridian) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createPrimeMeridian(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, meridian);
-        return meridian;
     }
 
     /**
@@ -540,19 +562,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Extent createExtent(final String code)
+    public Extent createExtent(final String code)
             throws FactoryException
     {
-        final Extent extent;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof Extent) {
-            extent = (Extent) cached;
-        } else {
-            extent = getBackingStore().createExtent(code);
+            return (Extent) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createExtent(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, extent);
-        return extent;
     }
 
     /**
@@ -561,19 +584,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CoordinateSystem createCoordinateSystem(final String code)
+    public CoordinateSystem createCoordinateSystem(final String code)
             throws FactoryException
     {
-        final CoordinateSystem cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof CoordinateSystem) {
-            cs = (CoordinateSystem) cached;
-        } else {
-            cs = getBackingStore().createCoordinateSystem(code);
+            return (CoordinateSystem) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createCoordinateSystem(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, cs);
-        return cs;
     }
 
     /**
@@ -582,19 +606,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CartesianCS createCartesianCS(final String code)
+    public CartesianCS createCartesianCS(final String code)
             throws FactoryException
     {
-        final CartesianCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof CartesianCS) {
-            cs = (CartesianCS) cached;
-        } else {
-            cs = getBackingStore().createCartesianCS(code);
+            return (CartesianCS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createCartesianCS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, cs);
-        return cs;
     }
 
     /**
@@ -603,19 +628,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized PolarCS createPolarCS(final String code)
+    public PolarCS createPolarCS(final String code)
             throws FactoryException
     {
-        final PolarCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof PolarCS) {
-            cs = (PolarCS) cached;
-        } else {
-            cs = getBackingStore().createPolarCS(code);
+            return (PolarCS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createPolarCS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, cs);
-        return cs;
     }
 
     /**
@@ -624,19 +650,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CylindricalCS createCylindricalCS(final String code)
+    public CylindricalCS createCylindricalCS(final String code)
             throws FactoryException
     {
-        final CylindricalCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof CylindricalCS) {
-            cs = (CylindricalCS) cached;
-        } else {
-            cs = getBackingStore().createCylindricalCS(code);
+            return (CylindricalCS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createCylindricalCS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, cs);
-        return cs;
     }
 
     /**
@@ -645,19 +672,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized SphericalCS createSphericalCS(final String code)
+    public SphericalCS createSphericalCS(final String code)
             throws FactoryException
     {
-        final SphericalCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof SphericalCS) {
-            cs = (SphericalCS) cached;
-        } else {
-            cs = getBackingStore().createSphericalCS(code);
+            return (SphericalCS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createSphericalCS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, cs);
-        return cs;
     }
 
     /**
@@ -666,19 +694,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized EllipsoidalCS createEllipsoidalCS(final String code)
+    public EllipsoidalCS createEllipsoidalCS(final String code)
             throws FactoryException
     {
-        final EllipsoidalCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof EllipsoidalCS) {
-            cs = (EllipsoidalCS) cached;
-        } else {
-            cs = getBackingStore().createEllipsoidalCS(code);
+            return (EllipsoidalCS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createEllipsoidalCS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, cs);
-        return cs;
     }
 
     /**
@@ -687,19 +716,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized VerticalCS createVerticalCS(final String code)
+    public VerticalCS createVerticalCS(final String code)
             throws FactoryException
     {
-        final VerticalCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof VerticalCS) {
-            cs = (VerticalCS) cached;
-        } else {
-            cs = getBackingStore().createVerticalCS(code);
+            return (VerticalCS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createVerticalCS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, cs);
-        return cs;
     }
 
     /**
@@ -708,19 +738,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized TimeCS createTimeCS(final String code)
+    public TimeCS createTimeCS(final String code)
             throws FactoryException
     {
-        final TimeCS cs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof TimeCS) {
-            cs = (TimeCS) cached;
-        } else {
-            cs = getBackingStore().createTimeCS(code);
+            return (TimeCS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createTimeCS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, cs);
-        return cs;
     }
 
     /**
@@ -729,19 +760,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CoordinateSystemAxis createCoordinateSystemAxis(final String code)
+    public CoordinateSystemAxis createCoordinateSystemAxis(final String code)
             throws FactoryException
     {
-        final CoordinateSystemAxis axis;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof CoordinateSystemAxis) {
-            axis = (CoordinateSystemAxis) cached;
-        } else {
-            axis = getBackingStore().createCoordinateSystemAxis(code);
+            return (CoordinateSystemAxis) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createCoordinateSystemAxis(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, axis);
-        return axis;
     }
 
     /**
@@ -750,19 +782,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Unit<?> createUnit(final String code)
+    public Unit<?> createUnit(final String code)
             throws FactoryException
     {
-        final Unit<?> unit;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof Unit) {
-            unit = (Unit) cached;
-        } else {
-            unit = getBackingStore().createUnit(code);
+            return (Unit<?>) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createUnit(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, unit);
-        return unit;
     }
 
     /**
@@ -771,19 +804,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
             throws FactoryException
     {
-        final CoordinateReferenceSystem crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof CoordinateReferenceSystem) {
-            crs = (CoordinateReferenceSystem) cached;
-        } else {
-            crs = getBackingStore().createCoordinateReferenceSystem(code);
+            return (CoordinateReferenceSystem) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createCoordinateReferenceSystem(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -792,19 +826,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CompoundCRS createCompoundCRS(final String code)
+    public CompoundCRS createCompoundCRS(final String code)
             throws FactoryException
     {
-        final CompoundCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof CompoundCRS) {
-            crs = (CompoundCRS) cached;
-        } else {
-            crs = getBackingStore().createCompoundCRS(code);
+            return (CompoundCRS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createCompoundCRS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -813,19 +848,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized DerivedCRS createDerivedCRS(final String code)
+    public DerivedCRS createDerivedCRS(final String code)
             throws FactoryException
     {
-        final DerivedCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof DerivedCRS) {
-            crs = (DerivedCRS) cached;
-        } else {
-            crs = getBackingStore().createDerivedCRS(code);
+            return (DerivedCRS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createDerivedCRS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -834,19 +870,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized EngineeringCRS createEngineeringCRS(final String code)
+    public EngineeringCRS createEngineeringCRS(final String code)
             throws FactoryException
     {
-        final EngineeringCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof EngineeringCRS) {
-            crs = (EngineeringCRS) cached;
-        } else {
-            crs = getBackingStore().createEngineeringCRS(code);
+            return (EngineeringCRS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createEngineeringCRS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -855,19 +892,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized GeographicCRS createGeographicCRS(final String code)
+    public GeographicCRS createGeographicCRS(final String code)
             throws FactoryException
     {
-        final GeographicCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof GeographicCRS) {
-            crs = (GeographicCRS) cached;
-        } else {
-            crs = getBackingStore().createGeographicCRS(code);
+            return (GeographicCRS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createGeographicCRS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -876,19 +914,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized GeocentricCRS createGeocentricCRS(final String code)
+    public GeocentricCRS createGeocentricCRS(final String code)
             throws FactoryException
     {
-        final GeocentricCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof GeocentricCRS) {
-            crs = (GeocentricCRS) cached;
-        } else {
-            crs = getBackingStore().createGeocentricCRS(code);
+            return (GeocentricCRS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createGeocentricCRS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -897,19 +936,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized ImageCRS createImageCRS(final String code)
+    public ImageCRS createImageCRS(final String code)
             throws FactoryException
     {
-        final ImageCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof ImageCRS) {
-            crs = (ImageCRS) cached;
-        } else {
-            crs = getBackingStore().createImageCRS(code);
+            return (ImageCRS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createImageCRS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -918,19 +958,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized ProjectedCRS createProjectedCRS(final String code)
+    public ProjectedCRS createProjectedCRS(final String code)
             throws FactoryException
     {
-        final ProjectedCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof ProjectedCRS) {
-            crs = (ProjectedCRS) cached;
-        } else {
-            crs = getBackingStore().createProjectedCRS(code);
+            return (ProjectedCRS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createProjectedCRS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -939,19 +980,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized TemporalCRS createTemporalCRS(final String code)
+    public TemporalCRS createTemporalCRS(final String code)
             throws FactoryException
     {
-        final TemporalCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof TemporalCRS) {
-            crs = (TemporalCRS) cached;
-        } else {
-            crs = getBackingStore().createTemporalCRS(code);
+            return (TemporalCRS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createTemporalCRS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -960,19 +1002,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized VerticalCRS createVerticalCRS(final String code)
+    public VerticalCRS createVerticalCRS(final String code)
             throws FactoryException
     {
-        final VerticalCRS crs;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof VerticalCRS) {
-            crs = (VerticalCRS) cached;
-        } else {
-            crs = getBackingStore().createVerticalCRS(code);
+            return (VerticalCRS) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createVerticalCRS(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, crs);
-        return crs;
     }
 
     /**
@@ -983,19 +1026,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized ParameterDescriptor createParameterDescriptor(final String code)
+    public ParameterDescriptor createParameterDescriptor(final String code)
             throws FactoryException
     {
-        final ParameterDescriptor parameter;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof ParameterDescriptor) {
-            parameter = (ParameterDescriptor) cached;
-        } else {
-            parameter = getBackingStore().createParameterDescriptor(code);
+            return (ParameterDescriptor) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createParameterDescriptor(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, parameter);
-        return parameter;
     }
 
     /**
@@ -1006,19 +1050,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized OperationMethod createOperationMethod(final String code)
+    public OperationMethod createOperationMethod(final String code)
             throws FactoryException
     {
-        final OperationMethod method;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof OperationMethod) {
-            method = (OperationMethod) cached;
-        } else {
-            method = getBackingStore().createOperationMethod(code);
+            return (OperationMethod) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createOperationMethod(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, method);
-        return method;
     }
 
     /**
@@ -1029,19 +1074,20 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized CoordinateOperation createCoordinateOperation(final String code)
+    public CoordinateOperation createCoordinateOperation(final String code)
             throws FactoryException
     {
-        final CoordinateOperation operation;
         final String key = trimAuthority(code);
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof CoordinateOperation) {
-            operation = (CoordinateOperation) cached;
-        } else {
-            operation = getBackingStore().createCoordinateOperation(code);
+            return (CoordinateOperation) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, worker.createCoordinateOperation(code));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, operation);
-        return operation;
     }
 
     /**
@@ -1052,21 +1098,22 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
+    public Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
                         final String sourceCRS, final String targetCRS)
             throws FactoryException
     {
-        final Set<CoordinateOperation> operations;
         final CodePair key = new CodePair(trimAuthority(sourceCRS), trimAuthority(targetCRS));
-        final Object cached = get(key);
+        final Object cached = objectCache.get(key);
         if (cached instanceof Set) {
-            operations = (Set<CoordinateOperation>) cached;
-        } else {
-            operations = Collections.unmodifiableSet(getBackingStore()
-                         .createFromCoordinateReferenceSystemCodes(sourceCRS, targetCRS));
+            return (Set<CoordinateOperation>) cached;
+        }
+        final AbstractAuthorityFactory worker = acquireWorker();
+        try {
+            return objectCache.put(key, Collections.unmodifiableSet(
+                    worker.createFromCoordinateReferenceSystemCodes(sourceCRS, targetCRS)));
+        } finally {
+            releaseWorker(worker);
         }
-        put(key, operations);
-        return operations;
     }
 
     /**
@@ -1115,7 +1162,7 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.4
      */
     @Override
-    public synchronized IdentifiedObjectFinder getIdentifiedObjectFinder(
+    public IdentifiedObjectFinder getIdentifiedObjectFinder(
             final Class<? extends IdentifiedObject> type) throws FactoryException
     {
         return new Finder(getBackingStore().getIdentifiedObjectFinder(type));
@@ -1200,52 +1247,8 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
             backingStore.dispose();
             backingStore = null;
         }
-        pool.clear();
+        objectCache.clear();
         findPool.clear();
         super.dispose();
     }
-
-    /**
-     * Returns an object from the pool for the specified code. If the object was retained as a
-     * {@linkplain Reference weak reference}, the {@link Reference#get referent} is returned.
-     *
-     * @todo Consider logging a message here to the finer or finest level.
-     */
-    private Object get(final Object key) {
-        assert Thread.holdsLock(this);
-        Object object = pool.get(key);
-        if (object instanceof Reference) {
-            object = ((Reference<?>) object).get();
-        }
-        return object;
-    }
-
-    /**
-     * Put an element in the pool. This method is invoked everytime a {@code createFoo(...)}
-     * method is invoked, even if an object was already in the pool for the given code, for
-     * the following reasons: 1) Replaces weak reference by strong reference (if applicable)
-     * and 2) Alters the linked hash set order, so that this object is declared as the last
-     * one used.
-     */
-    private void put(final Object key, final Object object) {
-        assert Thread.holdsLock(this);
-        pool.put(key, object);
-        int toReplace = pool.size() - maxStrongReferences;
-        if (toReplace > 0) {
-            for (final Iterator<Map.Entry<Object,Object>> it=pool.entrySet().iterator(); it.hasNext();) {
-                final Map.Entry<Object,Object> entry = it.next();
-                final Object value = entry.getValue();
-                if (value instanceof Reference) {
-                    if (((Reference) value).get() == null) {
-                        it.remove();
-                    }
-                    continue;
-                }
-                entry.setValue(new WeakReference<Object>(value));
-                if (--toReplace == 0) {
-                    break;
-                }
-            }
-        }
-    }
 }
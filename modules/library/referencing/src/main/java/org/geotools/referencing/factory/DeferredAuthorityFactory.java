@@ -19,6 +19,9 @@
  */
 package org.geotools.referencing.factory;
 
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.logging.Level;
@@ -38,6 +41,11 @@ import org.geotools.resources.i18n.LoggingKeys;
  * of a backing store} until when first needed. This approach allow to etablish a connection to
  * a database (for example) only when first needed. In addition, the backing store can be
  * automatically disposed after a timeout and recreated when needed again.
+ * <p>
+ * Objects found in the cache are returned without any locking. Objects which need to be
+ * created are delegated to the backing store, or to one of a pool of backing stores if
+ * {@link #setMaxWorkers} has been invoked with a value greater than 1, so that threads
+ * missing the cache do not all queue on a single connection.
  *
  * @since 2.1
  *
@@ -70,6 +78,54 @@ public abstract class DeferredAuthorityFactory extends BufferedAuthorityFactory
      */
     private boolean used;
 
+    /**
+     * The maximum number of backing stores to use at the same time for creating the objects
+     * not found in the cache. The default value of 1 delegates every cache miss to the single
+     * {@linkplain #backingStore backing store}.
+     */
+    private volatile int maxWorkers = 1;
+
+    /**
+     * All the backing stores of the worker pool, including the main {@linkplain #backingStore
+     * backing store}. Empty until the pool is first used. Must be accessed with the lock on
+     * {@code this} held.
+     */
+    private final List<AbstractAuthorityFactory> workers = new ArrayList<AbstractAuthorityFactory>();
+
+    /**
+     * The backing stores of the worker pool not currently in use.
+     * Must be accessed with the lock on {@code this} held.
+     */
+    private final LinkedList<AbstractAuthorityFactory> idleWorkers =
+            new LinkedList<AbstractAuthorityFactory>();
+
+    /**
+     * The number of backing stores currently leased from the worker pool. The backing stores
+     * are not disposed by the {@linkplain #setTimeout timeout} while this number is positive.
+     */
+    private int activeWorkers;
+
+    /**
+     * The backing store leased by the current thread, if any. Objects created by a backing
+     * store may in turn be requested to this factory, for example a datum while creating a
+     * CRS: those nested requests reuse the same backing store, otherwise a thread could wait
+     * for a worker while holding one.
+     */
+    private final ThreadLocal<Lease> lease = new ThreadLocal<Lease>();
+
+    /**
+     * A backing store leased by a thread, with the depth of nested requests using it.
+     */
+    private static final class Lease {
+        final AbstractAuthorityFactory worker;
+
+        int depth = 1;
+
+        Lease(final AbstractAuthorityFactory worker) {
+            this.worker = worker;
+        }
+    }
+
     /**
      * Constructs an instance without initial backing store. Subclasses are responsible for
      * creating an appropriate backing store when the {@link #createBackingStore} method is
@@ -142,9 +198,116 @@ public abstract class DeferredAuthorityFactory extends BufferedAuthorityFactory
         return backingStore;
     }
 
+    /**
+     * Returns a backing store for creating an object not found in the cache. If the
+     * {@linkplain #setMaxWorkers worker pool} is enabled, the backing store is taken from
+     * the pool, creating a new one if they are all in use and the pool is not full, or waiting
+     * for one to be released otherwise.
+     */
+    @Override
+    final AbstractAuthorityFactory acquireWorker() throws FactoryException {
+        final AbstractAuthorityFactory main = getBackingStore();
+        if (maxWorkers <= 1) {
+            return main;
+        }
+        final Lease current = lease.get();
+        if (current != null) {
+            current.depth++;
+            return current.worker;
+        }
+        final AbstractAuthorityFactory worker;
+        synchronized (this) {
+            worker = takeWorker();
+            activeWorkers++;
+        }
+        lease.set(new Lease(worker));
+        return worker;
+    }
+
+    /**
+     * Takes a backing store from the worker pool, waiting for one if needed.
+     */
+    private AbstractAuthorityFactory takeWorker() throws FactoryException {
+        assert Thread.holdsLock(this);
+        while (true) {
+            if (workers.isEmpty()) {
+                final AbstractAuthorityFactory main = getBackingStore();
+                workers.add(main);
+                idleWorkers.add(main);
+            }
+            if (!idleWorkers.isEmpty()) {
+                return idleWorkers.removeFirst();
+            }
+            if (workers.size() < maxWorkers) {
+                try {
+                    final AbstractAuthorityFactory worker = createBackingStore();
+                    if (worker != null) {
+                        workers.add(worker);
+                        return worker;
+                    }
+                } catch (FactoryException exception) {
+                    LOGGER.log(Level.WARNING, "Could not create an additional backing store for "
+                            + getClass() + ", the worker pool is limited to " + workers.size()
+                            + " backing stores", exception);
+                }
+                maxWorkers = workers.size();
+                continue;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FactoryException(e);
+            }
+        }
+    }
+
+    /**
+     * Gives back a backing store obtained by {@link #acquireWorker} to the worker pool.
+     */
+    @Override
+    final void releaseWorker(final AbstractAuthorityFactory worker) {
+        final Lease current = lease.get();
+        if (current == null || current.worker != worker || --current.depth > 0) {
+            return;
+        }
+        lease.remove();
+        synchronized (this) {
+            activeWorkers--;
+            // the pool may have been disposed in the meantime
+            if (workers.contains(worker)) {
+                idleWorkers.addFirst(worker);
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * Sets the maximum number of backing stores used at the same time for creating objects not
+     * found in the cache. Additional backing stores are {@linkplain #createBackingStore created}
+     * only when all the existing ones are in use, and are disposed together with the main one.
+     * A value of 1, which is the default, delegates all the cache misses to the main backing
+     * store. A non positive value means no limit.
+     *
+     * @param maxWorkers The maximum number of backing stores to use concurrently.
+     */
+    public synchronized void setMaxWorkers(final int maxWorkers) {
+        this.maxWorkers = (maxWorkers > 0) ? maxWorkers : Integer.MAX_VALUE;
+        notifyAll();
+    }
+
+    /**
+     * Returns the maximum number of backing stores used at the same time for creating
+     * objects not found in the cache.
+     */
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
     /**
      * Creates the backing store authority factory. This method is invoked the first time a
-     * {@code createXXX(...)} method is invoked.
+     * {@code createXXX(...)} method is invoked, and every time the {@linkplain #setMaxWorkers
+     * worker pool} needs an additional backing store.
      *
      * @return The backing store to uses in {@code createXXX(...)} methods.
      * @throws FactoryNotFoundException if the backing store has not been found.
@@ -207,6 +370,7 @@ public abstract class DeferredAuthorityFactory extends BufferedAuthorityFactory
             disposer.cancel();
             disposer = null;
         }
+        disposeWorkers();
         super.dispose();
     }
     
@@ -225,6 +389,7 @@ public abstract class DeferredAuthorityFactory extends BufferedAuthorityFactory
      * @throws FactoryException
      */
     protected synchronized void disposeBackingStore() {
+        disposeWorkers();
         try {
             if(backingStore != null) {
                 LOGGER.log(Level.INFO, "Disposing " + getClass() + " backing store");
@@ -243,13 +408,33 @@ public abstract class DeferredAuthorityFactory extends BufferedAuthorityFactory
         }
     }
 
+    /**
+     * Disposes the backing stores created for the worker pool, in addition to the main one.
+     */
+    private void disposeWorkers() {
+        assert Thread.holdsLock(this);
+        for (final AbstractAuthorityFactory worker : workers) {
+            if (worker != backingStore) {
+                try {
+                    worker.dispose();
+                } catch (FactoryException exception) {
+                    LOGGER.log(Level.WARNING, "Could not dispose a backing store of "
+                            + getClass(), exception);
+                }
+            }
+        }
+        workers.clear();
+        idleWorkers.clear();
+        notifyAll();
+    }
+
     /**
      * The task for closing the backing store after the timeout.
      */
     private final class Disposer extends TimerTask {
         public void run() {
             synchronized (DeferredAuthorityFactory.this) {
-                if (used || !canDisposeBackingStore(backingStore)) {
+                if (used || activeWorkers > 0 || !canDisposeBackingStore(backingStore)) {
                     used = false;
                     return;
                 }
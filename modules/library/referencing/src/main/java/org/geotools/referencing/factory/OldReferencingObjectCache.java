@@ -17,15 +17,24 @@
 package org.geotools.referencing.factory;
 
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 /**
  * Caching implementation for ReferencingObjectCache. This instance is used when
  * actual caching is desired. This is a temporary class.
+ * <p>
+ * Lookups are served by a {@link ConcurrentHashMap} and never block: this cache sits in front
+ * of every {@code createFoo(...)} call made through {@link BufferedAuthorityFactory} and
+ * {@link ThreadedAuthorityFactory}, so a global lock would serialize all the threads decoding
+ * already known codes. A lock is taken only when adding new objects, and opportunistically on
+ * lookups (with {@link ReentrantLock#tryLock}) to record the access order used for deciding
+ * which objects are kept by strong references.
  * 
  * @since 2.4
  * @version $Id: DefaultReferencingObjectCache.java 25972 2007-06-21 13:38:35Z
@@ -36,15 +45,30 @@ import java.util.Map;
  */
 final class OldReferencingObjectCache {
     /**
-     * The pool of cached objects.
-     * <p>
-     * The following may be seen for a key (String key?):
-     * <ul>
-     * <li>Object (ie a strong reference) usually a referencing object like CoordinateReferenceSystem or Datum</li>
-     * <li>WeakReference used to hold a referencing object (may be cleaned up at any time</li>
-     * </ul>
+     * The pool of cached objects. Every object is referenced through a {@link CacheReference},
+     * the most recently used ones are also kept by strong references in {@link #recent}.
      */
-    private final LinkedHashMap pool = new LinkedHashMap(32, 0.75f, true);
+    private final ConcurrentHashMap<Object,CacheReference> pool =
+            new ConcurrentHashMap<Object,CacheReference>(32);
+
+    /**
+     * The objects kept by strong references, in access order. When more than
+     * {@link #maxStrongReferences} objects are found here the oldest one is removed,
+     * leaving it only weakly referenced by the {@linkplain #pool}.
+     * Must be accessed with {@link #lock} held.
+     */
+    private final LinkedHashMap<Object,Object> recent;
+
+    /**
+     * The lock protecting {@link #recent}.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The queue of references cleared by the garbage collector, used for removing the
+     * corresponding entries from the {@linkplain #pool}.
+     */
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
 
     /**
      * The maximum number of objects to keep by strong reference. If a greater amount of
@@ -53,83 +77,104 @@ final class OldReferencingObjectCache {
      */
     private final int maxStrongReferences;
 
+    /**
+     * A weak reference remembering the key it has been stored under, so that it can be
+     * removed from the pool once cleared.
+     */
+    private static final class CacheReference extends WeakReference<Object> {
+        final Object key;
+
+        CacheReference(final Object key, final Object object, final ReferenceQueue<Object> queue) {
+            super(object, queue);
+            this.key = key;
+        }
+    }
+
     /**
      * Creates a new cache which will hold the specified amount of object by strong references.
      * Any additional object will be help by weak references.
      */
     public OldReferencingObjectCache(final int maxStrongReferences) {
         this.maxStrongReferences = maxStrongReferences;
+        this.recent = new LinkedHashMap<Object,Object>(32, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Object,Object> eldest) {
+                return size() > OldReferencingObjectCache.this.maxStrongReferences;
+            }
+        };
     }
 
     /**
      * Removes all entries from this map.
      */
-    public synchronized void clear() {
-        if (pool != null) {
+    public void clear() {
+        lock.lock();
+        try {
+            recent.clear();
             pool.clear();
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * Returns an object from the pool for the specified code. If the object was retained as a
-     * {@linkplain Reference weak reference}, the {@link Reference#get referent} is returned.
+     * Returns an object from the pool for the specified code, or {@code null} if none.
+     * This method does not block. If no other thread is updating the cache at the same time,
+     * the object is also declared as the last one used.
      *
      * @param key The authority code.
-     *
-     * @todo Consider logging a message here to the finer or finest level.
      */
     public Object get(final Object key) {
-        //assert Thread.holdsLock(factory);
-        Object object = pool.get(key);
-        if (object instanceof Reference) {
-            object = ((Reference) object).get();
+        final Reference<Object> reference = pool.get(key);
+        if (reference == null) {
+            return null;
+        }
+        final Object object = reference.get();
+        if (object != null && lock.tryLock()) {
+            try {
+                recent.put(key, object);
+            } finally {
+                lock.unlock();
+            }
         }
         return object;
     }
 
     /**
-     * Put an element in the pool. This method is invoked everytime a {@code createFoo(...)}
-     * method is invoked, even if an object was already in the pool for the given code, for
-     * the following reasons: 1) Replaces weak reference by strong reference (if applicable)
-     * and 2) Alters the linked hash set order, so that this object is declared as the last
-     * one used.
+     * Puts an element in the pool, and returns the object to be used for the given key.
+     * Concurrent misses for the same key may create the same object twice: in this case the
+     * object stored first is kept and returned, so that all callers share the same instance.
+     * An existing object is replaced if it is not of the same kind than the new one, since
+     * the same code may be used by different kinds of objects.
      *
      * @param key the authority code.
      * @param object The referencing object to add in the pool.
+     * @return The object cached for the given key.
      */
-    public void put(final Object key, final Object object) {
-        //assert Thread.holdsLock(factory);
-        pool.put(key, object);
-        int toReplace = pool.size() - maxStrongReferences;
-        if (toReplace > 0) {
-            for (final Iterator it=pool.entrySet().iterator(); it.hasNext();) {
-                final Map.Entry entry = (Map.Entry) it.next();
-                final Object value = entry.getValue();
-                if (value instanceof Reference) {
-                    if (((Reference) value).get() == null) {
-                        it.remove();
-                    }
-                    continue;
-                }
-                entry.setValue(new WeakReference(value));
-                if (--toReplace == 0) {
-                    break;
+    @SuppressWarnings("unchecked")
+    public <T> T put(final Object key, final T object) {
+        if (object == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            CacheReference cleared;
+            while ((cleared = (CacheReference) queue.poll()) != null) {
+                pool.remove(cleared.key, cleared);
+            }
+            final CacheReference reference = pool.get(key);
+            if (reference != null) {
+                final Object existing = reference.get();
+                if (existing != null && object.getClass().isInstance(existing)) {
+                    recent.put(key, existing);
+                    return (T) existing;
                 }
             }
+            pool.put(key, new CacheReference(key, object, queue));
+            recent.put(key, object);
+            return object;
+        } finally {
+            lock.unlock();
         }
     }
-
-    public void writeLock(Object key) {
-    }
-
-    public void writeUnLock(Object key) {
-    }
-
-    public boolean containsKey(Object key) {
-        return false;
-    }
-
-    public Object test( Object key ) {
-        return null;
-    }
 }
@@ -86,7 +86,7 @@ public class ThreadedAuthorityFactory extends AbstractAuthorityFactory implement
      * @see #getBackingStore
      * @see DeferredAuthorityFactory#createBackingStore
      */
-    AbstractAuthorityFactory backingStore;
+    volatile AbstractAuthorityFactory backingStore;
 
     /**
      * The cache for referencing objects.
@@ -339,648 +339,512 @@ public class ThreadedAuthorityFactory extends AbstractAuthorityFactory implement
      * Returns an arbitrary object from a code.
      */
     @Override
-    public synchronized IdentifiedObject createObject(final String code)
+    public IdentifiedObject createObject(final String code)
             throws FactoryException
     {
-        final IdentifiedObject object;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof IdentifiedObject) {
-            object = (IdentifiedObject) cached;
-        } else {
-            object = getBackingStore().createObject(code);
+            return (IdentifiedObject) cached;
         }
-        objectCache.put(key, object);
-        return object;
+        return objectCache.put(key, getBackingStore().createObject(code));
     }
 
     /**
      * Returns an arbitrary datum from a code.
      */
     @Override
-    public synchronized Datum createDatum(final String code)
+    public Datum createDatum(final String code)
             throws FactoryException
     {
-        final Datum datum;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof Datum) {
-            datum = (Datum) cached;
-        } else {
-            datum = getBackingStore().createDatum(code);
+            return (Datum) cached;
         }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.put(key, getBackingStore().createDatum(code));
     }
 
     /**
      * Returns an engineering datum from a code.
      */
     @Override
-    public synchronized EngineeringDatum createEngineeringDatum(final String code)
+    public EngineeringDatum createEngineeringDatum(final String code)
             throws FactoryException
     {
-        final EngineeringDatum datum;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof EngineeringDatum) {
-            datum = (EngineeringDatum) cached;
-        } else {
-            datum = getBackingStore().createEngineeringDatum(code);
+            return (EngineeringDatum) cached;
         }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.put(key, getBackingStore().createEngineeringDatum(code));
     }
 
     /**
      * Returns an image datum from a code.
      */
     @Override
-    public synchronized ImageDatum createImageDatum(final String code)
+    public ImageDatum createImageDatum(final String code)
             throws FactoryException
     {
-        final ImageDatum datum;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof ImageDatum) {
-            datum = (ImageDatum) cached;
-        } else {
-            datum = getBackingStore().createImageDatum(code);
+            return (ImageDatum) cached;
         }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.put(key, getBackingStore().createImageDatum(code));
     }
 
     /**
      * Returns a vertical datum from a code.
      */
     @Override
-    public synchronized VerticalDatum createVerticalDatum(final String code)
+    public VerticalDatum createVerticalDatum(final String code)
             throws FactoryException
     {
-        final VerticalDatum datum;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof VerticalDatum) {
-            datum = (VerticalDatum) cached;
-        } else {
-            datum = getBackingStore().createVerticalDatum(code);
+            return (VerticalDatum) cached;
         }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.put(key, getBackingStore().createVerticalDatum(code));
     }
 
     /**
      * Returns a temporal datum from a code.
      */
     @Override
-    public synchronized TemporalDatum createTemporalDatum(final String code)
+    public TemporalDatum createTemporalDatum(final String code)
             throws FactoryException
     {
-        final TemporalDatum datum;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof TemporalDatum) {
-            datum = (TemporalDatum) cached;
-        } else {
-            datum = getBackingStore().createTemporalDatum(code);
+            return (TemporalDatum) cached;
         }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.put(key, getBackingStore().createTemporalDatum(code));
     }
 
     /**
      * Returns a geodetic datum from a code.
      */
     @Override
-    public synchronized GeodeticDatum createGeodeticDatum(final String code)
+    public GeodeticDatum createGeodeticDatum(final String code)
             throws FactoryException
     {
-        final GeodeticDatum datum;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof GeodeticDatum) {
-            datum = (GeodeticDatum) cached;
-        } else {
-            datum = getBackingStore().createGeodeticDatum(code);
+            return (GeodeticDatum) cached;
         }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.put(key, getBackingStore().createGeodeticDatum(code));
     }
 
     /**
      * Returns an ellipsoid from a code.
      */
     @Override
-    public synchronized Ellipsoid createEllipsoid(final String code)
+    public Ellipsoid createEllipsoid(final String code)
             throws FactoryException
     {
-        final Ellipsoid ellipsoid;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof Ellipsoid) {
-            ellipsoid = (Ellipsoid) cached;
-        } else {
-            ellipsoid = getBackingStore().createEllipsoid(code);
+            return (Ellipsoid) cached;
         }
-        objectCache.put(key, ellipsoid);
-        return ellipsoid;
+        return objectCache.put(key, getBackingStore().createEllipsoid(code));
     }
 
     /**
      * Returns a prime meridian from a code.
      */
     @Override
-    public synchronized PrimeMeridian createPrimeMeridian(final String code)
+    public PrimeMeridian createPrimeMeridian(final String code)
             throws FactoryException
     {
-        final PrimeMeridian meridian;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof PrimeMeridian) {
-            meridian = (PrimeMeridian) cached;
-        } else {
-            meridian = getBackingStore().createPrimeMeridian(code);
+            return (PrimeMeridian) cached;
         }
-        objectCache.put(key, meridian);
-        return meridian;
+        return objectCache.put(key, getBackingStore().createPrimeMeridian(code));
     }
 
     /**
      * Returns an extent (usually an area of validity) from a code.
      */
     @Override
-    public synchronized Extent createExtent(final String code)
+    public Extent createExtent(final String code)
             throws FactoryException
     {
-        final Extent extent;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof Extent) {
-            extent = (Extent) cached;
-        } else {
-            extent = getBackingStore().createExtent(code);
+            return (Extent) cached;
         }
-        objectCache.put(key, extent);
-        return extent;
+        return objectCache.put(key, getBackingStore().createExtent(code));
     }
 
     /**
      * Returns an arbitrary coordinate system from a code.
      */
     @Override
-    public synchronized CoordinateSystem createCoordinateSystem(final String code)
+    public CoordinateSystem createCoordinateSystem(final String code)
             throws FactoryException
     {
-        final CoordinateSystem cs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof CoordinateSystem) {
-            cs = (CoordinateSystem) cached;
-        } else {
-            cs = getBackingStore().createCoordinateSystem(code);
+            return (CoordinateSystem) cached;
         }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.put(key, getBackingStore().createCoordinateSystem(code));
     }
 
     /**
      * Returns a cartesian coordinate system from a code.
      */
     @Override
-    public synchronized CartesianCS createCartesianCS(final String code)
+    public CartesianCS createCartesianCS(final String code)
             throws FactoryException
     {
-        final CartesianCS cs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof CartesianCS) {
-            cs = (CartesianCS) cached;
-        } else {
-            cs = getBackingStore().createCartesianCS(code);
+            return (CartesianCS) cached;
         }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.put(key, getBackingStore().createCartesianCS(code));
     }
 
     /**
      * Returns a polar coordinate system from a code.
      */
     @Override
-    public synchronized PolarCS createPolarCS(final String code)
+    public PolarCS createPolarCS(final String code)
             throws FactoryException
     {
-        final PolarCS cs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof PolarCS) {
-            cs = (PolarCS) cached;
-        } else {
-            cs = getBackingStore().createPolarCS(code);
+            return (PolarCS) cached;
         }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.put(key, getBackingStore().createPolarCS(code));
     }
 
     /**
      * Returns a cylindrical coordinate system from a code.
      */
     @Override
-    public synchronized CylindricalCS createCylindricalCS(final String code)
+    public CylindricalCS createCylindricalCS(final String code)
             throws FactoryException
     {
-        final CylindricalCS cs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof CylindricalCS) {
-            cs = (CylindricalCS) cached;
-        } else {
-            cs = getBackingStore().createCylindricalCS(code);
+            return (CylindricalCS) cached;
         }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.put(key, getBackingStore().createCylindricalCS(code));
     }
 
     /**
      * Returns a spherical coordinate system from a code.
      */
     @Override
-    public synchronized SphericalCS createSphericalCS(final String code)
+    public SphericalCS createSphericalCS(final String code)
             throws FactoryException
     {
-        final SphericalCS cs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof SphericalCS) {
-            cs = (SphericalCS) cached;
-        } else {
-            cs = getBackingStore().createSphericalCS(code);
+            return (SphericalCS) cached;
         }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.put(key, getBackingStore().createSphericalCS(code));
     }
 
     /**
      * Returns an ellipsoidal coordinate system from a code.
      */
     @Override
-    public synchronized EllipsoidalCS createEllipsoidalCS(final String code)
+    public EllipsoidalCS createEllipsoidalCS(final String code)
             throws FactoryException
     {
-        final EllipsoidalCS cs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof EllipsoidalCS) {
-            cs = (EllipsoidalCS) cached;
-        } else {
-            cs = getBackingStore().createEllipsoidalCS(code);
+            return (EllipsoidalCS) cached;
         }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.put(key, getBackingStore().createEllipsoidalCS(code));
     }
 
     /**
      * Returns a vertical coordinate system from a code.
      */
     @Override
-    public synchronized VerticalCS createVerticalCS(final String code)
+    public VerticalCS createVerticalCS(final String code)
             throws FactoryException
     {
-        final VerticalCS cs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof VerticalCS) {
-            cs = (VerticalCS) cached;
-        } else {
-            cs = getBackingStore().createVerticalCS(code);
+            return (VerticalCS) cached;
         }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.put(key, getBackingStore().createVerticalCS(code));
     }
 
     /**
      * Returns a temporal coordinate system from a code.
      */
     @Override
-    public synchronized TimeCS createTimeCS(final String code)
+    public TimeCS createTimeCS(final String code)
             throws FactoryException
     {
-        final TimeCS cs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof TimeCS) {
-            cs = (TimeCS) cached;
-        } else {
-            cs = getBackingStore().createTimeCS(code);
+            return (TimeCS) cached;
         }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.put(key, getBackingStore().createTimeCS(code));
     }
 
     /**
      * Returns a coordinate system axis from a code.
      */
     @Override
-    public synchronized CoordinateSystemAxis createCoordinateSystemAxis(final String code)
+    public CoordinateSystemAxis createCoordinateSystemAxis(final String code)
             throws FactoryException
     {
-        final CoordinateSystemAxis axis;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof CoordinateSystemAxis) {
-            axis = (CoordinateSystemAxis) cached;
-        } else {
-            axis = getBackingStore().createCoordinateSystemAxis(code);
+            return (CoordinateSystemAxis) cached;
         }
-        objectCache.put(key, axis);
-        return axis;
+        return objectCache.put(key, getBackingStore().createCoordinateSystemAxis(code));
     }
 
     /**
      * Returns an unit from a code.
      */
     @Override
-    public synchronized Unit<?> createUnit(final String code)
+    public Unit<?> createUnit(final String code)
             throws FactoryException
     {
-        final Unit<?> unit;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof Unit) {
-            unit = (Unit) cached;
-        } else {
-            unit = getBackingStore().createUnit(code);
+            return (Unit<?>) cached;
         }
-        objectCache.put(key, unit);
-        return unit;
+        return objectCache.put(key, getBackingStore().createUnit(code));
     }
 
     /**
      * Returns an arbitrary coordinate reference system from a code.
      */
     @Override
-    public synchronized CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
             throws FactoryException
     {
-        final CoordinateReferenceSystem crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof CoordinateReferenceSystem) {
-            crs = (CoordinateReferenceSystem) cached;
-        } else {
-            crs = getBackingStore().createCoordinateReferenceSystem(code);
+            return (CoordinateReferenceSystem) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createCoordinateReferenceSystem(code));
     }
 
     /**
      * Returns a 3D coordinate reference system from a code.
      */
     @Override
-    public synchronized CompoundCRS createCompoundCRS(final String code)
+    public CompoundCRS createCompoundCRS(final String code)
             throws FactoryException
     {
-        final CompoundCRS crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof CompoundCRS) {
-            crs = (CompoundCRS) cached;
-        } else {
-            crs = getBackingStore().createCompoundCRS(code);
+            return (CompoundCRS) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createCompoundCRS(code));
     }
 
     /**
      * Returns a derived coordinate reference system from a code.
      */
     @Override
-    public synchronized DerivedCRS createDerivedCRS(final String code)
+    public DerivedCRS createDerivedCRS(final String code)
             throws FactoryException
     {
-        final DerivedCRS crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof DerivedCRS) {
-            crs = (DerivedCRS) cached;
-        } else {
-            crs = getBackingStore().createDerivedCRS(code);
+            return (DerivedCRS) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createDerivedCRS(code));
     }
 
     /**
      * Returns an engineering coordinate reference system from a code.
      */
     @Override
-    public synchronized EngineeringCRS createEngineeringCRS(final String code)
+    public EngineeringCRS createEngineeringCRS(final String code)
             throws FactoryException
     {
-        final EngineeringCRS crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof EngineeringCRS) {
-            crs = (EngineeringCRS) cached;
-        } else {
-            crs = getBackingStore().createEngineeringCRS(code);
+            return (EngineeringCRS) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createEngineeringCRS(code));
     }
 
     /**
      * Returns a geographic coordinate reference system from a code.
      */
     @Override
-    public synchronized GeographicCRS createGeographicCRS(final String code)
+    public GeographicCRS createGeographicCRS(final String code)
             throws FactoryException
     {
-        final GeographicCRS crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof GeographicCRS) {
-            crs = (GeographicCRS) cached;
-        } else {
-            crs = getBackingStore().createGeographicCRS(code);
+            return (GeographicCRS) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createGeographicCRS(code));
     }
 
     /**
      * Returns a geocentric coordinate reference system from a code.
      */
     @Override
-    public synchronized GeocentricCRS createGeocentricCRS(final String code)
+    public GeocentricCRS createGeocentricCRS(final String code)
             throws FactoryException
     {
-        final GeocentricCRS crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof GeocentricCRS) {
-            crs = (GeocentricCRS) cached;
-        } else {
-            crs = getBackingStore().createGeocentricCRS(code);
+            return (GeocentricCRS) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createGeocentricCRS(code));
     }
 
     /**
      * Returns an image coordinate reference system from a code.
      */
     @Override
-    public synchronized ImageCRS createImageCRS(final String code)
+    public ImageCRS createImageCRS(final String code)
             throws FactoryException
     {
-        final ImageCRS crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof ImageCRS) {
-            crs = (ImageCRS) cached;
-        } else {
-            crs = getBackingStore().createImageCRS(code);
+            return (ImageCRS) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createImageCRS(code));
     }
 
     /**
      * Returns a projected coordinate reference system from a code.
      */
     @Override
-    public synchronized ProjectedCRS createProjectedCRS(final String code)
+    public ProjectedCRS createProjectedCRS(final String code)
             throws FactoryException
     {
-        final ProjectedCRS crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof ProjectedCRS) {
-            crs = (ProjectedCRS) cached;
-        } else {
-            crs = getBackingStore().createProjectedCRS(code);
+            return (ProjectedCRS) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createProjectedCRS(code));
     }
 
     /**
      * Returns a temporal coordinate reference system from a code.
      */
     @Override
-    public synchronized TemporalCRS createTemporalCRS(final String code)
+    public TemporalCRS createTemporalCRS(final String code)
             throws FactoryException
     {
-        final TemporalCRS crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof TemporalCRS) {
-            crs = (TemporalCRS) cached;
-        } else {
-            crs = getBackingStore().createTemporalCRS(code);
+            return (TemporalCRS) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createTemporalCRS(code));
     }
 
     /**
      * Returns a vertical coordinate reference system from a code.
      */
     @Override
-    public synchronized VerticalCRS createVerticalCRS(final String code)
+    public VerticalCRS createVerticalCRS(final String code)
             throws FactoryException
     {
-        final VerticalCRS crs;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof VerticalCRS) {
-            crs = (VerticalCRS) cached;
-        } else {
-            crs = getBackingStore().createVerticalCRS(code);
+            return (VerticalCRS) cached;
         }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.put(key, getBackingStore().createVerticalCRS(code));
     }
 
     /**
      * Returns a parameter descriptor from a code.
      */
     @Override
-    public synchronized ParameterDescriptor createParameterDescriptor(final String code)
+    public ParameterDescriptor createParameterDescriptor(final String code)
             throws FactoryException
     {
-        final ParameterDescriptor parameter;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof ParameterDescriptor) {
-            parameter = (ParameterDescriptor) cached;
-        } else {
-            parameter = getBackingStore().createParameterDescriptor(code);
+            return (ParameterDescriptor) cached;
         }
-        objectCache.put(key, parameter);
-        return parameter;
+        return objectCache.put(key, getBackingStore().createParameterDescriptor(code));
     }
 
     /**
      * Returns an operation method from a code.
      */
     @Override
-    public synchronized OperationMethod createOperationMethod(final String code)
+    public OperationMethod createOperationMethod(final String code)
             throws FactoryException
     {
-        final OperationMethod method;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof OperationMethod) {
-            method = (OperationMethod) cached;
-        } else {
-            method = getBackingStore().createOperationMethod(code);
+            return (OperationMethod) cached;
         }
-        objectCache.put(key, method);
-        return method;
+        return objectCache.put(key, getBackingStore().createOperationMethod(code));
     }
 
     /**
      * Returns an operation from a single operation code.
      */
     @Override
-    public synchronized CoordinateOperation createCoordinateOperation(final String code)
+    public CoordinateOperation createCoordinateOperation(final String code)
             throws FactoryException
     {
-        final CoordinateOperation operation;
         final String key = trimAuthority(code);
         final Object cached = objectCache.get(key);
         if (cached instanceof CoordinateOperation) {
-            operation = (CoordinateOperation) cached;
-        } else {
-            operation = getBackingStore().createCoordinateOperation(code);
+            return (CoordinateOperation) cached;
         }
-        objectCache.put(key, operation);
-        return operation;
+        return objectCache.put(key, getBackingStore().createCoordinateOperation(code));
     }
 
     /**
      * Returns an operation from coordinate reference system codes.
      */
     @Override
-    public synchronized Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
+    public Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
                         final String sourceCode, final String targetCode)
             throws FactoryException
     {
-        final Set<CoordinateOperation> operations;
         final CodePair key = new CodePair(trimAuthority(sourceCode), trimAuthority(targetCode));
         final Object cached = objectCache.get(key);
-        if (cached instanceof CoordinateOperation) {
-            operations = (Set<CoordinateOperation>) cached;
-        } else {
-            operations = Collections.unmodifiableSet(getBackingStore()
-                         .createFromCoordinateReferenceSystemCodes(sourceCode, targetCode));
+        if (cached instanceof Set) {
+            return (Set<CoordinateOperation>) cached;
         }
-        objectCache.put(key, operations);
-        return operations;
+        return objectCache.put(key, Collections.unmodifiableSet(getBackingStore()
+                .createFromCoordinateReferenceSystemCodes(sourceCode, targetCode)));
     }
 
     /**
@@ -1025,7 +889,7 @@ public class ThreadedAuthorityFactory extends AbstractAuthorityFactory implement
      * store and caches the result.
      */
     @Override
-    public synchronized IdentifiedObjectFinder getIdentifiedObjectFinder(
+    public IdentifiedObjectFinder getIdentifiedObjectFinder(
             final Class<? extends IdentifiedObject> type) throws FactoryException
     {
         return new Finder(getBackingStore().getIdentifiedObjectFinder(type));
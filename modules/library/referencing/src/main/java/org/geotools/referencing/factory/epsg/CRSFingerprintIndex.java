@@ -0,0 +1,217 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.measure.converter.ConversionException;
+import javax.measure.unit.NonSI;
+import javax.measure.unit.SI;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.operation.projection.MapProjection;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.referencing.datum.Ellipsoid;
+import org.opengis.referencing.datum.GeodeticDatum;
+import org.opengis.referencing.datum.PrimeMeridian;
+
+/**
+ * An index of coordinate reference system codes by fingerprint, used to narrow down the
+ * candidates of a {@linkplain org.geotools.referencing.factory.IdentifiedObjectFinder full
+ * scan}. The fingerprint of a CRS is made of the values relevant to
+ * {@linkplain CRS#equalsIgnoreMetadata equalsIgnoreMetadata} that are insensitive to naming
+ * and axis order: the ellipsoid, the prime meridian and, for projected CRS, the projection
+ * method and its parameters. Two CRS that are equal ignoring metadata have the same
+ * fingerprint, so the codes sharing the fingerprint of a CRS are the only ones worth
+ * comparing to it.
+ * <p>
+ * Values are rounded before being added to the fingerprint. Since a value close to a
+ * rounding boundary may end up on either side of it, lookups also try the neighbouring
+ * fingerprints in that case.
+ */
+public final class CRSFingerprintIndex {
+    /**
+     * The scale applied to values (in degrees or metres) before rounding them.
+     */
+    private static final double SCALE = 1E+4;
+
+    /**
+     * How close to a rounding boundary a scaled value must be in order to
+     * look up both sides of the boundary.
+     */
+    private static final double BOUNDARY_TOLERANCE = 1E-3;
+
+    /**
+     * The codes, by fingerprint.
+     */
+    private final Map<String,Set<String>> codes;
+
+    /**
+     * Creates an index from the fingerprints of a set of codes, as computed by
+     * {@link #fingerprint}. The candidates for a fingerprint are returned in the
+     * iteration order of the given map.
+     *
+     * @param fingerprints The fingerprints, by code.
+     */
+    public CRSFingerprintIndex(final Map<String,String> fingerprints) {
+        codes = new HashMap<String,Set<String>>();
+        for (final Map.Entry<String,String> entry : fingerprints.entrySet()) {
+            Set<String> set = codes.get(entry.getValue());
+            if (set == null) {
+                set = new LinkedHashSet<String>();
+                codes.put(entry.getValue(), set);
+            }
+            set.add(entry.getKey());
+        }
+    }
+
+    /**
+     * Returns the codes of the objects that may be equal, ignoring metadata, to the given one.
+     *
+     * @param  object The object looked up.
+     * @return The candidate codes, or {@code null} if the object can't be fingerprinted
+     *         (in which case every code is a candidate).
+     */
+    public Set<String> getCodeCandidates(final IdentifiedObject object) {
+        final List<String> fingerprints = fingerprints(object, true);
+        if (fingerprints == null) {
+            return null;
+        }
+        if (fingerprints.size() == 1) {
+            final Set<String> candidates = codes.get(fingerprints.get(0));
+            return (candidates != null) ? Collections.unmodifiableSet(candidates)
+                                        : Collections.<String>emptySet();
+        }
+        final Set<String> candidates = new LinkedHashSet<String>();
+        for (final String fingerprint : fingerprints) {
+            final Set<String> set = codes.get(fingerprint);
+            if (set != null) {
+                candidates.addAll(set);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the fingerprint of the given object, or {@code null} if the object is not a
+     * geographic or projected CRS, or if some of its values can't be normalized.
+     *
+     * @param  object The object to fingerprint.
+     * @return The fingerprint, or {@code null}.
+     */
+    public static String fingerprint(final IdentifiedObject object) {
+        final List<String> fingerprints = fingerprints(object, false);
+        return (fingerprints != null) ? fingerprints.get(0) : null;
+    }
+
+    /**
+     * Computes the fingerprint of the given object and, if {@code neighbours} is {@code true},
+     * the alternative fingerprints for values close to a rounding boundary.
+     */
+    private static List<String> fingerprints(final IdentifiedObject object,
+                                             final boolean neighbours)
+    {
+        final List<double[]> values = new ArrayList<double[]>();
+        final StringBuilder prefix = new StringBuilder();
+        final GeodeticDatum datum;
+        try {
+            if (object instanceof ProjectedCRS) {
+                final ProjectedCRS crs = (ProjectedCRS) object;
+                final MapProjection projection = CRS.getMapProjection(crs);
+                if (projection == null) {
+                    return null;
+                }
+                datum = crs.getDatum();
+                prefix.append("PROJCS:")
+                      .append(projection.getParameterDescriptors().getName().getCode());
+                // Sorts the parameters by name, they include the ellipsoid axis lengths
+                final Map<String,Double> parameters = new TreeMap<String,Double>();
+                for (final GeneralParameterValue p : projection.getParameterValues().values()) {
+                    if (p instanceof ParameterValue && ((ParameterValue) p).getValue() instanceof Number) {
+                        parameters.put(p.getDescriptor().getName().getCode(),
+                                ((ParameterValue) p).doubleValue());
+                    }
+                }
+                for (final Map.Entry<String,Double> entry : parameters.entrySet()) {
+                    prefix.append(':').append(entry.getKey());
+                    values.add(candidates(entry.getValue(), neighbours));
+                }
+            } else if (object instanceof GeographicCRS) {
+                final GeographicCRS crs = (GeographicCRS) object;
+                datum = crs.getDatum();
+                prefix.append("GEOGCS:").append(crs.getCoordinateSystem().getDimension());
+                final Ellipsoid ellipsoid = datum.getEllipsoid();
+                values.add(candidates(ellipsoid.getAxisUnit().getConverterTo(SI.METER)
+                        .convert(ellipsoid.getSemiMajorAxis()), neighbours));
+                values.add(candidates(ellipsoid.getAxisUnit().getConverterTo(SI.METER)
+                        .convert(ellipsoid.getSemiMinorAxis()), neighbours));
+            } else {
+                return null;
+            }
+            final PrimeMeridian pm = datum.getPrimeMeridian();
+            values.add(candidates(pm.getAngularUnit().getConverterTo(NonSI.DEGREE_ANGLE)
+                    .convert(pm.getGreenwichLongitude()), neighbours));
+        } catch (ConversionException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            // Non linear or incompatible units
+            return null;
+        }
+        /*
+         * Expands the combinations of rounded values. There is usually a single one,
+         * since values are seldom close to a rounding boundary.
+         */
+        List<String> fingerprints = Collections.singletonList(prefix.append('=').toString());
+        for (final double[] candidates : values) {
+            final List<String> expanded = new ArrayList<String>(fingerprints.size() * candidates.length);
+            for (final String fingerprint : fingerprints) {
+                for (final double candidate : candidates) {
+                    expanded.add(fingerprint + (long) candidate + ';');
+                }
+            }
+            fingerprints = expanded;
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Returns the rounded scaled value and, if {@code neighbours} is {@code true} and the
+     * value is close to a rounding boundary, the value on the other side of that boundary.
+     */
+    private static double[] candidates(final double value, final boolean neighbours) {
+        final double scaled  = value * SCALE;
+        final double rounded = Math.rint(scaled);
+        if (neighbours) {
+            final double delta = scaled - rounded;
+            if (Math.abs(Math.abs(delta) - 0.5) < BOUNDARY_TOLERANCE) {
+                return new double[] {rounded, rounded + Math.signum(delta)};
+            }
+        }
+        return new double[] {rounded};
+    }
+}
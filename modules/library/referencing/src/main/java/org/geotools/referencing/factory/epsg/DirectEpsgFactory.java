@@ -2975,6 +2975,19 @@ public abstract class DirectEpsgFactory extends DirectAuthorityFactory
         return new Finder(buffered, type);
     }
 
+    /**
+     * Returns an index of the coordinate reference system codes by fingerprint, used by
+     * {@linkplain #getIdentifiedObjectFinder finders} in order to compare an unidentified
+     * CRS only with the few ones that may be equal to it. The default implementation returns
+     * {@code null}, meaning that no index is available. Subclasses can override this method
+     * if a precomputed index matching their database is available.
+     *
+     * @return The fingerprint index, or {@code null} if none.
+     */
+    protected CRSFingerprintIndex getFingerprintIndex() {
+        return null;
+    }
+
     /**
      * An implementation of {@link IdentifiedObjectFinder} which scans over a smaller set
      * of authority codes.
@@ -2997,6 +3010,13 @@ public abstract class DirectEpsgFactory extends DirectAuthorityFactory
          */
         @Override
         protected Set getCodeCandidates(final IdentifiedObject object) throws FactoryException {
+            final CRSFingerprintIndex index = getFingerprintIndex();
+            if (index != null) {
+                final Set<String> candidates = index.getCodeCandidates(object);
+                if (candidates != null) {
+                    return candidates;
+                }
+            }
             String select = "COORD_REF_SYS_CODE";
             String from   = "[Coordinate Reference System]";
             String where, code;
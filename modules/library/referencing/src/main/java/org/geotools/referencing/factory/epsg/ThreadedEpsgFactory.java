@@ -161,7 +161,9 @@ public class ThreadedEpsgFactory extends DeferredAuthorityFactory
      * Constructs an authority factory using a set of factories created from the specified hints.
      * This constructor recognizes the {@link Hints#CRS_FACTORY CRS}, {@link Hints#CS_FACTORY CS},
      * {@link Hints#DATUM_FACTORY DATUM} and {@link Hints#MATH_TRANSFORM_FACTORY MATH_TRANSFORM}
-     * {@code FACTORY} hints, in addition of {@link Hints#EPSG_DATA_SOURCE EPSG_DATA_SOURCE}.
+     * {@code FACTORY} hints, in addition of {@link Hints#EPSG_DATA_SOURCE EPSG_DATA_SOURCE}
+     * and {@link Hints#AUTHORITY_MAX_ACTIVE AUTHORITY_MAX_ACTIVE}, the maximum number of
+     * database connections used at the same time for creating objects not found in the cache.
      *
      * @param userHints An optional set of hints, or {@code null} if none.
      * @param priority The priority for this factory, as a number between
@@ -193,6 +195,8 @@ public class ThreadedEpsgFactory extends DeferredAuthorityFactory
             dynamicDataSource = false;
         }
         factories = ReferencingFactoryContainer.instance(userHints);
+        // cache misses are served by a pool of connections, instead of queueing on a single one
+        setMaxWorkers(Hints.AUTHORITY_MAX_ACTIVE.toValue(userHints));
         long timeout = 30 * 60 * 1000;
         String defaultTimeout = System.getProperty("org.geotools.epsg.factory.timeout", String.valueOf(30 * 60 * 1000));
         try {
@@ -267,6 +267,99 @@ public class AlbersEqualArea extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+     * (units in radians) to linear distances on a unit sphere.
+     */
+    @Override
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException failure = null;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            final double x = pts[i] * n;
+            final double y = pts[i+1];
+            double rho;
+            if (isSpherical) {
+                rho = c - n*2 * sin(y);
+            } else {
+                rho = c - n * qsfn(sin(y));
+            }
+            if (rho < 0.0) {
+                if (rho > -EPSILON) {
+                    rho = 0.0;
+                } else {
+                    pts[i] = pts[i+1] = Double.NaN;
+                    if (failure == null) {
+                        failure = new ProjectionException(ErrorKeys.TOLERANCE_ERROR);
+                    }
+                    continue;
+                }
+            }
+            rho = sqrt(rho) / n;
+            pts[i+1] = rho0 - rho * cos(x);
+            pts[i]   =        rho * sin(x);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Inverse transforms in place an array of (<var>x</var>,<var>y</var>) coordinates.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException failure = null;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            double x = pts[i];
+            double y = rho0 - pts[i+1];
+            double rho = hypot(x, y);
+            if (rho > EPSILON) {
+                if (n < 0.0) {
+                    rho = -rho;
+                    x   = -x;
+                    y   = -y;
+                }
+                x = atan2(x, y) / n;
+                y = rho * n;
+                if (isSpherical) {
+                    y = (c - y * y) / (n*2);
+                    if (abs(y) <= 1.0) {
+                        y = asin(y);
+                    } else {
+                        y = (y < 0.0) ? -PI/2.0 : PI/2.0;
+                    }
+                } else {
+                    y = (c - y*y) / n;
+                    if (abs(ec - abs(y)) > EPSILON) {
+                        try {
+                            y = phi1(y);
+                        } catch (ProjectionException exception) {
+                            pts[i] = pts[i+1] = Double.NaN;
+                            if (failure == null) {
+                                failure = exception;
+                            }
+                            continue;
+                        }
+                    } else {
+                        y = (y < 0.0) ? -PI/2.0 : PI/2.0;
+                    }
+                }
+            } else {
+                x = 0.0;
+                y = n > 0.0 ? PI/2.0 : - PI/2.0;
+            }
+            pts[i]   = x;
+            pts[i+1] = y;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     /**
      * Iteratively solves equation (3-16) from Snyder.
      *
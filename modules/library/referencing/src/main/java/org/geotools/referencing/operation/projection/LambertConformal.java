@@ -280,6 +280,89 @@ public abstract class LambertConformal extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+     * (units in radians) to linear distances on a unit sphere.
+     */
+    @Override
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException failure = null;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            double x = pts[i];
+            final double y = pts[i+1];
+            final double rho;
+            // Snyder p. 108
+            if (abs(abs(y) - PI/2) < EPSILON) {
+                if (y*n <= 0) {
+                    pts[i] = pts[i+1] = Double.NaN;
+                    if (failure == null) {
+                        failure = new ProjectionException(y);
+                    }
+                    continue;
+                }
+                rho = 0;
+            } else if (isSpherical) {
+                rho = F * pow(tan(PI/4 + 0.5*y), -n);
+            } else {
+                rho = F * pow(tsfn(y, sin(y)), n);
+            }
+            x *= n;
+            if (belgium) {
+                x -= BELGE_A;
+            }
+            pts[i+1] = rho0 - rho * cos(x);
+            pts[i]   =        rho * sin(x);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Inverse transforms in place an array of (<var>x</var>,<var>y</var>) coordinates.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException failure = null;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            double x = pts[i];
+            double y = rho0 - pts[i+1];
+            double rho = hypot(x, y);  // Zero when the latitude is 90 degrees.
+            if (rho > EPSILON) {
+                if (n < 0) {
+                    rho = -rho;
+                    x = -x;
+                    y = -y;
+                }
+                double theta = atan2(x, y);
+                if (belgium) {
+                    theta += BELGE_A;
+                }
+                pts[i] = theta/n;
+                if (isSpherical) {
+                    pts[i+1] = 2.0 * atan(pow(F/rho, 1.0/n)) - PI/2;
+                } else try {
+                    pts[i+1] = cphi2(pow(rho/F, 1.0/n));
+                } catch (ProjectionException exception) {
+                    pts[i] = pts[i+1] = Double.NaN;
+                    if (failure == null) {
+                        failure = exception;
+                    }
+                }
+            } else {
+                pts[i]   = 0.0;
+                pts[i+1] = n < 0 ? -(PI/2) : (PI/2);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     /**
      * Returns a hash value for this projection.
      */
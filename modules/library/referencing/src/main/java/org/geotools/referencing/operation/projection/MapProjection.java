@@ -22,8 +22,10 @@ package org.geotools.referencing.operation.projection;
 
 import static java.lang.Math.*;
 
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -914,90 +916,225 @@ public abstract class MapProjection extends AbstractMathTransform
      *         have value {@link Double#NaN}. If more than one point can't be transformed, then this
      *         exception may be about an arbitrary point.
      */
-    public final void transform(final double[] srcPts, int srcOff,
-                                final double[] dstPts, int dstOff, int numPts)
+    public final void transform(final double[] srcPts, final int srcOff,
+                                final double[] dstPts, final int dstOff, final int numPts)
             throws ProjectionException
     {
+        transform(null, srcPts, srcOff, dstPts, dstOff, numPts, null);
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. Ordinates must be
+     * (<var>longitude</var>,<var>latitude</var>) pairs in decimal degrees.
+     *
+     * @throws ProjectionException if a point can't be transformed. This method tries to transform
+     *         every points even if some of them can't be transformed. Non-transformable points will
+     *         have value {@link Float#NaN}. If more than one point can't be transformed, then this
+     *         exception may be about an arbitrary point.
+     */
+    @Override
+    public final void transform(final float[] srcPts, final int srcOff,
+                                final float[] dstPts, final int dstOff, final int numPts)
+            throws ProjectionException
+    {
+        final double[] buffer = copy(srcPts, srcOff, numPts);
+        try {
+            transform(null, buffer, 0, buffer, 0, numPts, null);
+        } finally {
+            copy(buffer, dstPts, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values, with optional affine transforms
+     * applied before and after the projection. The {@code before} transform is applied while
+     * copying the points in the destination array. All remaining work is performed in place in
+     * three passes: conversion to normalized radians, the batch
+     * {@link #transformNormalized(double[],int,int) transformNormalized} method, and a last
+     * pass applying the {@link #globalScale}, the false easting and northing together with
+     * the {@code after} transform.
+     *
+     * @throws ProjectionException if a point can't be transformed. Non-transformable points
+     *         will have value {@link Double#NaN}.
+     */
+    @Override
+    protected final void transform(final AffineTransform before,
+                                   final double[] srcPts, final int srcOff,
+                                   final double[] dstPts, final int dstOff, final int numPts,
+                                   final AffineTransform after)
+            throws ProjectionException
+    {
+        if (numPts <= 0) {
+            return;
+        }
+        final int end = dstOff + 2*numPts;
+        if (before != null) {
+            before.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        } else {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, 2*numPts);
+        }
+        /*
+         * Keeps a copy of the geographic coordinates for the reciprocal check, which is
+         * performed only when assertions are enabled.
+         */
+        double[] geographic = null;
+        assert (geographic = Arrays.copyOfRange(dstPts, dstOff, end)) != null;
         /*
-         * Vérifie s'il faudra parcourir le tableau en sens inverse.
-         * Ce sera le cas si les tableaux source et destination se
-         * chevauchent et que la destination est après la source.
+         * See transform(Point2D, Point2D) for the reason why the longitude is not rolled
+         * when there is no central meridian.
          */
-        final boolean reverse = (srcPts == dstPts && srcOff < dstOff &&
-                                 srcOff + (2*numPts) > dstOff);
-        if (reverse) {
-            srcOff += 2*numPts;
-            dstOff += 2*numPts;
+        boolean verify = verifyCoordinateRanges();
+        for (int i=dstOff; i<end; i+=2) {
+            final double x = dstPts[i];
+            final double y = dstPts[i+1];
+            if (verify && verifyGeographicRanges(this, x, y)) {
+                warningLogged();
+                verify = false;
+            }
+            dstPts[i]   = centralMeridian != 0 ? rollLongitude(toRadians(x) - centralMeridian)
+                                               : toRadians(x);
+            dstPts[i+1] = toRadians(y);
         }
-        final Point2D.Double point = new Point2D.Double();
-        ProjectionException firstException = null;
-        while (--numPts >= 0) {
-            try {
-                point.x = srcPts[srcOff++];
-                point.y = srcPts[srcOff++];
-                transform(point, point);
-                dstPts[dstOff++] = point.x;
-                dstPts[dstOff++] = point.y;
+        ProjectionException failure = null;
+        try {
+            transformNormalized(dstPts, dstOff, numPts);
+        } catch (ProjectionException exception) {
+            failure = exception;
+        }
+        final Point2D.Double point  = (geographic != null) ? new Point2D.Double() : null;
+        final Point2D.Double target = (geographic != null) ? new Point2D.Double() : null;
+        final double m00, m01, m02, m10, m11, m12;
+        if (after != null) {
+            m00 = after.getScaleX(); m01 = after.getShearX(); m02 = after.getTranslateX();
+            m10 = after.getShearY(); m11 = after.getScaleY(); m12 = after.getTranslateY();
+        } else {
+            m00 = m11 = 1;
+            m01 = m02 = m10 = m12 = 0;
+        }
+        for (int i=dstOff; i<end; i+=2) {
+            double x = globalScale*dstPts[i]   + falseEasting;
+            double y = globalScale*dstPts[i+1] + falseNorthing;
+            if (point != null && invertible && !Double.isNaN(x) && !Double.isNaN(y)) try {
+                point .setLocation(x, y);
+                target.setLocation(geographic[i - dstOff], geographic[i - dstOff + 1]);
+                assert checkReciprocal(point, target, true);
             } catch (ProjectionException exception) {
-                dstPts[dstOff++] = Double.NaN;
-                dstPts[dstOff++] = Double.NaN;
-                if (firstException == null) {
-                    firstException = exception;
+                x = y = Double.NaN;
+                if (failure == null) {
+                    failure = exception;
                 }
             }
-            if (reverse) {
-                srcOff -= 4;
-                dstOff -= 4;
+            if (after != null) {
+                final double t = x;
+                x = m00*t + m01*y + m02;
+                y = m10*t + m11*y + m12;
             }
+            dstPts[i]   = x;
+            dstPts[i+1] = y;
         }
-        if (firstException != null) {
-            throw firstException;
+        if (failure != null) {
+            throw failure;
         }
     }
 
     /**
-     * Transforms a list of coordinate point ordinal values. Ordinates must be
-     * (<var>longitude</var>,<var>latitude</var>) pairs in decimal degrees.
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates in
+     * radians, with the {@link #centralMeridian} already removed. This is the batch version of
+     * <code>{@linkplain #transformNormalized(double,double,Point2D) transformNormalized}(x, y,
+     * ptDst)</code>, and the same notes apply. The default implementation invokes the single
+     * point method for each coordinate. Subclasses can override this method with a loop working
+     * directly on the primitive array. Subclasses providing a different set of equations (for
+     * example the spherical case) must override this method as well.
      *
-     * @throws ProjectionException if a point can't be transformed. This method tries to transform
-     *         every points even if some of them can't be transformed. Non-transformable points will
-     *         have value {@link Float#NaN}. If more than one point can't be transformed, then this
-     *         exception may be about an arbitrary point.
+     * @param  pts    The coordinates to transform in place.
+     * @param  offset Index of the first ordinate to transform.
+     * @param  numPts Number of points to transform.
+     * @throws ProjectionException if a point can't be transformed. Implementations must try
+     *         to transform every points, set the ones that can't be transformed to
+     *         {@link Double#NaN} and throw the first exception only at the end.
+     *
+     * @since 16.0
      */
-    @Override
-    public final void transform(final float[] srcPts, int srcOff,
-                                final float[] dstPts, int dstOff, int numPts)
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
             throws ProjectionException
     {
-        final boolean reverse = (srcPts == dstPts && srcOff < dstOff &&
-                                 srcOff + (2*numPts) > dstOff);
-        if (reverse) {
-            srcOff += 2*numPts;
-            dstOff += 2*numPts;
-        }
         final Point2D.Double point = new Point2D.Double();
-        ProjectionException firstException = null;
-        while (--numPts >= 0) {
+        ProjectionException failure = null;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
             try {
-                point.x = srcPts[srcOff++];
-                point.y = srcPts[srcOff++];
-                transform(point, point);
-                dstPts[dstOff++] = (float) point.x;
-                dstPts[dstOff++] = (float) point.y;
+                final Point2D result = transformNormalized(pts[i], pts[i+1], point);
+                pts[i]   = result.getX();
+                pts[i+1] = result.getY();
             } catch (ProjectionException exception) {
-                dstPts[dstOff++] = Float.NaN;
-                dstPts[dstOff++] = Float.NaN;
-                if (firstException == null) {
-                    firstException = exception;
+                pts[i] = pts[i+1] = Double.NaN;
+                if (failure == null) {
+                    failure = exception;
                 }
             }
-            if (reverse) {
-                srcOff -= 4;
-                dstOff -= 4;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Inverse transforms in place an array of (<var>x</var>,<var>y</var>) coordinates on the
+     * unit ellipse (or sphere). This is the batch version of <code>{@linkplain
+     * #inverseTransformNormalized(double,double,Point2D) inverseTransformNormalized}(x, y,
+     * ptDst)</code>. The default implementation invokes the single point method for each
+     * coordinate. Subclasses overriding this method have the same obligations than for
+     * {@link #transformNormalized(double[],int,int)}.
+     *
+     * @param  pts    The coordinates to transform in place.
+     * @param  offset Index of the first ordinate to transform.
+     * @param  numPts Number of points to transform.
+     * @throws ProjectionException if a point can't be transformed. Implementations must try
+     *         to transform every points, set the ones that can't be transformed to
+     *         {@link Double#NaN} and throw the first exception only at the end.
+     *
+     * @since 16.0
+     */
+    protected void inverseTransformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        final Point2D.Double point = new Point2D.Double();
+        ProjectionException failure = null;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            try {
+                final Point2D result = inverseTransformNormalized(pts[i], pts[i+1], point);
+                pts[i]   = result.getX();
+                pts[i+1] = result.getY();
+            } catch (ProjectionException exception) {
+                pts[i] = pts[i+1] = Double.NaN;
+                if (failure == null) {
+                    failure = exception;
+                }
             }
         }
-        if (firstException != null) {
-            throw firstException;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Copies the given {@code float} coordinates in a new {@code double} array.
+     */
+    private static double[] copy(final float[] srcPts, final int srcOff, final int numPts) {
+        final double[] buffer = new double[2*max(numPts, 0)];
+        for (int i=0; i<buffer.length; i++) {
+            buffer[i] = srcPts[srcOff + i];
+        }
+        return buffer;
+    }
+
+    /**
+     * Copies the given {@code double} coordinates back in a {@code float} array.
+     */
+    private static void copy(final double[] buffer, final float[] dstPts, final int dstOff,
+                             final int numPts)
+    {
+        for (int i=0; i<buffer.length; i++) {
+            dstPts[dstOff + i] = (float) buffer[i];
         }
     }
 
@@ -1081,45 +1218,11 @@ public abstract class MapProjection extends AbstractMathTransform
          *         than one point can't be transformed, then this exception may be about
          *         an arbitrary point.
          */
-        public final void transform(final double[] src,  int srcOffset,
-                                    final double[] dest, int dstOffset, int numPts)
+        public final void transform(final double[] src,  final int srcOffset,
+                                    final double[] dest, final int dstOffset, final int numPts)
                 throws TransformException
         {
-            /*
-             * Vérifie s'il faudra parcourir le tableau en sens inverse.
-             * Ce sera le cas si les tableaux source et destination se
-             * chevauchent et que la destination est après la source.
-             */
-            final boolean reverse = (src==dest && srcOffset<dstOffset &&
-                                     srcOffset+(2*numPts) > dstOffset);
-            if (reverse) {
-                srcOffset += 2*numPts;
-                dstOffset += 2*numPts;
-            }
-            final Point2D.Double point = new Point2D.Double();
-            ProjectionException firstException = null;
-            while (--numPts>=0) {
-                try {
-                    point.x = src[srcOffset++];
-                    point.y = src[srcOffset++];
-                    transform(point, point);
-                    dest[dstOffset++] = point.x;
-                    dest[dstOffset++] = point.y;
-                } catch (ProjectionException exception) {
-                    dest[dstOffset++] = Double.NaN;
-                    dest[dstOffset++] = Double.NaN;
-                    if (firstException == null) {
-                        firstException = exception;
-                    }
-                }
-                if (reverse) {
-                    srcOffset -= 4;
-                    dstOffset -= 4;
-                }
-            }
-            if (firstException != null) {
-                throw firstException;
-            }
+            transform(null, src, srcOffset, dest, dstOffset, numPts, null);
         }
 
         /**
@@ -1133,39 +1236,97 @@ public abstract class MapProjection extends AbstractMathTransform
          *         an arbitrary point.
          */
         @Override
-        public final void transform(final float[] src,  int srcOffset,
-                                    final float[] dest, int dstOffset, int numPts)
+        public final void transform(final float[] src,  final int srcOffset,
+                                    final float[] dest, final int dstOffset, final int numPts)
                 throws ProjectionException
         {
-            final boolean reverse = (src==dest && srcOffset<dstOffset &&
-                                     srcOffset+(2*numPts) > dstOffset);
-            if (reverse) {
-                srcOffset += 2*numPts;
-                dstOffset += 2*numPts;
+            final double[] buffer = copy(src, srcOffset, numPts);
+            try {
+                transform(null, buffer, 0, buffer, 0, numPts, null);
+            } finally {
+                copy(buffer, dest, dstOffset, numPts);
             }
-            final Point2D.Double point = new Point2D.Double();
-            ProjectionException firstException = null;
-            while (--numPts>=0) {
-                try {
-                    point.x = src[srcOffset++];
-                    point.y = src[srcOffset++];
-                    transform(point, point);
-                    dest[dstOffset++] = (float) point.x;
-                    dest[dstOffset++] = (float) point.y;
+        }
+
+        /**
+         * Inverse transforms a list of coordinate point ordinal values, with optional affine
+         * transforms applied before and after the projection. This is the counterpart of
+         * {@link MapProjection#transform(AffineTransform,double[],int,double[],int,int,AffineTransform)}
+         * using the batch {@link MapProjection#inverseTransformNormalized(double[],int,int)
+         * inverseTransformNormalized} method.
+         *
+         * @throws ProjectionException if a point can't be transformed. Non-transformable
+         *         points will have value {@link Double#NaN}.
+         */
+        @Override
+        protected final void transform(final AffineTransform before,
+                                       final double[] srcPts, final int srcOff,
+                                       final double[] dstPts, final int dstOff, final int numPts,
+                                       final AffineTransform after)
+                throws ProjectionException
+        {
+            if (numPts <= 0) {
+                return;
+            }
+            final int end = dstOff + 2*numPts;
+            if (before != null) {
+                before.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+            } else {
+                System.arraycopy(srcPts, srcOff, dstPts, dstOff, 2*numPts);
+            }
+            double[] projected = null;
+            assert (projected = Arrays.copyOfRange(dstPts, dstOff, end)) != null;
+            for (int i=dstOff; i<end; i+=2) {
+                dstPts[i]   = (dstPts[i]   - falseEasting ) / globalScale;
+                dstPts[i+1] = (dstPts[i+1] - falseNorthing) / globalScale;
+            }
+            ProjectionException failure = null;
+            try {
+                inverseTransformNormalized(dstPts, dstOff, numPts);
+            } catch (ProjectionException exception) {
+                failure = exception;
+            }
+            final Point2D.Double point  = (projected != null) ? new Point2D.Double() : null;
+            final Point2D.Double target = (projected != null) ? new Point2D.Double() : null;
+            final double m00, m01, m02, m10, m11, m12;
+            if (after != null) {
+                m00 = after.getScaleX(); m01 = after.getShearX(); m02 = after.getTranslateX();
+                m10 = after.getShearY(); m11 = after.getScaleY(); m12 = after.getTranslateY();
+            } else {
+                m00 = m11 = 1;
+                m01 = m02 = m10 = m12 = 0;
+            }
+            boolean verify = verifyCoordinateRanges();
+            for (int i=dstOff; i<end; i+=2) {
+                // See transform(Point2D, Point2D) for the reason why the longitude is not
+                // rolled when there is no central meridian.
+                double x = toDegrees(centralMeridian != 0 ?
+                           rollLongitude(dstPts[i] + centralMeridian) : dstPts[i]);
+                double y = toDegrees(dstPts[i+1]);
+                if (verify && verifyGeographicRanges(this, x, y)) {
+                    warningLogged();
+                    verify = false;
+                }
+                if (point != null && !Double.isNaN(x) && !Double.isNaN(y)) try {
+                    point .setLocation(x, y);
+                    target.setLocation(projected[i - dstOff], projected[i - dstOff + 1]);
+                    assert checkReciprocal(point, target, false);
                 } catch (ProjectionException exception) {
-                    dest[dstOffset++] = Float.NaN;
-                    dest[dstOffset++] = Float.NaN;
-                    if (firstException == null) {
-                        firstException = exception;
+                    x = y = Double.NaN;
+                    if (failure == null) {
+                        failure = exception;
                     }
                 }
-                if (reverse) {
-                    srcOffset -= 4;
-                    dstOffset -= 4;
+                if (after != null) {
+                    final double t = x;
+                    x = m00*t + m01*y + m02;
+                    y = m10*t + m11*y + m12;
                 }
+                dstPts[i]   = x;
+                dstPts[i+1] = y;
             }
-            if (firstException!=null) {
-                throw firstException;
+            if (failure != null) {
+                throw failure;
             }
         }
 
@@ -172,6 +172,54 @@ public abstract class Mercator extends MapProjection {
     }
 
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+     * (units in radians) to linear distances on a unit sphere.
+     */
+    @Override
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException failure = null;
+        for (int i=offset+1, end=offset + 2*numPts; i<end; i+=2) {
+            final double y = pts[i];
+            if (abs(y) > (PI/2 - EPSILON)) {
+                pts[i-1] = pts[i] = Double.NaN;
+                if (failure == null) {
+                    failure = new ProjectionException(y);
+                }
+                continue;
+            }
+            pts[i] = -log(tsfn(y, sin(y)));
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Inverse transforms in place an array of (<var>x</var>,<var>y</var>) coordinates.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        ProjectionException failure = null;
+        for (int i=offset+1, end=offset + 2*numPts; i<end; i+=2) {
+            try {
+                pts[i] = cphi2(exp(-pts[i]));
+            } catch (ProjectionException exception) {
+                pts[i-1] = pts[i] = Double.NaN;
+                if (failure == null) {
+                    failure = exception;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     /**
      * Provides the transform equations for the spherical case of the Mercator projection.
      *
@@ -241,6 +289,45 @@ public abstract class Mercator extends MapProjection {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+         * (units in radians) using equations for a sphere.
+         */
+        @Override
+        protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+                throws ProjectionException
+        {
+            ProjectionException failure = null;
+            for (int i=offset+1, end=offset + 2*numPts; i<end; i+=2) {
+                final double y = pts[i];
+                if (abs(y) > (PI/2 - EPSILON)) {
+                    pts[i-1] = pts[i] = Double.NaN;
+                    if (failure == null) {
+                        failure = new ProjectionException(y);
+                    }
+                    continue;
+                }
+                pts[i] = log(tan(PI/4 + 0.5*y));
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        /**
+         * Inverse transforms in place an array of (<var>x</var>,<var>y</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected void inverseTransformNormalized(final double[] pts, final int offset,
+                                                  final int numPts)
+                throws ProjectionException
+        {
+            for (int i=offset+1, end=offset + 2*numPts; i<end; i+=2) {
+                pts[i] = PI/2 - 2.0*atan(exp(-pts[i]));
+            }
+        }
     }
 
 
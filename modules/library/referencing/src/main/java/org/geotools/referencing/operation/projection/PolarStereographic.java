@@ -236,6 +236,70 @@ public class PolarStereographic extends Stereographic {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+     * (units in radians) to linear distances on a unit sphere.
+     */
+    @Override
+    protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            final double x = pts[i];
+            final double y = pts[i+1];
+            final double sinlat = sin(y);
+            final double coslon = cos(x);
+            final double sinlon = sin(x);
+            if (southPole) {
+                final double rho = k0 * tsfn(-y, -sinlat);
+                pts[i]   = rho * sinlon;
+                pts[i+1] = rho * coslon;
+            } else {
+                final double rho = k0 * tsfn(y, sinlat);
+                pts[i]   =  rho * sinlon;
+                pts[i+1] = -rho * coslon;
+            }
+        }
+    }
+
+    /**
+     * Inverse transforms in place an array of (<var>x</var>,<var>y</var>) coordinates.
+     */
+    @Override
+    protected void inverseTransformNormalized(final double[] pts, final int offset, final int numPts)
+            throws ProjectionException
+    {
+        final double halfe = excentricity/2.0;
+        ProjectionException failure = null;
+next:   for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            final double x = pts[i];
+            final double y = southPole ? -pts[i+1] : pts[i+1];
+            final double rho = hypot(x, y);
+            /*
+             * Compute latitude using iterative technique.
+             */
+            final double t = rho/k0;
+            double phi0 = 0;
+            for (int j=MAXIMUM_ITERATIONS; j >= 0; j--) {
+                final double esinphi = excentricity * sin(phi0);
+                final double phi = (PI/2) - 2.0*atan(t*pow((1-esinphi)/(1+esinphi), halfe));
+                if (abs(phi-phi0) < ITERATION_TOLERANCE) {
+                    pts[i]   = (abs(rho) < EPSILON) ? 0.0 : atan2(x, -y);
+                    pts[i+1] = (southPole) ? -phi : phi;
+                    continue next;
+                }
+                phi0 = phi;
+            }
+            pts[i] = pts[i+1] = Double.NaN;
+            if (failure == null) {
+                failure = new ProjectionException(ErrorKeys.NO_CONVERGENCE);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -366,6 +430,44 @@ public class PolarStereographic extends Stereographic {
             return new Point2D.Double(x,y);
         }
 
+        /**
+         * Transforms in place an array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+         * (units in radians) using equations for a sphere.
+         */
+        @Override
+        protected void transformNormalized(final double[] pts, final int offset, final int numPts)
+                throws ProjectionException
+        {
+            ProjectionException failure = null;
+            for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+                final double x = pts[i];
+                final double y = pts[i+1];
+                final double coslat = cos(y);
+                final double sinlat = sin(y);
+                final double coslon = cos(x);
+                final double sinlon = sin(x);
+                if (abs(southPole ? 1 - sinlat : 1 + sinlat) < EPSILON) {
+                    pts[i] = pts[i+1] = Double.NaN;
+                    if (failure == null) {
+                        failure = new ProjectionException(ErrorKeys.VALUE_TEND_TOWARD_INFINITY);
+                    }
+                    continue;
+                }
+                if (southPole) {
+                    final double f = k0 * coslat / (1-sinlat); // (21-12)
+                    pts[i]   = f * sinlon; // (21-9)
+                    pts[i+1] = f * coslon; // (21-10)
+                } else {
+                    final double f = k0 * coslat / (1+sinlat); // (21-8)
+                    pts[i]   =  f * sinlon; // (21-5)
+                    pts[i+1] = -f * coslon; // (21-6)
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
         /**
          * Transforms the specified (<var>x</var>,<var>y</var>) coordinates (units in radians)
          * and stores the result in {@code ptDst} (linear distance on a unit sphere).
@@ -397,6 +499,30 @@ public class PolarStereographic extends Stereographic {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Inverse transforms in place an array of (<var>x</var>,<var>y</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected void inverseTransformNormalized(final double[] pts, final int offset,
+                                                  final int numPts)
+                throws ProjectionException
+        {
+            for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+                final double x = pts[i];
+                final double y = southPole ? pts[i+1] : -pts[i+1];
+                final double rho = hypot(x, y);
+                // (20-17) call atan2(x,y) to properly deal with y==0
+                pts[i] = (abs(x)<EPSILON && abs(y)<EPSILON) ? 0.0 : atan2(x, y);
+                if (abs(rho) < EPSILON) {
+                    pts[i+1] = latitudeOfOrigin;
+                } else {
+                    final double cosc = cos(2.0 * atan(rho/k0));
+                    pts[i+1] = (southPole) ? asin(-cosc) : asin(cosc); // (20-14) with phi1=90
+                }
+            }
+        }
     }
 
     /**
@@ -511,6 +637,31 @@ public class PolarStereographic extends Stereographic {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Inverse transforms in place an array of (<var>x</var>,<var>y</var>) coordinates
+         * using the series equations.
+         */
+        @Override
+        protected void inverseTransformNormalized(final double[] pts, final int offset,
+                                                  final int numPts)
+                throws ProjectionException
+        {
+            final double k = sqrt(pow(1+excentricity, 1+excentricity) *
+                                  pow(1-excentricity, 1-excentricity)) / 2;
+            for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+                final double x = pts[i];
+                final double y = southPole ? -pts[i+1] : pts[i+1];
+                final double rho = hypot(x, y);
+                final double chi = PI/2 - 2*atan((rho/k0) * k);
+                pts[i] = (abs(rho) < EPSILON) ? 0.0 : atan2(x, -y);
+                // See Snyde P. 19, "Computation of Series"
+                final double sin2chi = sin(2.0 * chi);
+                final double cos2chi = cos(2.0 * chi);
+                final double phi = chi + sin2chi*(A + cos2chi*(B + cos2chi*(C + D*cos2chi)));
+                pts[i+1] = (southPole) ? -phi : phi;
+            }
+        }
     }
 
 
@@ -329,6 +329,45 @@ public abstract class AbstractMathTransform extends Formattable implements MathT
         }
     }
 
+    /**
+     * Transforms a list of two-dimensional coordinate points, applying an optional affine
+     * transform before and after this transform. This method is invoked by concatenated
+     * transforms of the form <cite>affine &rarr; this &rarr; affine</cite>, which are very
+     * common when a map projection is preceded by an axis swap and followed by a conversion
+     * to display units. The default implementation applies the three steps one after the
+     * other in the destination array. Subclasses can override this method in order to merge
+     * the affine steps with their own normalization passes.
+     * <p>
+     * This method is invoked only on transforms having two source and target dimensions.
+     *
+     * @param before The affine transform to apply before this transform, or {@code null}.
+     * @param srcPts The array containing the source point coordinates.
+     * @param srcOff The offset to the first point to be transformed in the source array.
+     * @param dstPts The array into which the transformed point coordinates are returned.
+     * @param dstOff The offset to the location of the first transformed point in the destination array.
+     * @param numPts The number of point objects to be transformed.
+     * @param after  The affine transform to apply after this transform, or {@code null}.
+     * @throws TransformException if a point can't be transformed.
+     *
+     * @since 16.0
+     */
+    protected void transform(final AffineTransform before,
+                             final double[] srcPts, final int srcOff,
+                             final double[] dstPts, final int dstOff, final int numPts,
+                             final AffineTransform after)
+            throws TransformException
+    {
+        if (before != null) {
+            before.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+            transform(dstPts, dstOff, dstPts, dstOff, numPts);
+        } else {
+            transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        }
+        if (after != null) {
+            after.transform(dstPts, dstOff, dstPts, dstOff, numPts);
+        }
+    }
+
     /**
      * Transform the specified shape. The default implementation computes
      * quadratic curves using three points for each shape segments.
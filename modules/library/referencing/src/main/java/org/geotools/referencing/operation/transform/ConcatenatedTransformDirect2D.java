@@ -17,8 +17,12 @@
 package org.geotools.referencing.operation.transform;
 
 import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.Matrix;
 import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.TransformException;
@@ -57,6 +61,26 @@ final class ConcatenatedTransformDirect2D extends ConcatenatedTransformDirect
      */
     private final MathTransform2D transform2;
 
+    /**
+     * The transform in the middle of an <cite>affine &rarr; transform &rarr; affine</cite>
+     * chain (one of the affine steps may be missing), or {@code null} if this concatenated
+     * transform does not have that shape. When non-null, arrays of points are transformed
+     * by this transform in a single call together with the {@link #before} and {@link #after}
+     * steps, which allows map projections to merge the affine steps with their own
+     * normalization passes.
+     */
+    private final AbstractMathTransform fused;
+
+    /**
+     * The affine transform to apply before {@link #fused}, or {@code null} if none.
+     */
+    private final AffineTransform before;
+
+    /**
+     * The affine transform to apply after {@link #fused}, or {@code null} if none.
+     */
+    private final AffineTransform after;
+
     /**
      * Constructs a concatenated transform.
      */
@@ -66,6 +90,52 @@ final class ConcatenatedTransformDirect2D extends ConcatenatedTransformDirect
         super(transform1, transform2);
         this.transform1 = transform1;
         this.transform2 = transform2;
+        final List<MathTransform> steps = new ArrayList<MathTransform>(3);
+        addSteps(steps, transform1);
+        addSteps(steps, transform2);
+        int lower = 0;
+        int upper = steps.size();
+        AffineTransform before = null;
+        AffineTransform after  = null;
+        AbstractMathTransform fused = null;
+        if (upper <= 3) {
+            if (steps.get(lower) instanceof AffineTransform) {
+                before = (AffineTransform) steps.get(lower++);
+            }
+            if (upper - lower > 1 && steps.get(upper - 1) instanceof AffineTransform) {
+                after = (AffineTransform) steps.get(--upper);
+            }
+            if (upper - lower == 1) {
+                final MathTransform middle = steps.get(lower);
+                if (middle instanceof AbstractMathTransform && !(middle instanceof AffineTransform)
+                        && middle.getSourceDimensions() == 2 && middle.getTargetDimensions() == 2)
+                {
+                    fused = (AbstractMathTransform) middle;
+                }
+            }
+        }
+        if (fused != null) {
+            this.fused  = fused;
+            this.before = before;
+            this.after  = after;
+        } else {
+            this.fused  = null;
+            this.before = null;
+            this.after  = null;
+        }
+    }
+
+    /**
+     * Adds the given transform to the given list, expanding the concatenated transforms.
+     */
+    private static void addSteps(final List<MathTransform> steps, final MathTransform transform) {
+        if (transform instanceof ConcatenatedTransform) {
+            final ConcatenatedTransform concat = (ConcatenatedTransform) transform;
+            addSteps(steps, concat.transform1);
+            addSteps(steps, concat.transform2);
+        } else {
+            steps.add(transform);
+        }
     }
 
     /**
@@ -87,6 +157,51 @@ final class ConcatenatedTransformDirect2D extends ConcatenatedTransformDirect
         return  transform2.transform(ptDst, ptDst);
     }
 
+    /**
+     * Transforms a list of coordinate point ordinal values. If this transform is an
+     * <cite>affine &rarr; transform &rarr; affine</cite> chain, then the work is delegated
+     * to the middle transform in a single call.
+     */
+    @Override
+    public void transform(final double[] srcPts, final int srcOff,
+                          final double[] dstPts, final int dstOff, final int numPts)
+            throws TransformException
+    {
+        if (fused != null) {
+            assert isValid();
+            fused.transform(before, srcPts, srcOff, dstPts, dstOff, numPts, after);
+        } else {
+            super.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. If this transform is an
+     * <cite>affine &rarr; transform &rarr; affine</cite> chain, then the points are copied
+     * in a temporary array of type {@code double[]} and transformed in a single call.
+     */
+    @Override
+    public void transform(final float[] srcPts, final int srcOff,
+                          final float[] dstPts, final int dstOff, final int numPts)
+            throws TransformException
+    {
+        if (fused == null) {
+            super.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+            return;
+        }
+        if (numPts <= 0) {
+            return;
+        }
+        final double[] tmp = new double[2*numPts];
+        for (int i=0; i<tmp.length; i++) {
+            tmp[i] = srcPts[srcOff + i];
+        }
+        transform(tmp, 0, tmp, 0, numPts);
+        for (int i=0; i<tmp.length; i++) {
+            dstPts[dstOff + i] = (float) tmp[i];
+        }
+    }
+
     /**
      * Transforms the specified shape.
      */
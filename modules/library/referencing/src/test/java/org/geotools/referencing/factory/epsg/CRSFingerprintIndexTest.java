@@ -0,0 +1,106 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultEngineeringCRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Tests {@link CRSFingerprintIndex}.
+ */
+public class CRSFingerprintIndexTest {
+
+    static final String UTM_32N = "PROJCS[\"WGS 84 / UTM zone 32N\", "
+            + "GEOGCS[\"WGS 84\", DATUM[\"World Geodetic System 1984\", "
+            + "SPHEROID[\"WGS 84\", 6378137.0, 298.257223563]], PRIMEM[\"Greenwich\", 0.0], "
+            + "UNIT[\"degree\", 0.017453292519943295], "
+            + "AXIS[\"Geodetic latitude\", NORTH], AXIS[\"Geodetic longitude\", EAST]], "
+            + "PROJECTION[\"Transverse_Mercator\"], PARAMETER[\"central_meridian\", 9.0], "
+            + "PARAMETER[\"latitude_of_origin\", 0.0], PARAMETER[\"scale_factor\", 0.9996], "
+            + "PARAMETER[\"false_easting\", 500000.0], PARAMETER[\"false_northing\", 0.0], "
+            + "UNIT[\"m\", 1.0], AXIS[\"Easting\", EAST], AXIS[\"Northing\", NORTH]]";
+
+    static final String ESRI_UTM_32N = "PROJCS[\"WGS_1984_UTM_Zone_32N\","
+            + "GEOGCS[\"GCS_WGS_1984\",DATUM[\"D_WGS_1984\",SPHEROID[\"WGS_1984\",6378137.0,298.257223563]],"
+            + "PRIMEM[\"Greenwich\",0.0],UNIT[\"Degree\",0.0174532925199433]],"
+            + "PROJECTION[\"Transverse_Mercator\"],PARAMETER[\"False_Easting\",500000.0],"
+            + "PARAMETER[\"False_Northing\",0.0],PARAMETER[\"Central_Meridian\",9.0],"
+            + "PARAMETER[\"Scale_Factor\",0.9996],PARAMETER[\"Latitude_Of_Origin\",0.0],"
+            + "UNIT[\"Meter\",1.0]]";
+
+    @Test
+    public void testSameFingerprint() throws Exception {
+        String expected = CRSFingerprintIndex.fingerprint(CRS.parseWKT(UTM_32N));
+        assertNotNull(expected);
+        assertEquals(expected, CRSFingerprintIndex.fingerprint(CRS.parseWKT(ESRI_UTM_32N)));
+        // axis order does not matter
+        CoordinateReferenceSystem latLon = CRS.parseWKT("GEOGCS[\"WGS 84\", "
+                + "DATUM[\"World Geodetic System 1984\", SPHEROID[\"WGS 84\", 6378137.0, 298.257223563]], "
+                + "PRIMEM[\"Greenwich\", 0.0], UNIT[\"degree\", 0.017453292519943295], "
+                + "AXIS[\"Geodetic latitude\", NORTH], AXIS[\"Geodetic longitude\", EAST]]");
+        assertEquals(CRSFingerprintIndex.fingerprint(DefaultGeographicCRS.WGS84),
+                CRSFingerprintIndex.fingerprint(latLon));
+    }
+
+    @Test
+    public void testDifferentFingerprint() throws Exception {
+        CoordinateReferenceSystem other = CRS.parseWKT(ESRI_UTM_32N.replace(
+                "PARAMETER[\"Central_Meridian\",9.0]", "PARAMETER[\"Central_Meridian\",9.5]"));
+        assertFalse(CRSFingerprintIndex.fingerprint(CRS.parseWKT(UTM_32N)).equals(
+                CRSFingerprintIndex.fingerprint(other)));
+    }
+
+    @Test
+    public void testCodeCandidates() throws Exception {
+        Map<String, String> fingerprints = new LinkedHashMap<String, String>();
+        fingerprints.put("4326", CRSFingerprintIndex.fingerprint(DefaultGeographicCRS.WGS84));
+        fingerprints.put("32632", CRSFingerprintIndex.fingerprint(CRS.parseWKT(UTM_32N)));
+        CRSFingerprintIndex index = new CRSFingerprintIndex(fingerprints);
+
+        assertEquals(Collections.singleton("32632"),
+                index.getCodeCandidates(CRS.parseWKT(ESRI_UTM_32N)));
+        assertEquals(Collections.singleton("4326"),
+                index.getCodeCandidates(DefaultGeographicCRS.WGS84));
+        assertTrue(index.getCodeCandidates(CRS.parseWKT(ESRI_UTM_32N.replace(
+                "PARAMETER[\"False_Easting\",500000.0]",
+                "PARAMETER[\"False_Easting\",400000.0]"))).isEmpty());
+        // not indexable, every code is a candidate
+        assertNull(index.getCodeCandidates(DefaultEngineeringCRS.GENERIC_2D));
+    }
+
+    @Test
+    public void testRoundingBoundary() throws Exception {
+        // 0.00005 degrees is right on a rounding boundary, a tiny difference moves it
+        // on the other side but the lookup still finds the candidate
+        String wkt = ESRI_UTM_32N.replace("PARAMETER[\"Central_Meridian\",9.0]",
+                "PARAMETER[\"Central_Meridian\",9.00005]");
+        String shifted = ESRI_UTM_32N.replace("PARAMETER[\"Central_Meridian\",9.0]",
+                "PARAMETER[\"Central_Meridian\",9.0000500000001]");
+        CRSFingerprintIndex index = new CRSFingerprintIndex(Collections.singletonMap("1",
+                CRSFingerprintIndex.fingerprint(CRS.parseWKT(wkt))));
+        assertEquals(Collections.singleton("1"), index.getCodeCandidates(CRS.parseWKT(shifted)));
+    }
+}
@@ -19,13 +19,19 @@ package org.geotools.referencing.operation.projection;
 import static org.geotools.referencing.operation.projection.MapProjection.AbstractProvider.SEMI_MAJOR;
 import static org.geotools.referencing.operation.projection.MapProjection.AbstractProvider.SEMI_MINOR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 
 import org.geotools.referencing.ReferencingFactoryFinder;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
 import org.junit.Test;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.MathTransformFactory;
 import org.opengis.referencing.operation.TransformException;
 
@@ -127,4 +133,144 @@ public final class MapProjectionTest {
     	Point2D target2 = new Point2D.Double(src.getX(), src.getY()+0.000000000001);
     	assertEquals(1.1117412E-7, mt.orthodromicDistance(src, target2), 1E-12);
     }
+
+    /**
+     * Creates a map projection from the given method name and parameters, given as
+     * (name, value) pairs.
+     */
+    private static MapProjection create(final String method, final Object... parameters)
+            throws FactoryException
+    {
+        MathTransformFactory mtFactory = ReferencingFactoryFinder.getMathTransformFactory(null);
+        final ParameterValueGroup values = mtFactory.getDefaultParameters(method);
+        for (int i=0; i<parameters.length; i+=2) {
+            values.parameter((String) parameters[i]).setValue(parameters[i+1]);
+        }
+        return (MapProjection) mtFactory.createParameterizedTransform(values);
+    }
+
+    /**
+     * Tests that the batch transforms of the most common projections, both alone and
+     * concatenated with affine transforms, give the same results than the transformation
+     * of each point one by one.
+     */
+    @Test
+    public void testBatchTransform() throws TransformException, FactoryException {
+        final double a = 6378137.0, b = 6356752.314245179;
+        assertBatchConsistent(create("Transverse_Mercator", "semi_major", a, "semi_minor", b,
+                "central_meridian", 9.0, "scale_factor", 0.9996, "false_easting", 500000.0),
+                6, 12, 0, 70);
+        assertBatchConsistent(create("Transverse_Mercator", "semi_major", a, "semi_minor", a,
+                "central_meridian", 9.0, "latitude_of_origin", 10.0), 6, 12, -60, 70);
+        assertBatchConsistent(create("Mercator_1SP", "semi_major", a, "semi_minor", b,
+                "central_meridian", 20.0, "false_northing", 1000.0), -150, 170, -80, 80);
+        assertBatchConsistent(create("Mercator_1SP", "semi_major", a, "semi_minor", a),
+                -180, 180, -85, 85);
+        assertBatchConsistent(create("Lambert_Conformal_Conic_2SP", "semi_major", a, "semi_minor", b,
+                "central_meridian", 3.0, "latitude_of_origin", 46.5, "standard_parallel_1", 44.0,
+                "standard_parallel_2", 49.0, "false_easting", 700000.0), -5, 10, 40, 52);
+        assertBatchConsistent(create("Albers_Conic_Equal_Area", "semi_major", a, "semi_minor", b,
+                "central_meridian", -96.0, "latitude_of_origin", 23.0, "standard_parallel_1", 29.5,
+                "standard_parallel_2", 45.5), -125, -65, 22, 50);
+        assertBatchConsistent(create("Polar_Stereographic", "semi_major", a, "semi_minor", b,
+                "latitude_of_origin", 90.0, "scale_factor", 0.994, "false_easting", 2000000.0),
+                -180, 180, 60, 89);
+        assertBatchConsistent(create("Stereographic_North_Pole", "semi_major", a, "semi_minor", b,
+                "central_meridian", -45.0, "standard_parallel_1", 70.0), -180, 180, 60, 89);
+        assertBatchConsistent(create("Stereographic_North_Pole", "semi_major", a, "semi_minor", a,
+                "central_meridian", -45.0, "standard_parallel_1", 70.0), -180, 180, 60, 89);
+    }
+
+    /**
+     * Projects a grid of points in the given geographic area using the batch transforms, and
+     * compares the results with the single point transforms.
+     */
+    private static void assertBatchConsistent(final MapProjection mt,
+            final double xmin, final double xmax, final double ymin, final double ymax)
+            throws TransformException
+    {
+        final int n = 20;
+        final double[] geographic = new double[2*n*n];
+        for (int i=0, k=0; i<n; i++) {
+            for (int j=0; j<n; j++) {
+                geographic[k++] = xmin + (xmax - xmin) * i / (n - 1);
+                geographic[k++] = ymin + (ymax - ymin) * j / (n - 1);
+            }
+        }
+        final double[] projected = new double[geographic.length];
+        mt.transform(geographic, 0, projected, 0, n*n);
+        final MathTransform2D inverse = mt.inverse();
+        final double[] back = new double[geographic.length];
+        inverse.transform(projected, 0, back, 0, n*n);
+        final Point2D.Double point = new Point2D.Double();
+        for (int i=0; i<geographic.length; i+=2) {
+            point.setLocation(geographic[i], geographic[i+1]);
+            mt.transform(point, point);
+            assertEquals(point.x, projected[i],   1E-6);
+            assertEquals(point.y, projected[i+1], 1E-6);
+            inverse.transform(point, point);
+            assertEquals(point.x, back[i],   1E-9);
+            assertEquals(point.y, back[i+1], 1E-9);
+        }
+        /*
+         * Same test using the float arrays, in place.
+         */
+        final float[] floats = new float[geographic.length];
+        for (int i=0; i<floats.length; i++) {
+            floats[i] = (float) geographic[i];
+        }
+        mt.transform(floats, 0, floats, 0, n*n);
+        for (int i=0; i<floats.length; i+=2) {
+            point.setLocation((float) geographic[i], (float) geographic[i+1]);
+            mt.transform(point, point);
+            assertEquals((float) point.x, floats[i],   0f);
+            assertEquals((float) point.y, floats[i+1], 0f);
+        }
+        /*
+         * Axis swap before the projection and conversion to display units after it,
+         * which should be merged in the projection passes.
+         */
+        final AffineTransform swap = new AffineTransform(0, 1, 1, 0, 0, 0);
+        final AffineTransform display = new AffineTransform(0.01, 0, 0, -0.01, 320, 240);
+        final MathTransform2D chain = (MathTransform2D) ConcatenatedTransform.create(
+                ConcatenatedTransform.create(new AffineTransform2D(swap), mt),
+                new AffineTransform2D(display));
+        final double[] swapped = new double[geographic.length];
+        swap.transform(geographic, 0, swapped, 0, n*n);
+        chain.transform(swapped, 0, projected, 0, n*n);
+        final MathTransform2D chainInverse = chain.inverse();
+        chainInverse.transform(projected, 0, back, 0, n*n);
+        for (int i=0; i<geographic.length; i+=2) {
+            point.setLocation(geographic[i], geographic[i+1]);
+            display.transform(mt.transform(point, point), point);
+            assertEquals(point.x, projected[i],   1E-6);
+            assertEquals(point.y, projected[i+1], 1E-6);
+            point.setLocation(projected[i], projected[i+1]);
+            chainInverse.transform(point, point);
+            assertEquals(point.x, back[i],   1E-9);
+            assertEquals(point.y, back[i+1], 1E-9);
+        }
+    }
+
+    /**
+     * Tests that the batch transforms set the points that can't be projected to NaN,
+     * transform the other ones and report the failure at the end.
+     */
+    @Test
+    public void testBatchTransformFailure() throws FactoryException {
+        final MapProjection mt = createGoogleMercator();
+        final double[] points = {47.0, -14.0, 10.0, 90.0, 48.38824840214492, -14.967538330290973};
+        try {
+            mt.transform(points, 0, points, 0, 3);
+            fail("Expected a ProjectionException for the pole.");
+        } catch (ProjectionException e) {
+            // Expected
+        }
+        assertEquals(PROJECTED[0], points[0], 0.1);
+        assertEquals(PROJECTED[1], points[1], 0.1);
+        assertTrue(Double.isNaN(points[2]));
+        assertTrue(Double.isNaN(points[3]));
+        assertEquals(PROJECTED[2], points[4], 0.1);
+        assertEquals(PROJECTED[3], points[5], 0.1);
+    }
 }
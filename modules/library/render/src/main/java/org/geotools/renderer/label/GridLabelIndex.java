@@ -0,0 +1,223 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link LabelIndex} that buckets the label bounds in a regular grid of screen cells covering
+ * the display area, instead of using a quadtree. All the data is kept in primitive arrays, adding
+ * a label or checking for conflicts does not allocate any object, and the cost of a query only
+ * depends on the number of labels in the cells touched by the query, which makes it a good fit
+ * for dense maps with lots of small labels (or curved labels, whose glyphs are checked one by
+ * one).
+ * <p>
+ * Bounds falling outside of the display area are assigned to the border cells, so the index
+ * stays correct, just slower, when partial labels are enabled.
+ * <p>
+ * Like {@link LabelIndex}, this class is not thread safe.
+ */
+public class GridLabelIndex extends LabelIndex {
+
+    /**
+     * The default cell size, in pixels
+     */
+    public static final int DEFAULT_CELL_SIZE = 32;
+
+    /**
+     * Maximum number of cells in the grid, the cell size is increased if the display area would
+     * require more
+     */
+    static final int MAX_CELLS = 1 << 20;
+
+    static final int INITIAL_CAPACITY = 64;
+
+    final double originX;
+
+    final double originY;
+
+    final double cellSize;
+
+    final int cols;
+
+    final int rows;
+
+    /** For each cell, the position of the first entry in the cell, or -1 if empty */
+    final int[] cellHeads;
+
+    /** For each entry, the position of the label bounds in {@link #bounds} */
+    int[] entryBounds = new int[INITIAL_CAPACITY];
+
+    /** For each entry, the position of the next entry in the same cell, or -1 */
+    int[] entryNext = new int[INITIAL_CAPACITY];
+
+    int entryCount;
+
+    /** Label bounds, as minx, miny, maxx, maxy quadruplets */
+    double[] bounds = new double[INITIAL_CAPACITY * 4];
+
+    int boundsCount;
+
+    /**
+     * Builds a new grid index covering the specified display area, with the default cell size
+     *
+     * @param displayArea
+     */
+    public GridLabelIndex(Rectangle2D displayArea) {
+        this(displayArea, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Builds a new grid index covering the specified display area
+     *
+     * @param displayArea The area covered by the grid
+     * @param cellSize The grid cell size, in pixels
+     */
+    public GridLabelIndex(Rectangle2D displayArea, int cellSize) {
+        // all the methods using the quadtree are overridden, don't allocate it
+        super(null);
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive, but was " + cellSize);
+        }
+        double size = cellSize;
+        double width = Math.max(1, displayArea.getWidth());
+        double height = Math.max(1, displayArea.getHeight());
+        while (Math.ceil(width / size) * Math.ceil(height / size) > MAX_CELLS) {
+            size *= 2;
+        }
+        this.originX = displayArea.getMinX();
+        this.originY = displayArea.getMinY();
+        this.cellSize = size;
+        this.cols = (int) Math.ceil(width / size);
+        this.rows = (int) Math.ceil(height / size);
+        this.cellHeads = new int[cols * rows];
+        Arrays.fill(cellHeads, -1);
+    }
+
+    @Override
+    public boolean labelsWithinDistance(Rectangle2D bounds, double distance) {
+        if (distance < 0) {
+            return false;
+        }
+
+        double minX = bounds.getMinX() - distance;
+        double minY = bounds.getMinY() - distance;
+        double maxX = bounds.getMaxX() + distance;
+        double maxY = bounds.getMaxY() + distance;
+        int c0 = col(minX);
+        int c1 = col(maxX);
+        int r0 = row(minY);
+        int r1 = row(maxY);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                for (int e = cellHeads[r * cols + c]; e != -1; e = entryNext[e]) {
+                    int b = entryBounds[e];
+                    if (!(this.bounds[b] > maxX || this.bounds[b + 2] < minX
+                            || this.bounds[b + 1] > maxY || this.bounds[b + 3] < minY)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void addLabel(LabelCacheItem item, Rectangle2D bounds) {
+        add(bounds);
+    }
+
+    @Override
+    public void reserveArea(List<Rectangle2D> reserved) {
+        for (Rectangle2D area : reserved) {
+            add(area);
+        }
+    }
+
+    /**
+     * Returns the number of bounds stored in the index
+     *
+     * @return
+     */
+    public int size() {
+        return boundsCount / 4;
+    }
+
+    private void add(Rectangle2D area) {
+        double minX = area.getMinX();
+        double minY = area.getMinY();
+        double maxX = area.getMaxX();
+        double maxY = area.getMaxY();
+        if (Double.isNaN(minX) || Double.isNaN(minY) || Double.isNaN(maxX) || Double.isNaN(maxY)) {
+            return;
+        }
+
+        // store the bounds
+        if (boundsCount + 4 > bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        int b = boundsCount;
+        bounds[b] = minX;
+        bounds[b + 1] = minY;
+        bounds[b + 2] = maxX;
+        bounds[b + 3] = maxY;
+        boundsCount += 4;
+
+        // link them in all the cells they touch
+        int c0 = col(minX);
+        int c1 = col(maxX);
+        int r0 = row(minY);
+        int r1 = row(maxY);
+        int required = entryCount + (c1 - c0 + 1) * (r1 - r0 + 1);
+        if (required > entryBounds.length) {
+            int capacity = Math.max(required, entryBounds.length * 2);
+            entryBounds = Arrays.copyOf(entryBounds, capacity);
+            entryNext = Arrays.copyOf(entryNext, capacity);
+        }
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                int e = entryCount++;
+                entryBounds[e] = b;
+                entryNext[e] = cellHeads[cell];
+                cellHeads[cell] = e;
+            }
+        }
+    }
+
+    private int col(double x) {
+        int c = (int) Math.floor((x - originX) / cellSize);
+        if (c < 0) {
+            return 0;
+        } else if (c >= cols) {
+            return cols - 1;
+        }
+        return c;
+    }
+
+    private int row(double y) {
+        int r = (int) Math.floor((y - originY) / cellSize);
+        if (r < 0) {
+            return 0;
+        } else if (r >= rows) {
+            return rows - 1;
+        }
+        return r;
+    }
+}
@@ -26,6 +26,7 @@ import java.awt.RenderingHints;
 import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,6 +37,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -98,6 +103,11 @@ public final class LabelCacheImpl implements LabelCache {
     static final boolean DEBUG_CACHE_BOUNDS = Boolean.getBoolean("org.geotools.labelcache.showbounds");
 
     public static boolean DISABLE_LETTER_LEVEL_CONFLICT = Boolean.getBoolean("org.geotools.labelcache.disableLetterLevelConflict");
+
+    /**
+     * Default for {@link #setGridLabelIndexEnabled(boolean)}
+     */
+    static final boolean GRID_LABEL_INDEX = Boolean.getBoolean("org.geotools.labelcache.gridIndex");
     
     public enum LabelRenderingMode {
         /**
@@ -162,6 +172,23 @@ public final class LabelCacheImpl implements LabelCache {
     
     private VendorOptionParser voParser = new VendorOptionParser();
 
+    private boolean gridLabelIndexEnabled = GRID_LABEL_INDEX;
+
+    /**
+     * Minimum number of labels handed to a single preparation task
+     */
+    static final int MIN_PREPARATION_BATCH = 32;
+
+    /**
+     * Used to prepare the labels in parallel, if not null
+     */
+    private ExecutorService threadPool;
+
+    /**
+     * The preparation of the label being painted, or null if it was not prepared in advance
+     */
+    private PreparedLabel prepared;
+
     public void enableLayer(String layerId) {
         needsOrdering = true;
         enabledLayers.add(layerId);
@@ -178,6 +205,43 @@ public final class LabelCacheImpl implements LabelCache {
         this.labelRenderingMode = mode;
     }
 
+    /**
+     * Returns true if the painted labels are tracked with a {@link GridLabelIndex}
+     */
+    public boolean isGridLabelIndexEnabled() {
+        return gridLabelIndexEnabled;
+    }
+
+    /**
+     * Enables tracking the painted labels with a {@link GridLabelIndex} instead of the quadtree
+     * based {@link LabelIndex}. The grid index is usually faster on maps with many labels.
+     * Defaults to the value of the "org.geotools.labelcache.gridIndex" system property.
+     */
+    public void setGridLabelIndexEnabled(boolean gridLabelIndexEnabled) {
+        this.gridLabelIndexEnabled = gridLabelIndexEnabled;
+    }
+
+    /**
+     * Returns the thread pool used to prepare the labels in parallel, or null if the labels are
+     * prepared sequentially
+     */
+    public ExecutorService getThreadPool() {
+        return threadPool;
+    }
+
+    /**
+     * Sets a thread pool that will be used to prepare the labels in parallel before painting
+     * them. The preparation computes the text layout and the representative geometry of each
+     * label, that is, the parts of the work that do not depend on which labels were painted
+     * before. The conflict resolution and painting are still performed sequentially in priority
+     * order, so the output is the same as the one of the sequential preparation.
+     *
+     * @param threadPool The thread pool, or null to prepare the labels sequentially
+     */
+    public void setThreadPool(ExecutorService threadPool) {
+        this.threadPool = threadPool;
+    }
+
     public void stop() {
         stop = true;
         activeLayers.clear();
@@ -423,13 +487,24 @@ public final class LabelCacheImpl implements LabelCache {
         }
     }
 
+    /**
+     * Builds the index used to track the painted labels
+     */
+    LabelIndex createLabelIndex(Rectangle displayArea) {
+        if (gridLabelIndexEnabled) {
+            return new GridLabelIndex(displayArea);
+        } else {
+            return new LabelIndex();
+        }
+    }
+
     void paintLabels(Graphics2D graphics, Rectangle displayArea) {
         if (!activeLayers.isEmpty()) {
             throw new IllegalStateException(activeLayers
                     + " are layers that started rendering but have not completed,"
                     + " stop() or endLayer() must be called before end() is called");
         }
-        LabelIndex glyphs = new LabelIndex();
+        LabelIndex glyphs = createLabelIndex(displayArea);
         glyphs.reserveArea( reserved );
 
         //Used to check the paintLineLabel function
@@ -457,12 +532,26 @@ public final class LabelCacheImpl implements LabelCache {
         } else {
             items = getActiveLabels();
         }
+        PreparedLabel[] preparedLabels = null;
+        if (threadPool != null && items.size() > 1) {
+            preparedLabels = prepareLabels(items, graphics, displayArea);
+            if (preparedLabels == null) {
+                // stopped while preparing
+                return;
+            }
+        }
         LabelPainter painter = new LabelPainter(graphics, labelRenderingMode);
-        for (LabelCacheItem labelItem : items) {
+        for (int i = 0; i < items.size(); i++) {
+            LabelCacheItem labelItem = items.get(i);
             if (stop)
                 return;
             
-            painter.setLabel(labelItem);
+            prepared = preparedLabels != null ? preparedLabels[i] : null;
+            if (prepared != null) {
+                painter.setLabel(labelItem, prepared.lines, prepared.labelBounds);
+            } else {
+                painter.setLabel(labelItem);
+            }
             try {
                 // LabelCacheItem labelItem = (LabelCacheItem)
                 // labelCache.get(labelIter.next());
@@ -506,6 +595,7 @@ public final class LabelCacheImpl implements LabelCache {
                 e.printStackTrace();
             }
         }
+        prepared = null;
         //Output for line labels
         LOGGER.log(Level.FINE, "TOTAL LINE LABELS : {0}", items.size());
         LOGGER.log(Level.FINE, "PAINTED LINE LABELS : {0}", paintedLineLabels);
@@ -513,6 +603,134 @@ public final class LabelCacheImpl implements LabelCache {
     }
 
 
+    /**
+     * Prepares the labels on the thread pool, returns null if the rendering was stopped in the
+     * meantime
+     */
+    PreparedLabel[] prepareLabels(final List<LabelCacheItem> items, Graphics2D graphics,
+            final Rectangle displayArea) {
+        final PreparedLabel[] result = new PreparedLabel[items.size()];
+        // a few batches per thread, to balance the load without too much overhead
+        int batches = Math.max(1, Runtime.getRuntime().availableProcessors() * 4);
+        int batchSize = Math.max(MIN_PREPARATION_BATCH, (items.size() + batches - 1) / batches);
+
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+        for (int start = 0; start < items.size(); start += batchSize) {
+            final int from = start;
+            final int to = Math.min(items.size(), start + batchSize);
+            // the layout changes the graphics font, each batch needs its own graphics
+            final Graphics2D scratch = createScratchGraphics(graphics);
+            FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+
+                public void run() {
+                    try {
+                        LabelPainter painter = new LabelPainter(scratch, labelRenderingMode);
+                        for (int i = from; i < to && !stop; i++) {
+                            result[i] = prepareLabel(items.get(i), painter, displayArea);
+                        }
+                    } finally {
+                        scratch.dispose();
+                    }
+                }
+            }, null);
+            tasks.add(task);
+            try {
+                threadPool.execute(task);
+            } catch (RejectedExecutionException e) {
+                // will be run by the current thread below
+            }
+        }
+
+        for (FutureTask<Void> task : tasks) {
+            // if the task has not been picked up by the pool yet, run it in the current thread,
+            // this avoids deadlocks in case the pool threads are all busy waiting on us
+            task.run();
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.FINE, "Failed to prepare labels", e.getCause());
+            }
+        }
+
+        return stop ? null : result;
+    }
+
+    /**
+     * Computes the parts of the label placement that do not depend on the other labels, returns
+     * null if the preparation failed (the label will be prepared again during painting, where
+     * the error will be reported)
+     */
+    PreparedLabel prepareLabel(LabelCacheItem labelItem, LabelPainter painter,
+            Rectangle displayArea) {
+        try {
+            PreparedLabel result = new PreparedLabel();
+            painter.setLabel(labelItem);
+            result.lines = painter.lines;
+            result.labelBounds = painter.labelBounds;
+
+            Geometry geom = labelItem.getGeometry();
+            if ((geom instanceof Point) || (geom instanceof MultiPoint)) {
+                result.location = getPointSetRepresentativeLocation(labelItem.getGeoms(),
+                        displayArea, labelItem.isPartialsEnabled());
+            } else if (((geom instanceof LineString) && !(geom instanceof LinearRing))
+                    || (geom instanceof MultiLineString)) {
+                result.location = getLineSetRepresentativeLocation(labelItem.getGeoms(),
+                        displayArea, labelItem.removeGroupOverlaps(),
+                        labelItem.isPartialsEnabled());
+            } else if (geom instanceof Polygon || geom instanceof MultiPolygon
+                    || geom instanceof LinearRing) {
+                result.location = getPolySetRepresentativeLocation(labelItem.getGeoms(),
+                        displayArea, labelItem.isPartialsEnabled());
+            }
+            return result;
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Failed to prepare label " + labelItem.getLabel(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Builds a graphics object with the same font rendering context as the one provided, so that
+     * the labels laid out against it are identical
+     */
+    private Graphics2D createScratchGraphics(Graphics2D graphics) {
+        Graphics2D scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB)
+                .createGraphics();
+        scratch.setRenderingHints(graphics.getRenderingHints());
+        scratch.setTransform(graphics.getTransform());
+        scratch.setFont(graphics.getFont());
+        return scratch;
+    }
+
+    Point getPointSetRepresentativeLocation(LabelCacheItem labelItem, Rectangle displayArea) {
+        if (prepared != null) {
+            return (Point) prepared.location;
+        }
+        return getPointSetRepresentativeLocation(labelItem.getGeoms(), displayArea,
+                labelItem.isPartialsEnabled());
+    }
+
+    @SuppressWarnings("unchecked")
+    List<LineString> getLineSetRepresentativeLocation(LabelCacheItem labelItem,
+            Rectangle displayArea) {
+        if (prepared != null) {
+            return (List<LineString>) prepared.location;
+        }
+        return getLineSetRepresentativeLocation(labelItem.getGeoms(), displayArea,
+                labelItem.removeGroupOverlaps(), labelItem.isPartialsEnabled());
+    }
+
+    Polygon getPolySetRepresentativeLocation(LabelCacheItem labelItem, Rectangle displayArea) {
+        if (prepared != null) {
+            return (Polygon) prepared.location;
+        }
+        return getPolySetRepresentativeLocation(labelItem.getGeoms(), displayArea,
+                labelItem.isPartialsEnabled());
+    }
+
     private Envelope toEnvelope(Rectangle2D bounds) {
         return new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds.getMaxY());
     }
@@ -597,9 +815,7 @@ public final class LabelCacheImpl implements LabelCache {
     private boolean paintLineLabelsWithLetterConflict(LabelPainter painter, AffineTransform originalTransform,
             Rectangle displayArea, LabelIndex paintedBounds) throws Exception {
         final LabelCacheItem labelItem = painter.getLabel();
-        List<LineString> lines = getLineSetRepresentativeLocation(
-                labelItem.getGeoms(), displayArea, labelItem.removeGroupOverlaps(),
-                labelItem.isPartialsEnabled());
+        List<LineString> lines = getLineSetRepresentativeLocation(labelItem, displayArea);
 
         if (lines == null || lines.size() == 0)
             return false;
@@ -815,9 +1031,7 @@ public final class LabelCacheImpl implements LabelCache {
     private boolean paintLineLabels(LabelPainter painter, AffineTransform originalTransform,
             Rectangle displayArea, LabelIndex paintedBounds) throws Exception {
         final LabelCacheItem labelItem = painter.getLabel();
-        List<LineString> lines = getLineSetRepresentativeLocation(
-                labelItem.getGeoms(), displayArea, labelItem.removeGroupOverlaps(),
-                labelItem.isPartialsEnabled());
+        List<LineString> lines = getLineSetRepresentativeLocation(labelItem, displayArea);
 
         if (lines == null || lines.size() == 0)
             return false;
@@ -1123,8 +1337,7 @@ public final class LabelCacheImpl implements LabelCache {
             Rectangle displayArea, LabelIndex glyphs) throws Exception {
         LabelCacheItem labelItem = painter.getLabel();
         // get the point onto the shape has to be painted
-        Point point = getPointSetRepresentativeLocation(labelItem.getGeoms(),
-                displayArea, labelItem.isPartialsEnabled());
+        Point point = getPointSetRepresentativeLocation(labelItem, displayArea);
         if (point == null)
             return false;
 
@@ -1259,7 +1472,7 @@ public final class LabelCacheImpl implements LabelCache {
     private boolean paintPolygonLabel(LabelPainter painter, AffineTransform tempTransform,
             Rectangle displayArea, LabelIndex glyphs) throws Exception {
         LabelCacheItem labelItem = painter.getLabel();
-        Polygon geom = getPolySetRepresentativeLocation(labelItem.getGeoms(), displayArea, labelItem.isPartialsEnabled());
+        Polygon geom = getPolySetRepresentativeLocation(labelItem, displayArea);
         if (geom == null) {
             return false;
         }
@@ -1997,4 +2210,18 @@ public final class LabelCacheImpl implements LabelCache {
         return r;
     }
 
+
+    /**
+     * The parts of a label placement that do not depend on the other labels, computed in
+     * parallel before the conflict resolution starts
+     */
+    static class PreparedLabel {
+        /** The label layout */
+        List<LineInfo> lines;
+
+        Rectangle2D labelBounds;
+
+        /** The representative location, a Point, a List&lt;LineString&gt; or a Polygon */
+        Object location;
+    }
 }
@@ -25,7 +25,9 @@ import com.vividsolutions.jts.index.quadtree.Quadtree;
 
 /**
  * Stores label items and helps in finding the interferering ones, either by
- * pure overlap or within a certain distance from the specified bounds
+ * pure overlap or within a certain distance from the specified bounds.
+ * This implementation is based on a quadtree, see {@link GridLabelIndex} for
+ * an alternative optimized for dense maps.
  * 
  * @author Andrea Aime
  * 
@@ -36,7 +38,20 @@ import com.vividsolutions.jts.index.quadtree.Quadtree;
  */
 public class LabelIndex {
 
-    Quadtree index = new Quadtree();
+    Quadtree index;
+
+    public LabelIndex() {
+        this(new Quadtree());
+    }
+
+    /**
+     * Builds an index based on the specified quadtree, subclasses not using it can pass null
+     * 
+     * @param index
+     */
+    LabelIndex(Quadtree index) {
+        this.index = index;
+    }
 
     /**
      * Returns true if there is any label in the index within the specified
@@ -177,6 +177,22 @@ public class LabelPainter {
         normalizeBounds(labelBounds);
     }
 
+    /**
+     * Sets the current label, using a layout that has already been computed by another painter
+     * (see {@link #setLabel(LabelCacheItem)}) working against a graphics with the same font
+     * rendering context
+     *
+     * @param labelItem
+     * @param lines The lines computed by the other painter
+     * @param labelBounds The label bounds computed by the other painter
+     */
+    void setLabel(LabelCacheItem labelItem, List<LineInfo> lines, Rectangle2D labelBounds) {
+        this.labelItem = labelItem;
+        labelItem.getTextStyle().setLabel(labelItem.getLabel());
+        this.lines = lines;
+        this.labelBounds = labelBounds;
+    }
+
 
 
 
@@ -0,0 +1,547 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.Layer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.CRS;
+import org.geotools.renderer.label.LabelCacheImpl;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.util.NumberRange;
+import org.opengis.feature.Feature;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.util.AffineTransformation;
+
+/**
+ * Renders a {@link MapContent} with a {@link StreamingRenderer}, optimizing for interactive
+ * panning. The map is kept in two parts, the rendered features and the label candidates, both in
+ * screen space: when the new map area is a translation of the previous one by a whole number of
+ * pixels, the rendered features are shifted and only the newly exposed strips are rendered, while
+ * the label candidates are shifted, merged with the ones found in the strips, and the labels are
+ * placed again over the whole image. This way only the data in the strips is read, and labels
+ * crossing the strip borders are still placed consistently.
+ * <p>
+ * Any other change (zoom, rotation, size, CRS, list of layers) causes a full rendering. Changes to
+ * the layer styles or data are not tracked, {@link #invalidate()} should be called to force a
+ * full rendering after them.
+ * <p>
+ * Dashed lines and graphic strokes might show a small phase shift at the strip borders, since the
+ * strips are rendered separately.
+ * <p>
+ * The renderer passed at construction time is configured to record the labels, and should not be
+ * used for other purposes. This class is not thread safe.
+ */
+public class IncrementalPanRenderer {
+
+    /**
+     * Max difference from a whole pixel translation that still allows to reuse the previous image
+     */
+    static final double PIXEL_TOLERANCE = 1e-3;
+
+    static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    /**
+     * Identifies a label candidate across renderings
+     */
+    static final class LabelKey {
+        final String layerId;
+
+        final Object featureKey;
+
+        final TextSymbolizer symbolizer;
+
+        LabelKey(String layerId, Feature feature, TextSymbolizer symbolizer) {
+            this.layerId = layerId;
+            // features without an identifier cannot be matched, use the feature itself
+            this.featureKey = feature.getIdentifier() != null ? feature.getIdentifier()
+                    : new IdentityKey(feature);
+            this.symbolizer = symbolizer;
+        }
+
+        @Override
+        public int hashCode() {
+            return (layerId.hashCode() * 31 + featureKey.hashCode()) * 31
+                    + symbolizer.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof LabelKey)) {
+                return false;
+            }
+            LabelKey other = (LabelKey) obj;
+            return layerId.equals(other.layerId) && featureKey.equals(other.featureKey)
+                    && symbolizer.equals(other.symbolizer);
+        }
+    }
+
+    static final class IdentityKey {
+        final Object object;
+
+        IdentityKey(Object object) {
+            this.object = object;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(object);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IdentityKey && ((IdentityKey) obj).object == object;
+        }
+    }
+
+    /**
+     * A label candidate, made of the screen space pieces of the feature geometry found in the
+     * renderings that touched it
+     */
+    static final class LabelCandidate {
+        final String layerId;
+
+        final TextSymbolizer symbolizer;
+
+        final Feature feature;
+
+        final NumberRange<Double> scaleRange;
+
+        List<Geometry> pieces = new ArrayList<Geometry>();
+
+        LabelCandidate(String layerId, TextSymbolizer symbolizer, Feature feature,
+                NumberRange<Double> scaleRange) {
+            this.layerId = layerId;
+            this.symbolizer = symbolizer;
+            this.feature = feature;
+            this.scaleRange = scaleRange;
+        }
+
+        LiteShape2 getShape() throws Exception {
+            Geometry geometry;
+            if (pieces.size() == 1) {
+                geometry = pieces.get(0);
+            } else {
+                List<Geometry> components = new ArrayList<Geometry>();
+                for (Geometry piece : pieces) {
+                    for (int i = 0; i < piece.getNumGeometries(); i++) {
+                        components.add(piece.getGeometryN(i));
+                    }
+                }
+                geometry = GEOMETRY_FACTORY.buildGeometry(components);
+            }
+            return new LiteShape2(geometry, null, null, false, false);
+        }
+    }
+
+    final StreamingRenderer renderer;
+
+    final RecordingLabelCache recorder = new RecordingLabelCache();
+
+    Color background;
+
+    LabelCache labelCache;
+
+    BufferedImage features;
+
+    BufferedImage spare;
+
+    BufferedImage image;
+
+    Rectangle lastPaintArea;
+
+    ReferencedEnvelope lastMapArea;
+
+    AffineTransform lastWorldToScreen;
+
+    List<Layer> lastLayers;
+
+    Map<LabelKey, LabelCandidate> labels = new LinkedHashMap<LabelKey, LabelCandidate>();
+
+    List<Rectangle2D> obstacles = new ArrayList<Rectangle2D>();
+
+    boolean lastPaintIncremental;
+
+    /**
+     * Builds a new incremental renderer. The renderer map content and hints should be set before
+     * calling {@link #paint(Rectangle, ReferencedEnvelope)}
+     *
+     * @param renderer
+     */
+    public IncrementalPanRenderer(StreamingRenderer renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Sets the background color of the map. Defaults to null, transparent.
+     */
+    public void setBackground(Color background) {
+        this.background = background;
+        invalidate();
+    }
+
+    public Color getBackground() {
+        return background;
+    }
+
+    /**
+     * Sets the label cache used to place the labels over the whole image. If not set, a new
+     * {@link LabelCacheImpl} is used at each paint.
+     */
+    public void setLabelCache(LabelCache labelCache) {
+        this.labelCache = labelCache;
+    }
+
+    public LabelCache getLabelCache() {
+        return labelCache;
+    }
+
+    /**
+     * Drops the previous rendering, forcing the next paint to render the full map
+     */
+    public void invalidate() {
+        lastPaintArea = null;
+        lastMapArea = null;
+        lastWorldToScreen = null;
+        lastLayers = null;
+        labels.clear();
+        obstacles.clear();
+    }
+
+    /**
+     * Returns true if the last call to {@link #paint(Rectangle, ReferencedEnvelope)} reused the
+     * previous rendering
+     */
+    public boolean isLastPaintIncremental() {
+        return lastPaintIncremental;
+    }
+
+    /**
+     * Renders the specified map area, reusing the previous rendering if the map area is a pixel
+     * aligned translation of the previous one.
+     * <p>
+     * The returned image is owned by this object, and will be overwritten by the next call.
+     *
+     * @param paintArea The size of the image, the origin is ignored
+     * @param mapArea The map area to be rendered
+     * @return The rendered map
+     */
+    public BufferedImage paint(Rectangle paintArea, ReferencedEnvelope mapArea) {
+        final Rectangle area = new Rectangle(0, 0, paintArea.width, paintArea.height);
+        final AffineTransform worldToScreen = RendererUtilities.worldToScreenTransform(mapArea,
+                area);
+        if (worldToScreen == null) {
+            throw new IllegalArgumentException("Cannot compute the world to screen transform "
+                    + "for " + mapArea + " and " + area);
+        }
+        setupRecording();
+
+        final List<Layer> layers = new ArrayList<Layer>(renderer.getMapContent().layers());
+        int[] offset = getPixelOffset(area, mapArea, worldToScreen, layers);
+        if (offset != null) {
+            paintIncremental(area, mapArea, worldToScreen, offset[0], offset[1]);
+        } else {
+            paintFull(area, mapArea, worldToScreen);
+        }
+        lastPaintIncremental = offset != null;
+        lastPaintArea = area;
+        lastMapArea = mapArea;
+        lastWorldToScreen = worldToScreen;
+        lastLayers = layers;
+
+        paintLabels(area);
+        return image;
+    }
+
+    /**
+     * Makes the renderer send labels and obstacles to the recorder
+     */
+    void setupRecording() {
+        Map hints = renderer.getRendererHints();
+        if (hints == null || hints.get(StreamingRenderer.LABEL_CACHE_KEY) != recorder) {
+            Map newHints = new HashMap();
+            if (hints != null) {
+                newHints.putAll(hints);
+            }
+            newHints.put(StreamingRenderer.LABEL_CACHE_KEY, recorder);
+            renderer.setRendererHints(newHints);
+        }
+        renderer.setObstacleCache(recorder);
+    }
+
+    /**
+     * Returns the x and y pixel offset of the new map area compared to the previous one, or null
+     * if the previous rendering cannot be reused
+     */
+    int[] getPixelOffset(Rectangle area, ReferencedEnvelope mapArea,
+            AffineTransform worldToScreen, List<Layer> layers) {
+        if (lastPaintArea == null || features == null || !lastPaintArea.equals(area)
+                || !layers.equals(lastLayers)
+                || !CRS.equalsIgnoreMetadata(mapArea.getCoordinateReferenceSystem(),
+                        lastMapArea.getCoordinateReferenceSystem())) {
+            return null;
+        }
+        // same scale and rotation
+        final AffineTransform last = lastWorldToScreen;
+        if (!sameFactor(last.getScaleX(), worldToScreen.getScaleX())
+                || !sameFactor(last.getScaleY(), worldToScreen.getScaleY())
+                || !sameFactor(last.getShearX(), worldToScreen.getShearX())
+                || !sameFactor(last.getShearY(), worldToScreen.getShearY())) {
+            return null;
+        }
+        // whole pixel translation, smaller than the image
+        double dx = worldToScreen.getTranslateX() - last.getTranslateX();
+        double dy = worldToScreen.getTranslateY() - last.getTranslateY();
+        long rdx = Math.round(dx);
+        long rdy = Math.round(dy);
+        if (Math.abs(dx - rdx) > PIXEL_TOLERANCE || Math.abs(dy - rdy) > PIXEL_TOLERANCE
+                || Math.abs(rdx) >= area.width || Math.abs(rdy) >= area.height) {
+            return null;
+        }
+        return new int[] { (int) rdx, (int) rdy };
+    }
+
+    private boolean sameFactor(double a, double b) {
+        return Math.abs(a - b) <= Math.max(Math.abs(a), Math.abs(b)) * 1e-9;
+    }
+
+    void paintFull(Rectangle area, ReferencedEnvelope mapArea, AffineTransform worldToScreen) {
+        labels.clear();
+        obstacles.clear();
+        features = createImage(features, area);
+        Graphics2D graphics = features.createGraphics();
+        try {
+            clear(graphics, area);
+            renderer.paint(graphics, area, mapArea, worldToScreen);
+        } finally {
+            graphics.dispose();
+        }
+        collectLabels();
+    }
+
+    void paintIncremental(Rectangle area, ReferencedEnvelope mapArea,
+            AffineTransform worldToScreen, int dx, int dy) {
+        // shift the features rendered so far
+        spare = createImage(spare, area);
+        Graphics2D graphics = spare.createGraphics();
+        try {
+            graphics.setComposite(AlphaComposite.Src);
+            clear(graphics, area);
+            graphics.drawImage(features, dx, dy, null);
+            graphics.setComposite(AlphaComposite.SrcOver);
+
+            // render the exposed strips
+            for (Rectangle strip : getExposedStrips(area, dx, dy)) {
+                ReferencedEnvelope stripArea = getStripEnvelope(strip, worldToScreen,
+                        mapArea);
+                Graphics2D stripGraphics = (Graphics2D) graphics.create();
+                try {
+                    stripGraphics.setClip(strip);
+                    renderer.paint(stripGraphics, strip, stripArea, worldToScreen);
+                } finally {
+                    stripGraphics.dispose();
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+        BufferedImage tmp = features;
+        features = spare;
+        spare = tmp;
+
+        // shift the labels and obstacles, drop the ones that went out of the image, and add the
+        // ones found in the strips
+        shiftLabels(area, dx, dy);
+        collectLabels();
+    }
+
+    /**
+     * Returns the areas of the image that are not covered by the previous rendering, once
+     * shifted by dx, dy
+     */
+    static List<Rectangle> getExposedStrips(Rectangle area, int dx, int dy) {
+        List<Rectangle> result = new ArrayList<Rectangle>();
+        // vertical strip, full height
+        int minX = 0;
+        int maxX = area.width;
+        if (dx > 0) {
+            result.add(new Rectangle(0, 0, dx, area.height));
+            minX = dx;
+        } else if (dx < 0) {
+            result.add(new Rectangle(area.width + dx, 0, -dx, area.height));
+            maxX = area.width + dx;
+        }
+        // horizontal strip, excluding the vertical one
+        if (dy > 0) {
+            result.add(new Rectangle(minX, 0, maxX - minX, dy));
+        } else if (dy < 0) {
+            result.add(new Rectangle(minX, area.height + dy, maxX - minX, -dy));
+        }
+        return result;
+    }
+
+    private ReferencedEnvelope getStripEnvelope(Rectangle strip, AffineTransform worldToScreen,
+            ReferencedEnvelope mapArea) {
+        try {
+            Rectangle2D world = worldToScreen.createInverse().createTransformedShape(strip)
+                    .getBounds2D();
+            return new ReferencedEnvelope(world.getMinX(), world.getMaxX(), world.getMinY(),
+                    world.getMaxY(), mapArea.getCoordinateReferenceSystem());
+        } catch (NoninvertibleTransformException e) {
+            throw new IllegalArgumentException("Invalid world to screen transform", e);
+        }
+    }
+
+    void shiftLabels(Rectangle area, int dx, int dy) {
+        final Envelope visible = new Envelope(area.getMinX(), area.getMaxX(), area.getMinY(),
+                area.getMaxY());
+        final AffineTransformation shift = AffineTransformation.translationInstance(dx, dy);
+        for (Iterator<LabelCandidate> it = labels.values().iterator(); it.hasNext();) {
+            LabelCandidate candidate = it.next();
+            List<Geometry> pieces = new ArrayList<Geometry>();
+            for (Geometry piece : candidate.pieces) {
+                Geometry shifted = shift.transform(piece);
+                if (shifted.getEnvelopeInternal().intersects(visible)) {
+                    pieces.add(shifted);
+                }
+            }
+            if (pieces.isEmpty()) {
+                it.remove();
+            } else {
+                candidate.pieces = pieces;
+            }
+        }
+        for (Iterator<Rectangle2D> it = obstacles.iterator(); it.hasNext();) {
+            Rectangle2D obstacle = it.next();
+            obstacle.setRect(obstacle.getX() + dx, obstacle.getY() + dy, obstacle.getWidth(),
+                    obstacle.getHeight());
+            if (!obstacle.intersects(area)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Moves the labels and obstacles found by the last rendering from the recorder to the label
+     * candidates
+     */
+    void collectLabels() {
+        synchronized (recorder.entries) {
+            for (RecordingLabelCache.Entry entry : recorder.entries) {
+                if (entry.obstacle != null) {
+                    obstacles.add(new Rectangle2D.Double(entry.obstacle.getX(),
+                            entry.obstacle.getY(), entry.obstacle.getWidth(),
+                            entry.obstacle.getHeight()));
+                } else {
+                    LabelKey key = new LabelKey(entry.layerId, entry.feature, entry.symbolizer);
+                    LabelCandidate candidate = labels.get(key);
+                    if (candidate == null) {
+                        candidate = new LabelCandidate(entry.layerId, entry.symbolizer,
+                                entry.feature, entry.scaleRange);
+                        labels.put(key, candidate);
+                    }
+                    candidate.pieces.add(entry.shape.getGeometry());
+                }
+            }
+            recorder.entries.clear();
+        }
+    }
+
+    /**
+     * Copies the features in the output image, and places the labels over the whole of it
+     */
+    void paintLabels(Rectangle area) {
+        image = createImage(image, area);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.drawImage(features, 0, 0, null);
+            graphics.setComposite(AlphaComposite.SrcOver);
+            if (renderer.getJava2DHints() != null) {
+                graphics.addRenderingHints(renderer.getJava2DHints());
+            }
+
+            LabelCache cache = labelCache != null ? labelCache : new LabelCacheImpl();
+            cache.clear();
+            cache.start();
+            for (Rectangle2D obstacle : obstacles) {
+                cache.put(new Rectangle2D.Double(obstacle.getX(), obstacle.getY(),
+                        obstacle.getWidth(), obstacle.getHeight()));
+            }
+            // layer ids are layer positions, keep the map order
+            Map<Integer, List<LabelCandidate>> layers = new TreeMap<Integer, List<LabelCandidate>>();
+            for (LabelCandidate candidate : labels.values()) {
+                Integer position = Integer.valueOf(candidate.layerId);
+                List<LabelCandidate> candidates = layers.get(position);
+                if (candidates == null) {
+                    candidates = new ArrayList<LabelCandidate>();
+                    layers.put(position, candidates);
+                }
+                candidates.add(candidate);
+            }
+            for (List<LabelCandidate> candidates : layers.values()) {
+                String layerId = candidates.get(0).layerId;
+                cache.startLayer(layerId);
+                for (LabelCandidate candidate : candidates) {
+                    try {
+                        cache.put(layerId, candidate.symbolizer, candidate.feature,
+                                candidate.getShape(), candidate.scaleRange);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Failed to build the label shape", e);
+                    }
+                }
+                cache.endLayer(layerId, graphics, area);
+            }
+            cache.end(graphics, area);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    private BufferedImage createImage(BufferedImage current, Rectangle area) {
+        if (current != null && current.getWidth() == area.width
+                && current.getHeight() == area.height) {
+            return current;
+        }
+        return new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private void clear(Graphics2D graphics, Rectangle area) {
+        graphics.setBackground(background != null ? background : new Color(0, 0, 0, 0));
+        graphics.clearRect(area.x, area.y, area.width, area.height);
+    }
+}
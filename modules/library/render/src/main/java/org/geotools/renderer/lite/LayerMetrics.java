@@ -0,0 +1,256 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.feature.FeatureIterator;
+import org.geotools.map.Layer;
+import org.opengis.feature.Feature;
+
+/**
+ * Timings and counters collected while rendering a single layer, see {@link RenderingMetrics}.
+ * <p>
+ * The {@link RenderingPhase#PAINT} and {@link RenderingPhase#RASTER} phases run in the painter
+ * thread, in parallel with the other ones, so the sum of the phase times can be larger than the
+ * layer elapsed time.
+ */
+public class LayerMetrics {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging.getLogger(LayerMetrics.class);
+
+    static final boolean ALLOCATION_SUPPORTED;
+
+    static {
+        boolean supported = false;
+        try {
+            supported = getThreadAllocatedBytes() >= 0;
+        } catch (Throwable t) {
+            LOGGER.log(Level.FINE, "Thread allocation tracking is not available", t);
+        }
+        ALLOCATION_SUPPORTED = supported;
+    }
+
+    final String layerId;
+
+    final String title;
+
+    final AtomicLongArray nanos = new AtomicLongArray(RenderingPhase.values().length);
+
+    long elapsedNanos;
+
+    long features;
+
+    long renderedFeatures;
+
+    long vertices;
+
+    long allocatedBytes = -1;
+
+    long startNanos;
+
+    long startAllocatedBytes;
+
+    LayerMetrics(Layer layer, String layerId) {
+        this.layerId = layerId;
+        this.title = layer.getTitle();
+    }
+
+    /**
+     * The layer identifier, the same used in the {@link LabelCache}
+     *
+     * @return
+     */
+    public String getLayerId() {
+        return layerId;
+    }
+
+    /**
+     * The layer title
+     *
+     * @return
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * The time spent in the specified phase, in nanoseconds
+     *
+     * @param phase
+     * @return
+     */
+    public long getNanos(RenderingPhase phase) {
+        return nanos.get(phase.ordinal());
+    }
+
+    /**
+     * The time elapsed between the start and the end of the layer reading and preparation, in
+     * nanoseconds. The painting of the last features can continue after the end.
+     *
+     * @return
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * The number of features read from the data source
+     *
+     * @return
+     */
+    public long getFeatures() {
+        return features;
+    }
+
+    /**
+     * The number of features that have been painted or labelled
+     *
+     * @return
+     */
+    public long getRenderedFeatures() {
+        return renderedFeatures;
+    }
+
+    /**
+     * The number of vertices sent to the painter, after generalization and clipping
+     *
+     * @return
+     */
+    public long getVertices() {
+        return vertices;
+    }
+
+    /**
+     * An estimate of the bytes allocated while reading and preparing the layer, painting
+     * excluded, or -1 if the JVM does not support tracking allocations per thread
+     *
+     * @return
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+        if (ALLOCATION_SUPPORTED) {
+            startAllocatedBytes = getThreadAllocatedBytes();
+        }
+    }
+
+    void end() {
+        elapsedNanos += System.nanoTime() - startNanos;
+        if (ALLOCATION_SUPPORTED) {
+            long allocated = getThreadAllocatedBytes() - startAllocatedBytes;
+            allocatedBytes = allocatedBytes < 0 ? allocated : allocatedBytes + allocated;
+        }
+    }
+
+    /**
+     * Adds the time elapsed since <code>startNanos</code> to the specified phase
+     */
+    void addElapsed(RenderingPhase phase, long startNanos) {
+        nanos.addAndGet(phase.ordinal(), System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread, or -1 if not supported
+     */
+    static long getThreadAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported()
+                    && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Layer ").append(layerId);
+        if (title != null) {
+            sb.append(" (").append(title).append(")");
+        }
+        sb.append(": ").append(elapsedNanos / 1000000).append("ms");
+        for (RenderingPhase phase : RenderingPhase.values()) {
+            sb.append(", ").append(phase.name().toLowerCase()).append(" ")
+                    .append(getNanos(phase) / 1000000).append("ms");
+        }
+        sb.append(", features ").append(features).append(", rendered ").append(renderedFeatures)
+                .append(", vertices ").append(vertices);
+        if (allocatedBytes >= 0) {
+            sb.append(", allocated ").append(allocatedBytes / 1024).append("KB");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Wraps a feature iterator, adding the time spent reading features to the
+     * {@link RenderingPhase#QUERY} phase, and counting them
+     */
+    static class MetricsFeatureIterator<F extends Feature> implements FeatureIterator<F> {
+
+        final FeatureIterator<F> delegate;
+
+        final LayerMetrics metrics;
+
+        MetricsFeatureIterator(FeatureIterator<F> delegate, LayerMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            try {
+                return delegate.hasNext();
+            } finally {
+                metrics.addElapsed(RenderingPhase.QUERY, start);
+            }
+        }
+
+        @Override
+        public F next() throws NoSuchElementException {
+            long start = System.nanoTime();
+            try {
+                F next = delegate.next();
+                metrics.features++;
+                return next;
+            } finally {
+                metrics.addElapsed(RenderingPhase.QUERY, start);
+            }
+        }
+
+        @Override
+        public void close() {
+            long start = System.nanoTime();
+            try {
+                delegate.close();
+            } finally {
+                metrics.addElapsed(RenderingPhase.QUERY, start);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.geotools.geometry.jts.ReferencedEnvelope;
+
+/**
+ * Describes a meta tile, a block of <code>cols</code> x <code>rows</code> tiles that are rendered
+ * in a single pass and then split, see {@link StreamingRenderer#paintMetaTile(MetaTile,
+ * BufferedImage)}. Rendering a meta tile reads the data once for all the tiles, and places the
+ * labels once for the whole area, so that labels crossing the tile borders are consistent.
+ * <p>
+ * An optional gutter, in pixels, can be rendered around the meta tile, and then thrown away, to
+ * avoid rendering artifacts (cut symbols, labels) at the meta tile borders.
+ * <p>
+ * Tiles are addressed by column and row, with row 0 at the top of the image.
+ */
+public class MetaTile {
+
+    final ReferencedEnvelope envelope;
+
+    final int cols;
+
+    final int rows;
+
+    final int tileWidth;
+
+    final int tileHeight;
+
+    final int gutter;
+
+    /**
+     * Builds a new meta tile
+     *
+     * @param envelope The area covered by the tiles (gutter excluded)
+     * @param cols The number of tile columns
+     * @param rows The number of tile rows
+     * @param tileWidth The width of a single tile, in pixels
+     * @param tileHeight The height of a single tile, in pixels
+     * @param gutter The extra pixels rendered around the meta tile, and not included in any tile
+     */
+    public MetaTile(ReferencedEnvelope envelope, int cols, int rows, int tileWidth,
+            int tileHeight, int gutter) {
+        if (envelope == null || envelope.isEmpty()) {
+            throw new IllegalArgumentException("The meta tile envelope must be a non empty one");
+        }
+        if (cols <= 0 || rows <= 0 || tileWidth <= 0 || tileHeight <= 0) {
+            throw new IllegalArgumentException(
+                    "Rows, columns and tile sizes must be positive, but got cols: " + cols
+                            + ", rows: " + rows + ", tile width: " + tileWidth
+                            + ", tile height: " + tileHeight);
+        }
+        if (gutter < 0) {
+            throw new IllegalArgumentException("The gutter cannot be negative, but was " + gutter);
+        }
+        this.envelope = envelope;
+        this.cols = cols;
+        this.rows = rows;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.gutter = gutter;
+    }
+
+    /**
+     * The area covered by the tiles, gutter excluded
+     *
+     * @return
+     */
+    public ReferencedEnvelope getEnvelope() {
+        return envelope;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    public int getGutter() {
+        return gutter;
+    }
+
+    /**
+     * The width of the image to be rendered, gutter included
+     *
+     * @return
+     */
+    public int getImageWidth() {
+        return cols * tileWidth + gutter * 2;
+    }
+
+    /**
+     * The height of the image to be rendered, gutter included
+     *
+     * @return
+     */
+    public int getImageHeight() {
+        return rows * tileHeight + gutter * 2;
+    }
+
+    /**
+     * The area to be painted, gutter included
+     *
+     * @return
+     */
+    public Rectangle getPaintArea() {
+        return new Rectangle(0, 0, getImageWidth(), getImageHeight());
+    }
+
+    /**
+     * The map area to be painted, that is, the meta tile envelope expanded by the gutter
+     *
+     * @return
+     */
+    public ReferencedEnvelope getRenderingEnvelope() {
+        if (gutter == 0) {
+            return envelope;
+        }
+        double dx = getPixelWidth() * gutter;
+        double dy = getPixelHeight() * gutter;
+        return new ReferencedEnvelope(envelope.getMinX() - dx, envelope.getMaxX() + dx,
+                envelope.getMinY() - dy, envelope.getMaxY() + dy,
+                envelope.getCoordinateReferenceSystem());
+    }
+
+    /**
+     * The area covered by the specified tile
+     *
+     * @param col
+     * @param row
+     * @return
+     */
+    public ReferencedEnvelope getTileEnvelope(int col, int row) {
+        checkTile(col, row);
+        double pw = getPixelWidth();
+        double ph = getPixelHeight();
+        double minX = envelope.getMinX() + col * tileWidth * pw;
+        double maxY = envelope.getMaxY() - row * tileHeight * ph;
+        return new ReferencedEnvelope(minX, minX + tileWidth * pw, maxY - tileHeight * ph, maxY,
+                envelope.getCoordinateReferenceSystem());
+    }
+
+    /**
+     * The area of the meta tile image that will be returned as the specified tile
+     *
+     * @param col
+     * @param row
+     * @return
+     */
+    public Rectangle getTileArea(int col, int row) {
+        checkTile(col, row);
+        return new Rectangle(gutter + col * tileWidth, gutter + row * tileHeight, tileWidth,
+                tileHeight);
+    }
+
+    /**
+     * Splits the rendered meta tile image into tiles. The tiles share the raster of the meta tile
+     * image, no pixel is copied.
+     *
+     * @param image The rendered meta tile image
+     * @return The tiles, indexed as [row][col]
+     */
+    public BufferedImage[][] split(BufferedImage image) {
+        if (image.getWidth() != getImageWidth() || image.getHeight() != getImageHeight()) {
+            throw new IllegalArgumentException("Expected a " + getImageWidth() + "x"
+                    + getImageHeight() + " image, but got a " + image.getWidth() + "x"
+                    + image.getHeight() + " one");
+        }
+        BufferedImage[][] tiles = new BufferedImage[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                Rectangle area = getTileArea(col, row);
+                tiles[row][col] = image.getSubimage(area.x, area.y, area.width, area.height);
+            }
+        }
+        return tiles;
+    }
+
+    private double getPixelWidth() {
+        return envelope.getWidth() / (cols * tileWidth);
+    }
+
+    private double getPixelHeight() {
+        return envelope.getHeight() / (rows * tileHeight);
+    }
+
+    private void checkTile(int col, int row) {
+        if (col < 0 || col >= cols || row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Tile " + col + "," + row
+                    + " is outside of the meta tile, which has " + cols + " columns and " + rows
+                    + " rows");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MetaTile [envelope=" + envelope + ", cols=" + cols + ", rows=" + rows
+                + ", tileWidth=" + tileWidth + ", tileHeight=" + tileHeight + ", gutter="
+                + gutter + "]";
+    }
+}
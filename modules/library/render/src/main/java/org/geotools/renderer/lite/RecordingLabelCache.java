@@ -0,0 +1,135 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.util.NumberRange;
+import org.opengis.feature.Feature;
+
+/**
+ * A label cache that just records the labels and obstacles it receives, so that they can be
+ * replayed later, in a controlled order, against the real label cache. Used when rendering
+ * layers in parallel, to keep the labelling output identical to the sequential rendering one.
+ */
+class RecordingLabelCache implements LabelCache {
+
+    /**
+     * A label or an obstacle, in the order they were put in the cache
+     */
+    static class Entry {
+        String layerId;
+
+        TextSymbolizer symbolizer;
+
+        Feature feature;
+
+        LiteShape2 shape;
+
+        NumberRange<Double> scaleRange;
+
+        Rectangle2D obstacle;
+    }
+
+    List<Entry> entries = Collections.synchronizedList(new ArrayList<Entry>());
+
+    public void put(String layerId, TextSymbolizer symbolizer, Feature feature,
+            LiteShape2 shape, NumberRange<Double> scaleRange) {
+        Entry entry = new Entry();
+        entry.layerId = layerId;
+        entry.symbolizer = symbolizer;
+        entry.feature = feature;
+        entry.shape = shape;
+        entry.scaleRange = scaleRange;
+        entries.add(entry);
+    }
+
+    public void put(Rectangle2D area) {
+        Entry entry = new Entry();
+        entry.obstacle = area;
+        entries.add(entry);
+    }
+
+    /**
+     * Sends all the recorded labels and obstacles to the specified label cache, associating the
+     * labels to the given layer id
+     *
+     * @param target
+     * @param layerId
+     */
+    public void replay(LabelCache target, String layerId) {
+        synchronized (entries) {
+            for (Entry entry : entries) {
+                if (entry.obstacle != null) {
+                    target.put(entry.obstacle);
+                } else {
+                    target.put(layerId, entry.symbolizer, entry.feature, entry.shape,
+                            entry.scaleRange);
+                }
+            }
+            entries.clear();
+        }
+    }
+
+    public void start() {
+        // nothing to do
+    }
+
+    public void startLayer(String layerId) {
+        // nothing to do
+    }
+
+    public void endLayer(String layerId, Graphics2D graphics, Rectangle displayArea) {
+        // nothing to do
+    }
+
+    public void end(Graphics2D graphics, Rectangle displayArea) {
+        // nothing to do, labels are painted by the cache receiving the replay
+    }
+
+    public void stop() {
+        entries.clear();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public void clear(String layerId) {
+        entries.clear();
+    }
+
+    public void disableLayer(String layerId) {
+        // nothing to do
+    }
+
+    public void enableLayer(String layerId) {
+        // nothing to do
+    }
+
+    public List orderedLabels() {
+        return Collections.emptyList();
+    }
+
+}
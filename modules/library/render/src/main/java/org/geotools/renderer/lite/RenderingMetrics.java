@@ -0,0 +1,147 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.geotools.map.Layer;
+
+/**
+ * Timings and counters collected during a single {@link StreamingRenderer} paint request, made
+ * available to the {@link RenderingMetricsListener} registered in the renderer. Collection is
+ * enabled only when at least one such listener is registered, otherwise the renderer does not pay
+ * for it.
+ */
+public class RenderingMetrics {
+
+    final List<LayerMetrics> layers = new ArrayList<LayerMetrics>();
+
+    final long startNanos = System.nanoTime();
+
+    long elapsedNanos;
+
+    long labelNanos;
+
+    /**
+     * The metrics of the rendered layers, in painting order
+     *
+     * @return
+     */
+    public List<LayerMetrics> getLayers() {
+        synchronized (layers) {
+            return Collections.unmodifiableList(new ArrayList<LayerMetrics>(layers));
+        }
+    }
+
+    /**
+     * The total time taken by the paint request, in nanoseconds
+     *
+     * @return
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * The time spent resolving label conflicts and painting the labels at the end of the
+     * rendering, in nanoseconds
+     *
+     * @return
+     */
+    public long getLabelNanos() {
+        return labelNanos;
+    }
+
+    /**
+     * The time spent in the specified phase, summed over all layers, in nanoseconds
+     *
+     * @param phase
+     * @return
+     */
+    public long getNanos(RenderingPhase phase) {
+        long result = 0;
+        for (LayerMetrics layer : getLayers()) {
+            result += layer.getNanos(phase);
+        }
+        return result;
+    }
+
+    /**
+     * The number of features read, summed over all layers
+     *
+     * @return
+     */
+    public long getFeatures() {
+        long result = 0;
+        for (LayerMetrics layer : getLayers()) {
+            result += layer.getFeatures();
+        }
+        return result;
+    }
+
+    /**
+     * The number of features painted or labelled, summed over all layers
+     *
+     * @return
+     */
+    public long getRenderedFeatures() {
+        long result = 0;
+        for (LayerMetrics layer : getLayers()) {
+            result += layer.getRenderedFeatures();
+        }
+        return result;
+    }
+
+    /**
+     * The number of vertices sent to the painter, summed over all layers
+     *
+     * @return
+     */
+    public long getVertices() {
+        long result = 0;
+        for (LayerMetrics layer : getLayers()) {
+            result += layer.getVertices();
+        }
+        return result;
+    }
+
+    LayerMetrics addLayer(Layer layer, String layerId) {
+        LayerMetrics result = new LayerMetrics(layer, layerId);
+        synchronized (layers) {
+            layers.add(result);
+        }
+        return result;
+    }
+
+    void end() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Rendering: ").append(elapsedNanos / 1000000)
+                .append("ms, labels ").append(labelNanos / 1000000).append("ms, features ")
+                .append(getFeatures()).append(", rendered ").append(getRenderedFeatures())
+                .append(", vertices ").append(getVertices());
+        for (LayerMetrics layer : getLayers()) {
+            sb.append("\n  ").append(layer);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import org.geotools.renderer.RenderListener;
+
+/**
+ * A {@link RenderListener} that also receives the {@link RenderingMetrics} collected during
+ * each paint request. Registering one in the {@link StreamingRenderer} enables the metrics
+ * collection.
+ */
+public interface RenderingMetricsListener extends RenderListener {
+
+    /**
+     * Called at the end of each paint request that was not aborted. As for the other
+     * {@link RenderListener} methods, very little work should be done here.
+     *
+     * @param metrics The metrics collected during the rendering
+     */
+    public void renderingCompleted(RenderingMetrics metrics);
+}
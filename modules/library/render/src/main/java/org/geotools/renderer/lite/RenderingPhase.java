@@ -0,0 +1,47 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+/**
+ * The phases the rendering time is split into by {@link LayerMetrics}
+ */
+public enum RenderingPhase {
+    /**
+     * Opening the feature iterators and reading the features from the data source
+     */
+    QUERY,
+    /**
+     * Transforming, generalizing and clipping the geometries
+     */
+    TRANSFORM,
+    /**
+     * Building the {@link org.geotools.renderer.style.Style2D} objects out of the symbolizers
+     */
+    STYLE,
+    /**
+     * Painting the shapes on the output, happens in the painter thread
+     */
+    PAINT,
+    /**
+     * Sending labels and obstacles to the label cache, and ending the layer in it
+     */
+    LABEL,
+    /**
+     * Reading, processing and painting rasters, happens in the painter thread
+     */
+    RASTER
+}
@@ -21,14 +21,17 @@ import static java.lang.Math.abs;
 import java.awt.AlphaComposite;
 import java.awt.Composite;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.RenderingHints.Key;
 import java.awt.Shape;
+import java.awt.Transparency;
 import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
@@ -37,16 +40,22 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -83,6 +92,7 @@ import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
 import org.geotools.geometry.jts.LiteShape2;
 import org.geotools.geometry.jts.OffsetCurveBuilder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.geometry.jts.ScreenShapeBuilder;
 import org.geotools.map.DirectLayer;
 import org.geotools.map.Layer;
 import org.geotools.map.MapContent;
@@ -105,6 +115,7 @@ import org.geotools.renderer.label.LabelCacheImpl.LabelRenderingMode;
 import org.geotools.renderer.lite.gridcoverage2d.GridCoverageReaderHelper;
 import org.geotools.renderer.lite.gridcoverage2d.GridCoverageRenderer;
 import org.geotools.renderer.style.LineStyle2D;
+import org.geotools.renderer.style.PolygonStyle2D;
 import org.geotools.renderer.style.SLDStyleFactory;
 import org.geotools.renderer.style.Style2D;
 import org.geotools.resources.coverage.FeatureUtilities;
@@ -214,6 +225,12 @@ public class StreamingRenderer implements GTRenderer {
     /** Tolerance used to compare doubles for equality */
     private static final double TOLERANCE = 1e-6;
 
+    /**
+     * Default value of {@link #PARALLEL_LAYER_RENDERING_MAX_KEY}, kept small as each layer
+     * rendered in parallel holds a full size back buffer
+     */
+    private static final int DEFAULT_MAX_PARALLEL_LAYERS = 2;
+
     /** The logger for the rendering module. */
     private static final Logger LOGGER = org.geotools.util.logging.Logging.getLogger("org.geotools.rendering");
 
@@ -284,6 +301,12 @@ public class StreamingRenderer implements GTRenderer {
 
     private List<RenderListener> renderListeners = new CopyOnWriteArrayList<RenderListener>();
 
+    /** The metrics of the current paint request, if any {@link RenderingMetricsListener} is registered */
+    private RenderingMetrics metrics;
+
+    /** The metrics of the layer being drawn, if metrics are being collected */
+    private LayerMetrics layerMetrics;
+
     private RenderingHints java2dHints;
     
     private int renderingBufferDEFAULT = 0;
@@ -364,6 +387,59 @@ public class StreamingRenderer implements GTRenderer {
     public static final String VECTOR_RENDERING_KEY = "vectorRenderingEnabled";
     private static boolean VECTOR_RENDERING_ENABLED_DEFAULT = false;
 
+    /**
+     * Boolean flag enabling parallel layer rendering. When enabled, and a thread pool has been
+     * provided via {@link #setThreadPool(ExecutorService)}, the features of multiple layers are
+     * read and prepared at the same time on the thread pool, each layer painting on its own back
+     * buffer. The back buffers are then merged on the output in the original layer order, and the
+     * labels are sent to the label cache in the same order, so that the output is the same as the
+     * sequential rendering one.
+     * <p>Each layer rendered in parallel allocates a translucent back buffer as big as the image
+     * being rendered, that is, width * height * 4 bytes, 64MB for a 4096x4096 map. See
+     * {@link #PARALLEL_LAYER_RENDERING_MAX_KEY} to control how many of them are prepared at the
+     * same time.</p>
+     * <p>{@link DirectLayer}s and layers using alpha compositing need to paint over the
+     * layers below them, the rendering waits for the previous layers to complete before
+     * painting them.</p>
+     */
+    public static final String PARALLEL_LAYER_RENDERING_KEY = "parallelLayerRendering";
+
+    /**
+     * Integer controlling how many layers are rendered at the same time when
+     * {@link #PARALLEL_LAYER_RENDERING_KEY} is enabled. Defaults to 2. Each of them holds a back
+     * buffer of width * height * 4 bytes until merged, so the memory used by a single request
+     * grows linearly with this value, raise it only if the maps are small or memory is plentiful.
+     */
+    public static final String PARALLEL_LAYER_RENDERING_MAX_KEY = "parallelLayerRenderingMax";
+
+    /**
+     * Boolean flag enabling the parallel preparation of labels. When enabled, a thread pool has
+     * been provided via {@link #setThreadPool(ExecutorService)}, and the label cache is a
+     * {@link LabelCacheImpl}, the text layout and the representative geometry of the labels are
+     * computed in parallel before the (sequential) conflict resolution and painting, see
+     * {@link LabelCacheImpl#setThreadPool(ExecutorService)}.
+     */
+    public static final String PARALLEL_LABEL_PREPARATION_KEY = "parallelLabelPreparation";
+
+    /**
+     * Boolean flag enabling the painting of marks and rotated graphics from pre-rasterized
+     * symbols, kept in the shared {@link SymbolRasterCache#getDefault()} cache. Painting a cached
+     * raster is much faster than rasterizing the symbol for each point, at the price of quantizing
+     * the symbol rotation and sub pixel position, see {@link SymbolRasterCache} for details.
+     * Meant for raster outputs, disabled by default.
+     */
+    public static final String SYMBOL_RASTER_CACHE_KEY = "symbolRasterCache";
+
+    /**
+     * Boolean flag controlling how lines and polygons are turned into screen space shapes. When
+     * enabled (by default) the geometries are decimated, transformed and clipped by a
+     * {@link ScreenShapeBuilder} straight into compact paths, without cloning them into a
+     * {@link LiteShape2} first. Geometries the builder cannot handle (perpendicular offsets,
+     * advanced projection handling, filled multipolygons with several parts) still go through
+     * the {@link LiteShape2} path.
+     */
+    public static final String SCREEN_SHAPE_BUILDER_KEY = "screenShapeBuilder";
+
     public static final String LABEL_CACHE_KEY = "labelCache";
     public static final String FORCE_EPSG_AXIS_ORDER_KEY = "ForceEPSGAxisOrder";
     public static final String DPI_KEY = "dpi";
@@ -405,6 +481,11 @@ public class StreamingRenderer implements GTRenderer {
 
     private PainterThread painterThread;
 
+    /**
+     * The renderers painting layers in parallel, see {@link #PARALLEL_LAYER_RENDERING_KEY}
+     */
+    private List<StreamingRenderer> layerRenderers = new CopyOnWriteArrayList<StreamingRenderer>();
+
     /**
      * Creates a new instance of LiteRenderer without a context. Use it only to
      * gain access to utility methods of this class or if you want to render
@@ -447,6 +528,8 @@ public class StreamingRenderer implements GTRenderer {
 
     /**
      * adds a listener that responds to error events of feature rendered events.
+     * If the listener is a {@link RenderingMetricsListener} the renderer will also collect
+     * and report timings and counters for each paint request.
      * 
      * @see RenderListener
      * 
@@ -485,6 +568,23 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    private boolean isMetricsRequested() {
+        for (RenderListener listener : renderListeners) {
+            if (listener instanceof RenderingMetricsListener) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void fireRenderingCompletedEvent(RenderingMetrics metrics) {
+        for (RenderListener listener : renderListeners) {
+            if (listener instanceof RenderingMetricsListener) {
+                ((RenderingMetricsListener) listener).renderingCompleted(metrics);
+            }
+        }
+    }
+
     private void fireErrorEvent(Throwable t) {
         LOGGER.log(Level.SEVERE, t.getLocalizedMessage(), t);
         if (renderListeners.size() > 0) {
@@ -509,16 +609,23 @@ public class StreamingRenderer implements GTRenderer {
      */
     public void stopRendering() {
         renderingStopRequested = true;
-        // un-block the queue in case it was filled with requests and the main
-        // thread got blocked on it
-        requests.clear();
-        // wake up the painter and put a death pill in the queue
-        painterThread.interrupt();
-        try {
-            requests.put(new EndRequest());
-        } catch(InterruptedException e) {
-            throw new RuntimeException("Interrupted while trying to put the end " +
-            		"request in the requests queue, this should never happen", e);
+        // stop the layers being rendered in parallel, if any
+        for (StreamingRenderer layerRenderer : layerRenderers) {
+            layerRenderer.stopRendering();
+        }
+        // the rendering might not have started yet (can happen for the layer renderers)
+        if (requests != null) {
+            // un-block the queue in case it was filled with requests and the main
+            // thread got blocked on it
+            requests.clear();
+            // wake up the painter and put a death pill in the queue
+            painterThread.interrupt();
+            try {
+                requests.put(new EndRequest());
+            } catch(InterruptedException e) {
+                throw new RuntimeException("Interrupted while trying to put the end " +
+                		"request in the requests queue, this should never happen", e);
+            }
         }
 
         labelCache.stop();
@@ -643,6 +750,34 @@ public class StreamingRenderer implements GTRenderer {
                 worldToScreen);
     }
 
+    /**
+     * Renders a meta tile in a single pass, and splits the result in tiles. The data is read
+     * once for the whole meta tile (gutter included), and the labels are placed once as well,
+     * so that labels crossing the tile borders are consistent between the tiles.
+     * 
+     * @param metaTile
+     *            The meta tile to be rendered
+     * @param image
+     *            The image the meta tile will be painted on, must be
+     *            {@link MetaTile#getImageWidth()} x {@link MetaTile#getImageHeight()} pixels
+     * @return The tiles, indexed as [row][col], sharing the raster of the meta tile image
+     */
+    public BufferedImage[][] paintMetaTile(MetaTile metaTile, BufferedImage image) {
+        if (image.getWidth() != metaTile.getImageWidth()
+                || image.getHeight() != metaTile.getImageHeight()) {
+            throw new IllegalArgumentException("The image size should be "
+                    + metaTile.getImageWidth() + "x" + metaTile.getImageHeight() + " but it's "
+                    + image.getWidth() + "x" + image.getHeight());
+        }
+        Graphics2D graphics = image.createGraphics();
+        try {
+            paint(graphics, metaTile.getPaintArea(), metaTile.getRenderingEnvelope());
+        } finally {
+            graphics.dispose();
+        }
+        return metaTile.split(image);
+    }
+
     private double computeScale(ReferencedEnvelope envelope, Rectangle paintArea, 
             AffineTransform worldToScreen, Map hints) {
         if(getScaleComputationMethod().equals(SCALE_ACCURATE)) {
@@ -715,6 +850,7 @@ public class StreamingRenderer implements GTRenderer {
         this.screenSize = paintArea;
         this.worldToScreenTransform = worldToScreen;
         error = 0;
+        metrics = isMetricsRequested() ? new RenderingMetrics() : null;
         if (java2dHints != null)
             graphics.setRenderingHints(java2dHints);
         // add the anchor for graphic fills
@@ -796,47 +932,30 @@ public class StreamingRenderer implements GTRenderer {
                 labelCache.start();
                 if(labelCache instanceof LabelCacheImpl) {
                     ((LabelCacheImpl) labelCache).setLabelRenderingMode(LabelRenderingMode.valueOf(getTextRenderingMethod()));
+                    ((LabelCacheImpl) labelCache).setThreadPool(isParallelLabelPreparationEnabled() ? threadPool : null);
                 }
                 
-                for (Layer layer : currentMapContent.layers()) {
-                    layerCounter++;
-                    String layerId = String.valueOf(layerCounter);
-                    if (!layer.isVisible()) {
-                        // Only render layer when layer is visible
-                        continue;
-                    }
-        
+                if (isParallelLayerRenderingEnabled()) {
+                    layerCounter = drawLayersParallel(graphics, compositingGraphic,
+                            currentMapContent.layers(), layerCounter);
                     if (renderingStopRequested) {
                         return;
                     }
-
-                    labelCache.startLayer(layerId);
-                    if (layer instanceof DirectLayer) {
-                        RenderingRequest request = new RenderDirectLayerRequest(compositingGraphic,
-                                (DirectLayer) layer);
-                        try {
-                            requests.put(request);
-                        } catch (InterruptedException e) {
-                            fireErrorEvent(e);
-                        }
-                    } else if (layer instanceof ZGroupLayer) {
-                        try {
-                            ZGroupLayer zGroup = (ZGroupLayer) layer;
-                            zGroup.drawFeatures(compositingGraphic, this, layerId);
-                        } catch (Throwable t) {
-                            fireErrorEvent(t);
+                } else {
+                    for (Layer layer : currentMapContent.layers()) {
+                        layerCounter++;
+                        String layerId = String.valueOf(layerCounter);
+                        if (!layer.isVisible()) {
+                            // Only render layer when layer is visible
+                            continue;
                         }
-                    } else {
-                        try {
-                            // extract the feature type stylers from the style object
-                            // and process them
-                            processStylers(compositingGraphic, layer, layerId);
-                        } catch (Throwable t) {
-                            fireErrorEvent(t);
+
+                        if (renderingStopRequested) {
+                            return;
                         }
+
+                        drawLayer(graphics, compositingGraphic, layer, layerId);
                     }
-        
-                    labelCache.endLayer(layerId, graphics, screenSize);
                 }
                 
                 // have we been painting on a back buffer? If so, merge on the main graphic
@@ -871,7 +990,13 @@ public class StreamingRenderer implements GTRenderer {
         }
         
         if(!renderingStopRequested) {
+            long labelStart = metrics != null ? System.nanoTime() : 0;
             labelCache.end(graphics, paintArea);
+            if (metrics != null) {
+                metrics.labelNanos = System.nanoTime() - labelStart;
+                metrics.end();
+                fireRenderingCompletedEvent(metrics);
+            }
         } else {
             labelCache.clear();
         }
@@ -890,6 +1015,225 @@ public class StreamingRenderer implements GTRenderer {
         
     }
 
+    /**
+     * Draws a single layer, sending its labels to the label cache
+     * 
+     * @param graphics The main graphics
+     * @param compositingGraphic The graphics of the compositing group the layer is part of
+     * @param layer The layer to be drawn
+     * @param layerId Handle used to identify the layer in the {@link LabelCache}
+     */
+    private void drawLayer(Graphics2D graphics, Graphics2D compositingGraphic, Layer layer,
+            String layerId) {
+        // layers rendered in parallel get their metrics set up in advance, to preserve the order
+        if (metrics != null && layerMetrics == null) {
+            layerMetrics = metrics.addLayer(layer, layerId);
+        }
+        if (layerMetrics != null) {
+            layerMetrics.start();
+        }
+        labelCache.startLayer(layerId);
+        if (layer instanceof DirectLayer) {
+            RenderingRequest request = new RenderDirectLayerRequest(compositingGraphic,
+                    (DirectLayer) layer);
+            try {
+                requests.put(request);
+            } catch (InterruptedException e) {
+                fireErrorEvent(e);
+            }
+        } else if (layer instanceof ZGroupLayer) {
+            try {
+                ZGroupLayer zGroup = (ZGroupLayer) layer;
+                zGroup.drawFeatures(compositingGraphic, this, layerId);
+            } catch (Throwable t) {
+                fireErrorEvent(t);
+            }
+        } else {
+            try {
+                // extract the feature type stylers from the style object
+                // and process them
+                processStylers(compositingGraphic, layer, layerId);
+            } catch (Throwable t) {
+                fireErrorEvent(t);
+            }
+        }
+
+        long labelStart = layerMetrics != null ? System.nanoTime() : 0;
+        labelCache.endLayer(layerId, graphics, screenSize);
+        if (layerMetrics != null) {
+            layerMetrics.addElapsed(RenderingPhase.LABEL, labelStart);
+            layerMetrics.end();
+            layerMetrics = null;
+        }
+    }
+
+    /**
+     * Draws the layers of a compositing group reading and preparing them in parallel, each
+     * on its own back buffer, see {@link #PARALLEL_LAYER_RENDERING_KEY}. The back buffers are
+     * merged, and the labels sent to the label cache, in the original layer order.
+     * 
+     * @return The updated layer counter
+     */
+    private int drawLayersParallel(Graphics2D graphics, Graphics2D compositingGraphic,
+            List<Layer> layers, int layerCounter) {
+        final int maxParallelLayers = getMaxParallelLayers();
+        final GraphicsConfiguration configuration = graphics.getDeviceConfiguration();
+        final RenderingHints hints = graphics.getRenderingHints();
+        LinkedList<ParallelLayer> pending = new LinkedList<ParallelLayer>();
+        try {
+            for (Layer layer : layers) {
+                layerCounter++;
+                String layerId = String.valueOf(layerCounter);
+                if (!layer.isVisible()) {
+                    // Only render layer when layer is visible
+                    continue;
+                }
+
+                if (renderingStopRequested) {
+                    break;
+                }
+
+                if (isParallelRenderable(layer)) {
+                    ParallelLayer parallelLayer = new ParallelLayer(layer, layerId,
+                            configuration, hints);
+                    pending.add(parallelLayer);
+                    try {
+                        threadPool.execute(parallelLayer.future);
+                    } catch (RejectedExecutionException e) {
+                        // will be run by this thread when completing it
+                        LOGGER.log(Level.FINE, "Thread pool rejected the layer rendering", e);
+                    }
+                    while (pending.size() >= maxParallelLayers) {
+                        completeParallelLayer(graphics, compositingGraphic, pending.removeFirst());
+                    }
+                } else {
+                    // this layer needs the ones below it to be painted already
+                    while (!pending.isEmpty()) {
+                        completeParallelLayer(graphics, compositingGraphic, pending.removeFirst());
+                    }
+                    drawLayer(graphics, compositingGraphic, layer, layerId);
+                }
+            }
+        } finally {
+            while (!pending.isEmpty()) {
+                completeParallelLayer(graphics, compositingGraphic, pending.removeFirst());
+            }
+        }
+
+        return layerCounter;
+    }
+
+    /**
+     * Waits for a layer rendered in parallel to complete, running it in the current thread if
+     * the thread pool did not start it yet, and then merges its back buffer and labels in the
+     * output
+     */
+    private void completeParallelLayer(Graphics2D graphics, Graphics2D compositingGraphic,
+            ParallelLayer parallelLayer) {
+        // FutureTask.run() does nothing if the task is already running or completed,
+        // this ensures progress even if the pool is saturated (the painter thread is also
+        // using it)
+        parallelLayer.future.run();
+        try {
+            parallelLayer.future.get();
+        } catch (ExecutionException e) {
+            fireErrorEvent(e.getCause());
+        } catch (InterruptedException e) {
+            fireErrorEvent(e);
+        } finally {
+            layerRenderers.remove(parallelLayer.renderer);
+        }
+
+        if (renderingStopRequested) {
+            if (parallelLayer.image != null) {
+                parallelLayer.graphics.dispose();
+            }
+            return;
+        }
+
+        labelCache.startLayer(parallelLayer.layerId);
+        parallelLayer.labels.replay(labelCache, parallelLayer.layerId);
+        labelCache.endLayer(parallelLayer.layerId, graphics, screenSize);
+        if (parallelLayer.image != null) {
+            try {
+                requests.put(new MergeParallelLayerRequest(compositingGraphic, parallelLayer));
+            } catch (InterruptedException e) {
+                fireErrorEvent(e);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the layer can be painted on its own back buffer, without having the
+     * layers below it painted already
+     */
+    private boolean isParallelRenderable(Layer layer) {
+        if (layer instanceof DirectLayer) {
+            return false;
+        } else if (layer instanceof ZGroupLayer) {
+            return ((ZGroupLayer) layer).getComposite() == null;
+        } else if (layer.getStyle() == null) {
+            return false;
+        }
+        for (FeatureTypeStyle fts : layer.getStyle().featureTypeStyles()) {
+            if (SLDStyleFactory.getComposite(fts.getOptions()) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds a renderer sharing the configuration and the current paint state of this one,
+     * used to draw a single layer in parallel with others
+     * 
+     * @param labels The label cache receiving the labels of the layer
+     */
+    StreamingRenderer createLayerRenderer(LabelCache labels) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        Map hints = new HashMap();
+        if (rendererHints != null) {
+            hints.putAll(rendererHints);
+        }
+        hints.put(LABEL_CACHE_KEY, labels);
+        hints.put(PARALLEL_LAYER_RENDERING_KEY, Boolean.FALSE);
+        renderer.setRendererHints(hints);
+        renderer.painter = new StyledShapePainter(labels);
+        renderer.painter.setSymbolRasterCache(painter.getSymbolRasterCache());
+        renderer.setJava2DHints(java2dHints);
+        renderer.setGeneralizationDistance(generalizationDistance);
+        renderer.setInteractive(interactive);
+        renderer.mapContent = mapContent;
+        for (RenderListener listener : renderListeners) {
+            renderer.addRenderListener(listener);
+        }
+        // share the paint state
+        renderer.destinationCrs = destinationCrs;
+        renderer.mapExtent = mapExtent;
+        renderer.originalMapExtent = originalMapExtent;
+        renderer.screenSize = screenSize;
+        renderer.worldToScreenTransform = worldToScreenTransform;
+        renderer.scaleDenominator = scaleDenominator;
+        renderer.canTransform = canTransform;
+        renderer.metrics = metrics;
+
+        return renderer;
+    }
+
+    /**
+     * Draws a single layer on the specified graphics. Used on renderers built by
+     * {@link #createLayerRenderer(LabelCache)}, which already run in the renderer thread pool
+     * and paint on a private back buffer, so the painting requests are executed in the
+     * calling thread instead of being handed over to a painter thread
+     */
+    void drawLayerStandalone(Graphics2D graphics, Layer layer, String layerId) {
+        requests = new DirectRenderingQueue();
+        painterThread = new PainterThread(requests);
+        if (!renderingStopRequested) {
+            drawLayer(graphics, graphics, layer, layerId);
+        }
+    }
+
     /**
      * Builds the blocking queue used to bridge between the data loading thread and
      * the painting one
@@ -1443,6 +1787,74 @@ public class StreamingRenderer implements GTRenderer {
         return Boolean.TRUE.equals(result);
     }
 
+    /**
+     * Checks if parallel layer rendering is enabled, or not. See
+     * {@link #PARALLEL_LAYER_RENDERING_KEY} description for a full explanation.
+     */
+    private boolean isParallelLayerRenderingEnabled() {
+        // the layer back buffers are merged on the untransformed graphics
+        if (threadPool == null || concatTransforms || rendererHints == null)
+            return false;
+        Object result = rendererHints.get(PARALLEL_LAYER_RENDERING_KEY);
+        if (result == null)
+            return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Checks if parallel label preparation is enabled, or not. See
+     * {@link #PARALLEL_LABEL_PREPARATION_KEY} description for a full explanation.
+     */
+    private boolean isParallelLabelPreparationEnabled() {
+        if (threadPool == null || rendererHints == null)
+            return false;
+        Object result = rendererHints.get(PARALLEL_LABEL_PREPARATION_KEY);
+        if (result == null)
+            return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Checks if painting point symbols from the symbol raster cache is enabled, or not. See
+     * {@link #SYMBOL_RASTER_CACHE_KEY} description for a full explanation.
+     */
+    private boolean isSymbolRasterCacheEnabled() {
+        if (rendererHints == null)
+            return false;
+        Object result = rendererHints.get(SYMBOL_RASTER_CACHE_KEY);
+        if (result == null)
+            return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Checks if lines and polygons are turned into screen shapes by a {@link ScreenShapeBuilder},
+     * or not. See {@link #SCREEN_SHAPE_BUILDER_KEY} description for a full explanation.
+     */
+    private boolean isScreenShapeBuilderEnabled() {
+        if (rendererHints == null)
+            return true;
+        Object result = rendererHints.get(SCREEN_SHAPE_BUILDER_KEY);
+        if (result == null)
+            return true;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Returns the maximum number of layers rendered in parallel, see
+     * {@link #PARALLEL_LAYER_RENDERING_MAX_KEY}
+     */
+    private int getMaxParallelLayers() {
+        int result = DEFAULT_MAX_PARALLEL_LAYERS;
+        if (rendererHints != null) {
+            Object value = rendererHints.get(PARALLEL_LAYER_RENDERING_MAX_KEY);
+            if (value instanceof Number) {
+                result = ((Number) value).intValue();
+            }
+        }
+        return Math.max(1, result);
+    }
+
     /**
      * Checks if the advanced projection handling is enabled
      * @return
@@ -2278,8 +2690,7 @@ public class StreamingRenderer implements GTRenderer {
         
         // for each lite feature type style, scan the whole collection and draw
         for (LiteFeatureTypeStyle liteFeatureTypeStyle : lfts) {
-            try (FeatureIterator<?> featureIterator = ((FeatureCollection<?, ?>) features)
-                    .features()) {
+            try (FeatureIterator<?> featureIterator = openFeatures(features)) {
                 if( featureIterator == null ){
                     return; // nothing to do
                 }
@@ -2308,6 +2719,23 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
 
+    /**
+     * Opens the feature iterator, tracking the time spent reading features if metrics are being
+     * collected
+     */
+    private FeatureIterator<?> openFeatures(FeatureCollection<?, ?> features) {
+        if (layerMetrics == null) {
+            return features.features();
+        }
+        long start = System.nanoTime();
+        FeatureIterator<? extends Feature> iterator = features.features();
+        layerMetrics.addElapsed(RenderingPhase.QUERY, start);
+        if (iterator == null) {
+            return null;
+        }
+        return new LayerMetrics.MetricsFeatureIterator(iterator, layerMetrics);
+    }
+
     /**
      * Builds a new renderable feature for the given layerId and set of lite feature type styles
      * 
@@ -2329,7 +2757,7 @@ public class StreamingRenderer implements GTRenderer {
     private void drawOptimized(final Graphics2D graphics, String layerId,
             FeatureCollection features, final List<LiteFeatureTypeStyle> lfts) {
 
-        try (FeatureIterator<?> iterator = features.features()) {
+        try (FeatureIterator<?> iterator = openFeatures(features)) {
             if (iterator == null)
                 return; // nothing to do
 
@@ -2484,6 +2912,9 @@ public class StreamingRenderer implements GTRenderer {
             final List<Symbolizer> symbolizers)
             throws Exception {
         int paintCommands = 0;
+        final LayerMetrics lm = layerMetrics;
+        final boolean screenShapeBuilderEnabled = isScreenShapeBuilderEnabled();
+        long start = 0;
         
         for (Symbolizer symbolizer : symbolizers) {
 
@@ -2531,28 +2962,76 @@ public class StreamingRenderer implements GTRenderer {
                 // FEATURE
                 //
                 // /////////////////////////////////////////////////////////////////
+                Style2D style = null;
+                if (screenShapeBuilderEnabled && !(symbolizer instanceof TextSymbolizer)
+                        && !(symbolizer instanceof PointSymbolizer)) {
+                    if (lm != null) {
+                        start = System.nanoTime();
+                    }
+                    style = styleFactory.createStyle(drawMe.feature, symbolizer);
+                    if (lm != null) {
+                        lm.addElapsed(RenderingPhase.STYLE, start);
+                    }
+                    if (drawMe.isScreenShapeSupported(symbolizer, style)) {
+                        if (lm != null) {
+                            start = System.nanoTime();
+                        }
+                        Shape screenShape = drawMe.getScreenShape(symbolizer,
+                                getClipEnvelope(style, drawMe.metaBuffer));
+                        if (lm != null) {
+                            lm.addElapsed(RenderingPhase.TRANSFORM, start);
+                        }
+                        if (screenShape != null) {
+                            PaintShapeRequest paintShapeRequest = new PaintShapeRequest(graphics,
+                                    screenShape, style, scaleDenominator);
+                            if (symbolizer.hasOption("labelObstacle")) {
+                                paintShapeRequest.setLabelObstacle(true);
+                            }
+                            requests.put(paintShapeRequest);
+                            paintCommands++;
+                        }
+                        continue;
+                    }
+                }
+
+                if (lm != null) {
+                    start = System.nanoTime();
+                }
                 LiteShape2 shape = drawMe.getShape(symbolizer, worldToScreenTransform);
+                if (lm != null) {
+                    lm.addElapsed(RenderingPhase.TRANSFORM, start);
+                }
                 if(shape == null) {
                     continue;
                 }
                 
                 if (symbolizer instanceof TextSymbolizer && drawMe.feature instanceof Feature) {
+                    if (lm != null) {
+                        start = System.nanoTime();
+                    }
                     labelCache.put(drawMe.layerId, (TextSymbolizer) symbolizer, drawMe.feature,
                             shape,
                             null);
+                    if (lm != null) {
+                        lm.addElapsed(RenderingPhase.LABEL, start);
+                    }
                     paintCommands++;
                 } else {
-                    Style2D style = styleFactory.createStyle(drawMe.feature, symbolizer);
+                    if (style == null) {
+                        if (lm != null) {
+                            start = System.nanoTime();
+                        }
+                        style = styleFactory.createStyle(drawMe.feature, symbolizer);
+                        if (lm != null) {
+                            lm.addElapsed(RenderingPhase.STYLE, start);
+                        }
+                    }
+                    if (lm != null) {
+                        start = System.nanoTime();
+                    }
                     
-                    // clip to the visible area + the size of the symbolizer (with some extra 
-                    // to make sure we get no artifacts from polygon new borders)
-                    double size = RendererUtilities.getStyle2DSize(style);
-                    // take into account the meta buffer to try and clip all geometries by the same
-                    // amount
-                    double clipBuffer = Math.max(size / 2, drawMe.metaBuffer) + 10;
-                    Envelope env = new Envelope(screenSize.getMinX(), screenSize.getMaxX(), screenSize.getMinY(), screenSize.getMaxY());
-                    env.expandBy(clipBuffer);
-                    final GeometryClipper clipper = new GeometryClipper(env);
+                    final GeometryClipper clipper = new GeometryClipper(getClipEnvelope(style,
+                            drawMe.metaBuffer));
                     Geometry source = shape.getGeometry();
                     // we need to preserve the topology if we end up applying buffer for perp. offset
                     boolean preserveTopology = style instanceof LineStyle2D && ((LineStyle2D) style).getPerpendicularOffset() != 0 &&
@@ -2584,10 +3063,16 @@ public class StreamingRenderer implements GTRenderer {
                             g = offseter.offset(g);
                         }
                     }
+                    if (lm != null) {
+                        lm.addElapsed(RenderingPhase.TRANSFORM, start);
+                    }
                     if(g == null) {
                         continue;
                     } else {
                         shape = new LiteShape2(g, null, null, false);
+                        if (lm != null) {
+                            lm.vertices += g.getNumPoints();
+                        }
                     }
                     
                     PaintShapeRequest paintShapeRequest = 
@@ -2605,9 +3090,26 @@ public class StreamingRenderer implements GTRenderer {
         // if it has been clipped out or eliminated by the screenmap we won't emit the event instead
         if(paintCommands > 0) {
             requests.put(new FeatureRenderedRequest(drawMe.feature));
+            if (lm != null) {
+                lm.renderedFeatures++;
+            }
         }
     }
 
+    /**
+     * Returns the area geometries are clipped to, the visible area plus the size of the symbolizer
+     * (with some extra to make sure we get no artifacts from polygon new borders)
+     */
+    private Envelope getClipEnvelope(Style2D style, int metaBuffer) {
+        double size = RendererUtilities.getStyle2DSize(style);
+        // take into account the meta buffer to try and clip all geometries by the same
+        // amount
+        double clipBuffer = Math.max(size / 2, metaBuffer) + 10;
+        Envelope env = new Envelope(screenSize.getMinX(), screenSize.getMaxX(), screenSize.getMinY(), screenSize.getMaxY());
+        env.expandBy(clipBuffer);
+        return env;
+    }
+
     /**
      * Builds a raster grid geometry that will be used for reading, taking into account
      * the original map extent and target paint area, and expanding the target raster area
@@ -2842,6 +3344,14 @@ public class StreamingRenderer implements GTRenderer {
         return java2dHints;
     }
 
+    /**
+     * Sends the obstacles found while painting symbols to the specified cache, used by
+     * {@link IncrementalPanRenderer} to record them along with the labels
+     */
+    void setObstacleCache(LabelCache cache) {
+        painter.labelCache = cache;
+    }
+
     public void setRendererHints(Map hints) {
         if( hints!=null && hints.containsKey(LABEL_CACHE_KEY) ){
             LabelCache cache=(LabelCache) hints.get(LABEL_CACHE_KEY);
@@ -2857,6 +3367,8 @@ public class StreamingRenderer implements GTRenderer {
 
         // sets whether vector rendering is enabled in the SLDStyleFactory
         styleFactory.setVectorRenderingEnabled(isVectorRenderingEnabled());
+        painter.setSymbolRasterCache(isSymbolRasterCacheEnabled() ? SymbolRasterCache.getDefault()
+                : null);
     }
 
     /*
@@ -2983,51 +3495,12 @@ public class StreamingRenderer implements GTRenderer {
                 return null;
             
             try {
-                // process screenmap if necessary (only do it once, 
-                // the geometry will be transformed simplified in place and the screenmap 
-                // really needs to play against the original coordinates, plus, once we start
-                // drawing a geometry we want to apply all symbolizers on it)
-                if (screenMap != null // 
-                        && !(symbolizer instanceof PointSymbolizer) //
-                        && !(g instanceof Point)
-                        && getGeometryIndex(g) == -1) {
-                    Envelope env = g.getEnvelopeInternal();
-                    if(screenMap.canSimplify(env))
-                        if (screenMap.checkAndSet(env)) {
-                            return null;
-                        } else {
-                            g = screenMap.getSimplifiedShape(env.getMinX(), env.getMinY(), 
-                                    env.getMaxX(), env.getMaxY(), g.getFactory(), g.getClass());
-                        }
+                g = applyScreenMap(g, symbolizer);
+                if (g == null) {
+                    return null;
                 }
     
-                SymbolizerAssociation sa = (SymbolizerAssociation) symbolizerAssociationHT
-                .get(symbolizer);
-                MathTransform crsTransform = null;
-                MathTransform atTransform = null;
-                MathTransform fullTransform = null;
-                if (sa == null) {
-                    sa = new SymbolizerAssociation();
-                    sa.crs = (findGeometryCS(feature, symbolizer));
-                    try {
-                        crsTransform = buildTransform(sa.crs, destinationCrs);
-                        atTransform = ProjectiveTransform.create(worldToScreenTransform);
-                        fullTransform = buildFullTransform(sa.crs, destinationCrs, at);
-                    } catch (Exception e) {
-                        // fall through
-                        LOGGER.log(Level.WARNING, e.getLocalizedMessage(), e);
-                    }
-                    sa.xform = fullTransform;
-                    sa.crsxform = crsTransform;
-                    sa.axform = atTransform;
-                    if(projectionHandler != null) {
-                        sa.rxform = projectionHandler.getRenderingTransform(sa.crsxform);
-                    } else {
-                        sa.rxform = sa.crsxform;
-                    }
-    
-                    symbolizerAssociationHT.put(symbolizer, sa);
-                }
+                SymbolizerAssociation sa = getSymbolizerAssociation(symbolizer, at);
 
                 // some shapes may be too close to projection boundaries to
                 // get transformed, try to be lenient
@@ -3072,6 +3545,139 @@ public class StreamingRenderer implements GTRenderer {
             }
         }
         
+        /**
+         * Returns true if the geometry of the feature can be turned into a screen shape by a
+         * {@link ScreenShapeBuilder} for the given symbolizer and style, see
+         * {@link #getScreenShape(Symbolizer, Envelope)}
+         */
+        public boolean isScreenShapeSupported(Symbolizer symbolizer, Style2D style)
+                throws FactoryException {
+            // the builder does not slice geometries along the projection boundaries, and
+            // offset lines need the JTS geometry
+            if (projectionHandler != null || !(style instanceof LineStyle2D)
+                    || ((LineStyle2D) style).getPerpendicularOffset() != 0) {
+                return false;
+            }
+            Geometry g = findGeometry(feature, symbolizer);
+            // the geometry has already been transformed in place by another symbolizer
+            if (g != null && getGeometryIndex(g) != -1) {
+                return false;
+            }
+            // overlapping polygons in a multipolygon are filled one at a time, see
+            // StyledShapePainter.fillLiteShape
+            if (g instanceof MultiPolygon && g.getNumGeometries() > 1
+                    && style instanceof PolygonStyle2D && ((PolygonStyle2D) style).getFill() != null) {
+                return false;
+            }
+            MathTransform xform = getSymbolizerAssociation(symbolizer, worldToScreenTransform).xform;
+            return xform == null
+                    || (xform.getSourceDimensions() == 2 && xform.getTargetDimensions() == 2);
+        }
+
+        /**
+         * Decimates, transforms and clips the geometry of the feature into a screen space shape,
+         * without cloning it. Returns null if there is nothing to paint.
+         * 
+         * @param symbolizer The symbolizer the geometry is extracted for
+         * @param clip The screen area the geometry is clipped to
+         */
+        public Shape getScreenShape(Symbolizer symbolizer, Envelope clip) throws FactoryException {
+            Geometry g = findGeometry(feature, symbolizer);
+            if (g == null || g.isEmpty())
+                return null;
+
+            try {
+                g = applyScreenMap(g, symbolizer);
+                if (g == null) {
+                    return null;
+                }
+
+                SymbolizerAssociation sa = getSymbolizerAssociation(symbolizer,
+                        worldToScreenTransform);
+                if (sa.screenShapeBuilder == null) {
+                    sa.screenShapeBuilder = new ScreenShapeBuilder(sa.xform,
+                            getDecimator(sa.xform), null);
+                }
+                ScreenShapeBuilder builder = sa.screenShapeBuilder;
+                builder.setClip(new Rectangle2D.Double(clip.getMinX(), clip.getMinY(),
+                        clip.getWidth(), clip.getHeight()));
+                builder.build(g);
+                if (builder.isEmpty()) {
+                    return null;
+                }
+                if (layerMetrics != null) {
+                    layerMetrics.vertices += builder.getPointCount();
+                }
+                // the painting happens later, possibly in another thread, take a copy
+                return builder.toPath();
+            } catch (TransformException te) {
+                LOGGER.log(Level.FINE, te.getLocalizedMessage(), te);
+                fireErrorEvent(te);
+                return null;
+            } catch (AssertionError ae) {
+                LOGGER.log(Level.FINE, ae.getLocalizedMessage(), ae);
+                fireErrorEvent(ae);
+                return null;
+            }
+        }
+
+        /**
+         * Processes the screenmap if necessary, returning the geometry to be painted (possibly
+         * simplified), or null if the feature does not need to be painted
+         */
+        private Geometry applyScreenMap(Geometry g, Symbolizer symbolizer) {
+            // process screenmap if necessary (only do it once, 
+            // the geometry will be transformed simplified in place and the screenmap 
+            // really needs to play against the original coordinates, plus, once we start
+            // drawing a geometry we want to apply all symbolizers on it)
+            if (screenMap != null // 
+                    && !(symbolizer instanceof PointSymbolizer) //
+                    && !(g instanceof Point)
+                    && getGeometryIndex(g) == -1) {
+                Envelope env = g.getEnvelopeInternal();
+                if(screenMap.canSimplify(env))
+                    if (screenMap.checkAndSet(env)) {
+                        return null;
+                    } else {
+                        g = screenMap.getSimplifiedShape(env.getMinX(), env.getMinY(), 
+                                env.getMaxX(), env.getMaxY(), g.getFactory(), g.getClass());
+                    }
+            }
+            return g;
+        }
+
+        private SymbolizerAssociation getSymbolizerAssociation(Symbolizer symbolizer,
+                AffineTransform at) throws FactoryException {
+            SymbolizerAssociation sa = (SymbolizerAssociation) symbolizerAssociationHT
+            .get(symbolizer);
+            MathTransform crsTransform = null;
+            MathTransform atTransform = null;
+            MathTransform fullTransform = null;
+            if (sa == null) {
+                sa = new SymbolizerAssociation();
+                sa.crs = (findGeometryCS(feature, symbolizer));
+                try {
+                    crsTransform = buildTransform(sa.crs, destinationCrs);
+                    atTransform = ProjectiveTransform.create(worldToScreenTransform);
+                    fullTransform = buildFullTransform(sa.crs, destinationCrs, at);
+                } catch (Exception e) {
+                    // fall through
+                    LOGGER.log(Level.WARNING, e.getLocalizedMessage(), e);
+                }
+                sa.xform = fullTransform;
+                sa.crsxform = crsTransform;
+                sa.axform = atTransform;
+                if(projectionHandler != null) {
+                    sa.rxform = projectionHandler.getRenderingTransform(sa.crsxform);
+                } else {
+                    sa.rxform = sa.crsxform;
+                }
+
+                symbolizerAssociationHT.put(symbolizer, sa);
+            }
+            return sa;
+        }
+
         private int getGeometryIndex(Geometry g) {
             for (int i = 0; i < geometries.size(); i++) {
                 if(geometries.get(i) == g) {
@@ -3195,7 +3801,7 @@ public class StreamingRenderer implements GTRenderer {
     protected class PaintShapeRequest extends RenderingRequest {
         Graphics2D graphic;
         
-        LiteShape2 shape;
+        Shape shape;
 
         Style2D style;
 
@@ -3203,7 +3809,9 @@ public class StreamingRenderer implements GTRenderer {
 
         boolean labelObstacle = false;
 
-        public PaintShapeRequest(Graphics2D graphic, LiteShape2 shape, Style2D style, double scale) {
+        final LayerMetrics metrics = layerMetrics;
+
+        public PaintShapeRequest(Graphics2D graphic, Shape shape, Style2D style, double scale) {
             this.graphic = graphic;
             this.shape = shape;
             this.style = style;
@@ -3220,10 +3828,15 @@ public class StreamingRenderer implements GTRenderer {
                 ((DelayedBackbufferGraphic) graphic).init();
             }
             
+            long start = metrics != null ? System.nanoTime() : 0;
             try {
                 painter.paint(graphic, shape, style, scale, labelObstacle);
             } catch(Throwable t) {
                 fireErrorEvent(t);
+            } finally {
+                if (metrics != null) {
+                    metrics.addElapsed(RenderingPhase.PAINT, start);
+                }
             }
         }
     }
@@ -3322,6 +3935,80 @@ public class StreamingRenderer implements GTRenderer {
 
     }
 
+    /**
+     * A request to merge the back buffer of a layer rendered in parallel on the output
+     */
+    protected class MergeParallelLayerRequest extends RenderingRequest {
+        Graphics2D graphics;
+
+        ParallelLayer layer;
+
+        public MergeParallelLayerRequest(Graphics2D graphics, ParallelLayer layer) {
+            this.graphics = graphics;
+            this.layer = layer;
+        }
+
+        @Override
+        void execute() {
+            if (graphics instanceof DelayedBackbufferGraphic) {
+                ((DelayedBackbufferGraphic) graphics).init();
+            }
+            layer.graphics.dispose();
+            graphics.setComposite(AlphaComposite.SrcOver);
+            graphics.drawImage(layer.image, 0, 0, null);
+            layer.image = null;
+        }
+    }
+
+    /**
+     * A layer drawn on its own back buffer by a private renderer, in parallel with others
+     */
+    class ParallelLayer implements Callable<Void> {
+        final Layer layer;
+
+        final String layerId;
+
+        final RecordingLabelCache labels = new RecordingLabelCache();
+
+        final StreamingRenderer renderer;
+
+        final GraphicsConfiguration configuration;
+
+        final RenderingHints hints;
+
+        final FutureTask<Void> future = new FutureTask<Void>(this);
+
+        BufferedImage image;
+
+        Graphics2D graphics;
+
+        ParallelLayer(Layer layer, String layerId, GraphicsConfiguration configuration,
+                RenderingHints hints) {
+            this.layer = layer;
+            this.layerId = layerId;
+            this.configuration = configuration;
+            this.hints = hints;
+            this.renderer = createLayerRenderer(labels);
+            if (metrics != null) {
+                renderer.layerMetrics = metrics.addLayer(layer, layerId);
+            }
+            layerRenderers.add(renderer);
+        }
+
+        public Void call() throws Exception {
+            if (renderingStopRequested) {
+                return null;
+            }
+            image = configuration.createCompatibleImage(screenSize.width, screenSize.height,
+                    Transparency.TRANSLUCENT);
+            graphics = image.createGraphics();
+            graphics.setRenderingHints(hints);
+            graphics.setClip(screenSize);
+            renderer.drawLayerStandalone(graphics, layer, layerId);
+            return null;
+        }
+    }
+
     /**
      * A request to render a raster
      * @author aaime
@@ -3334,6 +4021,7 @@ public class StreamingRenderer implements GTRenderer {
         private RasterSymbolizer symbolizer;
         private CoordinateReferenceSystem destinationCRS;
         private AffineTransform worldToScreen;
+        private final LayerMetrics metrics = layerMetrics;
 
         public RenderRasterRequest(Graphics2D graphics, GridCoverage2D coverage, boolean disposeCoverage,
                 RasterSymbolizer symbolizer, CoordinateReferenceSystem destinationCRS,
@@ -3367,9 +4055,13 @@ public class StreamingRenderer implements GTRenderer {
                 final GridCoverageRenderer gcr = new GridCoverageRenderer(destinationCRS,
                         originalMapExtent, screenSize, worldToScreen, java2dHints);
 
+                long start = metrics != null ? System.nanoTime() : 0;
                 try {
                     gcr.paint(graphics, coverage, symbolizer);
                 } finally {
+                    if (metrics != null) {
+                        metrics.addElapsed(RenderingPhase.RASTER, start);
+                    }
                     // we need to try and dispose this coverage if was created on purpose for
                     // rendering
                     if (coverage != null && disposeCoverage) {
@@ -3413,6 +4105,8 @@ public class StreamingRenderer implements GTRenderer {
         
         private Interpolation interpolation;
 
+        private final LayerMetrics metrics = layerMetrics;
+
         public RenderCoverageReaderRequest(Graphics2D graphics, GridCoverage2DReader reader,
                 GeneralParameterValue[] readParams,
                 RasterSymbolizer symbolizer, CoordinateReferenceSystem destinationCRS,
@@ -3452,7 +4146,14 @@ public class StreamingRenderer implements GTRenderer {
                 // Checks on the Reprojection parameters
                 gcr.setAdvancedProjectionHandlingEnabled(isAdvancedProjectionHandlingEnabled());
                 gcr.setWrapEnabled(isMapWrappingEnabled());
-                gcr.paint(graphics, reader, readParams, symbolizer, interpolation, null);
+                long start = metrics != null ? System.nanoTime() : 0;
+                try {
+                    gcr.paint(graphics, reader, readParams, symbolizer, interpolation, null);
+                } finally {
+                    if (metrics != null) {
+                        metrics.addElapsed(RenderingPhase.RASTER, start);
+                    }
+                }
 
                 if (LOGGER.isLoggable(Level.FINE)) {
                     LOGGER.fine("Raster rendered");
@@ -3558,6 +4259,30 @@ public class StreamingRenderer implements GTRenderer {
         
     }
     
+    /**
+     * A rendering queue that executes the requests as soon as they are put in it, used when
+     * painting a layer standalone on its own back buffer
+     */
+    class DirectRenderingQueue extends RenderingBlockingQueue {
+        private static final long serialVersionUID = -3212402263604466389L;
+
+        public DirectRenderingQueue() {
+            super(1);
+        }
+
+        @Override
+        public void put(RenderingRequest request) throws InterruptedException {
+            if (renderingStopRequested || request instanceof EndRequest) {
+                return;
+            }
+            try {
+                request.execute();
+            } catch (Throwable t) {
+                fireErrorEvent(t);
+            }
+        }
+    }
+
     /**
      * A blocking queue subclass with a special behavior for the occasion when the
      * rendering stop has been requested: puts are getting ignored, and take always
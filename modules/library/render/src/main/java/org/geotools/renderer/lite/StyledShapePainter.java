@@ -95,6 +95,11 @@ public final class StyledShapePainter {
      */
     LabelCache labelCache;
 
+    /**
+     * The cache of pre-rasterized point symbols, if any
+     */
+    SymbolRasterCache symbolCache;
+
     public StyledShapePainter() {
         // nothing do do, just needs to exist
     }
@@ -103,10 +108,33 @@ public final class StyledShapePainter {
         this.labelCache = cache;
     }
 
+    /**
+     * Returns the cache used to paint marks and rotated graphics as pre-rasterized symbols, or
+     * null if point symbols are painted directly
+     */
+    public SymbolRasterCache getSymbolRasterCache() {
+        return symbolCache;
+    }
+
+    /**
+     * Sets the cache used to paint marks and rotated graphics as pre-rasterized symbols. When
+     * null, the default, point symbols are painted directly.
+     * 
+     * @param symbolCache
+     */
+    public void setSymbolRasterCache(SymbolRasterCache symbolCache) {
+        this.symbolCache = symbolCache;
+    }
+
     public void paint(final Graphics2D graphics, final LiteShape2 shape,
             final Style2D style, final double scale) {
         paint(graphics, shape, style, scale, false);
     }
+
+    public void paint(final Graphics2D graphics, final LiteShape2 shape,
+            final Style2D style, final double scale, boolean isLabelObstacle) {
+        paint(graphics, (Shape) shape, style, scale, isLabelObstacle);
+    }
     
     /**
      * Invoked automatically when a polyline is about to be draw. This
@@ -115,7 +143,9 @@ public final class StyledShapePainter {
      * @param graphics
      *            The graphics in which to draw.
      * @param shape
-     *            The polygon to draw.
+     *            The polygon to draw, in screen space. Multipolygons are filled one polygon at a
+     *            time only if provided as a {@link LiteShape2}, other shapes are filled as a
+     *            whole.
      * @param style
      *            The style to apply, or <code>null</code> if none.
      * @param scale
@@ -123,7 +153,7 @@ public final class StyledShapePainter {
      * @throws FactoryException 
      * @throws TransformException 
      */
-    public void paint(final Graphics2D graphics, final LiteShape2 shape,
+    public void paint(final Graphics2D graphics, final Shape shape,
             final Style2D style, final double scale, boolean isLabelObstacle) {
         if (style == null) {
             // TODO: what's going on? Should not be reached...
@@ -189,6 +219,16 @@ public final class StyledShapePainter {
             Shape transformedShape ;
             while (!(citer.isDone())) {
                 if (citer.currentSegment(coords) != PathIterator.SEG_MOVETO) {
+                    // the label cache keeps the obstacle, cannot be reused
+                    Rectangle2D obstacle = isLabelObstacle ? new Rectangle2D.Double() : null;
+                    if (symbolCache != null
+                            && symbolCache.paintMark(graphics, ms2d, coords[0], coords[1], obstacle)) {
+                        if (isLabelObstacle) {
+                            labelCache.put(obstacle);
+                        }
+                        citer.next();
+                        continue;
+                    }
                     transformedShape = ms2d.getTransformedShape(coords[0], coords[1]);
                     if (transformedShape != null) {
                         if (ms2d.getFill() != null) {
@@ -279,7 +319,7 @@ public final class StyledShapePainter {
         }
     }
 
-    void paintLineStyle(final Graphics2D graphics, final LiteShape2 shape,
+    void paintLineStyle(final Graphics2D graphics, final Shape shape,
             final LineStyle2D ls2d, boolean isLabelObstacle, float strokeWidthAdjustment) {
         
 
@@ -413,7 +453,7 @@ public final class StyledShapePainter {
      * @param shape
      * @return
      */
-    private PathIterator getPathIterator(final LiteShape2 shape) {
+    private PathIterator getPathIterator(final Shape shape) {
         return shape.getPathIterator(IDENTITY_TRANSFORM);
     }
 
@@ -594,6 +634,15 @@ public final class StyledShapePainter {
             LOGGER.finest("drawing Image @" + x + "," + y);
         }
 
+        if (rotation != 0 && symbolCache != null
+                && symbolCache.paintImage(graphics, image, x, y, dx, dy, rotation, composite)) {
+            if (isLabelObstacle) {
+                labelCache.put(new Rectangle2D.Double(x + dx, y + dy, Math.max(image.getWidth(), 1),
+                        Math.max(image.getHeight(), 1)));
+            }
+            return;
+        }
+
         AffineTransform markAT = new AffineTransform();
         if(ROUND_ICON_COORDS && rotation == 0) {
             // this results in sharper images to be painted
@@ -699,9 +748,10 @@ public final class StyledShapePainter {
      * @param g
      * @param shape
      */
-    void fillLiteShape(Graphics2D g, LiteShape2 shape) {
-        if(shape.getGeometry() instanceof MultiPolygon && shape.getGeometry().getNumGeometries() > 1) {
-            MultiPolygon mp = (MultiPolygon) shape.getGeometry();
+    void fillLiteShape(Graphics2D g, Shape shape) {
+        Geometry geometry = shape instanceof LiteShape2 ? ((LiteShape2) shape).getGeometry() : null;
+        if(geometry instanceof MultiPolygon && geometry.getNumGeometries() > 1) {
+            MultiPolygon mp = (MultiPolygon) geometry;
             for (int i = 0; i < mp.getNumGeometries(); i++) {
                 Polygon p = (Polygon) mp.getGeometryN(i);
                 try {
@@ -0,0 +1,549 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geotools.renderer.style.MarkStyle2D;
+import org.geotools.util.Utilities;
+
+/**
+ * A bounded, least recently used cache of pre-rasterized point symbols. Painting a mark as a
+ * vector requires Java2D to fill and stroke its shape for every single point, while painting it
+ * from a cached raster is a simple image blit, which makes a significant difference on layers
+ * with lots of points.
+ * <p>
+ * Marks are cached by shape, size, colors, stroke, composites and antialiasing, rotated graphics
+ * by source image, offset and rotation. In order to keep the number of rasters bounded the
+ * rotation is quantized to {@link #ROTATION_STEPS} steps per turn, and the symbol position to
+ * {@link #SUBPIXEL_STEPS} sub pixel positions per axis, so the output can differ slightly from the
+ * vector painted one. Symbols that cannot be painted as a raster without changing the output
+ * (non color paints, blending composites, non translation transforms on the graphics) or that are
+ * larger than {@link #MAX_SYMBOL_SIZE} pixels are not cached, the caller is supposed to paint
+ * them as usual.
+ * <p>
+ * The cache is bounded by the total number of pixels held, see {@link #DEFAULT_MAX_PIXELS}, and
+ * can be shared among multiple threads.
+ */
+public final class SymbolRasterCache {
+
+    /**
+     * Number of rotation steps per turn, rotations are rounded to the nearest step
+     */
+    public static final int ROTATION_STEPS = 360;
+
+    /**
+     * Number of sub pixel positions, per axis, a symbol is rasterized at
+     */
+    public static final int SUBPIXEL_STEPS = 4;
+
+    /**
+     * Symbols whose width or height, in pixels, is larger than this are not cached
+     */
+    public static final int MAX_SYMBOL_SIZE = 256;
+
+    /**
+     * The default maximum number of pixels held by the cache, can be configured using the
+     * <code>org.geotools.renderer.lite.symbolRasterCachePixels</code> system variable. The default
+     * value, 4 mega-pixels, amounts to 16MB of memory.
+     */
+    public static final long DEFAULT_MAX_PIXELS = Long.getLong(
+            "org.geotools.renderer.lite.symbolRasterCachePixels", 4 * 1024 * 1024);
+
+    private static final SymbolRasterCache DEFAULT = new SymbolRasterCache(DEFAULT_MAX_PIXELS);
+
+    /**
+     * Returns the default cache instance, shared by all renderers
+     */
+    public static SymbolRasterCache getDefault() {
+        return DEFAULT;
+    }
+
+    final long maxPixels;
+
+    long pixels;
+
+    final Map<Object, SymbolRaster> rasters = new LinkedHashMap<Object, SymbolRaster>(16, 0.75f,
+            true);
+
+    /**
+     * Builds a new cache holding at most <code>maxPixels</code> pixels
+     *
+     * @param maxPixels
+     */
+    public SymbolRasterCache(long maxPixels) {
+        if (maxPixels <= 0) {
+            throw new IllegalArgumentException("The maximum number of pixels must be positive");
+        }
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * The number of cached symbols
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return rasters.size();
+    }
+
+    /**
+     * The number of pixels held in the cached symbols
+     *
+     * @return
+     */
+    public synchronized long getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Removes all the cached symbols
+     */
+    public synchronized void clear() {
+        rasters.clear();
+        pixels = 0;
+    }
+
+    /**
+     * Paints the mark at the specified screen location from a cached raster, if possible.
+     *
+     * @param graphics The graphics to paint on
+     * @param ms2d The mark style
+     * @param x The screen location, x coordinate
+     * @param y The screen location, y coordinate
+     * @param obstacle If not null, it will be set to the painted mark bounds
+     * @return True if the mark has been painted, false if it has to be painted as a vector instead
+     */
+    public boolean paintMark(Graphics2D graphics, MarkStyle2D ms2d, float x, float y,
+            Rectangle2D obstacle) {
+        Shape shape = ms2d.getShape();
+        Paint fill = ms2d.getFill();
+        Paint contour = ms2d.getContour();
+        if (shape == null || (fill == null && contour == null)
+                || (fill != null && !(fill instanceof Color))
+                || (contour != null && !(contour instanceof Color))
+                || !isSourceOver(ms2d.getFillComposite())
+                || !isSourceOver(ms2d.getContourComposite())
+                || !isIntegerTranslation(graphics.getTransform())) {
+            return false;
+        }
+
+        // same math as MarkStyle2D.getTransformedShape, but with a quantized rotation
+        Rectangle2D bounds = shape.getBounds2D();
+        double shapeSize = MarkStyle2D.isMaxMarkSizeEnabled() ? Math.max(bounds.getWidth(),
+                bounds.getHeight()) : bounds.getHeight();
+        double scale = ms2d.getSize() / shapeSize;
+        if (Math.max(bounds.getWidth(), bounds.getHeight()) * scale > MAX_SYMBOL_SIZE
+                || Double.isInfinite(scale) || Double.isNaN(scale)) {
+            return false;
+        }
+        int rotationStep = getRotationStep(ms2d.getRotation());
+        double rotation = rotationStep * 2 * Math.PI / ROTATION_STEPS;
+        double ax = bounds.getWidth() * scale * (0.5 - ms2d.getAnchorPointX());
+        double ay = bounds.getHeight() * scale * (ms2d.getAnchorPointY() - 0.5);
+        double cos = Math.cos(rotation);
+        double sin = Math.sin(rotation);
+        double ox = x + ms2d.getDisplacementX() + cos * ax - sin * ay;
+        double oy = y + ms2d.getDisplacementY() + sin * ax + cos * ay;
+
+        int ix = (int) Math.floor(ox);
+        int iy = (int) Math.floor(oy);
+        int subX = (int) Math.round((ox - ix) * SUBPIXEL_STEPS);
+        int subY = (int) Math.round((oy - iy) * SUBPIXEL_STEPS);
+        if (subX == SUBPIXEL_STEPS) {
+            ix++;
+            subX = 0;
+        }
+        if (subY == SUBPIXEL_STEPS) {
+            iy++;
+            subY = 0;
+        }
+
+        MarkKey key = new MarkKey(ms2d, scale, rotationStep, subX, subY,
+                graphics.getRenderingHint(RenderingHints.KEY_ANTIALIASING),
+                graphics.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL));
+        SymbolRaster raster = get(key);
+        if (raster == null) {
+            raster = buildMarkRaster(key, rotation);
+            if (raster == null) {
+                return false;
+            }
+            put(key, raster);
+        }
+
+        graphics.setComposite(AlphaComposite.SrcOver);
+        graphics.drawImage(raster.image, ix + raster.x, iy + raster.y, null);
+        if (obstacle != null) {
+            obstacle.setRect(ox + raster.bounds.getX(), oy + raster.bounds.getY(),
+                    raster.bounds.getWidth(), raster.bounds.getHeight());
+        }
+        return true;
+    }
+
+    /**
+     * Paints the image, rotated around the specified screen location, from a cached raster, if
+     * possible. The image is painted like
+     * {@link Graphics2D#drawRenderedImage(java.awt.image.RenderedImage, AffineTransform)} would
+     * do using a transform built as <code>translate(x, y), rotate(rotation), translate(dx,
+     * dy)</code>, using bilinear interpolation.
+     *
+     * @param graphics The graphics to paint on
+     * @param image The image to be painted
+     * @param x The screen location, x coordinate
+     * @param y The screen location, y coordinate
+     * @param dx The offset of the image, applied after the rotation
+     * @param dy The offset of the image, applied after the rotation
+     * @param rotation The image rotation, in radians
+     * @param composite The composite used to paint the image
+     * @return True if the image has been painted, false if it has to be painted directly instead
+     */
+    public boolean paintImage(Graphics2D graphics, BufferedImage image, double x, double y,
+            double dx, double dy, double rotation, Composite composite) {
+        if (image.getWidth() > MAX_SYMBOL_SIZE || image.getHeight() > MAX_SYMBOL_SIZE
+                || !isIntegerTranslation(graphics.getTransform())) {
+            return false;
+        }
+        int rotationStep = getRotationStep(rotation);
+
+        int ix = (int) Math.floor(x);
+        int iy = (int) Math.floor(y);
+        int subX = (int) Math.round((x - ix) * SUBPIXEL_STEPS);
+        int subY = (int) Math.round((y - iy) * SUBPIXEL_STEPS);
+        if (subX == SUBPIXEL_STEPS) {
+            ix++;
+            subX = 0;
+        }
+        if (subY == SUBPIXEL_STEPS) {
+            iy++;
+            subY = 0;
+        }
+
+        ImageKey key = new ImageKey(image, dx, dy, rotationStep, subX, subY);
+        SymbolRaster raster = get(key);
+        if (raster == null) {
+            raster = buildImageRaster(key, rotationStep * 2 * Math.PI / ROTATION_STEPS);
+            put(key, raster);
+        }
+
+        graphics.setComposite(composite);
+        graphics.drawImage(raster.image, ix + raster.x, iy + raster.y, null);
+        return true;
+    }
+
+    synchronized SymbolRaster get(Object key) {
+        return rasters.get(key);
+    }
+
+    synchronized void put(Object key, SymbolRaster raster) {
+        SymbolRaster previous = rasters.put(key, raster);
+        if (previous != null) {
+            pixels -= previous.getPixels();
+        }
+        pixels += raster.getPixels();
+        // evict the least recently used rasters, but keep the one just added
+        Iterator<SymbolRaster> it = rasters.values().iterator();
+        while (pixels > maxPixels && rasters.size() > 1) {
+            SymbolRaster eldest = it.next();
+            pixels -= eldest.getPixels();
+            it.remove();
+        }
+    }
+
+    SymbolRaster buildMarkRaster(MarkKey key, double rotation) {
+        AffineTransform at = AffineTransform.getRotateInstance(rotation);
+        // flip the symbol to take into account the screen orientation
+        at.scale(key.scale, -key.scale);
+        Shape transformed = at.createTransformedShape(key.shape);
+        Rectangle2D shapeBounds = transformed.getBounds2D();
+        Rectangle2D paintBounds = shapeBounds;
+        if (key.contour != null && key.stroke != null) {
+            paintBounds = key.stroke.createStrokedShape(transformed).getBounds2D();
+            paintBounds.add(shapeBounds);
+        }
+        Rectangle area = getRasterArea(paintBounds);
+        if (area.width > MAX_SYMBOL_SIZE || area.height > MAX_SYMBOL_SIZE) {
+            return null;
+        }
+
+        BufferedImage image = new BufferedImage(area.width, area.height,
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            if (key.antialiasing != null) {
+                graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, key.antialiasing);
+            }
+            if (key.strokeControl != null) {
+                graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, key.strokeControl);
+            }
+            graphics.translate(-area.x + key.subX / (double) SUBPIXEL_STEPS, -area.y + key.subY
+                    / (double) SUBPIXEL_STEPS);
+            if (key.fill != null) {
+                graphics.setPaint(key.fill);
+                graphics.setComposite(key.fillComposite != null ? key.fillComposite
+                        : AlphaComposite.SrcOver);
+                graphics.fill(transformed);
+            }
+            if (key.contour != null) {
+                graphics.setPaint(key.contour);
+                graphics.setStroke(key.stroke);
+                graphics.setComposite(key.contourComposite != null ? key.contourComposite
+                        : AlphaComposite.SrcOver);
+                graphics.draw(transformed);
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        return new SymbolRaster(image, area.x, area.y, shapeBounds);
+    }
+
+    SymbolRaster buildImageRaster(ImageKey key, double rotation) {
+        BufferedImage source = key.image;
+        AffineTransform at = AffineTransform.getRotateInstance(rotation);
+        at.translate(key.dx, key.dy);
+        Rectangle2D bounds = at.createTransformedShape(
+                new Rectangle(0, 0, source.getWidth(), source.getHeight())).getBounds2D();
+        Rectangle area = getRasterArea(bounds);
+
+        BufferedImage image = new BufferedImage(area.width, area.height,
+                BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.translate(-area.x + key.subX / (double) SUBPIXEL_STEPS, -area.y + key.subY
+                    / (double) SUBPIXEL_STEPS);
+            graphics.drawRenderedImage(source, at);
+        } finally {
+            graphics.dispose();
+        }
+
+        return new SymbolRaster(image, area.x, area.y, bounds);
+    }
+
+    /**
+     * Returns the integer area containing the bounds, plus one pixel on each side to make room for
+     * antialiasing and the sub pixel offset
+     */
+    static Rectangle getRasterArea(Rectangle2D bounds) {
+        int minX = (int) Math.floor(bounds.getMinX()) - 1;
+        int minY = (int) Math.floor(bounds.getMinY()) - 1;
+        int maxX = (int) Math.ceil(bounds.getMaxX()) + 1;
+        int maxY = (int) Math.ceil(bounds.getMaxY()) + 1;
+        return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    static int getRotationStep(double rotation) {
+        int step = (int) Math.round(rotation * ROTATION_STEPS / (2 * Math.PI)) % ROTATION_STEPS;
+        return step < 0 ? step + ROTATION_STEPS : step;
+    }
+
+    /**
+     * Painting on a transparent raster and then blitting it is equivalent to painting directly
+     * only for the source over rule (with or without extra alpha)
+     */
+    static boolean isSourceOver(Composite composite) {
+        return composite == null || (composite instanceof AlphaComposite
+                && ((AlphaComposite) composite).getRule() == AlphaComposite.SRC_OVER);
+    }
+
+    static boolean isIntegerTranslation(AffineTransform tx) {
+        return (tx.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0
+                && tx.getTranslateX() == Math.rint(tx.getTranslateX())
+                && tx.getTranslateY() == Math.rint(tx.getTranslateY());
+    }
+
+    /**
+     * A pre-rasterized symbol
+     */
+    static final class SymbolRaster {
+        final BufferedImage image;
+
+        /**
+         * Position of the raster origin relative to the symbol location
+         */
+        final int x;
+
+        final int y;
+
+        /**
+         * Bounds of the symbol, relative to the symbol location
+         */
+        final Rectangle2D bounds;
+
+        SymbolRaster(BufferedImage image, int x, int y, Rectangle2D bounds) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+            this.bounds = bounds;
+        }
+
+        long getPixels() {
+            return (long) image.getWidth() * image.getHeight();
+        }
+    }
+
+    /**
+     * Key for mark rasters. The mark shape is compared by identity, the well known marks are
+     * shared constants, while shapes don't usually implement equals
+     */
+    static final class MarkKey {
+        final Shape shape;
+
+        final double scale;
+
+        final int rotationStep;
+
+        final int subX;
+
+        final int subY;
+
+        final Paint fill;
+
+        final Paint contour;
+
+        final Stroke stroke;
+
+        final Composite fillComposite;
+
+        final Composite contourComposite;
+
+        final Object antialiasing;
+
+        final Object strokeControl;
+
+        MarkKey(MarkStyle2D ms2d, double scale, int rotationStep, int subX, int subY,
+                Object antialiasing, Object strokeControl) {
+            this.shape = ms2d.getShape();
+            this.scale = scale;
+            this.rotationStep = rotationStep;
+            this.subX = subX;
+            this.subY = subY;
+            this.fill = ms2d.getFill();
+            this.contour = ms2d.getContour();
+            this.stroke = contour != null ? ms2d.getStroke() : null;
+            this.fillComposite = fill != null ? ms2d.getFillComposite() : null;
+            this.contourComposite = contour != null ? ms2d.getContourComposite() : null;
+            this.antialiasing = antialiasing;
+            this.strokeControl = strokeControl;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(shape);
+            long bits = Double.doubleToLongBits(scale);
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+            result = 31 * result + rotationStep;
+            result = 31 * result + subX;
+            result = 31 * result + subY;
+            result = 31 * result + Utilities.hash(fill, 0);
+            result = 31 * result + Utilities.hash(contour, 0);
+            result = 31 * result + Utilities.hash(stroke, 0);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MarkKey)) {
+                return false;
+            }
+            MarkKey other = (MarkKey) obj;
+            return shape == other.shape
+                    && Double.doubleToLongBits(scale) == Double.doubleToLongBits(other.scale)
+                    && rotationStep == other.rotationStep && subX == other.subX
+                    && subY == other.subY && Utilities.equals(fill, other.fill)
+                    && Utilities.equals(contour, other.contour)
+                    && Utilities.equals(stroke, other.stroke)
+                    && Utilities.equals(fillComposite, other.fillComposite)
+                    && Utilities.equals(contourComposite, other.contourComposite)
+                    && Utilities.equals(antialiasing, other.antialiasing)
+                    && Utilities.equals(strokeControl, other.strokeControl);
+        }
+    }
+
+    /**
+     * Key for rotated image rasters, the image is compared by identity
+     */
+    static final class ImageKey {
+        final BufferedImage image;
+
+        final double dx;
+
+        final double dy;
+
+        final int rotationStep;
+
+        final int subX;
+
+        final int subY;
+
+        ImageKey(BufferedImage image, double dx, double dy, int rotationStep, int subX, int subY) {
+            this.image = image;
+            this.dx = dx;
+            this.dy = dy;
+            this.rotationStep = rotationStep;
+            this.subX = subX;
+            this.subY = subY;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(image);
+            long bits = Double.doubleToLongBits(dx);
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+            bits = Double.doubleToLongBits(dy);
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+            result = 31 * result + rotationStep;
+            result = 31 * result + subX;
+            result = 31 * result + subY;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ImageKey)) {
+                return false;
+            }
+            ImageKey other = (ImageKey) obj;
+            return image == other.image
+                    && Double.doubleToLongBits(dx) == Double.doubleToLongBits(other.dx)
+                    && Double.doubleToLongBits(dy) == Double.doubleToLongBits(other.dy)
+                    && rotationStep == other.rotationStep && subX == other.subX
+                    && subY == other.subY;
+        }
+    }
+}
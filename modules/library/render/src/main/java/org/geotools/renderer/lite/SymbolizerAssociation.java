@@ -18,6 +18,7 @@ package org.geotools.renderer.lite;
 
 
 import org.geotools.factory.Hints;
+import org.geotools.geometry.jts.ScreenShapeBuilder;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
 
@@ -60,4 +61,10 @@ class SymbolizerAssociation{
       * have been amended by the projection handler
       */
      public MathTransform rxform;
+
+     /**
+      * Builds the screen space shapes using {@link #xform}, when the
+      * renderer can skip the {@link org.geotools.geometry.jts.LiteShape2} path
+      */
+     public ScreenShapeBuilder screenShapeBuilder;
 }
@@ -0,0 +1,439 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.geotools.styling.ColorMap;
+
+import it.geosolutions.jaiext.range.Range;
+import it.geosolutions.jaiext.range.RangeFactory;
+
+/**
+ * A compact, precomputed version of a SLD {@link ColorMap}, mapping the values of a single band
+ * raster directly to the indexes of a palette.
+ * <p>
+ * Integer rasters with up to 16 bits per sample are mapped with a dense lookup table built in
+ * advance, all other data types (int, float, double) find the color map interval containing each
+ * value with a branch free binary search over the sorted color map quantities. Ramps are quantized
+ * in a palette of 256 or 65536 colors, like the classifier based implementation does.
+ * <p>
+ * Palette index 0 is fully transparent and is used for no data, NaN, and values falling outside of
+ * the color map. Instances are immutable and can be shared among the threads computing the tiles of
+ * an image.
+ */
+final class ColorMapLookup {
+
+    /**
+     * Areas bigger than this number of pixels are split in horizontal strips and mapped in parallel
+     */
+    static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    /**
+     * The palette index used for no data, NaN and gaps
+     */
+    static final int TRANSPARENT = 0;
+
+    /**
+     * In ramps, the palette index for values below the first quantity
+     */
+    static final int RAMP_BELOW = 1;
+
+    /**
+     * In ramps, the palette index for values at or above the last quantity
+     */
+    static final int RAMP_ABOVE = 2;
+
+    /**
+     * In ramps, the palette index of the first interpolated color
+     */
+    static final int RAMP_START = 3;
+
+    final int type;
+
+    /** The distinct color map quantities, in ascending order */
+    final double[] thresholds;
+
+    /** The values mapped to {@link #TRANSPARENT} */
+    final double[] noData;
+
+    /** Number of colors used by each ramp segment */
+    final int segmentColors;
+
+    /** Multiplier turning the offset in a ramp segment into a color offset */
+    final double[] segmentScales;
+
+    final IndexColorModel colorModel;
+
+    /** Dense lookup table for byte, short and ushort data, null for other data types */
+    final int[] lut;
+
+    /** Offset applied to the samples before accessing {@link #lut} */
+    final int lutOffset;
+
+    /**
+     * Builds a lookup for the specified color map, or returns null if the color map cannot be
+     * handled, in which case the classifier based implementation should be used instead (which
+     * will also report errors, if any)
+     *
+     * @param type The color map type, one of {@link ColorMap#TYPE_RAMP},
+     *        {@link ColorMap#TYPE_INTERVALS} and {@link ColorMap#TYPE_VALUES}
+     * @param extendedColors When true ramps are quantized in 65536 colors instead of 256
+     * @param quantities The color map entry quantities
+     * @param colors The color map entry colors, opacity included
+     * @param noData The values to be mapped to transparent, in addition to NaN (may be null)
+     * @param dataType The source {@link DataBuffer} type
+     */
+    static ColorMapLookup create(int type, boolean extendedColors, double[] quantities,
+            Color[] colors, double[] noData, int dataType) {
+        final int entries = quantities.length;
+        if (entries == 0 || entries != colors.length
+                || (entries == 1 && type != ColorMap.TYPE_VALUES)
+                || (!extendedColors && entries > 256) || entries > 65535) {
+            return null;
+        }
+        if (type != ColorMap.TYPE_RAMP && type != ColorMap.TYPE_INTERVALS
+                && type != ColorMap.TYPE_VALUES) {
+            return null;
+        }
+
+        // collapse entries with the same quantity, as the classifier does: the first one defines
+        // the color up to the quantity, the last one the color after it
+        List<Double> thresholds = new ArrayList<Double>();
+        List<Color> endColors = new ArrayList<Color>();
+        List<Color> startColors = new ArrayList<Color>();
+        for (int i = 0; i < entries; i++) {
+            double q = quantities[i];
+            if (Double.isNaN(q)) {
+                return null;
+            }
+            int last = thresholds.size() - 1;
+            if (last >= 0 && thresholds.get(last) == q) {
+                startColors.set(last, colors[i]);
+            } else if (last >= 0 && thresholds.get(last) > q) {
+                // not sorted, leave it to the classifier
+                return null;
+            } else {
+                thresholds.add(q);
+                endColors.add(colors[i]);
+                startColors.add(colors[i]);
+            }
+        }
+
+        final int n = thresholds.size();
+        double[] t = new double[n];
+        for (int i = 0; i < n; i++) {
+            t[i] = thresholds.get(i);
+        }
+
+        // build the palette
+        int[] palette;
+        int segmentColors = 0;
+        double[] segmentScales = null;
+        if (type == ColorMap.TYPE_RAMP) {
+            int paletteSize = !extendedColors && entries < 256 ? 256 : 65536;
+            int segments = n - 1;
+            if (segments > 0) {
+                segmentColors = (paletteSize - RAMP_START) / segments;
+                if (segmentColors < 2) {
+                    return null;
+                }
+            }
+            palette = new int[RAMP_START + segments * segmentColors];
+            palette[RAMP_BELOW] = endColors.get(0).getRGB();
+            palette[RAMP_ABOVE] = startColors.get(n - 1).getRGB();
+            segmentScales = new double[Math.max(segments, 0)];
+            for (int s = 0; s < segments; s++) {
+                segmentScales[s] = segmentColors / (t[s + 1] - t[s]);
+                int from = startColors.get(s).getRGB();
+                int to = endColors.get(s + 1).getRGB();
+                int base = RAMP_START + s * segmentColors;
+                for (int c = 0; c < segmentColors; c++) {
+                    palette[base + c] = interpolate(from, to, c / (double) (segmentColors - 1));
+                }
+            }
+        } else {
+            palette = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                palette[i + 1] = endColors.get(i).getRGB();
+            }
+        }
+        final int bits = palette.length <= 256 ? 8 : 16;
+        final int paletteType = bits == 8 ? DataBuffer.TYPE_BYTE : DataBuffer.TYPE_USHORT;
+        final int[] cmap = new int[1 << bits];
+        System.arraycopy(palette, 0, cmap, 0, palette.length);
+        IndexColorModel colorModel = new IndexColorModel(bits, cmap.length, cmap, 0, true,
+                TRANSPARENT, paletteType);
+
+        return new ColorMapLookup(type, t, noData == null ? new double[0] : noData,
+                segmentColors, segmentScales, colorModel, dataType);
+    }
+
+    /**
+     * Linear interpolation between two ARGB colors
+     */
+    static int interpolate(int from, int to, double t) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int a = (from >>> shift) & 0xFF;
+            int b = (to >>> shift) & 0xFF;
+            int c = (int) Math.round(a + (b - a) * t);
+            result |= (c & 0xFF) << shift;
+        }
+        return result;
+    }
+
+    private ColorMapLookup(int type, double[] thresholds, double[] noData, int segmentColors,
+            double[] segmentScales, IndexColorModel colorModel, int dataType) {
+        this.type = type;
+        this.thresholds = thresholds;
+        this.noData = noData;
+        this.segmentColors = segmentColors;
+        this.segmentScales = segmentScales;
+        this.colorModel = colorModel;
+
+        // integer types up to 16 bits get a dense lookup table
+        int lutSize = 0;
+        int offset = 0;
+        switch (dataType) {
+        case DataBuffer.TYPE_BYTE:
+            lutSize = 256;
+            break;
+        case DataBuffer.TYPE_USHORT:
+            lutSize = 65536;
+            break;
+        case DataBuffer.TYPE_SHORT:
+            lutSize = 65536;
+            offset = -Short.MIN_VALUE;
+            break;
+        }
+        this.lutOffset = offset;
+        if (lutSize > 0) {
+            lut = new int[lutSize];
+            for (int i = 0; i < lutSize; i++) {
+                lut[i] = getIndex(i - offset);
+            }
+        } else {
+            lut = null;
+        }
+    }
+
+    /**
+     * The color model of the mapped image
+     */
+    public IndexColorModel getColorModel() {
+        return colorModel;
+    }
+
+    /**
+     * The no data of the mapped image, that is, the {@link #TRANSPARENT} palette index
+     */
+    public Range getNoData() {
+        return RangeFactory.convert(RangeFactory.create(TRANSPARENT, TRANSPARENT),
+                colorModel.getTransferType());
+    }
+
+    /**
+     * Returns the number of color map quantities that are lower or equal to the specified value.
+     * The loop has a fixed number of iterations for a given color map, and the comparison result
+     * is turned into a conditional move by the JIT, avoiding branch mispredictions.
+     */
+    int count(double value) {
+        final double[] t = thresholds;
+        int base = 0;
+        int n = t.length;
+        while (n > 1) {
+            int half = n >>> 1;
+            base = t[base + half] <= value ? base + half : base;
+            n -= half;
+        }
+        return base + (t[base] <= value ? 1 : 0);
+    }
+
+    /**
+     * Returns the palette index for the specified value
+     */
+    int getIndex(double value) {
+        if (value != value) {
+            return TRANSPARENT;
+        }
+        for (double nd : noData) {
+            if (nd == value) {
+                return TRANSPARENT;
+            }
+        }
+        final int k = count(value);
+        final int n = thresholds.length;
+        switch (type) {
+        case ColorMap.TYPE_VALUES:
+            return k > 0 && thresholds[k - 1] == value ? k : TRANSPARENT;
+        case ColorMap.TYPE_INTERVALS:
+            return k < n ? k + 1 : TRANSPARENT;
+        default:
+            if (k == 0) {
+                return RAMP_BELOW;
+            } else if (k == n) {
+                return RAMP_ABOVE;
+            }
+            final int segment = k - 1;
+            int offset = (int) ((value - thresholds[segment]) * segmentScales[segment]);
+            if (offset >= segmentColors) {
+                offset = segmentColors - 1;
+            }
+            return RAMP_START + segment * segmentColors + offset;
+        }
+    }
+
+    /**
+     * Maps the first band of the source raster into the destination raster, over the specified
+     * area. Large areas are split in strips that are mapped in parallel.
+     */
+    public void lookup(Raster source, WritableRaster dest, Rectangle area) {
+        if ((long) area.width * area.height < PARALLEL_THRESHOLD) {
+            lookup(source, dest, area.x, area.y, area.width, area.height);
+        } else {
+            ForkJoinPool.commonPool().invoke(new StripAction(source, dest, area));
+        }
+    }
+
+    /**
+     * Maps a set of rows, reading directly from the data buffer when possible
+     */
+    void lookup(Raster source, WritableRaster dest, int x, int y, int width, int height) {
+        final int[] row = new int[width];
+        final SampleModel sm = source.getSampleModel();
+        if (sm instanceof ComponentSampleModel) {
+            final ComponentSampleModel csm = (ComponentSampleModel) sm;
+            final DataBuffer db = source.getDataBuffer();
+            final int bank = csm.getBankIndices()[0];
+            final int pixelStride = csm.getPixelStride();
+            final int scanlineStride = csm.getScanlineStride();
+            final int base = db.getOffsets()[bank] + csm.getBandOffsets()[0];
+            final int tx = source.getSampleModelTranslateX();
+            final int ty = source.getSampleModelTranslateY();
+            for (int r = y; r < y + height; r++) {
+                final int start = base + (r - ty) * scanlineStride + (x - tx) * pixelStride;
+                mapRow(db, bank, start, pixelStride, row);
+                dest.setSamples(x, r, width, 1, 0, row);
+            }
+        } else {
+            double[] samples = new double[width];
+            for (int r = y; r < y + height; r++) {
+                source.getSamples(x, r, width, 1, 0, samples);
+                if (lut != null) {
+                    for (int i = 0; i < width; i++) {
+                        row[i] = lut[(int) samples[i] + lutOffset];
+                    }
+                } else {
+                    for (int i = 0; i < width; i++) {
+                        row[i] = getIndex(samples[i]);
+                    }
+                }
+                dest.setSamples(x, r, width, 1, 0, row);
+            }
+        }
+    }
+
+    private void mapRow(DataBuffer db, int bank, int start, int stride, int[] row) {
+        final int width = row.length;
+        if (lut != null && db instanceof DataBufferByte) {
+            final byte[] data = ((DataBufferByte) db).getData(bank);
+            for (int i = 0, p = start; i < width; i++, p += stride) {
+                row[i] = lut[data[p] & 0xFF];
+            }
+        } else if (lut != null && db instanceof DataBufferUShort) {
+            final short[] data = ((DataBufferUShort) db).getData(bank);
+            for (int i = 0, p = start; i < width; i++, p += stride) {
+                row[i] = lut[data[p] & 0xFFFF];
+            }
+        } else if (lut != null && db instanceof DataBufferShort) {
+            final short[] data = ((DataBufferShort) db).getData(bank);
+            for (int i = 0, p = start; i < width; i++, p += stride) {
+                row[i] = lut[data[p] + lutOffset];
+            }
+        } else if (db instanceof DataBufferInt) {
+            final int[] data = ((DataBufferInt) db).getData(bank);
+            for (int i = 0, p = start; i < width; i++, p += stride) {
+                row[i] = getIndex(data[p]);
+            }
+        } else if (db instanceof DataBufferFloat) {
+            final float[] data = ((DataBufferFloat) db).getData(bank);
+            for (int i = 0, p = start; i < width; i++, p += stride) {
+                row[i] = getIndex(data[p]);
+            }
+        } else if (db instanceof DataBufferDouble) {
+            final double[] data = ((DataBufferDouble) db).getData(bank);
+            for (int i = 0, p = start; i < width; i++, p += stride) {
+                row[i] = getIndex(data[p]);
+            }
+        } else {
+            for (int i = 0, p = start; i < width; i++, p += stride) {
+                row[i] = getIndex(db.getElemDouble(bank, p));
+            }
+        }
+    }
+
+    /**
+     * Splits the area in strips until they are small enough to be mapped directly
+     */
+    @SuppressWarnings("serial")
+    class StripAction extends RecursiveAction {
+
+        final Raster source;
+
+        final WritableRaster dest;
+
+        final Rectangle area;
+
+        StripAction(Raster source, WritableRaster dest, Rectangle area) {
+            this.source = source;
+            this.dest = dest;
+            this.area = area;
+        }
+
+        @Override
+        protected void compute() {
+            if ((long) area.width * area.height < PARALLEL_THRESHOLD || area.height < 2) {
+                lookup(source, dest, area.x, area.y, area.width, area.height);
+            } else {
+                int half = area.height / 2;
+                Rectangle top = new Rectangle(area.x, area.y, area.width, half);
+                Rectangle bottom = new Rectangle(area.x, area.y + half, area.width,
+                        area.height - half);
+                invokeAll(new StripAction(source, dest, top),
+                        new StripAction(source, dest, bottom));
+            }
+        }
+    }
+}
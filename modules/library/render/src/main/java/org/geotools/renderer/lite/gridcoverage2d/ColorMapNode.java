@@ -20,10 +20,12 @@ import java.awt.Color;
 import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.RenderedImage;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-import javax.media.jai.RenderedOp;
+import javax.media.jai.ROI;
 
 import org.geotools.coverage.GridSampleDimension;
 import org.geotools.coverage.TypeMap;
@@ -48,6 +50,7 @@ import it.geosolutions.jaiext.classifier.LinearColorMap;
 import it.geosolutions.jaiext.classifier.LinearColorMapElement;
 import it.geosolutions.jaiext.piecewise.Domain1D;
 import it.geosolutions.jaiext.range.NoDataContainer;
+import it.geosolutions.jaiext.range.Range;
 
 /**
  * This           {@link CoverageProcessingNode}           is responsible for visiting the supplied          {@link ColorMapTransform}           and applying it to the source           {@link GridCoverage2D}          . <p> <strong>What we support and how do we implement it</strong> <p> A ColorMapTransform is created in order to map categories to colors on a single band coverage (or on the visible band of multiband coverage). <p> In this implementation we allow users to use either 256 or 65536 colors via the creation of a paletted image with s suitable palette derived from the single           {@link ColorMapEntry}           that make up the           {@link ColorMapTransform}          .
@@ -91,6 +94,13 @@ class ColorMapNode extends StyleVisitorCoverageProcessingNodeAdapter implements
 	 */
 	private LinearColorMap colorMapTransform;
 
+	/**
+	 * The precomputed version of the color map, used instead of {@link #colorMapTransform}
+	 * when {@link GridCoverageRenderer#COLOR_MAP_LOOKUP} is enabled and the color map and
+	 * source coverage are supported by it.
+	 */
+	private ColorMapLookup colorMapLookup;
+
 	/**
      * Do we want 16 bits or 8 bits colormap?
      * @uml.property  name="extendedColors"
@@ -197,11 +207,62 @@ class ColorMapNode extends StyleVisitorCoverageProcessingNodeAdapter implements
 			// /////////////////////////////////////////////////////////////////////
 			colorMapTransform = builder.buildLinearColorMap();
 
+			// /////////////////////////////////////////////////////////////////////
+			//
+			// Build the precomputed lookup, if enabled
+			//
+			// /////////////////////////////////////////////////////////////////////
+			if (Boolean.TRUE.equals(getHints().get(GridCoverageRenderer.COLOR_MAP_LOOKUP))) {
+				colorMapLookup = buildLookup(cmEntries, sourceCoverage, candidateNoDataValues);
+			}
+
 		} else
 			this.type = -1;
 
 	}
 
+    /**
+     * Builds a {@link ColorMapLookup} for the given entries, or returns null if the source
+     * coverage or the color map cannot be handled by it
+     */
+    private ColorMapLookup buildLookup(ColorMapEntry[] entries, GridCoverage2D sourceCoverage,
+            double[] noDataValues) {
+        // the lookup does not support ROIs, and only handles single valued no data
+        if (CoverageUtilities.getROIProperty(sourceCoverage) != null) {
+            return null;
+        }
+        List<Double> noData = new ArrayList<>();
+        if (noDataValues != null) {
+            for (double value : noDataValues) {
+                noData.add(value);
+            }
+        }
+        NoDataContainer noDataProperty = CoverageUtilities.getNoDataProperty(sourceCoverage);
+        if (noDataProperty != null) {
+            if (!noDataProperty.getAsRange().isPoint()) {
+                return null;
+            }
+            noData.add(noDataProperty.getAsSingleValue());
+        }
+        double[] noDataArray = new double[noData.size()];
+        for (int i = 0; i < noDataArray.length; i++) {
+            noDataArray[i] = noData.get(i);
+        }
+
+        final double[] quantities = new double[entries.length];
+        final Color[] colors = new Color[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            quantities[i] = SLDColorMapBuilder.getQuantity(entries[i]);
+            Color color = SLDColorMapBuilder.getColor(entries[i]);
+            double opacity = SLDColorMapBuilder.getOpacity(entries[i]);
+            colors[i] = new Color(color.getRed(), color.getGreen(), color.getBlue(),
+                    (int) (opacity * 255 + 0.5));
+        }
+        final int dataType = sourceCoverage.getRenderedImage().getSampleModel().getDataType();
+        return ColorMapLookup.create(type, extendedColors, quantities, colors, noDataArray,
+                dataType);
+    }
+
     /**
      * @param candidateSD
      * @return
@@ -283,16 +344,29 @@ class ColorMapNode extends StyleVisitorCoverageProcessingNodeAdapter implements
 	        //get input image
 	        final RenderedImage sourceImage = sourceCoverage.getRenderedImage();
 	        GridCoverageRendererUtilities.ensureSourceNotNull(sourceImage, this.getName().toString());
-	        //prepare the colorMapTransform operation
-	        ImageWorker w = new ImageWorker(sourceImage);
-            if (w.getNumBands() == 2) {
-                w.retainBands(1);
-            }
-	        w.setROI(CoverageUtilities.getROIProperty(sourceCoverage));
+	        final RenderedImage classified;
+	        final ROI roi;
+	        final Range noData;
 	        NoDataContainer noDataProperty = CoverageUtilities.getNoDataProperty(sourceCoverage);
-                w.setNoData(noDataProperty != null ? noDataProperty.getAsRange() : null);
-	        w.classify(colorMapTransform, null);
-	        final RenderedOp classified = w.getRenderedOperation();//JAI.create(RasterClassifierOpImage.OPERATION_NAME,pbj);
+	        if (colorMapLookup != null) {
+	            // precomputed lookup, reads the first band directly
+	            classified = new ColorMapOpImage(sourceImage, colorMapLookup, getHints());
+	            roi = null;
+	            // no data pixels are mapped to the transparent palette index
+	            noData = noDataProperty != null ? colorMapLookup.getNoData() : null;
+	        } else {
+	            //prepare the colorMapTransform operation
+	            ImageWorker w = new ImageWorker(sourceImage);
+	            if (w.getNumBands() == 2) {
+	                w.retainBands(1);
+	            }
+	            w.setROI(CoverageUtilities.getROIProperty(sourceCoverage));
+	            w.setNoData(noDataProperty != null ? noDataProperty.getAsRange() : null);
+	            w.classify(colorMapTransform, null);
+	            classified = w.getRenderedOperation();//JAI.create(RasterClassifierOpImage.OPERATION_NAME,pbj);
+	            roi = w.getROI();
+	            noData = w.getNoData();
+	        }
 
 	        ////
 	        //
@@ -315,8 +389,8 @@ class ColorMapNode extends StyleVisitorCoverageProcessingNodeAdapter implements
 		if(properties == null){
 		    properties = new HashMap<>();
 		}
-		CoverageUtilities.setROIProperty(properties, w.getROI());
-                CoverageUtilities.setNoDataProperty(properties, w.getNoData());
+		CoverageUtilities.setROIProperty(properties, roi);
+                CoverageUtilities.setNoDataProperty(properties, noData);
 
                 return getCoverageFactory().create(
         		        "color_mapped_"+sourceCoverage.getName().toString(), 
@@ -0,0 +1,54 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import java.awt.Rectangle;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PointOpImage;
+
+/**
+ * Applies a {@link ColorMapLookup} to the first band of the source image, producing a paletted
+ * image with the same tile structure as the source
+ */
+class ColorMapOpImage extends PointOpImage {
+
+    private final ColorMapLookup lookup;
+
+    public ColorMapOpImage(RenderedImage source, ColorMapLookup lookup, Map<?, ?> config) {
+        super(source, buildLayout(source, lookup.getColorModel()), config, true);
+        this.lookup = lookup;
+    }
+
+    private static ImageLayout buildLayout(RenderedImage source, IndexColorModel colorModel) {
+        ImageLayout layout = new ImageLayout(source);
+        layout.setColorModel(colorModel);
+        layout.setSampleModel(colorModel.createCompatibleSampleModel(source.getTileWidth(),
+                source.getTileHeight()));
+        return layout;
+    }
+
+    @Override
+    protected void computeRect(Raster[] sources, WritableRaster dest, Rectangle destRect) {
+        lookup.lookup(sources[0], dest, destRect);
+    }
+}
@@ -119,6 +119,17 @@ public final class GridCoverageRenderer {
     /** IDENTITY */
     private static final AffineTransform IDENTITY = AffineTransform2D.getTranslateInstance(0, 0);
 
+    /**
+     * Boolean hint enabling a precomputed, tiled and multithreaded application of the raster
+     * symbolizer color maps, using a dense lookup table for integer data up to 16 bits and a
+     * binary search over the color map quantities for the other data types. Color maps and
+     * coverages that cannot be handled (e.g., coverages with a ROI) fall back on the classifier
+     * based implementation. Defaults to false.
+     * <p>
+     * When rendering via {@code StreamingRenderer} the hint can be set among the Java2D hints.
+     */
+    public static final Hints.Key COLOR_MAP_LOOKUP = new Hints.Key(Boolean.class);
+
     /**
      * This variable is use for testing purposes in order to force this
      * {@link GridCoverageRenderer} to dump images at various steps on the disk.
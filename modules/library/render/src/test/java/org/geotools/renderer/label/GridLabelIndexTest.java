@@ -0,0 +1,93 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GridLabelIndexTest {
+
+    @Test
+    public void testConflicts() {
+        GridLabelIndex index = new GridLabelIndex(new Rectangle(0, 0, 256, 256));
+        index.addLabel(null, new Rectangle2D.Double(10, 10, 50, 10));
+
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(20, 15, 5, 5), 0));
+        // touching counts as a conflict, like in the quadtree index
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(60, 10, 5, 5), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(65, 10, 5, 5), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(65, 10, 5, 5), 5));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(20, 15, 5, 5), -1));
+    }
+
+    @Test
+    public void testOutsideDisplayArea() {
+        GridLabelIndex index = new GridLabelIndex(new Rectangle(0, 0, 256, 256));
+        index.addLabel(null, new Rectangle2D.Double(-100, 300, 50, 10));
+        index.reserveArea(Arrays.<Rectangle2D> asList(new Rectangle2D.Double(1000, -50, 10, 10)));
+        assertEquals(2, index.size());
+
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(-80, 305, 5, 5), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(1005, -45, 1, 1), 0));
+        // same border cell, but no actual overlap
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(-20, 305, 5, 5), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(250, 250, 5, 5), 0));
+    }
+
+    @Test
+    public void testSameAsQuadtree() {
+        Rectangle displayArea = new Rectangle(0, 0, 1024, 768);
+        GridLabelIndex grid = new GridLabelIndex(displayArea, 16);
+        LabelIndex quadtree = new LabelIndex();
+        Random random = new Random(0);
+        for (int i = 0; i < 2000; i++) {
+            Rectangle2D bounds = randomBounds(random, displayArea);
+            double distance = random.nextInt(5);
+            assertEquals(quadtree.labelsWithinDistance(bounds, distance),
+                    grid.labelsWithinDistance(bounds, distance));
+            if (random.nextBoolean()) {
+                grid.addLabel(null, bounds);
+                quadtree.addLabel(null, bounds);
+            }
+        }
+    }
+
+    @Test
+    public void testHugeDisplayArea() {
+        GridLabelIndex index = new GridLabelIndex(new Rectangle(0, 0, 100000, 100000), 1);
+        assertTrue(index.cols * index.rows <= GridLabelIndex.MAX_CELLS);
+        index.addLabel(null, new Rectangle2D.Double(50000, 50000, 10, 10));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(50005, 50005, 1, 1), 0));
+    }
+
+    static Rectangle2D randomBounds(Random random, Rectangle displayArea) {
+        // mimic labels, some of them partially out of the display area
+        double x = random.nextInt(displayArea.width + 100) - 50;
+        double y = random.nextInt(displayArea.height + 100) - 50;
+        double w = 5 + random.nextInt(100);
+        double h = 5 + random.nextInt(15);
+        return new Rectangle2D.Double(x, y, w, h);
+    }
+}
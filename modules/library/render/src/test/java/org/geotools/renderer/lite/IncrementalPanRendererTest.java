@@ -0,0 +1,172 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.List;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IncrementalPanRendererTest {
+
+    static final Rectangle AREA = new Rectangle(0, 0, 200, 200);
+
+    PropertyDataStore ds;
+
+    MapContent mc;
+
+    StyleBuilder sb = new StyleBuilder();
+
+    @Before
+    public void setup() throws Exception {
+        File property = new File(TestData.getResource(this, "diaglines.properties").toURI());
+        ds = new PropertyDataStore(property.getParentFile());
+        mc = new MapContent();
+    }
+
+    @After
+    public void tearDown() {
+        mc.dispose();
+        ds.dispose();
+    }
+
+    ReferencedEnvelope envelope(double minX, double minY) {
+        // 0.05 map units per pixel
+        return new ReferencedEnvelope(minX, minX + 10, minY, minY + 10,
+                DefaultGeographicCRS.WGS84);
+    }
+
+    BufferedImage renderFull(ReferencedEnvelope envelope) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        BufferedImage image = new BufferedImage(AREA.width, AREA.height,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        renderer.paint(graphics, AREA, envelope);
+        graphics.dispose();
+        return image;
+    }
+
+    int countDifferences(BufferedImage expected, BufferedImage actual) {
+        int result = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testExposedStrips() {
+        List<Rectangle> strips = IncrementalPanRenderer.getExposedStrips(AREA, 10, -20);
+        assertEquals(2, strips.size());
+        assertEquals(new Rectangle(0, 0, 10, 200), strips.get(0));
+        assertEquals(new Rectangle(10, 180, 190, 20), strips.get(1));
+
+        strips = IncrementalPanRenderer.getExposedStrips(AREA, -5, 0);
+        assertEquals(1, strips.size());
+        assertEquals(new Rectangle(195, 0, 5, 200), strips.get(0));
+    }
+
+    @Test
+    public void testPanSameAsFullRendering() throws Exception {
+        Style style = sb.createStyle(sb.createLineSymbolizer(Color.BLUE, 2));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("diaglines"), style));
+
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        CountingRenderListener listener = new CountingRenderListener();
+        renderer.addRenderListener(listener);
+        IncrementalPanRenderer pan = new IncrementalPanRenderer(renderer);
+
+        pan.paint(AREA, envelope(0, 0));
+        assertFalse(pan.isLastPaintIncremental());
+        assertEquals(6, listener.features);
+
+        // move the map right by 10 pixels and up by 20, only the strips are rendered
+        ReferencedEnvelope target = envelope(-0.5, -1);
+        BufferedImage image = pan.paint(AREA, target);
+        assertTrue(pan.isLastPaintIncremental());
+        assertEquals(0, listener.errors);
+
+        // allow for small differences due to the geometry clipping at the strip borders
+        BufferedImage expected = renderFull(target);
+        assertTrue(countDifferences(expected, image) < AREA.width);
+    }
+
+    @Test
+    public void testFullRenderingOnZoom() throws Exception {
+        Style style = sb.createStyle(sb.createLineSymbolizer(Color.BLUE, 2));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("diaglines"), style));
+        IncrementalPanRenderer pan = new IncrementalPanRenderer(new StreamingRenderer());
+        pan.renderer.setMapContent(mc);
+
+        pan.paint(AREA, envelope(0, 0));
+        pan.paint(AREA, new ReferencedEnvelope(0, 5, 0, 5, DefaultGeographicCRS.WGS84));
+        assertFalse(pan.isLastPaintIncremental());
+        // sub pixel move
+        pan.paint(AREA, new ReferencedEnvelope(0.01, 5.01, 0, 5, DefaultGeographicCRS.WGS84));
+        assertFalse(pan.isLastPaintIncremental());
+        // invalidation
+        pan.paint(AREA, new ReferencedEnvelope(0.5, 5.5, 0, 5, DefaultGeographicCRS.WGS84));
+        assertTrue(pan.isLastPaintIncremental());
+        pan.invalidate();
+        pan.paint(AREA, new ReferencedEnvelope(0.5, 5.5, 0, 5, DefaultGeographicCRS.WGS84));
+        assertFalse(pan.isLastPaintIncremental());
+    }
+
+    @Test
+    public void testLabelsKeptAcrossPans() throws Exception {
+        Style style = sb.createStyle(sb.createLineSymbolizer(Color.BLUE, 2));
+        style.featureTypeStyles().get(0).rules().get(0).symbolizers().add(
+                sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 12), "name"));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("diaglines"), style));
+        IncrementalPanRenderer pan = new IncrementalPanRenderer(new StreamingRenderer());
+        pan.renderer.setMapContent(mc);
+
+        pan.paint(AREA, envelope(0, 0));
+        int candidates = pan.labels.size();
+        assertTrue(candidates > 0);
+
+        // a small pan keeps all the lines in view, the candidates are shifted and merged
+        pan.paint(AREA, envelope(0.5, 0));
+        assertTrue(pan.isLastPaintIncremental());
+        assertEquals(candidates, pan.labels.size());
+        assertTrue(pan.recorder.entries.isEmpty());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.Test;
+
+public class MetaTileTest {
+
+    static final ReferencedEnvelope ENVELOPE = new ReferencedEnvelope(0, 10, 0, 10,
+            DefaultGeographicCRS.WGS84);
+
+    @Test
+    public void testGeometry() {
+        MetaTile mt = new MetaTile(ENVELOPE, 2, 2, 100, 100, 10);
+        assertEquals(220, mt.getImageWidth());
+        assertEquals(220, mt.getImageHeight());
+        assertEquals(new Rectangle(0, 0, 220, 220), mt.getPaintArea());
+
+        // 10 pixels are 0.5 map units
+        ReferencedEnvelope rendering = mt.getRenderingEnvelope();
+        assertEquals(-0.5, rendering.getMinX(), 1e-9);
+        assertEquals(10.5, rendering.getMaxX(), 1e-9);
+        assertEquals(-0.5, rendering.getMinY(), 1e-9);
+        assertEquals(10.5, rendering.getMaxY(), 1e-9);
+
+        // row 0 is at the top
+        ReferencedEnvelope topRight = mt.getTileEnvelope(1, 0);
+        assertEquals(new ReferencedEnvelope(5, 10, 5, 10, DefaultGeographicCRS.WGS84), topRight);
+        assertEquals(new Rectangle(110, 10, 100, 100), mt.getTileArea(1, 0));
+        ReferencedEnvelope bottomLeft = mt.getTileEnvelope(0, 1);
+        assertEquals(new ReferencedEnvelope(0, 5, 0, 5, DefaultGeographicCRS.WGS84), bottomLeft);
+        assertEquals(new Rectangle(10, 110, 100, 100), mt.getTileArea(0, 1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testInvalidTile() {
+        new MetaTile(ENVELOPE, 2, 2, 100, 100, 0).getTileEnvelope(2, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGutter() {
+        new MetaTile(ENVELOPE, 2, 2, 100, 100, -1);
+    }
+
+    @Test
+    public void testSplit() {
+        MetaTile mt = new MetaTile(ENVELOPE, 2, 3, 10, 20, 5);
+        BufferedImage image = new BufferedImage(mt.getImageWidth(), mt.getImageHeight(),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fill(mt.getTileArea(1, 2));
+        graphics.dispose();
+
+        BufferedImage[][] tiles = mt.split(image);
+        assertEquals(3, tiles.length);
+        assertEquals(2, tiles[0].length);
+        assertEquals(10, tiles[2][1].getWidth());
+        assertEquals(20, tiles[2][1].getHeight());
+        assertEquals(Color.RED.getRGB(), tiles[2][1].getRGB(0, 0));
+        assertEquals(Color.RED.getRGB(), tiles[2][1].getRGB(9, 19));
+        assertEquals(0, tiles[1][1].getRGB(9, 19));
+    }
+
+    @Test
+    public void testPaintMetaTile() throws Exception {
+        File property = new File(TestData.getResource(this, "diaglines.properties").toURI());
+        PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+        MapContent mc = new MapContent();
+        try {
+            StyleBuilder sb = new StyleBuilder();
+            Style style = sb.createStyle(sb.createLineSymbolizer(Color.BLUE, 2));
+            style.featureTypeStyles().get(0).rules().get(0).symbolizers().add(
+                    sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 12), "name"));
+            mc.addLayer(new FeatureLayer(ds.getFeatureSource("diaglines"), style));
+
+            StreamingRenderer renderer = new StreamingRenderer();
+            renderer.setMapContent(mc);
+            CountingRenderListener listener = new CountingRenderListener();
+            renderer.addRenderListener(listener);
+
+            MetaTile mt = new MetaTile(ENVELOPE, 2, 2, 128, 128, 16);
+            BufferedImage image = new BufferedImage(mt.getImageWidth(), mt.getImageHeight(),
+                    BufferedImage.TYPE_4BYTE_ABGR);
+            BufferedImage[][] tiles = renderer.paintMetaTile(mt, image);
+            assertEquals(0, listener.errors);
+            // a single pass on the data
+            assertEquals(6, listener.features);
+
+            // the tiles are just views on the meta tile image
+            for (int row = 0; row < 2; row++) {
+                for (int col = 0; col < 2; col++) {
+                    Rectangle area = mt.getTileArea(col, row);
+                    BufferedImage tile = tiles[row][col];
+                    for (int y = 0; y < tile.getHeight(); y++) {
+                        for (int x = 0; x < tile.getWidth(); x++) {
+                            assertEquals(image.getRGB(area.x + x, area.y + y), tile.getRGB(x, y));
+                        }
+                    }
+                }
+            }
+        } finally {
+            mc.dispose();
+            ds.dispose();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the labels prepared in parallel are the same as the sequentially prepared ones
+ */
+public class ParallelLabelPreparationTest {
+
+    private static final long TIME = 4000;
+
+    PropertyDataStore ds;
+
+    ReferencedEnvelope bounds;
+
+    ExecutorService pool;
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "diaglines.properties").toURI());
+        ds = new PropertyDataStore(property.getParentFile());
+        bounds = new ReferencedEnvelope(-1, 11, -1, 11, DefaultGeographicCRS.WGS84);
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+        ds.dispose();
+    }
+
+    MapContent buildMapContent() throws Exception {
+        StyleBuilder sb = new StyleBuilder();
+        Style polygons = sb.createStyle(sb.createTextSymbolizer(Color.BLACK,
+                sb.createFont("Serif", 14), "name"));
+        TextSymbolizer lineLabels = sb.createTextSymbolizer(Color.BLUE, sb.createFont("Serif", 12),
+                "name");
+        lineLabels.setLabelPlacement(sb.createLinePlacement(0));
+        lineLabels.getOptions().put(TextSymbolizer.FOLLOW_LINE_KEY, "true");
+        Style lines = sb.createStyle(lineLabels);
+        Style points = sb.createStyle(sb.createTextSymbolizer(Color.RED,
+                sb.createFont("Serif", 10), "code"));
+
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("partialAreaLabel"), polygons));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("diaglines"), lines));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("point"), points));
+        return mc;
+    }
+
+    BufferedImage render(ExecutorService threadPool, CountingRenderListener listener)
+            throws Exception {
+        MapContent mc = buildMapContent();
+        try {
+            StreamingRenderer renderer = new StreamingRenderer();
+            renderer.setMapContent(mc);
+            if (threadPool != null) {
+                renderer.setThreadPool(threadPool);
+                Map hints = new HashMap();
+                hints.put(StreamingRenderer.PARALLEL_LABEL_PREPARATION_KEY, Boolean.TRUE);
+                renderer.setRendererHints(hints);
+            }
+            return RendererBaseTest.renderImage(renderer, bounds, listener);
+        } finally {
+            mc.dispose();
+        }
+    }
+
+    @Test
+    public void testSameOutputAsSequential() throws Exception {
+        BufferedImage expected = render(null, null);
+        CountingRenderListener listener = new CountingRenderListener();
+        BufferedImage actual = render(pool, listener);
+        RendererBaseTest.showImage("Parallel labels", TIME, actual);
+
+        assertEquals(0, listener.errors);
+        ImageAssert.assertEquals(expected, actual, 0);
+    }
+
+    @Test
+    public void testSingleThreadPool() throws Exception {
+        // the only pool thread is used by the painter, the preparation must still complete
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            BufferedImage expected = render(null, null);
+            BufferedImage actual = render(single, null);
+            ImageAssert.assertEquals(expected, actual, 0);
+        } finally {
+            single.shutdown();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks parallel layer rendering produces the same output as the sequential one
+ */
+public class ParallelLayerRenderingTest {
+
+    private static final long TIME = 4000;
+
+    PropertyDataStore ds;
+
+    ReferencedEnvelope bounds;
+
+    ExecutorService pool;
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "buildings.properties").toURI());
+        ds = new PropertyDataStore(property.getParentFile());
+        bounds = new ReferencedEnvelope(0, 10, 0, 10, DefaultGeographicCRS.WGS84);
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+        ds.dispose();
+    }
+
+    MapContent buildMapContent() throws Exception {
+        StyleBuilder sb = new StyleBuilder();
+        Style polygons = sb.createStyle(sb.createPolygonSymbolizer(Color.GRAY, Color.BLACK, 1));
+        Style lines = sb.createStyle(sb.createLineSymbolizer(Color.RED, 4));
+        Style points = sb.createStyle(sb.createPointSymbolizer(sb.createGraphic(null,
+                sb.createMark(StyleBuilder.MARK_CIRCLE, Color.BLUE), null)));
+        points.featureTypeStyles().get(0).rules().get(0).symbolizers()
+                .add(sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 12), "code"));
+
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("buildings"), polygons));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("line"), lines));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("point"), points));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("line"), sb.createStyle(sb
+                .createLineSymbolizer(Color.YELLOW, 1))));
+        return mc;
+    }
+
+    @Test
+    public void testSameOutputAsSequential() throws Exception {
+        MapContent sequentialContent = buildMapContent();
+        StreamingRenderer sequential = new StreamingRenderer();
+        sequential.setMapContent(sequentialContent);
+        BufferedImage expected = RendererBaseTest.renderImage(sequential, bounds, null);
+        sequentialContent.dispose();
+
+        MapContent parallelContent = buildMapContent();
+        StreamingRenderer parallel = new StreamingRenderer();
+        parallel.setMapContent(parallelContent);
+        parallel.setThreadPool(pool);
+        Map hints = new HashMap();
+        hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_KEY, Boolean.TRUE);
+        parallel.setRendererHints(hints);
+        CountingRenderListener listener = new CountingRenderListener();
+        BufferedImage actual = RendererBaseTest.renderImage(parallel, bounds, listener);
+        parallelContent.dispose();
+        RendererBaseTest.showImage("Parallel", TIME, actual);
+
+        assertEquals(0, listener.errors);
+        ImageAssert.assertEquals(expected, actual, 0);
+    }
+
+    @Test
+    public void testSingleThreadPool() throws Exception {
+        // the painter thread takes the only thread in the pool, the layers have to
+        // be rendered by the calling thread without deadlocking
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            MapContent sequentialContent = buildMapContent();
+            StreamingRenderer sequential = new StreamingRenderer();
+            sequential.setMapContent(sequentialContent);
+            BufferedImage expected = RendererBaseTest.renderImage(sequential, bounds, null);
+            sequentialContent.dispose();
+
+            MapContent parallelContent = buildMapContent();
+            StreamingRenderer parallel = new StreamingRenderer();
+            parallel.setMapContent(parallelContent);
+            parallel.setThreadPool(single);
+            Map hints = new HashMap();
+            hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_KEY, Boolean.TRUE);
+            hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_MAX_KEY, 2);
+            parallel.setRendererHints(hints);
+            BufferedImage actual = RendererBaseTest.renderImage(parallel, bounds, null);
+            parallelContent.dispose();
+
+            ImageAssert.assertEquals(expected, actual, 0);
+        } finally {
+            single.shutdown();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RenderingMetricsTest {
+
+    PropertyDataStore ds;
+
+    MapContent mc;
+
+    static class MetricsListener extends CountingRenderListener implements
+            RenderingMetricsListener {
+        RenderingMetrics metrics;
+
+        int calls;
+
+        @Override
+        public void renderingCompleted(RenderingMetrics metrics) {
+            this.metrics = metrics;
+            calls++;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "diaglines.properties").toURI());
+        ds = new PropertyDataStore(property.getParentFile());
+        StyleBuilder sb = new StyleBuilder();
+        mc = new MapContent();
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("diaglines"), sb.createStyle(sb
+                .createLineSymbolizer(Color.BLUE, 2))));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("point"), sb.createStyle(sb
+                .createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 10), "code"))));
+    }
+
+    @After
+    public void tearDown() {
+        mc.dispose();
+        ds.dispose();
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        checkMetrics(renderer);
+    }
+
+    @Test
+    public void testParallelLayerMetrics() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            StreamingRenderer renderer = new StreamingRenderer();
+            renderer.setMapContent(mc);
+            renderer.setThreadPool(pool);
+            Map hints = new HashMap();
+            hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_KEY, Boolean.TRUE);
+            renderer.setRendererHints(hints);
+            checkMetrics(renderer);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testNoMetricsListener() throws Exception {
+        // a plain listener does not trigger the collection, and nothing breaks
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        CountingRenderListener listener = new CountingRenderListener();
+        RendererBaseTest.renderImage(renderer, new ReferencedEnvelope(-1, 11, -1, 11,
+                DefaultGeographicCRS.WGS84), listener);
+        assertEquals(0, listener.errors);
+    }
+
+    void checkMetrics(StreamingRenderer renderer) throws Exception {
+        MetricsListener listener = new MetricsListener();
+        RendererBaseTest.renderImage(renderer, new ReferencedEnvelope(-1, 11, -1, 11,
+                DefaultGeographicCRS.WGS84), listener);
+        assertEquals(0, listener.errors);
+        assertEquals(1, listener.calls);
+
+        RenderingMetrics metrics = listener.metrics;
+        assertNotNull(metrics);
+        List<LayerMetrics> layers = metrics.getLayers();
+        assertEquals(2, layers.size());
+
+        // the lines are painted
+        LayerMetrics lines = layers.get(0);
+        assertEquals("1", lines.getLayerId());
+        assertEquals(6, lines.getFeatures());
+        assertEquals(6, lines.getRenderedFeatures());
+        assertEquals(12, lines.getVertices());
+        assertTrue(lines.getNanos(RenderingPhase.QUERY) > 0);
+        assertTrue(lines.getNanos(RenderingPhase.TRANSFORM) > 0);
+        assertTrue(lines.getNanos(RenderingPhase.STYLE) > 0);
+        assertTrue(lines.getNanos(RenderingPhase.PAINT) > 0);
+        assertEquals(0, lines.getNanos(RenderingPhase.RASTER));
+        assertTrue(lines.getElapsedNanos() > 0);
+
+        // the points are just labelled
+        LayerMetrics points = layers.get(1);
+        assertEquals("2", points.getLayerId());
+        assertEquals(points.getFeatures(), points.getRenderedFeatures());
+        assertEquals(0, points.getVertices());
+        assertEquals(0, points.getNanos(RenderingPhase.PAINT));
+        assertTrue(points.getNanos(RenderingPhase.LABEL) > 0);
+
+        assertEquals(lines.getFeatures() + points.getFeatures(), metrics.getFeatures());
+        assertTrue(metrics.getLabelNanos() > 0);
+        assertTrue(metrics.getElapsedNanos() >= lines.getElapsedNanos());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the lines and polygons built by the screen shape builder are painted like the
+ * {@link org.geotools.geometry.jts.LiteShape2} ones
+ */
+public class ScreenShapeRenderingTest {
+
+    private static final long TIME = 4000;
+
+    PropertyDataStore ds;
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "buildings.properties").toURI());
+        ds = new PropertyDataStore(property.getParentFile());
+    }
+
+    @After
+    public void tearDown() {
+        ds.dispose();
+    }
+
+    MapContent buildMapContent() throws Exception {
+        StyleBuilder sb = new StyleBuilder();
+        Style polygons = sb.createStyle(sb.createPolygonSymbolizer(Color.GRAY, Color.BLACK, 1));
+        Style lines = sb.createStyle(sb.createLineSymbolizer(Color.RED, 4));
+        lines.featureTypeStyles().get(0).rules().get(0).symbolizers()
+                .add(sb.createLineSymbolizer(Color.YELLOW, 1));
+
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("buildings"), polygons));
+        mc.addLayer(new FeatureLayer(ds.getFeatureSource("line"), lines));
+        return mc;
+    }
+
+    BufferedImage render(ReferencedEnvelope bounds, boolean screenShapeBuilder) throws Exception {
+        MapContent mc = buildMapContent();
+        try {
+            StreamingRenderer renderer = new StreamingRenderer();
+            renderer.setMapContent(mc);
+            Map hints = new HashMap();
+            hints.put(StreamingRenderer.SCREEN_SHAPE_BUILDER_KEY, screenShapeBuilder);
+            renderer.setRendererHints(hints);
+            CountingRenderListener listener = new CountingRenderListener();
+            BufferedImage image = RendererBaseTest.renderImage(renderer, bounds, listener);
+            assertEquals(0, listener.errors);
+            return image;
+        } finally {
+            mc.dispose();
+        }
+    }
+
+    @Test
+    public void testSameOutput() throws Exception {
+        ReferencedEnvelope bounds = new ReferencedEnvelope(0, 10, 0, 10,
+                DefaultGeographicCRS.WGS84);
+        BufferedImage expected = render(bounds, false);
+        BufferedImage actual = render(bounds, true);
+        RendererBaseTest.showImage("Screen shape builder", TIME, actual);
+
+        // the shapes are stored as floats, allow for a few rounding differences
+        ImageAssert.assertEquals(expected, actual, 10);
+    }
+
+    @Test
+    public void testSameOutputClipped() throws Exception {
+        // most geometries cross the borders of the map and get clipped
+        ReferencedEnvelope bounds = new ReferencedEnvelope(3, 6, 2, 5,
+                DefaultGeographicCRS.WGS84);
+        BufferedImage expected = render(bounds, false);
+        BufferedImage actual = render(bounds, true);
+        RendererBaseTest.showImage("Screen shape builder, clipped", TIME, actual);
+
+        ImageAssert.assertEquals(expected, actual, 10);
+    }
+}
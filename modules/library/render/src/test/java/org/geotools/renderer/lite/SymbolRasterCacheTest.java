@@ -0,0 +1,207 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.renderer.style.GraphicStyle2D;
+import org.geotools.renderer.style.MarkStyle2D;
+import org.geotools.renderer.style.Style2D;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class SymbolRasterCacheTest {
+
+    static final GeometryFactory GF = new GeometryFactory();
+
+    static final Ellipse2D CIRCLE = new Ellipse2D.Double(-0.5, -0.5, 1, 1);
+
+    MarkStyle2D buildMark() {
+        MarkStyle2D ms2d = new MarkStyle2D();
+        ms2d.setShape(CIRCLE);
+        ms2d.setSize(12);
+        ms2d.setFill(Color.RED);
+        ms2d.setFillComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+        ms2d.setContour(Color.BLACK);
+        ms2d.setStroke(new BasicStroke(2));
+        ms2d.setContourComposite(AlphaComposite.SrcOver);
+        return ms2d;
+    }
+
+    BufferedImage paint(Style2D style, SymbolRasterCache cache, Geometry points)
+            throws Exception {
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        StyledShapePainter painter = new StyledShapePainter();
+        painter.setSymbolRasterCache(cache);
+        painter.paint(graphics, new LiteShape2(points, null, null, false), style, 1);
+        graphics.dispose();
+        return image;
+    }
+
+    Geometry points(double... ordinates) {
+        Coordinate[] coordinates = new Coordinate[ordinates.length / 2];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = new Coordinate(ordinates[i * 2], ordinates[i * 2 + 1]);
+        }
+        return GF.createMultiPoint(coordinates);
+    }
+
+    /**
+     * Returns the max difference among all pixel bands of the two images
+     */
+    int maxDifference(BufferedImage expected, BufferedImage actual) {
+        int result = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int e = expected.getRGB(x, y);
+                int a = actual.getRGB(x, y);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int diff = Math.abs(((e >> shift) & 0xFF) - ((a >> shift) & 0xFF));
+                    result = Math.max(result, diff);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testSameAsVector() throws Exception {
+        // positions on the sub pixel grid, the output should be the same, but for rounding
+        Geometry points = points(20, 20, 50.25, 30.5, 70.75, 70);
+        MarkStyle2D style = buildMark();
+        SymbolRasterCache cache = new SymbolRasterCache(1000000);
+        BufferedImage expected = paint(style, null, points);
+        BufferedImage actual = paint(style, cache, points);
+        assertEquals(3, cache.size());
+        assertTrue(maxDifference(expected, actual) <= 2);
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        SymbolRasterCache cache = new SymbolRasterCache(1000000);
+        paint(buildMark(), cache, points(10, 10, 20, 20, 30.1, 30.1, 40.9, 40.9));
+        // all the positions are rounded to the same sub pixel position
+        assertEquals(1, cache.size());
+
+        MarkStyle2D rotated = buildMark();
+        rotated.setRotation((float) Math.toRadians(45.2));
+        paint(rotated, cache, points(10, 10));
+        rotated.setRotation((float) Math.toRadians(44.9));
+        paint(rotated, cache, points(10, 10));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testRotatedGraphic() throws Exception {
+        BufferedImage icon = new BufferedImage(10, 6, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = icon.createGraphics();
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(0, 0, 10, 6);
+        graphics.dispose();
+        GraphicStyle2D style = new GraphicStyle2D(icon, (float) Math.toRadians(30));
+        style.setComposite(AlphaComposite.SrcOver);
+
+        Geometry points = points(20, 20, 50.5, 60.25);
+        SymbolRasterCache cache = new SymbolRasterCache(1000000);
+        BufferedImage expected = paint(style, null, points);
+        BufferedImage actual = paint(style, cache, points);
+        assertEquals(2, cache.size());
+        assertTrue(maxDifference(expected, actual) <= 2);
+    }
+
+    @Test
+    public void testLabelObstacle() throws Exception {
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        RecordingLabelCache labels = new RecordingLabelCache();
+        StyledShapePainter painter = new StyledShapePainter(labels);
+        painter.setSymbolRasterCache(new SymbolRasterCache(1000000));
+        painter.paint(graphics, new LiteShape2(points(20, 30), null, null, false), buildMark(),
+                1, true);
+        graphics.dispose();
+
+        assertEquals(1, labels.entries.size());
+        Rectangle2D obstacle = labels.entries.get(0).obstacle;
+        assertEquals(14, obstacle.getMinX(), 1e-6);
+        assertEquals(24, obstacle.getMinY(), 1e-6);
+        assertEquals(12, obstacle.getWidth(), 1e-6);
+        assertEquals(12, obstacle.getHeight(), 1e-6);
+    }
+
+    @Test
+    public void testNotCacheable() throws Exception {
+        SymbolRasterCache cache = new SymbolRasterCache(1000000);
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            // blending composite
+            MarkStyle2D style = buildMark();
+            style.setFillComposite(AlphaComposite.getInstance(AlphaComposite.XOR));
+            assertFalse(cache.paintMark(graphics, style, 10, 10, null));
+
+            // too big
+            style = buildMark();
+            style.setSize(SymbolRasterCache.MAX_SYMBOL_SIZE + 1);
+            assertFalse(cache.paintMark(graphics, style, 10, 10, null));
+
+            // scaled output
+            graphics.scale(2, 2);
+            assertFalse(cache.paintMark(graphics, buildMark(), 10, 10, null));
+            assertEquals(0, cache.size());
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        // enough for a single mark
+        SymbolRasterCache cache = new SymbolRasterCache(400);
+        paint(buildMark(), cache, points(10, 10, 20.25, 20, 30.5, 30, 40.75, 40));
+        assertEquals(1, cache.size());
+        assertTrue(cache.getPixels() <= 400);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getPixels());
+    }
+
+    @Test
+    public void testRotationStep() {
+        assertEquals(0, SymbolRasterCache.getRotationStep(0));
+        assertEquals(90, SymbolRasterCache.getRotationStep(Math.PI / 2));
+        assertEquals(0, SymbolRasterCache.getRotationStep(Math.PI * 2));
+        assertEquals(270, SymbolRasterCache.getRotationStep(-Math.PI / 2));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+import org.geotools.styling.ColorMap;
+import org.junit.Test;
+
+import it.geosolutions.jaiext.range.Range;
+
+public class ColorMapLookupTest {
+
+    static final Color[] COLORS = { Color.RED, Color.GREEN, Color.BLUE };
+
+    static final double[] QUANTITIES = { 0, 100, 200 };
+
+    int rgb(ColorMapLookup lookup, double value) {
+        return lookup.getColorModel().getRGB(lookup.getIndex(value));
+    }
+
+    @Test
+    public void testCount() {
+        ColorMapLookup lookup = ColorMapLookup.create(ColorMap.TYPE_INTERVALS, false,
+                new double[] { 10, 20, 30, 40, 50 }, new Color[] { Color.RED, Color.RED,
+                        Color.RED, Color.RED, Color.RED }, null, DataBuffer.TYPE_FLOAT);
+        assertEquals(0, lookup.count(5));
+        assertEquals(1, lookup.count(10));
+        assertEquals(2, lookup.count(25));
+        assertEquals(4, lookup.count(49.9));
+        assertEquals(5, lookup.count(50));
+        assertEquals(5, lookup.count(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void testValues() {
+        ColorMapLookup lookup = ColorMapLookup.create(ColorMap.TYPE_VALUES, false, QUANTITIES,
+                COLORS, null, DataBuffer.TYPE_FLOAT);
+        assertEquals(Color.RED.getRGB(), rgb(lookup, 0));
+        assertEquals(Color.GREEN.getRGB(), rgb(lookup, 100));
+        assertEquals(Color.BLUE.getRGB(), rgb(lookup, 200));
+        assertEquals(ColorMapLookup.TRANSPARENT, lookup.getIndex(50));
+        assertEquals(ColorMapLookup.TRANSPARENT, lookup.getIndex(300));
+        assertEquals(ColorMapLookup.TRANSPARENT, lookup.getIndex(Double.NaN));
+    }
+
+    @Test
+    public void testIntervals() {
+        ColorMapLookup lookup = ColorMapLookup.create(ColorMap.TYPE_INTERVALS, false,
+                QUANTITIES, COLORS, null, DataBuffer.TYPE_DOUBLE);
+        assertEquals(Color.RED.getRGB(), rgb(lookup, -10));
+        assertEquals(Color.GREEN.getRGB(), rgb(lookup, 0));
+        assertEquals(Color.GREEN.getRGB(), rgb(lookup, 99.9));
+        assertEquals(Color.BLUE.getRGB(), rgb(lookup, 100));
+        assertEquals(ColorMapLookup.TRANSPARENT, lookup.getIndex(200));
+    }
+
+    @Test
+    public void testRamp() {
+        ColorMapLookup lookup = ColorMapLookup.create(ColorMap.TYPE_RAMP, false, QUANTITIES,
+                COLORS, new double[] { -9999 }, DataBuffer.TYPE_FLOAT);
+        assertEquals(Color.RED.getRGB(), rgb(lookup, -10));
+        assertEquals(Color.RED.getRGB(), rgb(lookup, 0));
+        assertEquals(Color.BLUE.getRGB(), rgb(lookup, 200));
+        assertEquals(Color.BLUE.getRGB(), rgb(lookup, 1000));
+        Color middle = new Color(rgb(lookup, 50), true);
+        assertEquals(128, middle.getRed(), 2);
+        assertEquals(128, middle.getGreen(), 2);
+        assertEquals(0, middle.getBlue());
+        assertEquals(ColorMapLookup.TRANSPARENT, lookup.getIndex(-9999));
+        assertEquals(ColorMapLookup.TRANSPARENT, lookup.getIndex(Double.NaN));
+        assertEquals(0, lookup.getColorModel().getAlpha(ColorMapLookup.TRANSPARENT));
+    }
+
+    @Test
+    public void testRampSharpJump() {
+        // two entries with the same quantity, the ramp jumps from the first to the second
+        ColorMapLookup lookup = ColorMapLookup.create(ColorMap.TYPE_RAMP, false,
+                new double[] { 0, 100, 100, 200 },
+                new Color[] { Color.BLACK, Color.RED, Color.BLUE, Color.WHITE }, null,
+                DataBuffer.TYPE_FLOAT);
+        Color before = new Color(rgb(lookup, 99.99));
+        assertEquals(255, before.getRed(), 2);
+        assertEquals(0, before.getBlue());
+        Color after = new Color(rgb(lookup, 100));
+        assertEquals(0, after.getRed());
+        assertEquals(255, after.getBlue());
+    }
+
+    @Test
+    public void testUnsupported() {
+        // not sorted
+        assertNull(ColorMapLookup.create(ColorMap.TYPE_RAMP, false, new double[] { 10, 0 },
+                new Color[] { Color.RED, Color.BLUE }, null, DataBuffer.TYPE_FLOAT));
+        // single entry ramp
+        assertNull(ColorMapLookup.create(ColorMap.TYPE_RAMP, false, new double[] { 10 },
+                new Color[] { Color.RED }, null, DataBuffer.TYPE_FLOAT));
+    }
+
+    @Test
+    public void testByteLookupMatchesSearch() {
+        ColorMapLookup lookup = ColorMapLookup.create(ColorMap.TYPE_RAMP, false, QUANTITIES,
+                COLORS, new double[] { 255 }, DataBuffer.TYPE_BYTE);
+        BufferedImage source = new BufferedImage(256, 4, BufferedImage.TYPE_BYTE_GRAY);
+        WritableRaster raster = source.getRaster();
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 256; x++) {
+                raster.setSample(x, y, 0, x);
+            }
+        }
+        IndexColorModel cm = lookup.getColorModel();
+        WritableRaster dest = cm.createCompatibleWritableRaster(256, 4);
+        lookup.lookup(raster, dest, new Rectangle(0, 0, 256, 4));
+        for (int x = 0; x < 256; x++) {
+            assertEquals(lookup.getIndex(x), dest.getSample(x, 3, 0));
+        }
+        assertEquals(ColorMapLookup.TRANSPARENT, dest.getSample(255, 0, 0));
+    }
+
+    @Test
+    public void testFloatLookupParallel() {
+        // big enough to be split in strips
+        int width = 1024;
+        int height = 512;
+        WritableRaster raster = Raster.createWritableRaster(new BandedSampleModel(
+                DataBuffer.TYPE_FLOAT, width, height, 1), null);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, (x + y) / 6f - 10);
+            }
+        }
+        ColorMapLookup lookup = ColorMapLookup.create(ColorMap.TYPE_RAMP, true, QUANTITIES,
+                COLORS, null, DataBuffer.TYPE_FLOAT);
+        WritableRaster dest = lookup.getColorModel().createCompatibleWritableRaster(width,
+                height);
+        assertEquals(DataBuffer.TYPE_USHORT, dest.getDataBuffer().getDataType());
+        lookup.lookup(raster, dest, new Rectangle(0, 0, width, height));
+        for (int y = 0; y < height; y += 17) {
+            for (int x = 0; x < width; x += 13) {
+                assertEquals(lookup.getIndex(raster.getSampleFloat(x, y, 0)),
+                        dest.getSample(x, y, 0));
+            }
+        }
+    }
+
+    @Test
+    public void testNoDataMappedToTransparent() {
+        ColorMapLookup lookup = ColorMapLookup.create(ColorMap.TYPE_RAMP, false, QUANTITIES,
+                COLORS, new double[] { -9999 }, DataBuffer.TYPE_FLOAT);
+        WritableRaster raster = Raster.createWritableRaster(new BandedSampleModel(
+                DataBuffer.TYPE_FLOAT, 2, 1, 1), null);
+        raster.setSample(0, 0, 0, -9999f);
+        raster.setSample(1, 0, 0, 100f);
+        WritableRaster dest = lookup.getColorModel().createCompatibleWritableRaster(2, 1);
+        lookup.lookup(raster, dest, new Rectangle(0, 0, 2, 1));
+
+        // the output no data is the palette index, not the source no data value
+        Range noData = lookup.getNoData();
+        assertEquals(ColorMapLookup.TRANSPARENT, noData.getMin().intValue());
+        assertEquals(ColorMapLookup.TRANSPARENT, noData.getMax().intValue());
+        assertEquals(noData.getMin().intValue(), dest.getSample(0, 0, 0));
+        assertNotEquals(noData.getMin().intValue(), dest.getSample(1, 0, 0));
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * A read only, pre-built snapshot of the EPSG database. The snapshot is generated from the
+ * HSQL database by {@link SnapshotCreationScript} and allows to decode the most commonly used
+ * objects without paying for the database creation and opening.
+ * <p>
+ * The file is organized in named tables, each one mapping integer EPSG codes to a binary
+ * payload. The layout is:
+ * <ul>
+ *   <li>The {@value #MAGIC} marker, the EPSG version and a directory of table names and
+ *       offsets;</li>
+ *   <li>for each table, the number of entries, the sorted codes, the offsets of each payload
+ *       (plus one for the end of the last payload) and finally the payloads themselves.</li>
+ * </ul>
+ * Files are memory mapped when possible, and each table is indexed only when first accessed,
+ * so that opening a snapshot costs little more than reading its header.
+ */
+final class EpsgSnapshot {
+    /**
+     * The marker at the beginning of every snapshot.
+     */
+    static final String MAGIC = "GTEPSGS1";
+
+    /**
+     * The table mapping coordinate reference system codes to their WKT, encoded in UTF-8.
+     */
+    static final String CRS_TABLE = "crs";
+
+    /**
+     * The table mapping coordinate reference system codes to the geographic bounding box
+     * of their domain of validity, as four doubles (west, east, south, north).
+     */
+    static final String AREA_TABLE = "area";
+
+    /**
+     * The table mapping coordinate reference system codes to their
+     * {@linkplain CRSFingerprintIndex#fingerprint fingerprint}, encoded in UTF-8.
+     */
+    static final String FINGERPRINT_TABLE = "fingerprint";
+
+    /**
+     * The charset used for strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The snapshot content. Never modified after construction, all accesses are absolute or
+     * performed on duplicates.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The version of the EPSG database the snapshot has been generated from.
+     */
+    private final String version;
+
+    /**
+     * The offset of each table, by name.
+     */
+    private final Map<String,Integer> offsets;
+
+    /**
+     * The tables indexed so far.
+     */
+    private final Map<String,Table> tables = new HashMap<String,Table>();
+
+    /**
+     * Creates a snapshot from its content.
+     *
+     * @throws IOException if the content is not a valid snapshot.
+     */
+    private EpsgSnapshot(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        final byte[] magic = new byte[MAGIC.length()];
+        buffer.get(magic);
+        if (!MAGIC.equals(new String(magic, UTF8))) {
+            throw new IOException("Not an EPSG snapshot");
+        }
+        version = readString(buffer);
+        final int count = buffer.getInt();
+        offsets = new HashMap<String,Integer>(count * 2);
+        for (int i=0; i<count; i++) {
+            final String name = readString(buffer);
+            offsets.put(name, buffer.getInt());
+        }
+    }
+
+    /**
+     * Opens the snapshot at the given location. Local files are memory mapped, other resources
+     * (typically entries in a JAR file) are read fully in memory.
+     *
+     * @param  url The snapshot location.
+     * @return The snapshot.
+     * @throws IOException if the snapshot can't be read.
+     */
+    static EpsgSnapshot open(final URL url) throws IOException {
+        if ("file".equalsIgnoreCase(url.getProtocol())) {
+            File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                file = new File(url.getPath());
+            }
+            final FileInputStream in = new FileInputStream(file);
+            try {
+                final FileChannel channel = in.getChannel();
+                return new EpsgSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } finally {
+                in.close();
+            }
+        }
+        final InputStream in = url.openStream();
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(4 * 1024 * 1024);
+            final byte[] chunk = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(chunk)) >= 0) {
+                out.write(chunk, 0, n);
+            }
+            return new EpsgSnapshot(ByteBuffer.wrap(out.toByteArray()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the version of the EPSG database the snapshot has been generated from.
+     */
+    String getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the table with the given name, or {@code null} if the snapshot does not
+     * contain such table.
+     */
+    synchronized Table getTable(final String name) {
+        Table table = tables.get(name);
+        if (table == null) {
+            final Integer offset = offsets.get(name);
+            if (offset == null) {
+                return null;
+            }
+            table = new Table(offset);
+            tables.put(name, table);
+        }
+        return table;
+    }
+
+    /**
+     * Returns the index of the coordinate reference system codes by fingerprint,
+     * or {@code null} if the snapshot does not contain fingerprints.
+     */
+    CRSFingerprintIndex getFingerprintIndex() {
+        final Table table = getTable(FINGERPRINT_TABLE);
+        if (table == null) {
+            return null;
+        }
+        final Map<String,String> fingerprints = new LinkedHashMap<String,String>(table.size() * 2);
+        for (int i=0; i<table.size(); i++) {
+            fingerprints.put(String.valueOf(table.getCode(i)), table.getStringAt(i));
+        }
+        return new CRSFingerprintIndex(fingerprints);
+    }
+
+    /**
+     * A table in the snapshot, mapping codes to a payload.
+     */
+    final class Table {
+        /**
+         * The sorted codes.
+         */
+        private final int[] codes;
+
+        /**
+         * The absolute position of each payload in the buffer, plus the end of the last one.
+         */
+        private final int[] positions;
+
+        /**
+         * Indexes the table starting at the given position.
+         */
+        private Table(final int offset) {
+            final ByteBuffer b = buffer.duplicate();
+            b.position(offset);
+            final int count = b.getInt();
+            codes = new int[count];
+            b.asIntBuffer().get(codes);
+            b.position(b.position() + count * 4);
+            positions = new int[count + 1];
+            b.asIntBuffer().get(positions);
+            final int base = b.position() + positions.length * 4;
+            for (int i=0; i<positions.length; i++) {
+                positions[i] += base;
+            }
+        }
+
+        /**
+         * Returns the number of entries in this table.
+         */
+        int size() {
+            return codes.length;
+        }
+
+        /**
+         * Returns the code at the given index, in increasing code order.
+         */
+        int getCode(final int index) {
+            return codes[index];
+        }
+
+        /**
+         * Returns the index of the given code, or a negative value if not found.
+         */
+        int indexOf(final int code) {
+            return Arrays.binarySearch(codes, code);
+        }
+
+        /**
+         * Returns the payload for the given code decoded as a string,
+         * or {@code null} if the code is not in this table.
+         */
+        String getString(final int code) {
+            final int index = indexOf(code);
+            return (index >= 0) ? getStringAt(index) : null;
+        }
+
+        /**
+         * Returns the payload at the given index, in increasing code order, decoded as a string.
+         */
+        String getStringAt(final int index) {
+            final byte[] bytes = new byte[positions[index + 1] - positions[index]];
+            final ByteBuffer b = buffer.duplicate();
+            b.position(positions[index]);
+            b.get(bytes);
+            return new String(bytes, UTF8);
+        }
+
+        /**
+         * Returns the payload for the given code decoded as an array of doubles,
+         * or {@code null} if the code is not in this table.
+         */
+        double[] getDoubles(final int code) {
+            final int index = indexOf(code);
+            if (index < 0) {
+                return null;
+            }
+            final int start = positions[index];
+            final double[] values = new double[(positions[index + 1] - start) / 8];
+            for (int i=0; i<values.length; i++) {
+                values[i] = buffer.getDouble(start + i * 8);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Writes a snapshot.
+     *
+     * @param file    The file to write.
+     * @param version The version of the EPSG database the content comes from.
+     * @param tables  The payloads of each table, by table name and code.
+     * @throws IOException if the file can't be written.
+     */
+    static void write(final File file, final String version,
+                      final Map<String, SortedMap<Integer,byte[]>> tables) throws IOException
+    {
+        // Encodes the tables first, so that the header can reference them
+        final Map<String,byte[]> encoded = new LinkedHashMap<String,byte[]>();
+        for (final Map.Entry<String, SortedMap<Integer,byte[]>> entry : tables.entrySet()) {
+            final SortedMap<Integer,byte[]> payloads = entry.getValue();
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(payloads.size());
+            for (final Integer code : payloads.keySet()) {
+                out.writeInt(code);
+            }
+            int position = 0;
+            for (final byte[] payload : payloads.values()) {
+                out.writeInt(position);
+                position += payload.length;
+            }
+            out.writeInt(position);
+            for (final byte[] payload : payloads.values()) {
+                out.write(payload);
+            }
+            out.close();
+            encoded.put(entry.getKey(), bytes.toByteArray());
+        }
+        int headerSize = MAGIC.length() + stringSize(version) + 4;
+        for (final String name : encoded.keySet()) {
+            headerSize += stringSize(name) + 4;
+        }
+        final DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.write(MAGIC.getBytes(UTF8));
+            writeString(out, version);
+            out.writeInt(encoded.size());
+            int offset = headerSize;
+            for (final Map.Entry<String,byte[]> entry : encoded.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(offset);
+                offset += entry.getValue().length;
+            }
+            for (final byte[] table : encoded.values()) {
+                out.write(table);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the number of bytes used by {@link #writeString}.
+     */
+    private static int stringSize(final String value) {
+        return 2 + value.getBytes(UTF8).length;
+    }
+
+    /**
+     * Writes a short string, prefixed by its length in bytes.
+     */
+    private static void writeString(final DataOutputStream out, final String value)
+            throws IOException
+    {
+        final byte[] bytes = value.getBytes(UTF8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString}.
+     */
+    private static String readString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
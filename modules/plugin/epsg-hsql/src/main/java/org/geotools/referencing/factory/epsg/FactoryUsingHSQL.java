@@ -17,6 +17,8 @@
 package org.geotools.referencing.factory.epsg;
 
 // J2SE dependencies
+import java.io.IOException;
+import java.net.URL;
 import java.sql.Statement;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -26,6 +28,7 @@ import javax.sql.DataSource;
 
 // Geotools dependencies
 import org.geotools.factory.Hints;
+import org.geotools.util.logging.Logging;
 
 
 /**
@@ -48,6 +51,17 @@ final class FactoryUsingHSQL extends FactoryUsingAnsiSQL {
             Pattern.compile("\\s+FROM\\s*\\(",
             Pattern.CASE_INSENSITIVE);
 
+    /**
+     * The fingerprint index of the enabled snapshot, or {@code null} if none.
+     */
+    private static CRSFingerprintIndex fingerprints;
+
+    /**
+     * The location of the snapshot {@link #fingerprints} has been loaded from, or {@code null}
+     * if no attempt to load it has been made yet.
+     */
+    private static String fingerprintsLocation;
+
     /**
      * Constructs the factory for the given connection to the HSQL database.
      */
@@ -92,6 +106,37 @@ final class FactoryUsingHSQL extends FactoryUsingAnsiSQL {
         return query;
     }
 
+    /**
+     * Returns the fingerprint index stored in the {@link ThreadedSnapshotEpsgFactory} snapshot,
+     * provided the snapshot is enabled and has been generated from the same database version.
+     * The snapshot is not read at all when the {@value ThreadedSnapshotEpsgFactory#SNAPSHOT_KEY}
+     * system property does not enable it.
+     */
+    @Override
+    protected CRSFingerprintIndex getFingerprintIndex() {
+        final URL url = ThreadedSnapshotEpsgFactory.getConfiguredSnapshotURL();
+        if (url == null) {
+            return null;
+        }
+        synchronized (FactoryUsingHSQL.class) {
+            final String location = url.toExternalForm();
+            if (!location.equals(fingerprintsLocation)) {
+                fingerprintsLocation = location;
+                fingerprints = null;
+                try {
+                    final EpsgSnapshot snapshot = EpsgSnapshot.open(url);
+                    if (ThreadedHsqlEpsgFactory.VERSION.toString().equals(snapshot.getVersion())) {
+                        fingerprints = snapshot.getFingerprintIndex();
+                    }
+                } catch (IOException exception) {
+                    Logging.unexpectedException(LOGGER, FactoryUsingHSQL.class,
+                            "getFingerprintIndex", exception);
+                }
+            }
+            return fingerprints;
+        }
+    }
+
     /**
      * Shutdown the HSQL database engine. This method is invoked automatically at JVM
      * shutdown time just before to close the connection.
@@ -0,0 +1,421 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.text.ParseException;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.geotools.factory.Hints;
+import org.geotools.metadata.iso.citation.Citations;
+import org.geotools.metadata.iso.extent.ExtentImpl;
+import org.geotools.metadata.iso.extent.GeographicBoundingBoxImpl;
+import org.geotools.referencing.NamedIdentifier;
+import org.geotools.referencing.factory.DirectAuthorityFactory;
+import org.geotools.referencing.factory.IdentifiedObjectFinder;
+import org.geotools.referencing.factory.ReferencingFactoryContainer;
+import org.geotools.referencing.wkt.Symbols;
+import org.geotools.util.DerivedSet;
+import org.geotools.util.SimpleInternationalString;
+import org.geotools.util.Version;
+import org.opengis.metadata.citation.Citation;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.ReferenceSystem;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.util.InternationalString;
+
+/**
+ * The backing store of {@link ThreadedSnapshotEpsgFactory}, creating coordinate reference
+ * systems from the WKT stored in an {@link EpsgSnapshot}. This is similar to
+ * {@link org.geotools.referencing.factory.PropertyAuthorityFactory}, but entries are decoded
+ * on demand from the snapshot instead of being loaded all at once, and the domain of validity
+ * is restored from the snapshot area table.
+ */
+final class FactoryUsingSnapshot extends DirectAuthorityFactory implements CRSAuthorityFactory {
+    /**
+     * The authority for this factory.
+     */
+    private final Citation authority;
+
+    /**
+     * The CRS definitions.
+     */
+    private final EpsgSnapshot.Table definitions;
+
+    /**
+     * The domains of validity, or {@code null} if the snapshot does not contain them.
+     */
+    private final EpsgSnapshot.Table areas;
+
+    /**
+     * All the codes in this factory.
+     */
+    private final Set<String> codes;
+
+    /**
+     * Views of {@link #codes} for different types, created when first needed.
+     */
+    private final Map<Class<? extends IdentifiedObject>, Set<String>> filteredCodes =
+            new HashMap<Class<? extends IdentifiedObject>, Set<String>>();
+
+    /**
+     * The index of codes by fingerprint, or {@code null} if the snapshot does not contain it.
+     */
+    private final CRSFingerprintIndex fingerprints;
+
+    /**
+     * The WKT parser.
+     */
+    private final Parser parser;
+
+    /**
+     * Creates a factory for the given snapshot.
+     *
+     * @param factories The underlying factories used for objects creation.
+     * @param authority The authority, usually {@link Citations#EPSG} with the snapshot edition.
+     * @param snapshot  The snapshot to read from.
+     * @throws FactoryException if the snapshot does not contain CRS definitions.
+     */
+    FactoryUsingSnapshot(final ReferencingFactoryContainer factories,
+                         final Citation authority, final EpsgSnapshot snapshot)
+            throws FactoryException
+    {
+        super(factories, MINIMUM_PRIORITY + 10);
+        // The snapshot holds the objects exactly as defined in the EPSG database.
+        hints.put(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, Boolean.FALSE);
+        hints.put(Hints.FORCE_STANDARD_AXIS_DIRECTIONS,   Boolean.FALSE);
+        hints.put(Hints.FORCE_STANDARD_AXIS_UNITS,        Boolean.FALSE);
+        hints.put(Hints.VERSION, new Version(snapshot.getVersion()));
+        this.authority = authority;
+        definitions = snapshot.getTable(EpsgSnapshot.CRS_TABLE);
+        if (definitions == null) {
+            throw new FactoryException("The EPSG snapshot does not contain CRS definitions");
+        }
+        areas  = snapshot.getTable(EpsgSnapshot.AREA_TABLE);
+        codes  = Collections.unmodifiableSet(new Codes(definitions));
+        fingerprints = snapshot.getFingerprintIndex();
+        parser = new Parser();
+    }
+
+    /**
+     * Returns the organization or party responsible for definition and maintenance of the
+     * database.
+     */
+    public Citation getAuthority() {
+        return authority;
+    }
+
+    /**
+     * Returns the set of authority codes of the given type. Filtering is performed
+     * on the keyword at the start of each WKT.
+     *
+     * @param  type The spatial reference objects type (may be {@code Object.class}).
+     * @return The set of authority codes for spatial reference objects of the given type.
+     */
+    public Set<String> getAuthorityCodes(final Class<? extends IdentifiedObject> type) {
+        if (type == null || type.isAssignableFrom(IdentifiedObject.class)) {
+            return codes;
+        }
+        synchronized (filteredCodes) {
+            Set<String> filtered = filteredCodes.get(type);
+            if (filtered == null) {
+                filtered = new TypedCodes(codes, type);
+                filteredCodes.put(type, filtered);
+            }
+            return filtered;
+        }
+    }
+
+    /**
+     * The set of all codes in a table, in increasing order.
+     */
+    private static final class Codes extends AbstractSet<String> {
+        /**
+         * The table to enumerate.
+         */
+        private final EpsgSnapshot.Table table;
+
+        /**
+         * Creates the set of codes in the given table.
+         */
+        Codes(final EpsgSnapshot.Table table) {
+            this.table = table;
+        }
+
+        @Override
+        public int size() {
+            return table.size();
+        }
+
+        @Override
+        public boolean contains(final Object code) {
+            return (code instanceof String) && table.indexOf(parse((String) code)) >= 0;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int index;
+
+                public boolean hasNext() {
+                    return index < table.size();
+                }
+
+                public String next() {
+                    if (index >= table.size()) {
+                        throw new NoSuchElementException();
+                    }
+                    return String.valueOf(table.getCode(index++));
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    /**
+     * The set of codes for a specific type of CRS. Filtering is performed on the fly.
+     */
+    private final class TypedCodes extends DerivedSet<String, String> {
+        /**
+         * For cross-version compatibility.
+         */
+        private static final long serialVersionUID = -1519298457624932498L;
+
+        /**
+         * The spatial reference objects type.
+         */
+        private final Class<? extends IdentifiedObject> type;
+
+        /**
+         * Constructs a set of codes for the specified type.
+         */
+        TypedCodes(final Set<String> codes, final Class<? extends IdentifiedObject> type) {
+            super(codes, String.class);
+            this.type = type;
+        }
+
+        /**
+         * Returns {@code true} if the given code is defined and of the expected type.
+         */
+        @Override
+        public boolean contains(final Object code) {
+            return super.contains(code) && baseToDerived((String) code) != null;
+        }
+
+        /**
+         * Returns the code if the associated WKT is of the expected type, or {@code null}
+         * otherwise.
+         */
+        protected String baseToDerived(final String code) {
+            final String wkt = definitions.getString(parse(code));
+            final int length = wkt.length();
+            int i=0; while (i<length && Character.isJavaIdentifierPart(wkt.charAt(i))) i++;
+            Class<?> candidate = Parser.getClassOf(wkt.substring(0,i));
+            if (candidate == null) {
+                candidate = IdentifiedObject.class;
+            }
+            return type.isAssignableFrom(candidate) ? code : null;
+        }
+
+        /**
+         * Transforms a value in this set to a value in the base set.
+         */
+        protected String derivedToBase(final String element) {
+            return element;
+        }
+    }
+
+    /**
+     * Parses a code, returning {@code -1} if it is not numeric.
+     */
+    private static int parse(final String code) {
+        try {
+            return Integer.parseInt(code.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the Well Know Text from a code.
+     *
+     * @param  code Value allocated by authority.
+     * @return The Well Know Text (WKT) for the specified code.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     */
+    public String getWKT(final String code) throws NoSuchAuthorityCodeException {
+        ensureNonNull("code", code);
+        final String wkt = definitions.getString(parse(trimAuthority(code)));
+        if (wkt == null) {
+            throw noSuchAuthorityCode(IdentifiedObject.class, code);
+        }
+        return wkt;
+    }
+
+    /**
+     * Gets a description of the object corresponding to a code.
+     *
+     * @param  code Value allocated by authority.
+     * @return A description of the object, or {@code null} if the object
+     *         corresponding to the specified {@code code} has no description.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     */
+    public InternationalString getDescriptionText(final String code)
+            throws NoSuchAuthorityCodeException
+    {
+        final String wkt = getWKT(code);
+        int start = wkt.indexOf('"');
+        if (start >= 0) {
+            final int end = wkt.indexOf('"', ++start);
+            if (end >= 0) {
+                return new SimpleInternationalString(wkt.substring(start, end).trim());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns an arbitrary object from a code.
+     *
+     * @param  code Value allocated by authority.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     * @throws FactoryException if the object creation failed for some other reason.
+     */
+    @Override
+    public IdentifiedObject createObject(final String code)
+            throws NoSuchAuthorityCodeException, FactoryException
+    {
+        return createCoordinateReferenceSystem(code);
+    }
+
+    /**
+     * Returns a coordinate reference system from a code.
+     *
+     * @param  code Value allocated by authority.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     * @throws FactoryException if the object creation failed for some other reason.
+     */
+    @Override
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
+            throws NoSuchAuthorityCodeException, FactoryException
+    {
+        final String wkt = getWKT(code);
+        try {
+            synchronized (parser) {
+                parser.code = parse(trimAuthority(code));
+                return parser.parseCoordinateReferenceSystem(wkt);
+            }
+        } catch (ParseException exception) {
+            throw new FactoryException(exception);
+        }
+    }
+
+    /**
+     * Returns a finder which can be used for looking up unidentified objects. The finder
+     * scans only the codes sharing the fingerprint of the object looked up, when possible.
+     *
+     * @param  type The type of objects to look for.
+     * @return A finder to use for looking up unidentified objects.
+     */
+    @Override
+    public IdentifiedObjectFinder getIdentifiedObjectFinder(
+            final Class<? extends IdentifiedObject> type) throws FactoryException
+    {
+        return new Finder(type);
+    }
+
+    /**
+     * An implementation of {@link IdentifiedObjectFinder} using the fingerprint index.
+     */
+    private final class Finder extends IdentifiedObjectFinder {
+        /**
+         * Creates a new finder for the given type of objects.
+         */
+        Finder(final Class<? extends IdentifiedObject> type) {
+            super(FactoryUsingSnapshot.this, type);
+        }
+
+        /**
+         * Returns the codes sharing the fingerprint of the given object, or
+         * all codes if the object can't be fingerprinted.
+         */
+        @Override
+        protected Set getCodeCandidates(final IdentifiedObject object) throws FactoryException {
+            if (fingerprints != null) {
+                final Set<String> candidates = fingerprints.getCodeCandidates(object);
+                if (candidates != null) {
+                    return candidates;
+                }
+            }
+            return super.getCodeCandidates(object);
+        }
+    }
+
+    /**
+     * The WKT parser for this factory. It adds the authority code if it was not explicitly
+     * specified in the WKT, and the domain of validity found in the snapshot.
+     */
+    private final class Parser extends org.geotools.referencing.wkt.Parser {
+        /**
+         * For cross-version compatibility.
+         */
+        private static final long serialVersionUID = 4398757318523961553L;
+
+        /**
+         * The authority code for the WKT to be parsed.
+         */
+        int code;
+
+        /**
+         * Creates the parser.
+         */
+        Parser() {
+            super(Symbols.DEFAULT, factories);
+        }
+
+        /**
+         * Adds the authority code and the domain of validity to the root element properties.
+         */
+        @Override
+        protected Map<String,Object> alterProperties(Map<String,Object> properties) {
+            properties = new HashMap<String,Object>(properties);
+            if (properties.get(IdentifiedObject.IDENTIFIERS_KEY) == null) {
+                properties.put(IdentifiedObject.IDENTIFIERS_KEY,
+                        new NamedIdentifier(authority, String.valueOf(code)));
+            }
+            final double[] bbox = (areas != null) ? areas.getDoubles(code) : null;
+            if (bbox != null && bbox.length == 4) {
+                final ExtentImpl extent = new ExtentImpl();
+                extent.setGeographicElements(Collections.singleton(
+                        new GeographicBoundingBoxImpl(bbox[0], bbox[1], bbox[2], bbox[3])));
+                properties.put(ReferenceSystem.DOMAIN_OF_VALIDITY_KEY, extent.unmodifiable());
+            }
+            return super.alterProperties(properties);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.geotools.referencing.CRS;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Utility used to create the {@value ThreadedSnapshotEpsgFactory#FILENAME} snapshot of the
+ * HSQL version of the EPSG database, used by {@link ThreadedSnapshotEpsgFactory}.
+ */
+public class SnapshotCreationScript {
+
+    public static void main(String[] args) throws Exception {
+        /**
+         * BEFORE USING THIS SCRIPT
+         * - make sure the EPSG.zip file has been updated with DatabaseCreationScript
+         * - run it from the epsg-hsql module directory, or pass the output file as argument
+         */
+        File output = new File("./src/main/resources/org/geotools/referencing/factory/epsg/"
+                + ThreadedSnapshotEpsgFactory.FILENAME);
+        if (args.length > 0) {
+            output = new File(args[0]);
+        }
+
+        final ThreadedHsqlEpsgFactory factory = new ThreadedHsqlEpsgFactory();
+        final Charset utf8 = Charset.forName("UTF-8");
+        final SortedMap<Integer,byte[]> definitions = new TreeMap<Integer,byte[]>();
+        final SortedMap<Integer,byte[]> areas = new TreeMap<Integer,byte[]>();
+        final SortedMap<Integer,byte[]> fingerprints = new TreeMap<Integer,byte[]>();
+        int failures = 0;
+        try {
+            for (final String code : factory.getAuthorityCodes(CoordinateReferenceSystem.class)) {
+                final int key;
+                try {
+                    key = Integer.parseInt(code.trim());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                try {
+                    final CoordinateReferenceSystem crs = factory.createCoordinateReferenceSystem(code);
+                    // use toString, it's more lenient that toWKT
+                    final String wkt = crs.toString().replaceAll("\n", "").replaceAll("  ", "");
+                    // make sure we can parse back what we generated
+                    CRS.parseWKT(wkt);
+                    definitions.put(key, wkt.getBytes(utf8));
+
+                    final GeographicBoundingBox bbox = CRS.getGeographicBoundingBox(crs);
+                    if (bbox != null) {
+                        final ByteBuffer buffer = ByteBuffer.allocate(4 * 8);
+                        buffer.putDouble(bbox.getWestBoundLongitude());
+                        buffer.putDouble(bbox.getEastBoundLongitude());
+                        buffer.putDouble(bbox.getSouthBoundLatitude());
+                        buffer.putDouble(bbox.getNorthBoundLatitude());
+                        areas.put(key, buffer.array());
+                    }
+
+                    final String fingerprint = CRSFingerprintIndex.fingerprint(crs);
+                    if (fingerprint != null) {
+                        fingerprints.put(key, fingerprint.getBytes(utf8));
+                    }
+                } catch (Exception e) {
+                    // we cannot actually decode all codes, these will be served by HSQL
+                    System.out.println("Skipping EPSG:" + code + ": " + e.getMessage());
+                    failures++;
+                }
+            }
+        } finally {
+            factory.dispose();
+        }
+
+        final Map<String, SortedMap<Integer,byte[]>> tables =
+                new LinkedHashMap<String, SortedMap<Integer,byte[]>>();
+        tables.put(EpsgSnapshot.CRS_TABLE, definitions);
+        tables.put(EpsgSnapshot.AREA_TABLE, areas);
+        tables.put(EpsgSnapshot.FINGERPRINT_TABLE, fingerprints);
+        EpsgSnapshot.write(output, ThreadedHsqlEpsgFactory.VERSION.toString(), tables);
+        System.out.println("Wrote " + definitions.size() + " definitions to " + output
+                + ", skipped " + failures);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.geotools.factory.Hints;
+import org.geotools.metadata.iso.citation.CitationImpl;
+import org.geotools.metadata.iso.citation.Citations;
+import org.geotools.referencing.factory.AbstractAuthorityFactory;
+import org.geotools.referencing.factory.DeferredAuthorityFactory;
+import org.geotools.referencing.factory.FactoryNotFoundException;
+import org.geotools.referencing.factory.ReferencingFactoryContainer;
+import org.geotools.resources.i18n.ErrorKeys;
+import org.geotools.resources.i18n.Errors;
+import org.geotools.resources.i18n.LoggingKeys;
+import org.geotools.resources.i18n.Loggings;
+import org.geotools.util.SimpleInternationalString;
+import org.geotools.util.logging.Logging;
+import org.opengis.metadata.citation.Citation;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+
+/**
+ * Creates EPSG coordinate reference systems from a prebuilt, read only snapshot of the
+ * {@linkplain ThreadedHsqlEpsgFactory HSQL database}. The snapshot is opened (and memory
+ * mapped, when it is a file) in a few milliseconds, avoiding the creation and opening of the
+ * HSQL database that dominates the cost of the first {@code CRS.decode} in short lived
+ * processes.
+ * <p>
+ * The snapshot contains only coordinate reference systems. Since this factory has a higher
+ * priority than {@link ThreadedHsqlEpsgFactory}, {@code CRS.decode} will use it first and
+ * fall back on the HSQL database for any other object or code not found in the snapshot.
+ * <p>
+ * This factory is disabled by default. It is enabled by setting the {@value #SNAPSHOT_KEY}
+ * {@linkplain System#getProperty(String) system property} to {@code true}, in which case the
+ * snapshot bundled in this plugin is used, or to the path of a snapshot file created by
+ * {@link SnapshotCreationScript}.
+ */
+public class ThreadedSnapshotEpsgFactory extends DeferredAuthorityFactory
+        implements CRSAuthorityFactory
+{
+    /**
+     * The key for enabling the snapshot from {@linkplain System#getProperty(String)
+     * system properties}.
+     */
+    public static final String SNAPSHOT_KEY = "EPSG-HSQL.snapshot";
+
+    /**
+     * The name of the snapshot bundled in this plugin.
+     */
+    public static final String FILENAME = "EPSG.snapshot";
+
+    /**
+     * The factories to be given to the backing store.
+     */
+    private final ReferencingFactoryContainer factories;
+
+    /**
+     * Creates a new instance of this factory.
+     */
+    public ThreadedSnapshotEpsgFactory() {
+        this(null);
+    }
+
+    /**
+     * Creates a new instance of this factory using the specified hints. The priority is
+     * set to a higher value than the {@link ThreadedHsqlEpsgFactory} one, which will be
+     * used as a fallback.
+     */
+    public ThreadedSnapshotEpsgFactory(final Hints userHints) {
+        super(userHints, ThreadedEpsgFactory.PRIORITY + 2);
+        factories = ReferencingFactoryContainer.instance(userHints);
+        // Disposes the snapshot after at least 15 minutes of inactivity.
+        setTimeout(15 * 60 * 1000L);
+    }
+
+    /**
+     * Returns {@code true} if the {@value #SNAPSHOT_KEY} system property is set
+     * and the snapshot can be read.
+     */
+    @Override
+    public boolean isAvailable() {
+        return getSnapshotURL() != null && super.isAvailable();
+    }
+
+    /**
+     * Returns the authority, which is EPSG.
+     */
+    @Override
+    public Citation getAuthority() {
+        final Citation authority = super.getAuthority();
+        return (authority != null) ? authority : Citations.EPSG;
+    }
+
+    /**
+     * Returns the location of the snapshot, or {@code null} if the snapshot
+     * is not enabled or can't be found.
+     */
+    protected URL getSnapshotURL() {
+        return getConfiguredSnapshotURL();
+    }
+
+    /**
+     * Returns the location of the snapshot configured by the {@value #SNAPSHOT_KEY} system
+     * property, or {@code null} if the snapshot is not enabled or can't be found.
+     */
+    static URL getConfiguredSnapshotURL() {
+        try {
+            final String property = System.getProperty(SNAPSHOT_KEY);
+            if (property == null || property.trim().length() == 0
+                    || "false".equalsIgnoreCase(property.trim()))
+            {
+                return null;
+            }
+            if ("true".equalsIgnoreCase(property.trim())) {
+                return ThreadedSnapshotEpsgFactory.class.getResource(FILENAME);
+            }
+            final File file = new File(property.trim());
+            if (file.isFile()) {
+                return file.toURI().toURL();
+            }
+        } catch (SecurityException exception) {
+            Logging.unexpectedException(LOGGER, exception);
+        } catch (MalformedURLException exception) {
+            Logging.unexpectedException(LOGGER, exception);
+        }
+        return null;
+    }
+
+    /**
+     * Creates the backing store authority factory.
+     *
+     * @return The backing store to uses in {@code createXXX(...)} methods.
+     * @throws FactoryNotFoundException if the snapshot is not enabled or can't be found.
+     * @throws FactoryException if the snapshot can't be read.
+     */
+    protected AbstractAuthorityFactory createBackingStore() throws FactoryException {
+        final URL url = getSnapshotURL();
+        if (url == null) {
+            throw new FactoryNotFoundException(Errors.format(
+                    ErrorKeys.FILE_DOES_NOT_EXIST_$1, FILENAME));
+        }
+        final EpsgSnapshot snapshot;
+        try {
+            snapshot = EpsgSnapshot.open(url);
+        } catch (IOException exception) {
+            throw new FactoryException(Errors.format(ErrorKeys.CANT_READ_$1, url), exception);
+        }
+        final LogRecord record = Loggings.format(Level.CONFIG,
+                LoggingKeys.USING_FILE_AS_FACTORY_$2, url.getPath(), "EPSG");
+        record.setLoggerName(LOGGER.getName());
+        LOGGER.log(record);
+        final CitationImpl authority = new CitationImpl(Citations.EPSG);
+        authority.setEdition(new SimpleInternationalString(snapshot.getVersion()));
+        authority.freeze();
+        return new FactoryUsingSnapshot(factories, authority, snapshot);
+    }
+}
@@ -19,7 +19,13 @@ package org.geotools.referencing.factory.epsg;
 import java.lang.reflect.Method;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.geotools.geometry.DirectPosition2D;
 import org.geotools.referencing.AbstractIdentifiedObject;
@@ -190,6 +196,30 @@ public class ThreadedHsqlEpsgFactoryTest {
         assertEquals("The CRS should still be in the cache.","EPSG:2442", id);
     }
     
+    @Test
+    public void testFindEsriPrj() throws FactoryException {
+        /*
+         * A typical shapefile .prj, names do not match the EPSG ones and there is
+         * no identifier, so the lookup needs a full scan (narrowed by the fingerprint
+         * index when the snapshot is enabled).
+         */
+        String wkt = "PROJCS[\"WGS_1984_UTM_Zone_32N\","
+                + "GEOGCS[\"GCS_WGS_1984\",DATUM[\"D_WGS_1984\","
+                + "SPHEROID[\"WGS_1984\",6378137.0,298.257223563]],"
+                + "PRIMEM[\"Greenwich\",0.0],UNIT[\"Degree\",0.0174532925199433]],"
+                + "PROJECTION[\"Transverse_Mercator\"],PARAMETER[\"False_Easting\",500000.0],"
+                + "PARAMETER[\"False_Northing\",0.0],PARAMETER[\"Central_Meridian\",9.0],"
+                + "PARAMETER[\"Scale_Factor\",0.9996],PARAMETER[\"Latitude_Of_Origin\",0.0],"
+                + "UNIT[\"Meter\",1.0]]";
+        CoordinateReferenceSystem crs = CRS.parseWKT(wkt);
+        assertEquals(Integer.valueOf(32632), CRS.lookupEpsgCode(crs, true));
+
+        // a projection that is not in the database is not found
+        crs = CRS.parseWKT(wkt.replace("PARAMETER[\"Central_Meridian\",9.0]",
+                "PARAMETER[\"Central_Meridian\",9.5]"));
+        assertNull(CRS.lookupEpsgCode(crs, true));
+    }
+
     @Test
     public void testGoogleProjection() throws Exception {
         CoordinateReferenceSystem epsg4326 = CRS.decode("EPSG:4326");
@@ -299,6 +329,40 @@ public class ThreadedHsqlEpsgFactoryTest {
         assertEquals(0.219, params[0].ppm, EPS);
     }
 
+    @Test
+    public void testConcurrentCreation() throws Exception {
+        assertTrue(factory.getMaxWorkers() > 1);
+        final int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<CoordinateReferenceSystem>>> futures = new ArrayList<Future<List<CoordinateReferenceSystem>>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<List<CoordinateReferenceSystem>>() {
+
+                    public List<CoordinateReferenceSystem> call() throws Exception {
+                        List<CoordinateReferenceSystem> result = new ArrayList<CoordinateReferenceSystem>();
+                        // UTM zones north, not used by the other tests
+                        for (int code = 32601; code <= 32660; code++) {
+                            result.add(factory.createCoordinateReferenceSystem("EPSG:" + code));
+                        }
+                        return result;
+                    }
+                }));
+            }
+            // all threads must get the very same objects, even when racing on a cache miss
+            List<CoordinateReferenceSystem> expected = futures.get(0).get();
+            assertEquals(60, expected.size());
+            for (Future<List<CoordinateReferenceSystem>> future : futures) {
+                List<CoordinateReferenceSystem> actual = future.get();
+                for (int i = 0; i < expected.size(); i++) {
+                    assertSame(expected.get(i), actual.get(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testDelay() throws Exception {
         // force a short timeout
@@ -0,0 +1,159 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.util.Set;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.ReferencingFactoryFinder;
+import org.geotools.referencing.factory.IdentifiedObjectFinder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+
+/**
+ * Checks the {@link ThreadedSnapshotEpsgFactory} decodes the same objects as the HSQL database.
+ */
+public class ThreadedSnapshotEpsgFactoryTest {
+
+    private static ThreadedSnapshotEpsgFactory factory;
+
+    @BeforeClass
+    public static void setUp() {
+        // avoid depending on the system property, which would affect the other tests
+        factory = new ThreadedSnapshotEpsgFactory() {
+            @Override
+            protected URL getSnapshotURL() {
+                return ThreadedSnapshotEpsgFactory.class.getResource(FILENAME);
+            }
+        };
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        factory.dispose();
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertNull(System.getProperty(ThreadedSnapshotEpsgFactory.SNAPSHOT_KEY));
+        assertFalse(new ThreadedSnapshotEpsgFactory().isAvailable());
+        assertNull(ThreadedSnapshotEpsgFactory.getConfiguredSnapshotURL());
+        assertTrue(factory.isAvailable());
+    }
+
+    @Test
+    public void testSameAsDatabase() throws Exception {
+        CRSAuthorityFactory hsql = ReferencingFactoryFinder.getCRSAuthorityFactory("EPSG", null);
+        assertTrue(hsql instanceof ThreadedHsqlEpsgFactory);
+        for (String code : new String[] {"4326", "4269", "32632", "3857", "3003", "27700", "2154", "5621"}) {
+            CoordinateReferenceSystem expected = hsql.createCoordinateReferenceSystem("EPSG:" + code);
+            CoordinateReferenceSystem actual = factory.createCoordinateReferenceSystem("EPSG:" + code);
+            assertEquivalent(code, expected, actual);
+            assertEquals(code, actual.getIdentifiers().iterator().next().getCode());
+            GeographicBoundingBox expectedArea = CRS.getGeographicBoundingBox(expected);
+            GeographicBoundingBox actualArea = CRS.getGeographicBoundingBox(actual);
+            assertEquals(expectedArea.getWestBoundLongitude(), actualArea.getWestBoundLongitude(), 0);
+            assertEquals(expectedArea.getEastBoundLongitude(), actualArea.getEastBoundLongitude(), 0);
+            assertEquals(expectedArea.getSouthBoundLatitude(), actualArea.getSouthBoundLatitude(), 0);
+            assertEquals(expectedArea.getNorthBoundLatitude(), actualArea.getNorthBoundLatitude(), 0);
+        }
+    }
+
+    /**
+     * Projection parameters may differ by one ulp once converted to radians, since the
+     * database stores some of them in sexagesimal units, so projected CRS are compared
+     * by transforming a point.
+     */
+    private void assertEquivalent(String code, CoordinateReferenceSystem expected,
+            CoordinateReferenceSystem actual) throws Exception {
+        if (expected instanceof ProjectedCRS) {
+            ProjectedCRS expectedProjected = (ProjectedCRS) expected;
+            ProjectedCRS actualProjected = (ProjectedCRS) actual;
+            assertTrue(code, CRS.equalsIgnoreMetadata(expectedProjected.getBaseCRS(),
+                    actualProjected.getBaseCRS()));
+            assertTrue(code, CRS.equalsIgnoreMetadata(expectedProjected.getCoordinateSystem(),
+                    actualProjected.getCoordinateSystem()));
+            GeographicBoundingBox area = CRS.getGeographicBoundingBox(expected);
+            double[] point = new double[] {
+                    (area.getSouthBoundLatitude() + area.getNorthBoundLatitude()) / 2,
+                    (area.getWestBoundLongitude() + area.getEastBoundLongitude()) / 2};
+            double[] expectedPoint = new double[2];
+            double[] actualPoint = new double[2];
+            expectedProjected.getConversionFromBase().getMathTransform()
+                    .transform(point, 0, expectedPoint, 0, 1);
+            actualProjected.getConversionFromBase().getMathTransform()
+                    .transform(point, 0, actualPoint, 0, 1);
+            assertArrayEquals(code, expectedPoint, actualPoint, 1e-6);
+        } else {
+            assertTrue(code, CRS.equalsIgnoreMetadata(expected, actual));
+        }
+    }
+
+    @Test
+    public void testCaching() throws Exception {
+        assertSame(factory.createCoordinateReferenceSystem("EPSG:32633"),
+                factory.createCoordinateReferenceSystem("32633"));
+    }
+
+    @Test
+    public void testAuthorityCodes() throws Exception {
+        Set<String> codes = factory.getAuthorityCodes(CoordinateReferenceSystem.class);
+        assertTrue(codes.size() > 5000);
+        assertTrue(codes.contains("4326"));
+        assertFalse(codes.contains("1"));
+        Set<String> geographic = factory.getAuthorityCodes(GeographicCRS.class);
+        assertTrue(geographic.contains("4326"));
+        assertFalse(geographic.contains("32632"));
+        assertTrue(factory.getAuthorityCodes(ProjectedCRS.class).contains("32632"));
+        assertEquals("WGS 84", factory.getDescriptionText("EPSG:4326").toString());
+        assertEquals(ThreadedHsqlEpsgFactory.VERSION.toString(),
+                factory.getAuthority().getEdition().toString());
+    }
+
+    @Test
+    public void testFindEsriNames() throws Exception {
+        // names do not match the EPSG ones, the axis order of the base CRS does
+        String wkt = "PROJCS[\"WGS_1984_UTM_Zone_32N\","
+                + "GEOGCS[\"GCS_WGS_1984\",DATUM[\"D_WGS_1984\","
+                + "SPHEROID[\"WGS_1984\",6378137.0,298.257223563]],"
+                + "PRIMEM[\"Greenwich\",0.0],UNIT[\"Degree\",0.0174532925199433],"
+                + "AXIS[\"Lat\",NORTH],AXIS[\"Lon\",EAST]],"
+                + "PROJECTION[\"Transverse_Mercator\"],PARAMETER[\"False_Easting\",500000.0],"
+                + "PARAMETER[\"False_Northing\",0.0],PARAMETER[\"Central_Meridian\",9.0],"
+                + "PARAMETER[\"Scale_Factor\",0.9996],PARAMETER[\"Latitude_Of_Origin\",0.0],"
+                + "UNIT[\"Meter\",1.0]]";
+        IdentifiedObjectFinder finder = factory.getIdentifiedObjectFinder(
+                CoordinateReferenceSystem.class);
+        finder.setFullScanAllowed(true);
+        assertEquals("EPSG:32632", finder.findIdentifier(CRS.parseWKT(wkt)));
+    }
+
+    @Test(expected = NoSuchAuthorityCodeException.class)
+    public void testUnknownCode() throws Exception {
+        factory.createCoordinateReferenceSystem("EPSG:1");
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.geotools.data.shapefile.index.attribute.AttributeIndex;
+import org.geotools.data.shapefile.index.quadtree.StoreException;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * Uses an {@link AttributeIndex} to find the records possibly matching a filter. Equality, range
+ * and between comparisons against indexed columns are looked up in the index, And filters
+ * intersect the results of their indexable children, Or filters (e.g., IN lists) merge them, as
+ * long as all children are indexable.
+ * <p>
+ * The results are a superset of the matching records, the filter still needs to be evaluated
+ * against the features.
+ */
+class AttributeIndexSearcher {
+
+    AttributeIndex index;
+
+    public AttributeIndexSearcher(AttributeIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Returns the sorted record numbers (one based) that might match the filter, or null if the
+     * index cannot be used for this filter
+     * 
+     * @param filter
+     * @return
+     * @throws StoreException
+     */
+    public int[] search(Filter filter) throws StoreException {
+        if (filter instanceof And) {
+            int[] result = null;
+            for (Filter child : ((And) filter).getChildren()) {
+                int[] records = search(child);
+                if (records != null) {
+                    result = result == null ? records : intersect(result, records);
+                }
+            }
+            return result;
+        } else if (filter instanceof Or) {
+            List<Filter> children = ((Or) filter).getChildren();
+            if (children.isEmpty()) {
+                return null;
+            }
+            int[] result = new int[0];
+            for (Filter child : children) {
+                int[] records = search(child);
+                if (records == null) {
+                    return null;
+                }
+                result = union(result, records);
+            }
+            return result;
+        } else if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            String column = getColumn(between.getExpression());
+            Object lower = getValue(between.getLowerBoundary());
+            Object upper = getValue(between.getUpperBoundary());
+            if (column == null || lower == null || upper == null) {
+                return null;
+            }
+            return search(column, lower, upper);
+        } else if (filter instanceof BinaryComparisonOperator) {
+            Object[] range = getRange((BinaryComparisonOperator) filter);
+            if (range == null) {
+                return null;
+            }
+            return search((String) range[0], range[1], range[2]);
+        }
+        return null;
+    }
+
+    int[] search(String column, Object min, Object max) throws StoreException {
+        int[] records = index.search(column, min, max);
+        return records == null ? null : AttributeIndex.sortUnique(records);
+    }
+
+    /**
+     * Returns the column, min and max values for the comparison, or null if not indexable
+     */
+    Object[] getRange(BinaryComparisonOperator comparison) {
+        Expression e1 = comparison.getExpression1();
+        Expression e2 = comparison.getExpression2();
+        boolean swapped = false;
+        String column = getColumn(e1);
+        Object value = getValue(e2);
+        if (column == null) {
+            column = getColumn(e2);
+            value = getValue(e1);
+            swapped = true;
+        }
+        if (column == null || value == null) {
+            return null;
+        }
+
+        // ranges are inclusive, the filter will be evaluated again anyways
+        if (comparison instanceof PropertyIsEqualTo) {
+            // case insensitive string comparisons cannot use the index
+            if (!comparison.isMatchingCase() && index.isStringColumn(column)) {
+                return null;
+            }
+            return new Object[] { column, value, value };
+        } else if (comparison instanceof PropertyIsLessThan
+                || comparison instanceof PropertyIsLessThanOrEqualTo) {
+            return swapped ? new Object[] { column, value, null } : new Object[] { column, null,
+                    value };
+        } else if (comparison instanceof PropertyIsGreaterThan
+                || comparison instanceof PropertyIsGreaterThanOrEqualTo) {
+            return swapped ? new Object[] { column, null, value } : new Object[] { column, value,
+                    null };
+        }
+        return null;
+    }
+
+    String getColumn(Expression expression) {
+        if (expression instanceof PropertyName) {
+            String name = ((PropertyName) expression).getPropertyName();
+            if (name != null && index.isIndexed(name)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the literal value, or null if the expression is not a literal
+     */
+    Object getValue(Expression expression) {
+        if (expression instanceof Literal) {
+            return ((Literal) expression).getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Intersects two sorted arrays of unique values
+     */
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    /**
+     * Merges two sorted arrays of unique values
+     */
+    static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[k++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                result[k++] = b[j++];
+            } else {
+                result[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+}
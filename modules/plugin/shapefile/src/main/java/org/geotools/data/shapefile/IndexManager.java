@@ -7,8 +7,10 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,20 +18,26 @@ import org.geotools.data.CloseableIterator;
 import org.geotools.data.DataSourceException;
 import org.geotools.data.DataUtilities;
 import org.geotools.data.shapefile.fid.FidIndexer;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
 import org.geotools.data.shapefile.fid.IndexedFidReader;
 import org.geotools.data.shapefile.files.FileWriter;
 import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.shapefile.files.ShpFiles;
+import org.geotools.data.shapefile.files.StorageFile;
 import org.geotools.data.shapefile.index.CachedQuadTree;
 import org.geotools.data.shapefile.index.Data;
 import org.geotools.data.shapefile.index.DataDefinition;
 import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.data.shapefile.index.attribute.AttributeIndex;
+import org.geotools.data.shapefile.index.attribute.AttributeIndexBuilder;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
+import org.geotools.data.shapefile.index.rtree.PackedRTree;
 import org.geotools.data.shapefile.shp.IndexFile;
 import org.geotools.util.NullProgressListener;
 import org.geotools.util.logging.Logging;
+import org.opengis.filter.Filter;
 import org.opengis.filter.Id;
 import org.opengis.filter.identity.Identifier;
 
@@ -46,12 +54,32 @@ class IndexManager {
 
     static final int DEFAULT_MAX_QIX_CACHE_SIZE;
 
+    /**
+     * Maximum fraction of the records an attribute index lookup can return and still be used
+     */
+    static final double MAX_ATTRIBUTE_INDEX_SELECTIVITY = 0.5;
+
     ShpFiles shpFiles;
 
     int maxQixCacheSize = DEFAULT_MAX_QIX_CACHE_SIZE;
 
     CachedQuadTree cachedTree;
 
+    /**
+     * The packed R-tree, kept open between queries
+     */
+    PackedRTree packedTree;
+
+    /**
+     * The last modification time and size of the packed R-tree file when it was opened
+     */
+    long packedTreeLastModified, packedTreeLength;
+
+    /**
+     * Searches share the packed R-tree under the read lock, closing it requires the write lock
+     */
+    ReentrantReadWriteLock packedTreeLock = new ReentrantReadWriteLock();
+
     ShapefileDataStore store;
     
     /**
@@ -92,12 +120,15 @@ class IndexManager {
     public boolean createSpatialIndex(boolean force) {
         // create index as needed
         try {
-            if (shpFiles.isLocal() && (isIndexStale(QIX) || force)) {
+            ShpFileType indexType = getSpatialIndexType();
+            if (shpFiles.isLocal() && (isIndexStale(indexType) || force)) {
                 ShapefileDataStoreFactory.LOGGER.fine("Creating spatial index for "
                         + shpFiles.get(SHP));
+                closePackedTree();
 
                 ShapeFileIndexer indexer = new ShapeFileIndexer();
                 indexer.setShapeFileName(shpFiles);
+                indexer.setIndexType(indexType);
                 indexer.index(false, new NullProgressListener());
 
                 return true;
@@ -108,6 +139,32 @@ class IndexManager {
         return false;
     }
 
+    /**
+     * Builds the spatial index out of the record bounds collected while writing the shapefile,
+     * avoiding a full read of the shapefile
+     * 
+     * @param records The bounds of all the records in the shapefile
+     * @return true if the spatial index has been created
+     */
+    boolean createSpatialIndex(RecordBounds records) {
+        if (!shpFiles.isLocal() || records.getExtent().isNull()) {
+            return false;
+        }
+        try {
+            closePackedTree();
+            ShapeFileIndexer indexer = new ShapeFileIndexer();
+            indexer.setShapeFileName(shpFiles);
+            indexer.setIndexType(getSpatialIndexType());
+            indexer.index(records);
+            // the cached tree refers to the old contents
+            cachedTree = null;
+            return true;
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING, "Failed to update the spatial index", t);
+            return false;
+        }
+    }
+
     /**
      * If the fid index can be used and it is missing this method will try to create it
      * 
@@ -176,7 +233,17 @@ class IndexManager {
      * @return
      */
     boolean isSpatialIndexAvailable() {
-        return shpFiles.isLocal() && shpFiles.exists(QIX);
+        return shpFiles.isLocal() && shpFiles.exists(getSpatialIndexType());
+    }
+
+    /**
+     * Returns the type of spatial index in use, {@link ShpFileType#HRX} if the store is configured
+     * to use a packed R-tree, {@link ShpFileType#QIX} otherwise
+     * 
+     * @return
+     */
+    ShpFileType getSpatialIndexType() {
+        return store.isPackedSpatialIndex() ? HRX : QIX;
     }
 
     /**
@@ -297,6 +364,10 @@ class IndexManager {
         // check if the spatial index needs recreating
         createSpatialIndex(false);
 
+        if (getSpatialIndexType() == HRX) {
+            return queryPackedRTree(bbox);
+        }
+
         if (cachedTree == null) {
             boolean canCache = false;
             URL treeURL = shpFiles.acquireRead(QIX, writer);
@@ -373,7 +444,229 @@ class IndexManager {
         }
     }
 
+    /**
+     * Queries the packed R-tree, the tree is searched eagerly and the results are sorted by
+     * offset. The tree is kept open between queries, and opened again if the file changed
+     * 
+     * @param bbox
+     * @return The matching records, or null if the bbox contains the whole tree
+     * @throws DataSourceException
+     */
+    CloseableIterator<Data> queryPackedRTree(Envelope bbox) throws DataSourceException {
+        if (!shpFiles.isLocal()) {
+            return null;
+        }
+        URL treeURL = shpFiles.acquireRead(HRX, writer);
+        try {
+            File treeFile = DataUtilities.urlToFile(treeURL);
+            if (!treeFile.exists() || (treeFile.length() == 0)) {
+                closePackedTree();
+                return null;
+            }
+
+            packedTreeLock.readLock().lock();
+            try {
+                if (isPackedTreeStale(treeFile)) {
+                    // upgrade lock so that we have exclusive access to the tree
+                    packedTreeLock.readLock().unlock();
+                    packedTreeLock.writeLock().lock();
+                    try {
+                        // still stale?
+                        if (isPackedTreeStale(treeFile)) {
+                            if (packedTree != null) {
+                                packedTree.close();
+                                packedTree = null;
+                            }
+                            packedTreeLastModified = treeFile.lastModified();
+                            packedTreeLength = treeFile.length();
+                            packedTree = new PackedRTree(treeFile, store.isMemoryMapped());
+                        }
+                    } finally {
+                        // downgrade lock
+                        packedTreeLock.readLock().lock();
+                        packedTreeLock.writeLock().unlock();
+                    }
+                }
+
+                if (bbox.contains(packedTree.getBounds())) {
+                    return null;
+                }
+                return packedTree.search(bbox);
+            } finally {
+                packedTreeLock.readLock().unlock();
+            }
+        } catch (StoreException e) {
+            throw new DataSourceException("Error querying the packed R-tree", e);
+        } finally {
+            shpFiles.unlockRead(treeURL, writer);
+        }
+    }
+
+    /**
+     * Builds the attribute index for the specified dbf columns
+     * 
+     * @param columns
+     * @return true if the index has been created
+     */
+    boolean createAttributeIndex(List<String> columns) {
+        DbaseFileReader dbf = null;
+        try {
+            dbf = store.shpManager.openDbfReader(false);
+            if (dbf == null) {
+                return false;
+            }
+            StorageFile storage = shpFiles.getStorageFile(AIX);
+            new AttributeIndexBuilder().build(dbf, columns, storage.getFile());
+            dbf.close();
+            dbf = null;
+            storage.replaceOriginal();
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to create the attribute index", e);
+            return false;
+        } finally {
+            if (dbf != null) {
+                try {
+                    dbf.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Failed to close the dbf reader", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Uses the attribute index to locate the records matching the filter. The index is (re)built
+     * if missing, outdated, or covering a different set of columns than the ones configured in the
+     * store, and index creation is enabled
+     * 
+     * @param filter
+     * @return The sorted record numbers (one based) of the records that might match the filter,
+     *         or null if the attribute index cannot be used
+     * @throws DataSourceException
+     */
+    int[] queryAttributeIndex(Filter filter) throws DataSourceException {
+        String[] attributes = store.getIndexedAttributes();
+        if (attributes == null || !shpFiles.isLocal() || filter == null
+                || filter == Filter.INCLUDE || filter instanceof Id) {
+            return null;
+        }
+
+        List<String> columns = Arrays.asList(attributes);
+        boolean stale = isIndexStale(AIX);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (stale) {
+                if (!store.isIndexCreationEnabled() || !createAttributeIndex(columns)) {
+                    return null;
+                }
+            }
+
+            URL indexURL = shpFiles.acquireRead(AIX, writer);
+            try {
+                File indexFile = DataUtilities.urlToFile(indexURL);
+                if (!indexFile.exists() || indexFile.length() == 0) {
+                    return null;
+                }
+                AttributeIndex index = new AttributeIndex(indexFile, store.isMemoryMapped());
+                try {
+                    if (!index.getColumnNames().equals(columns)) {
+                        // configuration changed, rebuild
+                        stale = true;
+                        continue;
+                    }
+                    return new AttributeIndexSearcher(index).search(filter);
+                } finally {
+                    index.close();
+                }
+            } catch (StoreException e) {
+                throw new DataSourceException("Error querying the attribute index", e);
+            } finally {
+                shpFiles.unlockRead(indexURL, writer);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Turns the record numbers returned by the attribute index into index records. If the
+     * spatial index was used as well only the records found by both are returned.
+     * 
+     * @param recnos The sorted record numbers, as returned by {@link #queryAttributeIndex(Filter)}
+     * @param spatialRecords The records returned by the spatial index, or null. Will be closed
+     * @return The matching records, or null if the attribute index matches too many records to be
+     *         of any help, or the shx file is not available
+     * @throws IOException
+     */
+    CloseableIterator<Data> getAttributeIndexRecords(int[] recnos,
+            CloseableIterator<Data> spatialRecords) throws IOException {
+        List<Data> records = new ArrayList<Data>();
+        if (spatialRecords != null) {
+            try {
+                while (spatialRecords.hasNext()) {
+                    Data data = spatialRecords.next();
+                    if (Arrays.binarySearch(recnos, (Integer) data.getValue(0)) >= 0) {
+                        records.add(data);
+                    }
+                }
+            } finally {
+                spatialRecords.close();
+            }
+            return new CloseableIteratorWrapper<Data>(records.iterator());
+        }
+
+        IndexFile shx = store.shpManager.openIndexFile();
+        if (shx == null) {
+            // no record offsets, the caller will fall back on a full scan
+            return null;
+        }
+        try {
+            // reading most of the file in random access is slower than a plain scan
+            int count = shx.getRecordCount();
+            if (recnos.length > count * MAX_ATTRIBUTE_INDEX_SELECTIVITY) {
+                return null;
+            }
+            DataDefinition def = new DataDefinition("US-ASCII");
+            def.addField(Integer.class);
+            def.addField(Long.class);
+            for (int recno : recnos) {
+                if (recno > count) {
+                    break;
+                }
+                Data data = new Data(def);
+                data.addValue(Integer.valueOf(recno));
+                data.addValue(Long.valueOf(shx.getOffsetInBytes(recno - 1)));
+                records.add(data);
+            }
+        } catch (TreeException e) {
+            throw new DataSourceException("Error building the attribute index records", e);
+        } finally {
+            shx.close();
+        }
+        return new CloseableIteratorWrapper<Data>(records.iterator());
+    }
+
+    boolean isPackedTreeStale(File treeFile) {
+        return packedTree == null || packedTreeLastModified != treeFile.lastModified()
+                || packedTreeLength != treeFile.length();
+    }
+
+    /**
+     * Closes the packed R-tree kept open between queries, if any
+     */
+    void closePackedTree() {
+        packedTreeLock.writeLock().lock();
+        try {
+            if (packedTree != null) {
+                packedTree.close();
+                packedTree = null;
+            }
+        } finally {
+            packedTreeLock.writeLock().unlock();
+        }
+    }
+
     public void dispose() {
         this.cachedTree = null;
+        closePackedTree();
     }
 }
@@ -28,7 +28,6 @@ import org.geotools.data.shapefile.shp.ShapefileReader;
 import org.geotools.data.shapefile.shp.ShapefileReader.Record;
 import org.opengis.feature.simple.SimpleFeatureType;
 
-import com.vividsolutions.jts.geom.Geometry;
 
 /**
  * The indexed version of the shapefile feature reader, will only read the records specified in the
@@ -78,29 +77,21 @@ class IndexedShapefileFeatureReader extends ShapefileFeatureReader {
             Long l = (Long) next.getValue(1);
             shp.goTo((int) l.longValue());
 
-            Record record = shp.nextRecord();
-
-            // read the geometry, so that we can decide if this row is to be skipped or not
-            Geometry geometry = getGeometry(record);
-            if (geometry == SKIP) {
-                continue;
-            }
-
-            // read the dbf only if the geometry was not skipped
-            Row row;
-            if (dbf != null) {
-                ((IndexedDbaseFileReader) dbf).goTo(record.number);
-                row = dbf.readRow();
-            } else {
-                row = null;
-            }
-
-            nextFeature = buildFeature(record.number, geometry, row, record.envelope());
+            nextFeature = readFeature(shp.nextRecord());
         }
 
         return nextFeature != null;
     }
-    
-    
+
+    @Override
+    protected Row readRow(Record record) throws IOException {
+        ((IndexedDbaseFileReader) dbf).goTo(record.number);
+        return dbf.readRow();
+    }
+
+    @Override
+    protected void skipRow() throws IOException {
+        // rows are accessed by record number, nothing to skip
+    }
 
 }
@@ -33,11 +33,17 @@ import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.shapefile.files.StorageFile;
 import org.opengis.feature.simple.SimpleFeature;
 
+import com.vividsolutions.jts.geom.Envelope;
+
 /**
  * A FeatureWriter for ShapefileDataStore. Uses a write and annotate technique to avoid buffering
  * attributes and geometries. Because the shape and dbf require header information which can only be
  * obtained by reading the entire series of Features, the headers are updated after the initial
  * write completes.
+ * <p>
+ * The fid index is updated while writing. When a spatial index is in use the bounds of the
+ * written records are collected as well, and the spatial index is rebuilt from them on close,
+ * without having to read back the shapefile.
  */
 class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements FileWriter {
 
@@ -47,11 +53,19 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements Fi
 
     private IndexManager indexes;
 
+    private RecordBounds recordBounds;
+
     public IndexedShapefileFeatureWriter(IndexManager indexes,
             ShapefileFeatureReader featureReader, Charset charset, TimeZone timeZone)
             throws IOException {
-        super(indexes.shpFiles, featureReader, charset, timeZone);
+        super(indexes.shpFiles, featureReader, charset, timeZone, indexes.store
+                .isPipelinedWrites());
         this.indexes = indexes;
+        ShapefileDataStore store = indexes.store;
+        if (shpFiles.isLocal() && store.isIndexed()
+                && (store.isIndexCreationEnabled() || indexes.isSpatialIndexAvailable())) {
+            this.recordBounds = new RecordBounds();
+        }
         if (!indexes.shpFiles.isLocal()) {
             this.fidWriter = IndexedFidWriter.EMPTY_WRITER;
         } else {
@@ -84,6 +98,13 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements Fi
         return currentFid;
     }
 
+    @Override
+    protected void recordWritten(long offset, Envelope bounds) throws IOException {
+        if (recordBounds != null) {
+            recordBounds.add(offset, bounds);
+        }
+    }
+
     @Override
     public void remove() throws IOException {
         fidWriter.remove();
@@ -100,22 +121,51 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements Fi
      * Release resources and flush the header information.
      */
     public void close() throws IOException {
-        super.close();
-        fidWriter.close();
+        try {
+            // the parent class writes back the feature the reader read ahead, if any, so the
+            // fid writer needs to be positioned on it as well
+            if (featureReader != null && featureReader.nextFeature != null) {
+                if (currentFeature != null) {
+                    write();
+                }
+                fidWriter.next();
+            }
+            super.close();
+            fidWriter.close();
+
+            updateIndexes();
+        } finally {
+            disposeRecordBounds();
+        }
+    }
 
+    private void updateIndexes() {
         try {
             if (shpFiles.isLocal()) {
                 if (indexes.isIndexStale(ShpFileType.FIX)) {
                     FidIndexer.generate(shpFiles);
                 }
 
-                deleteFile(ShpFileType.QIX);
+                ShpFileType spatialIndexType = indexes.getSpatialIndexType();
+                if (recordBounds == null || !indexes.createSpatialIndex(recordBounds)) {
+                    deleteFile(spatialIndexType);
+                }
+                deleteFile(spatialIndexType == ShpFileType.QIX ? ShpFileType.HRX
+                        : ShpFileType.QIX);
+                deleteFile(ShpFileType.AIX);
             }
         } catch (Throwable e) {
             ShapefileDataStoreFactory.LOGGER.log(Level.WARNING, "Error creating Spatial index", e);
         }
     }
 
+    private void disposeRecordBounds() {
+        if (recordBounds != null) {
+            recordBounds.dispose();
+            recordBounds = null;
+        }
+    }
+
     @Override
     protected void doClose() throws IOException {
         super.doClose();
@@ -0,0 +1,96 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+
+import org.geotools.data.shapefile.dbf.DbaseFileReader.Row;
+import org.geotools.data.shapefile.dbf.IndexedDbaseFileReader;
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.geotools.data.shapefile.shp.ShapefileReader.Record;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+
+/**
+ * A shapefile feature reader that only reads a contiguous range of records, locating them via the
+ * shx file. Each reader opens its own shp, dbf and shx channels, so that several of them can scan
+ * different portions of the same shapefile in parallel
+ */
+class PartitionedShapefileFeatureReader extends ShapefileFeatureReader {
+
+    IndexFile shx;
+
+    int current;
+
+    int end;
+
+    /**
+     * Builds a reader returning the records in the [start, end) range (zero based)
+     * 
+     * @param schema The read schema
+     * @param shp The shape reader, must support random access
+     * @param dbf The dbf reader, may be null if no attributes are read
+     * @param shx The shx file used to locate the records
+     * @param start The first record to read
+     * @param end The record after the last one to read
+     */
+    public PartitionedShapefileFeatureReader(SimpleFeatureType schema, ShapefileReader shp,
+            IndexedDbaseFileReader dbf, IndexFile shx, int start, int end) throws IOException {
+        super(schema, shp, dbf, null);
+        this.shx = shx;
+        this.current = start;
+        this.end = end;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        while (nextFeature == null && current < end) {
+            Record record = shp.recordAt(shx.getOffsetInBytes(current));
+            current++;
+
+            nextFeature = readFeature(record);
+        }
+
+        return nextFeature != null;
+    }
+
+    @Override
+    protected Row readRow(Record record) throws IOException {
+        // the dbf is positioned by record number, the shp records might not be in order
+        ((IndexedDbaseFileReader) dbf).goTo(record.number);
+        return dbf.readRow();
+    }
+
+    @Override
+    protected void skipRow() throws IOException {
+        // rows are accessed by record number, nothing to skip
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (shx != null) {
+                shx.close();
+                shx = null;
+            }
+        }
+    }
+
+}
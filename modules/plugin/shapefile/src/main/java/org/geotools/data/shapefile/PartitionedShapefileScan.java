@@ -0,0 +1,394 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.data.Query;
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.feature.visitor.AverageVisitor;
+import org.geotools.feature.visitor.AverageVisitor.AverageResult;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Runs an aggregation visitor over a shapefile by splitting the record range in partitions, located
+ * via the shx file, and scanning each one of them in a separate thread. Each partition gets its own
+ * copy of the visitor, the partial results are then merged back into the original visitor, in
+ * partition order.
+ * <p>
+ * Only the visitors whose partial results can be merged are supported, see
+ * {@link #getPartialVisitor(FeatureVisitor)}
+ */
+class PartitionedShapefileScan {
+
+    /**
+     * The minimum number of records in a partition, below this threshold the thread setup costs
+     * are not worth it
+     */
+    static final int MIN_PARTITION_SIZE = 10000;
+
+    /**
+     * The pool running the partition scans, shared by all the shapefile stores. It's bounded to the
+     * number of available processors, partitions exceeding it wait in the queue
+     */
+    static final ExecutorService EXECUTOR;
+
+    static {
+        int poolSize = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ShapefileScan-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        EXECUTOR = executor;
+    }
+
+    ShapefileFeatureSource source;
+
+    int threads;
+
+    int minPartitionSize;
+
+    public PartitionedShapefileScan(ShapefileFeatureSource source, int threads,
+            int minPartitionSize) {
+        this.source = source;
+        this.threads = threads;
+        this.minPartitionSize = minPartitionSize;
+    }
+
+    /**
+     * Computes the partition boundaries for the given record count, or returns null if the count is
+     * too small to be worth splitting
+     * 
+     * @param recordCount
+     * @return An array of n + 1 record indexes, partition i covers the [i, i + 1) range
+     */
+    int[] getPartitions(int recordCount) {
+        int partitions = Math.min(threads, recordCount / minPartitionSize);
+        if (partitions < 2) {
+            return null;
+        }
+        int[] result = new int[partitions + 1];
+        for (int i = 0; i <= partitions; i++) {
+            result[i] = (int) ((long) recordCount * i / partitions);
+        }
+        return result;
+    }
+
+    /**
+     * Visits the features matching the query with the given visitor, in parallel
+     * 
+     * @param query
+     * @param visitor
+     * @return true if the visitor was handled, false if the visitor is not supported, or the
+     *         shapefile too small to be partitioned
+     * @throws IOException
+     */
+    public boolean visit(final Query query, FeatureVisitor visitor) throws IOException {
+        final PartialVisitor partial = getPartialVisitor(visitor);
+        if (partial == null) {
+            return false;
+        }
+
+        IndexFile shx = source.getDataStore().shpManager.openIndexFile();
+        if (shx == null) {
+            return false;
+        }
+        int[] partitions;
+        try {
+            partitions = getPartitions(shx.getRecordCount());
+        } finally {
+            shx.close();
+        }
+        if (partitions == null) {
+            return false;
+        }
+
+        List<Future<FeatureVisitor>> futures = new ArrayList<Future<FeatureVisitor>>();
+        try {
+            for (int i = 0; i < partitions.length - 1; i++) {
+                final int start = partitions[i];
+                final int end = partitions[i + 1];
+                futures.add(EXECUTOR.submit(new Callable<FeatureVisitor>() {
+
+                    @Override
+                    public FeatureVisitor call() throws Exception {
+                        FeatureVisitor target = partial.create();
+                        PartitionedShapefileFeatureReader reader = source.getPartitionReader(
+                                query, start, end);
+                        try {
+                            while (reader.hasNext()) {
+                                SimpleFeature feature = reader.next();
+                                target.visit(feature);
+                            }
+                        } finally {
+                            reader.close();
+                        }
+                        return target;
+                    }
+                }));
+            }
+
+            // merge in partition order, so that order sensitive results (e.g., unique values
+            // preserving order) are the same as a sequential scan
+            for (Future<FeatureVisitor> future : futures) {
+                partial.merge(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning the shapefile", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to scan the shapefile", cause);
+        } finally {
+            // on failure, stop the partitions still running
+            for (Future<FeatureVisitor> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Counts the features matching the query in parallel
+     * 
+     * @param query
+     * @return The count, or -1 if the shapefile is too small to be partitioned
+     * @throws IOException
+     */
+    public int count(Query query) throws IOException {
+        // only read the attributes the filter needs
+        Query countQuery = new Query(query);
+        countQuery.setPropertyNames(new String[0]);
+        CountVisitor visitor = new CountVisitor();
+        if (visit(countQuery, visitor)) {
+            return visitor.getCount();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a {@link PartialVisitor} for the given visitor, or null if the visitor partial results
+     * cannot be merged
+     * 
+     * @param visitor
+     * @return
+     */
+    static PartialVisitor getPartialVisitor(FeatureVisitor visitor) {
+        // only the well known classes, subclasses might have extra state we don't know about
+        Class<?> clazz = visitor.getClass();
+        if (clazz == CountVisitor.class) {
+            final CountVisitor count = (CountVisitor) visitor;
+            return new PartialVisitor() {
+
+                @Override
+                FeatureVisitor create() {
+                    return new CountVisitor();
+                }
+
+                @Override
+                void merge(FeatureVisitor partial) {
+                    count.setValue(count.getCount() + ((CountVisitor) partial).getCount());
+                }
+            };
+        } else if (clazz == BoundsVisitor.class) {
+            final BoundsVisitor bounds = (BoundsVisitor) visitor;
+            return new PartialVisitor() {
+
+                @Override
+                FeatureVisitor create() {
+                    return new BoundsVisitor();
+                }
+
+                @Override
+                void merge(FeatureVisitor partial) {
+                    BoundsVisitor bv = (BoundsVisitor) partial;
+                    if (!bv.getBounds().isNull()) {
+                        bounds.getBounds().include(bv.getBounds());
+                    }
+                }
+            };
+        } else if (clazz == UniqueVisitor.class) {
+            final UniqueVisitor unique = (UniqueVisitor) visitor;
+            if (unique.hasLimits()) {
+                // paging needs the full set before being applied
+                return null;
+            }
+            final boolean preserveOrder = unique.getUnique() instanceof LinkedHashSet;
+            return new PartialVisitor() {
+
+                @Override
+                FeatureVisitor create() {
+                    UniqueVisitor result = new UniqueVisitor(unique.getExpression());
+                    result.setPreserveOrder(preserveOrder);
+                    return result;
+                }
+
+                @SuppressWarnings("unchecked")
+                @Override
+                void merge(FeatureVisitor partial) {
+                    unique.getUnique().addAll(((UniqueVisitor) partial).getUnique());
+                }
+            };
+        } else if (clazz == SumVisitor.class) {
+            final SumVisitor sum = (SumVisitor) visitor;
+            return new CalcPartialVisitor(sum) {
+
+                @Override
+                FeatureVisitor create() {
+                    return new SumVisitor(sum.getExpression());
+                }
+
+                @Override
+                void setValue(CalcResult result) {
+                    sum.setValue(result.getValue());
+                }
+            };
+        } else if (clazz == MinVisitor.class) {
+            final MinVisitor min = (MinVisitor) visitor;
+            return new CalcPartialVisitor(min) {
+
+                @Override
+                FeatureVisitor create() {
+                    return new MinVisitor(min.getExpression());
+                }
+
+                @Override
+                void setValue(CalcResult result) {
+                    min.setValue(result.getValue());
+                }
+            };
+        } else if (clazz == MaxVisitor.class) {
+            final MaxVisitor max = (MaxVisitor) visitor;
+            return new CalcPartialVisitor(max) {
+
+                @Override
+                FeatureVisitor create() {
+                    return new MaxVisitor(max.getExpression());
+                }
+
+                @Override
+                void setValue(CalcResult result) {
+                    max.setValue(result.getValue());
+                }
+            };
+        } else if (clazz == AverageVisitor.class) {
+            final AverageVisitor average = (AverageVisitor) visitor;
+            if (average.getResult() != CalcResult.NULL_RESULT) {
+                // might have been optimized, in that case there is no count and sum to merge with
+                return null;
+            }
+            return new CalcPartialVisitor(average) {
+
+                @Override
+                FeatureVisitor create() {
+                    return new AverageVisitor(average.getExpression());
+                }
+
+                @Override
+                void setValue(CalcResult result) {
+                    AverageResult ar = (AverageResult) result;
+                    average.setValue(ar.getCount(), ar.getSum());
+                }
+            };
+        }
+
+        return null;
+    }
+
+    /**
+     * Creates the visitor copies used by each partition, and merges their results back in the
+     * original visitor
+     */
+    static abstract class PartialVisitor {
+
+        /**
+         * Creates a new, empty visitor for a partition
+         */
+        abstract FeatureVisitor create();
+
+        /**
+         * Merges the results of a partition visitor into the original one
+         */
+        abstract void merge(FeatureVisitor partial);
+    }
+
+    /**
+     * Base class for {@link FeatureCalc} visitors, merges the partial results using
+     * {@link CalcResult#merge(CalcResult)}
+     */
+    static abstract class CalcPartialVisitor extends PartialVisitor {
+
+        FeatureCalc original;
+
+        public CalcPartialVisitor(FeatureCalc original) {
+            this.original = original;
+        }
+
+        @Override
+        void merge(FeatureVisitor partial) {
+            CalcResult partialResult = ((FeatureCalc) partial).getResult();
+            if (partialResult == CalcResult.NULL_RESULT) {
+                return;
+            }
+            CalcResult result = original.getResult();
+            if (result != CalcResult.NULL_RESULT) {
+                partialResult = result.merge(partialResult);
+            }
+            setValue(partialResult);
+        }
+
+        /**
+         * Sets the merged result in the original visitor
+         */
+        abstract void setValue(CalcResult result);
+    }
+}
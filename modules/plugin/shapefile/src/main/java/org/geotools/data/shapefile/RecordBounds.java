@@ -0,0 +1,262 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Append only storage for the bounds and offsets of the records of a shapefile, used to build the
+ * spatial index while the shapefile is being written instead of reading it back afterwards.
+ * Records with a null geometry are tracked too, so that the position in the storage is the zero
+ * based record number.
+ * <p>
+ * The records are kept in memory up to {@link #MAX_MEMORY_RECORDS}, past that they are spilled to
+ * a temporary file, which is read back in blocks. Call {@link #dispose()} once done to remove it.
+ */
+class RecordBounds {
+
+    static final Logger LOGGER = Logging.getLogger(RecordBounds.class);
+
+    /**
+     * Size of a record: min x, min y, max x, max y and offset
+     */
+    static final int RECORD_SIZE = 40;
+
+    /**
+     * Number of records kept in memory before spilling them to a temporary file
+     */
+    static final int MAX_MEMORY_RECORDS = 64 * 1024;
+
+    /**
+     * Number of records read at once from the temporary file
+     */
+    static final int BLOCK_RECORDS = 4096;
+
+    /**
+     * The records not yet spilled to the temporary file
+     */
+    ByteBuffer buffer;
+
+    /**
+     * The temporary file, or null if all the records are in memory
+     */
+    File file;
+
+    RandomAccessFile raf;
+
+    FileChannel channel;
+
+    /**
+     * The records read from the temporary file, starting at {@link #blockStart}
+     */
+    ByteBuffer block;
+
+    int blockStart = -1;
+
+    int blockSize;
+
+    /**
+     * Number of records in the temporary file
+     */
+    int spilled;
+
+    int size;
+
+    Envelope extent = new Envelope();
+
+    RecordBounds() {
+        this(1024);
+    }
+
+    RecordBounds(int capacity) {
+        capacity = Math.min(MAX_MEMORY_RECORDS, Math.max(16, capacity));
+        buffer = ByteBuffer.allocate(capacity * RECORD_SIZE);
+    }
+
+    /**
+     * Adds a record
+     * 
+     * @param offset The record offset in bytes in the .shp file
+     * @param envelope The record bounds, or null if the record has a null geometry
+     * @throws IOException If the records could not be spilled to disk
+     */
+    void add(long offset, Envelope envelope) throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (buffer.capacity() < MAX_MEMORY_RECORDS * RECORD_SIZE) {
+                int capacity = Math.min(MAX_MEMORY_RECORDS, buffer.capacity() / RECORD_SIZE * 2);
+                ByteBuffer grown = ByteBuffer.allocate(capacity * RECORD_SIZE);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            } else {
+                spill();
+            }
+        }
+        if (envelope == null || envelope.isNull()) {
+            buffer.putDouble(Double.NaN).putDouble(Double.NaN).putDouble(Double.NaN)
+                    .putDouble(Double.NaN);
+        } else {
+            buffer.putDouble(envelope.getMinX()).putDouble(envelope.getMinY())
+                    .putDouble(envelope.getMaxX()).putDouble(envelope.getMaxY());
+            extent.expandToInclude(envelope);
+        }
+        buffer.putLong(offset);
+        size++;
+    }
+
+    /**
+     * Writes the records in memory to the temporary file
+     */
+    void spill() throws IOException {
+        if (channel == null) {
+            file = File.createTempFile("shpbounds", ".tmp");
+            raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+        }
+        buffer.flip();
+        long position = (long) spilled * RECORD_SIZE;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        spilled = size;
+        buffer.clear();
+    }
+
+    /**
+     * The number of records, including the ones with null geometries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the buffer holding the record at the given position, with the record starting at
+     * the returned buffer position
+     */
+    ByteBuffer locate(int i) {
+        if (i >= spilled) {
+            ByteBuffer result = buffer.duplicate();
+            result.position((i - spilled) * RECORD_SIZE);
+            return result;
+        }
+        if (i < blockStart || i >= blockStart + blockSize) {
+            if (block == null) {
+                block = ByteBuffer.allocate(BLOCK_RECORDS * RECORD_SIZE);
+            }
+            blockStart = i;
+            blockSize = Math.min(BLOCK_RECORDS, spilled - i);
+            block.clear();
+            block.limit(blockSize * RECORD_SIZE);
+            try {
+                long position = (long) i * RECORD_SIZE;
+                while (block.hasRemaining()) {
+                    int read = channel.read(block, position);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of the record bounds file");
+                    }
+                    position += read;
+                }
+            } catch (IOException e) {
+                blockStart = -1;
+                throw new IllegalStateException("Failed to read back the record bounds", e);
+            }
+        }
+        ByteBuffer result = block.duplicate();
+        result.clear();
+        result.position((i - blockStart) * RECORD_SIZE);
+        return result;
+    }
+
+    /**
+     * Returns true if the record at the given (zero based) position has a null geometry
+     */
+    boolean isNull(int i) {
+        return Double.isNaN(getMinX(i));
+    }
+
+    double getMinX(int i) {
+        ByteBuffer bb = locate(i);
+        return bb.getDouble(bb.position());
+    }
+
+    double getMinY(int i) {
+        ByteBuffer bb = locate(i);
+        return bb.getDouble(bb.position() + 8);
+    }
+
+    double getMaxX(int i) {
+        ByteBuffer bb = locate(i);
+        return bb.getDouble(bb.position() + 16);
+    }
+
+    double getMaxY(int i) {
+        ByteBuffer bb = locate(i);
+        return bb.getDouble(bb.position() + 24);
+    }
+
+    Envelope getEnvelope(int i) {
+        ByteBuffer bb = locate(i);
+        int base = bb.position();
+        return new Envelope(bb.getDouble(base), bb.getDouble(base + 16), bb.getDouble(base + 8),
+                bb.getDouble(base + 24));
+    }
+
+    long getOffset(int i) {
+        ByteBuffer bb = locate(i);
+        return bb.getLong(bb.position() + 32);
+    }
+
+    /**
+     * The union of all the non null record bounds
+     */
+    Envelope getExtent() {
+        return extent;
+    }
+
+    /**
+     * Releases the memory and removes the temporary file, if any
+     */
+    void dispose() {
+        buffer = null;
+        block = null;
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close the record bounds file", e);
+            }
+            raf = null;
+            channel = null;
+        }
+        if (file != null) {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+            file = null;
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
 import org.geotools.data.shapefile.index.quadtree.fs.IndexHeader;
+import org.geotools.data.shapefile.index.rtree.PackedRTreeBuilder;
 import org.geotools.data.shapefile.shp.IndexFile;
 import org.geotools.data.shapefile.shp.ShapefileHeader;
 import org.geotools.data.shapefile.shp.ShapefileReader;
@@ -62,6 +63,7 @@ class ShapeFileIndexer implements FileWriter {
     
     private int max = -1;
     private int leafSize = 16;
+    private ShpFileType indexType = ShpFileType.QIX;
 
 	private String byteOrder;
     private boolean interactive = false;
@@ -79,9 +81,10 @@ class ShapeFileIndexer implements FileWriter {
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-t")) {
-                // idx.setIdxType(IndexType.valueOf(args[++i]));
-                // just skip it for backwards compatibility
-                i++;
+                // QIX and the old RTREE/QUADTREE values all map to the quadtree
+                if ("HRX".equalsIgnoreCase(args[++i])) {
+                    idx.setIndexType(ShpFileType.HRX);
+                }
             } else if (args[i].equals("-M")) {
                 idx.setMax(Integer.parseInt(args[++i]));
             } else if (args[i].equals("-s")) {
@@ -115,7 +118,7 @@ class ShapeFileIndexer implements FileWriter {
     }
 
     private static void usage() {
-        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX> "
+        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX | HRX> "
                 + "[-M <max tree depth>] "
                 + "[-b <byte order NL | NM>] " + "<shape file>"
                 + "[-s <max number of items in a leaf>]");
@@ -123,7 +126,7 @@ class ShapeFileIndexer implements FileWriter {
         System.out.println();
 
         System.out.println("Options:");
-        System.out.println("\t-t Index type: RTREE or QUADTREE");
+        System.out.println("\t-t Index type: QIX (quadtree, default) or HRX (packed R-tree)");
         System.out.println();
         System.out.println("Following options apllies only to QUADTREE:");
         System.out.println("\t-b byte order to use: NL = LSB; "
@@ -165,32 +168,24 @@ class ShapeFileIndexer implements FileWriter {
         ShapefileReader reader = null;
 
         // Temporary file for building...
-        StorageFile storage = shpFiles.getStorageFile(ShpFileType.QIX);
+        StorageFile storage = shpFiles.getStorageFile(indexType);
         File treeFile = storage.getFile();
 
         try {
             reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
             
-            if(max == -1) {
-                // compute a reasonable index max depth, considering a fully developed
-                // 10 levels one already contains 200k index nodes, good for indexing up
-                // to 3M features without consuming too much memory
-                int features = reader.getCount(0);
-                max = 1;
-                int nodes = 1;
-                while(nodes * leafSize < features) {
-                    max++;
-                    nodes *= 4;
-                }
-                if(max < 10) {
-                    max = 10;
+            if (indexType == ShpFileType.HRX) {
+                cnt = this.buildPackedRTree(reader, treeFile, verbose);
+            } else {
+                if(max == -1) {
+                    max = computeMaxDepth(reader.getCount(0));
+                    
+                    reader.close();
+                    reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
                 }
                 
-                reader.close();
-                reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
+                cnt = this.buildQuadTree(reader, treeFile, verbose);
             }
-            
-            cnt = this.buildQuadTree(reader, treeFile, verbose);
         } finally {
             if (reader != null)
                 reader.close();
@@ -202,21 +197,107 @@ class ShapeFileIndexer implements FileWriter {
         return cnt;
     }
 
-    private int buildQuadTree(ShapefileReader reader, File file, boolean verbose)
-            throws IOException, StoreException {
-        LOGGER.fine("Building quadtree spatial index with depth " +  max + " for file " + file.getAbsolutePath());
-        
-        byte order = 0;
+    /**
+     * Builds the spatial index out of record bounds collected while writing the shapefile,
+     * without reading the shapefile back
+     * 
+     * @param records The bounds of all the records in the shapefile
+     * @return The number of indexed records
+     * @throws IOException
+     * @throws StoreException
+     */
+    int index(RecordBounds records) throws IOException, StoreException {
+        if (this.shpFiles == null) {
+            throw new IOException("You have to set a shape file name!");
+        }
 
-        if ((this.byteOrder == null) || this.byteOrder.equalsIgnoreCase("NM")) {
-            order = IndexHeader.NEW_MSB_ORDER;
-        } else if (this.byteOrder.equalsIgnoreCase("NL")) {
-            order = IndexHeader.NEW_LSB_ORDER;
+        StorageFile storage = shpFiles.getStorageFile(indexType);
+        File treeFile = storage.getFile();
+        int cnt = 0;
+        if (indexType == ShpFileType.HRX) {
+            PackedRTreeBuilder builder = new PackedRTreeBuilder(records.size());
+            if (leafSize > 1) {
+                builder.setNodeSize(leafSize);
+            }
+            for (int i = 0; i < records.size(); i++) {
+                if (!records.isNull(i)) {
+                    builder.add(i + 1, records.getOffset(i), records.getMinX(i),
+                            records.getMinY(i), records.getMaxX(i), records.getMaxY(i));
+                    cnt++;
+                }
+            }
+            builder.write(treeFile);
         } else {
-            throw new StoreException("Asked byte order '" + this.byteOrder
-                    + "' must be 'NL' or 'NM'!");
+            if (max == -1) {
+                max = computeMaxDepth(records.size());
+            }
+            IndexFile shpIndex = new IndexFile(shpFiles, false);
+            QuadTree tree = new QuadTree(shpIndex.getRecordCount(), max, records.getExtent(),
+                    shpIndex);
+            try {
+                for (int i = 0; i < records.size(); i++) {
+                    if (!records.isNull(i)) {
+                        tree.insert(i, records.getEnvelope(i));
+                        cnt++;
+                    }
+                }
+                storeQuadTree(tree, treeFile, new CollectedBounds(records));
+            } finally {
+                tree.close();
+            }
+        }
+
+        storage.replaceOriginal();
+
+        return cnt;
+    }
+
+    /**
+     * Computes a reasonable index max depth, considering a fully developed 10 levels one already
+     * contains 200k index nodes, good for indexing up to 3M features without consuming too much
+     * memory
+     */
+    private int computeMaxDepth(int features) {
+        int depth = 1;
+        int nodes = 1;
+        while (nodes * leafSize < features) {
+            depth++;
+            nodes *= 4;
+        }
+        if (depth < 10) {
+            depth = 10;
+        }
+        return depth;
+    }
+
+    private int buildPackedRTree(ShapefileReader reader, File file, boolean verbose)
+            throws IOException {
+        LOGGER.fine("Building packed R-tree spatial index for file " + file.getAbsolutePath());
+
+        IndexFile shpIndex = new IndexFile(shpFiles, false);
+        int numRecs;
+        try {
+            numRecs = shpIndex.getRecordCount();
+        } finally {
+            shpIndex.close();
         }
 
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(numRecs);
+        if (leafSize > 1) {
+            builder.setNodeSize(leafSize);
+        }
+        int cnt = builder.addAll(reader);
+        builder.write(file);
+        if (verbose) {
+            System.out.println("done");
+        }
+        return cnt;
+    }
+
+    private int buildQuadTree(ShapefileReader reader, File file, boolean verbose)
+            throws IOException, StoreException {
+        LOGGER.fine("Building quadtree spatial index with depth " +  max + " for file " + file.getAbsolutePath());
+        
         IndexFile shpIndex = new IndexFile(shpFiles, false);
         QuadTree tree = null;
         int cnt = 0;
@@ -242,29 +323,48 @@ class ShapeFileIndexer implements FileWriter {
             }
             if (verbose)
                 System.out.println("done");
-            FileSystemIndexStore store = new FileSystemIndexStore(file, order);
-            
-            if(leafSize > 0) {
-                if (LOGGER.isLoggable(Level.FINE)) {
-                    LOGGER.fine("Optimizing the tree (this might take some time)");
-                }
-                optimizeTree(tree, tree.getRoot(), 0, reader, shpIndex);
-                if (LOGGER.isLoggable(Level.FINE)) {
-                    LOGGER.fine("Tree optimized");
-                }
-            }
-            
-            if(LOGGER.isLoggable(Level.FINE)) {
-                printStats(tree);
-            }
-            store.store(tree);
+            storeQuadTree(tree, file, new ShapefileBounds(reader, shpIndex));
         } finally {
             tree.close();
         }
         return cnt;
     }
+
+    /**
+     * Optimizes the tree and writes it down to the specified file
+     */
+    private void storeQuadTree(QuadTree tree, File file, BoundsLookup lookup)
+            throws StoreException, IOException {
+        byte order = 0;
+
+        if ((this.byteOrder == null) || this.byteOrder.equalsIgnoreCase("NM")) {
+            order = IndexHeader.NEW_MSB_ORDER;
+        } else if (this.byteOrder.equalsIgnoreCase("NL")) {
+            order = IndexHeader.NEW_LSB_ORDER;
+        } else {
+            throw new StoreException("Asked byte order '" + this.byteOrder
+                    + "' must be 'NL' or 'NM'!");
+        }
+
+        FileSystemIndexStore store = new FileSystemIndexStore(file, order);
+        
+        if(leafSize > 0) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Optimizing the tree (this might take some time)");
+            }
+            optimizeTree(tree, tree.getRoot(), 0, lookup);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Tree optimized");
+            }
+        }
+        
+        if(LOGGER.isLoggable(Level.FINE)) {
+            printStats(tree);
+        }
+        store.store(tree);
+    }
     
-    private Node optimizeTree(QuadTree tree, Node node, int level, ShapefileReader reader, IndexFile index) throws StoreException, IOException {
+    private Node optimizeTree(QuadTree tree, Node node, int level, BoundsLookup lookup) throws StoreException, IOException {
         // recurse, with a check to avoid too deep recursion due to odd data that has a
         if(node.getNumShapeIds() > leafSize && node.getNumSubNodes() == 0 && level < max * 2) {
             // ok, we need to split this baby further
@@ -282,10 +382,7 @@ class ShapeFileIndexer implements FileWriter {
             
             for (int i = 0; i < numShapesId; i++) {
                 final int shapeId = shapeIds[i];
-                int offset = index.getOffsetInBytes(shapeId);
-                reader.goTo(offset);
-                Record rec = reader.nextRecord();
-                Envelope env = new Envelope(rec.minX, rec.maxX, rec.minY, rec.maxY);
+                Envelope env = lookup.getBounds(shapeId);
                 tree.insert(node, shapeId, env, extraLevels);
             }
         }
@@ -295,7 +392,7 @@ class ShapeFileIndexer implements FileWriter {
         
         // recurse 
         for (int i = 0; i < node.getNumSubNodes(); i++) {
-            optimizeTree(tree, node.getSubNode(i), level + 1, reader, index);
+            optimizeTree(tree, node.getSubNode(i), level + 1, lookup);
         }
         
         // prune empty subnodes
@@ -326,11 +423,7 @@ class ShapeFileIndexer implements FileWriter {
                 int[] shapeIds  = node.getShapesId();
                 for (int i = 0; i < shapeIds.length; i++) {
                     final int shapeId = shapeIds[i];
-                    int offset = index.getOffsetInBytes(shapeId);
-                    reader.goTo(offset);
-                    Record rec = reader.nextRecord();
-                    Envelope env = new Envelope(rec.minX, rec.maxX, rec.minY, rec.maxY);
-                    bounds.expandToInclude(env);
+                    bounds.expandToInclude(lookup.getBounds(shapeId));
                 }
             }
             if(node.getNumSubNodes() > 0) {
@@ -366,6 +459,51 @@ class ShapeFileIndexer implements FileWriter {
         return node;
     }
 
+    /**
+     * Looks up the bounds of a record given its zero based record number
+     */
+    interface BoundsLookup {
+        Envelope getBounds(int shapeId) throws IOException;
+    }
+
+    /**
+     * Reads the record bounds from the shapefile
+     */
+    static class ShapefileBounds implements BoundsLookup {
+        ShapefileReader reader;
+
+        IndexFile index;
+
+        ShapefileBounds(ShapefileReader reader, IndexFile index) {
+            this.reader = reader;
+            this.index = index;
+        }
+
+        @Override
+        public Envelope getBounds(int shapeId) throws IOException {
+            int offset = index.getOffsetInBytes(shapeId);
+            reader.goTo(offset);
+            Record rec = reader.nextRecord();
+            return new Envelope(rec.minX, rec.maxX, rec.minY, rec.maxY);
+        }
+    }
+
+    /**
+     * Returns the record bounds collected while writing the shapefile
+     */
+    static class CollectedBounds implements BoundsLookup {
+        RecordBounds records;
+
+        CollectedBounds(RecordBounds records) {
+            this.records = records;
+        }
+
+        @Override
+        public Envelope getBounds(int shapeId) {
+            return records.getEnvelope(shapeId);
+        }
+    }
+
     private void printStats(QuadTree tree) throws StoreException {
        Map<Integer, Integer> stats = new HashMap<Integer, Integer>();
        gatherStats(tree.getRoot(), stats);
@@ -392,6 +530,19 @@ class ShapeFileIndexer implements FileWriter {
         }
     }
 
+    /**
+     * Sets the type of spatial index to build, either {@link ShpFileType#QIX} (default) or
+     * {@link ShpFileType#HRX}
+     * 
+     * @param indexType
+     */
+    public void setIndexType(ShpFileType indexType) {
+        if (indexType != ShpFileType.QIX && indexType != ShpFileType.HRX) {
+            throw new IllegalArgumentException("Unsupported spatial index type " + indexType);
+        }
+        this.indexType = indexType;
+    }
+
     /**
      * For quad tree this is the max depth. I don't know what it is for RTree
      * 
@@ -111,6 +111,14 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     
     boolean indexCreationEnabled = true;
 
+    boolean packedSpatialIndex = false;
+
+    boolean pipelinedWrites = false;
+
+    boolean fastHoleAssignment = false;
+
+    String[] indexedAttributes = null;
+
     boolean fidIndexed = true;
 
     IndexManager indexManager;
@@ -121,8 +129,13 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     
     long maxDbfSize = ShapefileFeatureWriter.DEFAULT_MAX_DBF_SIZE;
 
+    int scanThreads = 1;
+
+    int minScanPartitionSize = PartitionedShapefileScan.MIN_PARTITION_SIZE;
+
     public ShapefileDataStore(URL url) {
         shpFiles = new ShpFiles(url);
+        shpFiles.setMemoryMapCacheEnabled(bufferCachingEnabled);
         if (TRACE_ENABLED) {
             trace = new Exception();
             trace.fillInStackTrace();
@@ -182,8 +195,15 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
         return bufferCachingEnabled;
     }
 
+    /**
+     * When set to true, the read only memory mapped buffers are shared with the other readers
+     * through the process wide {@link org.geotools.data.shapefile.files.MemoryMapCache}
+     * 
+     * @param bufferCachingEnabled
+     */
     public void setBufferCachingEnabled(boolean bufferCachingEnabled) {
         this.bufferCachingEnabled = bufferCachingEnabled;
+        shpFiles.setMemoryMapCacheEnabled(bufferCachingEnabled);
     }
 
     public boolean isIndexed() {
@@ -438,6 +458,8 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     @Override
     public void dispose() {
         super.dispose();
+        // releases the spatial index kept open between queries
+        indexManager.dispose();
         if (shpFiles != null) {
             shpFiles.dispose();
             shpFiles = null;
@@ -518,6 +540,92 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
         this.indexCreationEnabled = indexCreationEnabled;
     }
     
+    public boolean isPackedSpatialIndex() {
+        return packedSpatialIndex;
+    }
+
+    /**
+     * When set to true the spatial index will be a packed Hilbert R-tree (.hrx file) instead of the
+     * default quadtree (.qix file). The packed R-tree is built in a single pass over the shapefile
+     * and returns the matching records in file order
+     * 
+     * @param packedSpatialIndex
+     */
+    public void setPackedSpatialIndex(boolean packedSpatialIndex) {
+        this.packedSpatialIndex = packedSpatialIndex;
+    }
+
+    public boolean isPipelinedWrites() {
+        return pipelinedWrites;
+    }
+
+    /**
+     * When set to true the feature writers will write the .shp, .shx and .dbf files through
+     * double buffered channels, flushing the filled buffers to disk in a background thread while
+     * the next records are being encoded
+     * 
+     * @param pipelinedWrites
+     */
+    public void setPipelinedWrites(boolean pipelinedWrites) {
+        this.pipelinedWrites = pipelinedWrites;
+    }
+
+    public boolean isFastHoleAssignment() {
+        return fastHoleAssignment;
+    }
+
+    /**
+     * When set to true the polygons read for 2D consumers, such as the renderers, will have
+     * their holes assigned to the smallest shell whose envelope contains them, skipping the
+     * point in polygon tests. This speeds up reading records with many rings, but might
+     * produce invalid polygons when the shell envelopes overlap
+     * 
+     * @param fastHoleAssignment
+     */
+    public void setFastHoleAssignment(boolean fastHoleAssignment) {
+        this.fastHoleAssignment = fastHoleAssignment;
+    }
+
+    public String[] getIndexedAttributes() {
+        return indexedAttributes;
+    }
+
+    /**
+     * Sets the dbf columns that should be indexed in the .aix file. Equality, range and IN
+     * filters against these columns will use the index to read only the matching records. By
+     * default no attribute is indexed
+     * 
+     * @param indexedAttributes
+     */
+    public void setIndexedAttributes(String... indexedAttributes) {
+        if (indexedAttributes != null && indexedAttributes.length == 0) {
+            indexedAttributes = null;
+        }
+        this.indexedAttributes = indexedAttributes;
+    }
+
+    /**
+     * The number of threads used to scan the shapefile when running aggregation visitors or
+     * counting features with a non spatial filter
+     * 
+     * @return
+     */
+    public int getScanThreads() {
+        return scanThreads;
+    }
+
+    /**
+     * Sets the number of threads used to scan the shapefile when running aggregation visitors
+     * (count, bounds, unique, sum, min, max, average) or counting features with a non spatial
+     * filter. When greater than one, and the shx file is available, the records are split in
+     * partitions that are read and visited in parallel. The default is 1, sequential scan.
+     * 
+     * @param scanThreads
+     */
+    public void setScanThreads(int scanThreads) {
+        this.scanThreads = scanThreads;
+    }
+
     @Override
     public void removeSchema(String typeName) throws IOException {
         removeSchema(new NameImpl(null, typeName));
@@ -139,6 +139,36 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             Boolean.class, "enable/disable the use of spatial index for local shapefiles", false,
             true, new KVP(Param.LEVEL, "advanced"));
 
+    /**
+     * Optional - use a packed Hilbert R-tree as the spatial index instead of the quadtree
+     */
+    public static final Param PACKED_SPATIAL_INDEX = new Param("packed spatial index",
+            Boolean.class,
+            "use a packed Hilbert R-tree (.hrx) instead of a quadtree (.qix) as the spatial index",
+            false, false, new KVP(Param.LEVEL, "advanced"));
+
+    /**
+     * Optional - write the files through double buffered channels flushed in the background
+     */
+    public static final Param PIPELINED_WRITES = new Param("pipelined writes", Boolean.class,
+            "write the shapefile through double buffered channels flushed in a background thread",
+            false, false, new KVP(Param.LEVEL, "advanced"));
+
+    /**
+     * Optional - assign polygon holes by envelope only when reading 2D geometries
+     */
+    public static final Param FAST_HOLE_ASSIGNMENT = new Param("fast hole assignment",
+            Boolean.class,
+            "assign polygon holes to shells comparing their envelopes only when reading 2D geometries for rendering",
+            false, false, new KVP(Param.LEVEL, "advanced"));
+
+    /**
+     * Optional - comma separated list of dbf columns to be indexed
+     */
+    public static final Param INDEXED_ATTRIBUTES = new Param("indexed attributes", String.class,
+            "comma separated list of attributes to be indexed in the .aix file", false, null,
+            new KVP(Param.LEVEL, "advanced"));
+
     public String getDisplayName() {
         return "Shapefile";
     }
@@ -149,7 +179,8 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
 
     public Param[] getParametersInfo() {
         return new Param[] { URLP, NAMESPACEP, ENABLE_SPATIAL_INDEX, CREATE_SPATIAL_INDEX, DBFCHARSET, DBFTIMEZONE,
-                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE };
+                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE, PACKED_SPATIAL_INDEX,
+                INDEXED_ATTRIBUTES, PIPELINED_WRITES, FAST_HOLE_ASSIGNMENT };
     }
 
     public boolean isAvailable() {
@@ -169,6 +200,10 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
         TimeZone dbfTimeZone = lookup(DBFTIMEZONE, params, TimeZone.class);
         Boolean isCreateSpatialIndex = lookup(CREATE_SPATIAL_INDEX, params, Boolean.class);
         Boolean isEnableSpatialIndex = (Boolean) ENABLE_SPATIAL_INDEX.lookUp(params);
+        Boolean isPackedSpatialIndex = lookup(PACKED_SPATIAL_INDEX, params, Boolean.class);
+        String indexedAttributes = lookup(INDEXED_ATTRIBUTES, params, String.class);
+        Boolean isPipelinedWrites = lookup(PIPELINED_WRITES, params, Boolean.class);
+        Boolean isFastHoleAssignment = lookup(FAST_HOLE_ASSIGNMENT, params, Boolean.class);
         if (isEnableSpatialIndex == null) {
             // should not be needed as default is TRUE
             isEnableSpatialIndex = Boolean.TRUE;
@@ -198,6 +233,12 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             store.setTimeZone(dbfTimeZone);
             store.setIndexed(enableIndex);
             store.setIndexCreationEnabled(createIndex);
+            store.setPackedSpatialIndex(isPackedSpatialIndex);
+            store.setPipelinedWrites(isPipelinedWrites);
+            store.setFastHoleAssignment(isFastHoleAssignment);
+            if (indexedAttributes != null && indexedAttributes.trim().length() > 0) {
+                store.setIndexedAttributes(indexedAttributes.trim().split("\\s*,\\s*"));
+            }
             return store;
         }
     }
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,6 +33,7 @@ import org.geotools.data.shapefile.shp.ShapeType;
 import org.geotools.data.shapefile.shp.ShapefileReader;
 import org.geotools.data.shapefile.shp.ShapefileReader.Record;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.FilterAttributeExtractor;
 import org.geotools.geometry.jts.LiteCoordinateSequence;
 import org.geotools.renderer.ScreenMap;
 import org.geotools.util.logging.Logging;
@@ -86,6 +88,18 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     Filter filter;
 
+    /**
+     * The filter, if it can be evaluated on the dbf attributes alone, null otherwise
+     */
+    Filter attributeFilter;
+
+    /**
+     * The schema indexes of the attributes used by {@link #attributeFilter}
+     */
+    int[] filterAttributes;
+
+    SimpleFeatureBuilder filterBuilder;
+
     public ShapefileFeatureReader(SimpleFeatureType schema, ShapefileReader shp, DbaseFileReader dbf, IndexedFidReader fidReader)
             throws IOException {
         this.schema = schema;
@@ -177,30 +191,75 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
     @Override
     public boolean hasNext() throws IOException {
         while (nextFeature == null && filesHaveMore()) {
-            Record record = shp.nextRecord();
+            nextFeature = readFeature(shp.nextRecord());
+        }
+
+        return nextFeature != null;
+    }
 
+    /**
+     * Builds the feature for the specified shapefile record, or returns null if the record is to
+     * be skipped. If the filter only works against the dbf attributes the attributes it needs are
+     * decoded and the filter evaluated before the geometry and the other attributes are parsed
+     * 
+     * @param record
+     * @return
+     * @throws IOException
+     */
+    SimpleFeature readFeature(Record record) throws IOException {
+        if (attributeFilter != null) {
+            Row row = readRow(record);
+            if (row.isDeleted() || !acceptRow(record.number, row)) {
+                return null;
+            }
             Geometry geometry = getGeometry(record);
-            if (geometry != SKIP) {
-                // also grab the dbf row
-                Row row;
-                if (dbf != null) {
-                    row = dbf.readRow();
-                    if(row.isDeleted()) {
-                        continue;
-                    }
-                } else {
-                    row = null;
-                }
+            if (geometry == SKIP) {
+                return null;
+            }
+            return buildFeature(record.number, geometry, row, record.envelope());
+        }
 
-                nextFeature = buildFeature(record.number, geometry, row, record.envelope());
-            } else {
-                if (dbf != null) {
-                    dbf.skip();
-                }
+        Geometry geometry = getGeometry(record);
+        if (geometry == SKIP) {
+            skipRow();
+            return null;
+        }
+        // also grab the dbf row
+        Row row = null;
+        if (dbf != null) {
+            row = readRow(record);
+            if (row.isDeleted()) {
+                return null;
             }
         }
+        return buildFeature(record.number, geometry, row, record.envelope());
+    }
 
-        return nextFeature != null;
+    /**
+     * Reads the dbf row associated to the specified record
+     */
+    protected Row readRow(Record record) throws IOException {
+        return dbf.readRow();
+    }
+
+    /**
+     * Skips the dbf row associated to a record that won't be returned
+     */
+    protected void skipRow() throws IOException {
+        if (dbf != null) {
+            dbf.skip();
+        }
+    }
+
+    /**
+     * Evaluates the attribute filter against the row, decoding only the attributes the filter uses
+     */
+    boolean acceptRow(int number, Row row) throws IOException {
+        for (int i = 0; i < filterAttributes.length; i++) {
+            int idx = filterAttributes[i];
+            filterBuilder.set(idx, row.read(dbfindexes[idx]));
+        }
+        return attributeFilter.evaluate(filterBuilder.buildFeature(buildFeatureId(number)));
     }
 
     /**
@@ -260,7 +319,8 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
         // build the feature id
         String featureId = buildFeatureId(number);
         SimpleFeature feature = builder.buildFeature(featureId);
-        if (filter != null) {
+        // the attribute filter has already been evaluated against the row
+        if (filter != null && attributeFilter == null) {
             // if we should not return the feature, just drop it and continue reading
             if (!filter.evaluate(feature)) {
                 return null;
@@ -371,6 +431,33 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
 
     public void setFilter(Filter filter) {
         this.filter = filter;
+        this.attributeFilter = null;
+        this.filterAttributes = null;
+        this.filterBuilder = null;
+
+        // can we evaluate the filter on the dbf attributes alone?
+        if (filter == null || dbfindexes == null || fidReader != null) {
+            return;
+        }
+        FilterAttributeExtractor extractor = new FilterAttributeExtractor(schema);
+        filter.accept(extractor, null);
+        Set<String> names = extractor.getAttributeNameSet();
+        if (names.isEmpty() || extractor.isUsingDynamincProperties()) {
+            return;
+        }
+        int[] indexes = new int[names.size()];
+        int i = 0;
+        for (String name : names) {
+            int idx = schema.indexOf(name);
+            if (idx == -1 || dbfindexes[idx] == -1) {
+                // unknown attribute, default geometry or geometry, needs the full feature
+                return;
+            }
+            indexes[i++] = idx;
+        }
+        this.attributeFilter = filter;
+        this.filterAttributes = indexes;
+        this.filterBuilder = new SimpleFeatureBuilder(schema);
     }
 
 }
@@ -39,8 +39,10 @@ import org.geotools.data.FeatureSource;
 import org.geotools.data.PrjFileReader;
 import org.geotools.data.Query;
 import org.geotools.data.ReTypeFeatureReader;
+import org.geotools.data.Transaction;
 import org.geotools.data.shapefile.dbf.DbaseFileHeader;
 import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.dbf.IndexedDbaseFileReader;
 import org.geotools.data.shapefile.fid.IndexedFidReader;
 import org.geotools.data.shapefile.files.FileReader;
 import org.geotools.data.shapefile.files.ShpFiles;
@@ -304,6 +306,12 @@ class ShapefileFeatureSource extends ContentFeatureSource {
 
             return count;
 
+        } else if (!(query.getFilter() instanceof Id)) {
+            // non spatial filters require a full scan, see if we can parallelize it
+            PartitionedShapefileScan scan = getPartitionedScan(query);
+            if (scan != null) {
+                return scan.count(query);
+            }
         }
 
         return -1;
@@ -318,13 +326,7 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         GeometryFactory geometryFactory = getGeometryFactory(q);
 
         // grab the target bbox, if any
-        Envelope bbox = new ReferencedEnvelope();
-        if (q.getFilter() != null) {
-            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
-            if(bbox == null) {
-                bbox = new ReferencedEnvelope();
-            }
-        }
+        Envelope bbox = getTargetBBox(q);
 
         // see if we can use indexing to speedup the data access
         Filter filter = q != null ? q.getFilter() : null;
@@ -346,6 +348,17 @@ class ShapefileFeatureSource extends ContentFeatureSource {
                 throw new IOException("Error querying index: " + e.getMessage());
             }
         }
+        // narrow down the records using the attribute index, if configured
+        if (!(filter instanceof Id)) {
+            int[] attributeRecs = indexManager.queryAttributeIndex(filter);
+            if (attributeRecs != null) {
+                CloseableIterator<Data> records = indexManager.getAttributeIndexRecords(
+                        attributeRecs, goodRecs);
+                if (records != null) {
+                    goodRecs = records;
+                }
+            }
+        }
         // do we have anything to read at all? If not don't bother opening all the files
         if (goodRecs != null && !goodRecs.hasNext()) {
             LOGGER.log(Level.FINE, "Empty results for " + resultSchema.getName().getLocalPart()
@@ -398,6 +411,7 @@ class ShapefileFeatureSource extends ContentFeatureSource {
 
                 if (Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D))) {
                     shapeReader.setFlatGeometry(true);
+                    shapeReader.setFastHoleAssignment(getDataStore().isFastHoleAssignment());
                 }
             }
 
@@ -411,6 +425,116 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         }
     }
 
+    /**
+     * Returns a reader for the [start, end) records range, used by the
+     * {@link PartitionedShapefileScan} to read a partition of the shapefile. The query filter
+     * is applied, but not the property selection, the returned features follow the read schema
+     */
+    PartitionedShapefileFeatureReader getPartitionReader(Query q, int start, int end)
+            throws IOException {
+        SimpleFeatureType readSchema = getReadSchema(q);
+        GeometryFactory geometryFactory = getGeometryFactory(q);
+        Envelope bbox = getTargetBBox(q);
+
+        ShapefileSetManager shpManager = getDataStore().shpManager;
+        IndexFile shx = shpManager.openIndexFile();
+        if (shx == null) {
+            throw new IOException("The shx file is required to read a shapefile partition");
+        }
+        ShapefileReader shapeReader = null;
+        IndexedDbaseFileReader dbfReader = null;
+        try {
+            shapeReader = shpManager.openShapeReader(geometryFactory, true);
+            List<AttributeDescriptor> attributes = readSchema.getAttributeDescriptors();
+            if (attributes.size() > 1
+                    || (attributes.size() == 1 && readSchema.getGeometryDescriptor() == null)) {
+                dbfReader = (IndexedDbaseFileReader) shpManager.openDbfReader(true);
+            }
+        } catch (IOException e) {
+            shx.close();
+            if (shapeReader != null) {
+                shapeReader.close();
+            }
+            throw e;
+        }
+
+        PartitionedShapefileFeatureReader reader = new PartitionedShapefileFeatureReader(
+                readSchema, shapeReader, dbfReader, shx, start, end);
+        Filter filter = q.getFilter();
+        if (filter != null && !Filter.INCLUDE.equals(filter)) {
+            reader.setFilter(filter);
+        }
+        if (!bbox.isNull()) {
+            reader.setTargetBBox(bbox);
+        }
+        if (q.getHints() != null && Boolean.TRUE.equals(q.getHints().get(Hints.FEATURE_2D))) {
+            shapeReader.setFlatGeometry(true);
+            shapeReader.setFastHoleAssignment(getDataStore().isFastHoleAssignment());
+        }
+
+        return reader;
+    }
+
+    /**
+     * Returns a partitioned scan for the query, or null if the query cannot or should not be
+     * run as a parallel scan of the whole shapefile
+     */
+    PartitionedShapefileScan getPartitionedScan(Query q) throws IOException {
+        int threads = getDataStore().getScanThreads();
+        if (threads < 2) {
+            return null;
+        }
+
+        // paging, sorting and reprojection are handled by the sequential code paths
+        if (!q.isMaxFeaturesUnlimited()
+                || (q.getStartIndex() != null && q.getStartIndex() > 0)
+                || (q.getSortBy() != null && q.getSortBy().length > 0)
+                || q.getCoordinateSystem() != null || q.getCoordinateSystemReproject() != null) {
+            return null;
+        }
+
+        // id and spatial filters are better served by the fid and spatial indexes
+        Filter filter = q.getFilter();
+        if (filter instanceof Id || Filter.EXCLUDE.equals(filter)) {
+            return null;
+        }
+        Envelope bbox = getTargetBBox(q);
+        if (!bbox.isNull() && !Double.isInfinite(bbox.getWidth())
+                && !Double.isInfinite(bbox.getHeight())) {
+            return null;
+        }
+        // same goes for filters on the indexed attributes
+        String[] indexedAttributes = getDataStore().getIndexedAttributes();
+        if (indexedAttributes != null && filter != null) {
+            FilterAttributeExtractor extractor = new FilterAttributeExtractor();
+            filter.accept(extractor, null);
+            Set<String> names = extractor.getAttributeNameSet();
+            for (String name : indexedAttributes) {
+                if (names.contains(name)) {
+                    return null;
+                }
+            }
+        }
+
+        return new PartitionedShapefileScan(this, threads,
+                Math.max(1, getDataStore().minScanPartitionSize));
+    }
+
+    /**
+     * Extracts the target bbox from the query filter, returns an empty envelope if the filter does
+     * not have a spatial component
+     */
+    Envelope getTargetBBox(Query q) {
+        Envelope bbox = new ReferencedEnvelope();
+        if (q.getFilter() != null) {
+            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
+            if(bbox == null) {
+                bbox = new ReferencedEnvelope();
+            }
+        }
+        return bbox;
+    }
+
     SimpleFeatureType getResultSchema(Query q) {
         if (q.getPropertyNames() == null) {
             return getSchema();
@@ -596,6 +720,14 @@ class ShapefileFeatureSource extends ContentFeatureSource {
 
     @Override
     protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
+        // the transaction differences are applied by the sequential reader only
+        Transaction transaction = getTransaction();
+        if (transaction == null || transaction == Transaction.AUTO_COMMIT) {
+            PartitionedShapefileScan scan = getPartitionedScan(query);
+            if (scan != null && scan.visit(query, visitor)) {
+                return true;
+            }
+        }
         return super.handleVisitor(query, visitor);
     }
 
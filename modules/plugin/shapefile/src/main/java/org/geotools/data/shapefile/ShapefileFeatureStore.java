@@ -69,7 +69,7 @@ class ShapefileFeatureStore extends ContentFeatureStore {
             writer = new IndexedShapefileFeatureWriter(ds.indexManager, reader, ds.getCharset(), ds.getTimeZone());
         } else {
             writer = new ShapefileFeatureWriter(delegate.shpFiles, reader, ds.getCharset(), 
-                    ds.getTimeZone());
+                    ds.getTimeZone(), ds.isPipelinedWrites());
         }
         writer.setMaxShpSize(getDataStore().getMaxShpSize());
         writer.setMaxDbfSize(getDataStore().getMaxDbfSize());
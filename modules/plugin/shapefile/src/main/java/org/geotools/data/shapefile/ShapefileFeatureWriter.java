@@ -32,6 +32,7 @@ import org.geotools.data.FeatureWriter;
 import org.geotools.data.shapefile.dbf.DbaseFileHeader;
 import org.geotools.data.shapefile.dbf.DbaseFileWriter;
 import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.files.PipelinedFileChannel;
 import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.shapefile.files.StorageFile;
 import org.geotools.data.shapefile.shp.JTSUtilities;
@@ -52,6 +53,10 @@ import com.vividsolutions.jts.geom.GeometryFactory;
  * attributes and geometries. Because the shapefile and dbf require header information which can
  * only be obtained by reading the entire series of Features, the headers are updated after the
  * initial write completes.
+ * <p>
+ * In pipelined mode the files are written through {@link PipelinedFileChannel}, so that the
+ * records are encoded by the caller while the previous ones are written to disk in the
+ * background.
  * 
  * @author Jesse Eichar
  * 
@@ -130,6 +135,11 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
 
     public ShapefileFeatureWriter(ShpFiles shpFiles, ShapefileFeatureReader featureReader,
             Charset charset, TimeZone timezone) throws IOException {
+        this(shpFiles, featureReader, charset, timezone, false);
+    }
+
+    public ShapefileFeatureWriter(ShpFiles shpFiles, ShapefileFeatureReader featureReader,
+            Charset charset, TimeZone timezone, boolean pipelined) throws IOException {
         this.shpFiles = shpFiles;
         this.dbfCharset = charset;
         this.dbfTimeZone = timezone;
@@ -160,12 +170,12 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
         transferCache = new Object[cnt];
 
         // open underlying writers
-        FileChannel shpChannel = storageFiles.get(SHP).getWriteChannel();
-        FileChannel shxChannel = storageFiles.get(SHX).getWriteChannel();
+        FileChannel shpChannel = getWriteChannel(SHP, pipelined);
+        FileChannel shxChannel = getWriteChannel(SHX, pipelined);
         shpWriter = new ShapefileWriter(shpChannel, shxChannel);
 
         dbfHeader = ShapefileDataStore.createDbaseHeader(featureType);
-        dbfChannel = storageFiles.get(DBF).getWriteChannel();
+        dbfChannel = getWriteChannel(DBF, pipelined);
         dbfWriter = new DbaseFileWriter(dbfHeader, dbfChannel, dbfCharset, dbfTimeZone);
 
         // don't try to read a shx file we're writing to in parallel
@@ -176,6 +186,14 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
         shpWriter.writeHeaders(bounds, shapeType, records, shapefileLength);
     }
     
+    private FileChannel getWriteChannel(ShpFileType type, boolean pipelined) throws IOException {
+        FileChannel channel = storageFiles.get(type).getWriteChannel();
+        if (pipelined) {
+            return new PipelinedFileChannel(channel);
+        }
+        return channel;
+    }
+
     void setMaxShpSize(long maxShapeSize) {
         this.maxShpSize = maxShapeSize;
     }
@@ -268,12 +286,18 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
                 double[] env = new double[4];
 
                 while (featureReader.filesHaveMore()) {
-                    // transfer bytes from shapefile
-                    shapefileLength += featureReader.shp.transferTo(shpWriter, ++records, env);
-
-                    // bounds update
-                    bounds.expandToInclude(env[0], env[1]);
-                    bounds.expandToInclude(env[2], env[3]);
+                    // transfer bytes from shapefile (content plus the 8 bytes record header)
+                    int offset = shapefileLength;
+                    shapefileLength += featureReader.shp.transferTo(shpWriter, ++records, env) + 8;
+
+                    // bounds update, the bounds are NaN for null geometries
+                    Envelope recordBounds = null;
+                    if (!Double.isNaN(env[0])) {
+                        bounds.expandToInclude(env[0], env[1]);
+                        bounds.expandToInclude(env[2], env[3]);
+                        recordBounds = new Envelope(env[0], env[2], env[1], env[3]);
+                    }
+                    recordWritten(offset, recordBounds);
 
                     // transfer dbf bytes
                     featureReader.dbf.transferTo(dbfWriter);
@@ -346,6 +370,18 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
         return getFeatureType().getTypeName() + "." + (records + 1);
     }
 
+    /**
+     * Called after each record has been written, including the ones copied over from the
+     * original file when closing. Subclasses can use it to keep indexes up to date.
+     * 
+     * @param offset The record offset in bytes in the .shp file
+     * @param bounds The record bounds, or null if the geometry is null or empty
+     * @throws IOException
+     */
+    protected void recordWritten(long offset, Envelope bounds) throws IOException {
+        // nothing to do by default
+    }
+
     public void remove() throws IOException {
         if (featureReader == null) {
             throw new IOException("Writer closed");
@@ -396,15 +432,18 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
         g = JTSUtilities.convertToCollection(g, shapeType);
 
         // bounds calculations
+        Envelope recordBounds = null;
         if (g != null) {
             Envelope b = g.getEnvelopeInternal();
 
             if (!b.isNull()) {
                 bounds.expandToInclude(b);
+                recordBounds = b;
             }
         }
 
         // file length update
+        int offset = shapefileLength;
         if (g != null) {
             shapefileLength += (handler.getLength(g) + 8);
         } else {
@@ -440,6 +479,7 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
 
         // one more down...
         records++;
+        recordWritten(offset, recordBounds);
 
         // clear the currentFeature
         currentFeature = null;
@@ -132,6 +132,24 @@ public class DbaseFileReader implements FileReader {
 
     private final long MILLISECS_PER_DAY = 24*60*60*1000;
 
+    /**
+     * Max number of digits parsed by {@link #parseLong(byte[], int, int)}, more might overflow
+     */
+    static final int MAX_LONG_DIGITS = 18;
+
+    /**
+     * Max number of digits parsed by {@link #parseDouble(byte[], int, int)}, all integers with up
+     * to 15 digits are exactly representable as doubles
+     */
+    static final int MAX_DOUBLE_DIGITS = 15;
+
+    static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+    long parsedLong;
+
+    double parsedDouble;
+
     
     /**
      * Creates a new instance of DBaseFileReader
@@ -549,8 +567,19 @@ public class DbaseFileReader implements FileReader {
                 if (bytes[fieldOffset] == '*') {
                     break;
                 } else {
-                    final String string = fastParse(bytes,fieldOffset,fieldLen).trim();
                     Class clazz = header.getFieldClass(fieldNum);
+                    // fast path, parse plain integers straight from the bytes
+                    if ((clazz == Integer.class || clazz == Long.class)
+                            && parseLong(bytes, fieldOffset, fieldLen)) {
+                        if (clazz == Integer.class && parsedLong >= Integer.MIN_VALUE
+                                && parsedLong <= Integer.MAX_VALUE) {
+                            object = Integer.valueOf((int) parsedLong);
+                        } else {
+                            object = Long.valueOf(parsedLong);
+                        }
+                        break;
+                    }
+                    final String string = fastParse(bytes,fieldOffset,fieldLen).trim();
                     if (clazz == Integer.class) {
                         try {
                             object = Integer.parseInt(string);
@@ -575,6 +604,10 @@ public class DbaseFileReader implements FileReader {
             case 'f':
             case 'F': 
                 if (bytes[fieldOffset] != '*') {
+                    if (parseDouble(bytes, fieldOffset, fieldLen)) {
+                        object = Double.valueOf(parsedDouble);
+                        break;
+                    }
                     try {
                         object = Double.parseDouble(fastParse(bytes,fieldOffset,fieldLen));
                     } catch (final NumberFormatException e) {
@@ -592,6 +625,89 @@ public class DbaseFileReader implements FileReader {
         return object;
     }
     
+    /**
+     * Parses a plain integer, optionally surrounded by spaces, directly from the bytes into
+     * {@link #parsedLong}. Returns false if the field contains anything else (or too many digits),
+     * in which case the caller should fall back on the String based parsing
+     */
+    boolean parseLong(final byte[] bytes, final int fieldOffset, final int fieldLen) {
+        int i = fieldOffset;
+        final int end = fieldOffset + fieldLen;
+        while (i < end && bytes[i] == ' ') {
+            i++;
+        }
+        boolean negative = false;
+        if (i < end && bytes[i] == '-') {
+            negative = true;
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (i < end && bytes[i] >= '0' && bytes[i] <= '9') {
+            value = value * 10 + (bytes[i] - '0');
+            digits++;
+            i++;
+        }
+        while (i < end && bytes[i] == ' ') {
+            i++;
+        }
+        if (i < end || digits == 0 || digits > MAX_LONG_DIGITS) {
+            return false;
+        }
+        parsedLong = negative ? -value : value;
+        return true;
+    }
+
+    /**
+     * Parses a plain decimal number, optionally surrounded by spaces, directly from the bytes into
+     * {@link #parsedDouble}. Only numbers whose digits fit exactly in a double are handled, as
+     * for those a single division by an exact power of ten gives the same result as
+     * {@link Double#parseDouble(String)}. Returns false otherwise, in which case the caller
+     * should fall back on the String based parsing
+     */
+    boolean parseDouble(final byte[] bytes, final int fieldOffset, final int fieldLen) {
+        int i = fieldOffset;
+        final int end = fieldOffset + fieldLen;
+        while (i < end && bytes[i] == ' ') {
+            i++;
+        }
+        boolean negative = false;
+        if (i < end && bytes[i] == '-') {
+            negative = true;
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        while (i < end) {
+            final byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+            i++;
+        }
+        while (i < end && bytes[i] == ' ') {
+            i++;
+        }
+        if (i < end || digits == 0 || digits > MAX_DOUBLE_DIGITS) {
+            return false;
+        }
+        double value = mantissa;
+        if (decimals > 0) {
+            value = value / POWERS_OF_TEN[decimals];
+        }
+        parsedDouble = negative ? -value : value;
+        return true;
+    }
+
     /**
      * Performs a faster byte[] to String conversion under the assumption the content
      * is represented with one byte per char 
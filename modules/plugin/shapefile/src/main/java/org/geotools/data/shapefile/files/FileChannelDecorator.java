@@ -24,6 +24,8 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -46,6 +48,7 @@ public class FileChannelDecorator extends FileChannel implements
     private final FileReader reader;
     private final FileWriter writer;
     private boolean closed;
+    private final List<MemoryMapCache.Mapping> mappings = new ArrayList<MemoryMapCache.Mapping>();
 
     public FileChannelDecorator(FileChannel channel, ShpFiles shapefileFiles,
             URL url, FileReader requestor) {
@@ -77,8 +80,7 @@ public class FileChannelDecorator extends FileChannel implements
 
     public MappedByteBuffer map(MapMode mode, long position, long size)
             throws IOException {
-//    	return wrapped.map(mode, position, size)
-    	 return shapefileFiles.map(wrapped, url, mode, position, size);
+        return shapefileFiles.map(wrapped, url, mode, position, size, mappings);
     }
 
     public long position() throws IOException {
@@ -145,6 +147,7 @@ public class FileChannelDecorator extends FileChannel implements
         } finally {
             if (!closed) {
                 closed = true;
+                MemoryMapCache.getInstance().release(mappings);
                 if (reader != null) {
                     shapefileFiles.unlockRead(url, reader);
                 } else {
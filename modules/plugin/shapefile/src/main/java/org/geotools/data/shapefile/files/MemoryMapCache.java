@@ -23,110 +23,289 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.data.DataUtilities;
 import org.geotools.resources.NIOUtilities;
-import org.geotools.util.SoftValueHashMap;
-import org.geotools.util.SoftValueHashMap.ValueCleaner;
 import org.geotools.util.logging.Logging;
 
 /**
- * A cache for memory mapped buffers, used to avoid generating over and over
- * read only memory mapped buffers. Mapping a file is a synchronized operation,
- * plus by generating light copies the same buffer can be shared by various threads
+ * A process wide cache for memory mapped buffers, used to avoid generating over and over read
+ * only memory mapped buffers. Mapping a file is a synchronized operation, plus by generating light
+ * copies the same buffer can be shared by various threads and stores.
+ * <p>
+ * The cache keeps the total size of the mapped regions within a byte budget, evicting the least
+ * recently used mappings. A mapping is unmapped only once all the channels that acquired it have
+ * been closed, evicted mappings still in use are retired and unmapped on the last release. The
+ * budget defaults to 1GB and can be changed using the
+ * <code>org.geotools.shapefile.maxMapCacheSize</code> system variable, or
+ * {@link #setMaxMappedBytes(long)}.
+ * <p>
+ * Mappings that are requested often are pre-touched, loading their contents in physical memory.
+ * 
  * @author Andrea Aime - OpenGeo
- *
+ * 
  */
-class MemoryMapCache {
-	
-	static final Logger LOGGER = Logging.getLogger(MemoryMapCache.class);
-
-    SoftValueHashMap<MappingKey, MappedByteBuffer> buffers = new SoftValueHashMap<MappingKey, MappedByteBuffer>(0, new BufferCleaner());
-    
-	MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size) throws IOException {
-		if(mode != MapMode.READ_ONLY) {
-			return wrapped.map(mode, position, size);
-		}
-		
-		File file = DataUtilities.urlToFile(url).getCanonicalFile();
-		MappingKey mk = new MappingKey(file, position, size);
-		MappedByteBuffer buffer = buffers.get(mk);
-		if(buffer == null) {
-			synchronized (this) {
-				buffer = buffers.get(mk);
-				if(buffer == null) {
-					buffer = wrapped.map(mode, position, size);
-					buffers.put(mk, buffer);
-					if(LOGGER.isLoggable(Level.FINE)) {
-						LOGGER.log(Level.FINE, "Mapping and caching " + file.getAbsolutePath());
-					}
-				}
-			}
-		} else {
-			if(LOGGER.isLoggable(Level.FINE)) {
-				LOGGER.log(Level.FINE, "Using cached map for " + file.getAbsolutePath());
-			}
-		}
-		
-		return (MappedByteBuffer) buffer.duplicate();
-	}
-	
-	/**
-	 * Cleans up all memory mapped regions for a specified file. It is necessary to call this
-	 * method before any attempt to open a file for writing on Windows
-	 * @param file
-	 */
-	void cleanFileCache(URL url) {
-	    try {
-    	    final File rawFile = DataUtilities.urlToFile(url);
-    	    if(rawFile == null) {
-    	        // not a local file
-    	        return;
-    	    }
-            File file = rawFile.getCanonicalFile();
-    	    List<MappingKey> keys = new ArrayList<MappingKey>(buffers.keySet());
-    	    for (MappingKey key : keys) {
-                if(key.file.equals(file)) {
-                    MappedByteBuffer buffer = buffers.remove(key);
-                    NIOUtilities.clean(buffer, true);
-                    if(LOGGER.isLoggable(Level.FINE)) {
-        				LOGGER.log(Level.FINE, "Removed mapping for " + file.getAbsolutePath());
-                    }
+public class MemoryMapCache {
+
+    static final Logger LOGGER = Logging.getLogger(MemoryMapCache.class);
+
+    /**
+     * The default byte budget
+     */
+    static final long DEFAULT_MAX_MAPPED_BYTES;
+
+    /**
+     * Number of hits after which a mapping is loaded in physical memory
+     */
+    static final int HOT_HITS = 3;
+
+    static {
+        long max = 1024 * 1024 * 1024;
+        try {
+            String smax = System.getProperty("org.geotools.shapefile.maxMapCacheSize");
+            if (smax != null) {
+                max = Long.parseLong(smax);
+            }
+        } catch (Throwable t) {
+            LOGGER.log(Level.SEVERE, "Could not set the max memory map cache size", t);
+        }
+        DEFAULT_MAX_MAPPED_BYTES = max;
+    }
+
+    static final MemoryMapCache INSTANCE = new MemoryMapCache(DEFAULT_MAX_MAPPED_BYTES);
+
+    /**
+     * Returns the cache shared by all the shapefiles in this process
+     */
+    public static MemoryMapCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The cached mappings, in least recently used order
+     */
+    LinkedHashMap<MappingKey, Mapping> mappings = new LinkedHashMap<MappingKey, Mapping>(16,
+            0.75f, true);
+
+    /**
+     * The mappings that have been removed from the cache, but are still in use
+     */
+    List<Mapping> retired = new ArrayList<Mapping>();
+
+    long maxMappedBytes;
+
+    long mappedBytes;
+
+    long hits;
+
+    long misses;
+
+    long evictions;
+
+    MemoryMapCache(long maxMappedBytes) {
+        this.maxMappedBytes = maxMappedBytes;
+    }
+
+    MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size,
+            List<Mapping> acquired) throws IOException {
+        if (mode != MapMode.READ_ONLY) {
+            return wrapped.map(mode, position, size);
+        }
+
+        File file = DataUtilities.urlToFile(url).getCanonicalFile();
+        MappingKey mk = new MappingKey(file, position, size);
+        Mapping mapping;
+        boolean load = false;
+        synchronized (this) {
+            mapping = mappings.get(mk);
+            if (mapping == null) {
+                misses++;
+                if (size > maxMappedBytes) {
+                    // would evict everything else, don't cache it
+                    return wrapped.map(mode, position, size);
+                }
+                mapping = new Mapping(mk, wrapped.map(mode, position, size));
+                mappings.put(mk, mapping);
+                mappedBytes += size;
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Mapping and caching " + file.getAbsolutePath());
                 }
+                evict();
+            } else {
+                hits++;
+                if (++mapping.hits == HOT_HITS) {
+                    load = true;
+                }
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Using cached map for " + file.getAbsolutePath());
+                }
+            }
+            mapping.references++;
+            acquired.add(mapping);
+        }
+
+        // the mapping cannot be unmapped while we hold a reference to it
+        if (load) {
+            mapping.buffer.load();
+        }
+
+        return (MappedByteBuffer) mapping.buffer.duplicate();
+    }
+
+    /**
+     * Releases the mappings acquired by a channel, unmapping the retired ones that are no longer
+     * in use
+     */
+    synchronized void release(List<Mapping> acquired) {
+        for (Mapping mapping : acquired) {
+            mapping.references--;
+            if (mapping.references == 0 && mapping.retired) {
+                retired.remove(mapping);
+                unmap(mapping);
+            }
+        }
+        acquired.clear();
+    }
+
+    /**
+     * Evicts the least recently used mappings until the mapped bytes are within the budget,
+     * always keeping the most recent one
+     */
+    void evict() {
+        Iterator<Mapping> it = mappings.values().iterator();
+        while (mappedBytes > maxMappedBytes && mappings.size() > 1) {
+            Mapping mapping = it.next();
+            it.remove();
+            evictions++;
+            retire(mapping);
+        }
+    }
+
+    /**
+     * Unmaps a mapping removed from the cache, or marks it as retired if it's still in use
+     */
+    void retire(Mapping mapping) {
+        if (mapping.references == 0) {
+            unmap(mapping);
+        } else {
+            mapping.retired = true;
+            retired.add(mapping);
+        }
+    }
+
+    void unmap(Mapping mapping) {
+        mappedBytes -= mapping.key.size;
+        NIOUtilities.clean(mapping.buffer, true);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Removed mapping for " + mapping.key.file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Cleans up all memory mapped regions for a specified file. It is necessary to call this
+     * method before any attempt to open a file for writing on Windows. The regions still in use
+     * are unmapped as soon as they are released.
+     * 
+     * @param file
+     */
+    synchronized void cleanFileCache(URL url) {
+        try {
+            final File rawFile = DataUtilities.urlToFile(url);
+            if (rawFile == null) {
+                // not a local file
+                return;
             }
-	    } catch(Throwable t) {
-	        LOGGER.log(Level.WARNING, "An error occurred while trying to clean the memory map cache", t);
-	    }
-	}
-	
-	void clean() {
-		List<MappingKey> keys = new ArrayList<MappingKey>(buffers.keySet());
-	    for (MappingKey key : keys) {
-            MappedByteBuffer buffer = buffers.remove(key);
-            NIOUtilities.clean(buffer, true);
-            if(LOGGER.isLoggable(Level.FINE)) {
-				LOGGER.log(Level.FINE, "Removed mapping for " + key.file.getAbsolutePath());
+            File file = rawFile.getCanonicalFile();
+            for (Iterator<Mapping> it = mappings.values().iterator(); it.hasNext();) {
+                Mapping mapping = it.next();
+                if (mapping.key.file.equals(file)) {
+                    it.remove();
+                    retire(mapping);
+                }
             }
+        } catch (Throwable t) {
+            LOGGER.log(Level.WARNING,
+                    "An error occurred while trying to clean the memory map cache", t);
+        }
+    }
+
+    /**
+     * Removes all the mappings from the cache
+     */
+    public synchronized void clean() {
+        for (Iterator<Mapping> it = mappings.values().iterator(); it.hasNext();) {
+            Mapping mapping = it.next();
+            it.remove();
+            retire(mapping);
+        }
+    }
+
+    /**
+     * Returns the maximum amount of bytes that can be mapped by the cache
+     */
+    public synchronized long getMaxMappedBytes() {
+        return maxMappedBytes;
+    }
+
+    /**
+     * Sets the maximum amount of bytes that can be mapped by the cache, evicting the least
+     * recently used mappings if necessary
+     */
+    public synchronized void setMaxMappedBytes(long maxMappedBytes) {
+        this.maxMappedBytes = maxMappedBytes;
+        evict();
+    }
+
+    /**
+     * Returns the amount of bytes currently mapped, including the evicted mappings still in use
+     */
+    public synchronized long getMappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * Returns the number of mapping requests served from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of mapping requests that required a new mapping
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of mappings evicted to stay within the byte budget
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Tracks a memory mapped region of a certain file
+     */
+    static class MappingKey {
+        File file;
+
+        long position;
+
+        long size;
+
+        public MappingKey(File file, long position, long size) {
+            super();
+            this.file = file;
+            this.position = position;
+            this.size = size;
         }
-	}
-	
-	/**
-	 * Tracks a memory mapped region of a certain file
-	 */
-	static class MappingKey {
-		File file;
-		long position;
-		long size;
-		
-		public MappingKey(File file, long position, long size) {
-			super();
-			this.file = file;
-			this.position = position;
-			this.size = size;
-		}
 
         @Override
         public int hashCode() {
@@ -158,23 +337,26 @@ class MemoryMapCache {
                 return false;
             return true;
         }
-	}
-	
-	/**
-	 * Cleans up the buffers before the soft reference gets deallocated
-	 * @author Andrea Aime
- *
- *
- * @source $URL$
-	 */
-	public class BufferCleaner implements ValueCleaner {
+    }
 
-        public void clean(Object key, Object object) {
-            MappedByteBuffer buffer = (MappedByteBuffer) object;
-            NIOUtilities.clean(buffer, true);
-        }
+    /**
+     * A cached mapping, along with the number of channels using it
+     */
+    static class Mapping {
+        final MappingKey key;
 
-    }
+        final MappedByteBuffer buffer;
 
+        int references;
+
+        int hits;
+
+        boolean retired;
+
+        Mapping(MappingKey key, MappedByteBuffer buffer) {
+            this.key = key;
+            this.buffer = buffer;
+        }
+    }
 
 }
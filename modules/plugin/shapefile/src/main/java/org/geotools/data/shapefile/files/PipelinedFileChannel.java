@@ -0,0 +1,284 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.files;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.resources.NIOUtilities;
+
+/**
+ * A write only FileChannel that accumulates the sequential writes in a buffer, and hands over
+ * full buffers to a background thread that writes them to the wrapped channel while the next
+ * buffer is being filled (double buffering). This allows the caller to keep on encoding records
+ * while the previous batch is being written to disk.
+ * <p>
+ * Any operation other than a sequential write (changing or reading the position, reading,
+ * mapping, locking, ...) first waits for the pending writes to complete, and is then delegated
+ * to the wrapped channel. Errors occurring in the background are reported on the next call.
+ */
+public class PipelinedFileChannel extends FileChannel {
+
+    /**
+     * Default size of each of the two buffers
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 128 * 1024;
+
+    static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ShapefileWriter-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final FileChannel wrapped;
+
+    /** The buffer being filled by the caller */
+    private ByteBuffer current;
+
+    /** The buffer being written in the background, or ready to be used */
+    private ByteBuffer spare;
+
+    /** The background write in progress, if any */
+    private Future<?> pending;
+
+    public PipelinedFileChannel(FileChannel wrapped) {
+        this(wrapped, DEFAULT_BUFFER_SIZE);
+    }
+
+    public PipelinedFileChannel(FileChannel wrapped, int bufferSize) {
+        this.wrapped = wrapped;
+        this.current = NIOUtilities.allocate(bufferSize);
+        this.spare = NIOUtilities.allocate(bufferSize);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        int written = 0;
+        while (src.hasRemaining()) {
+            if (!current.hasRemaining()) {
+                swap();
+            }
+            int count = Math.min(src.remaining(), current.remaining());
+            int limit = src.limit();
+            src.limit(src.position() + count);
+            current.put(src);
+            src.limit(limit);
+            written += count;
+        }
+        return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long written = 0;
+        for (int i = offset; i < offset + length; i++) {
+            written += write(srcs[i]);
+        }
+        return written;
+    }
+
+    /**
+     * Hands over the current buffer to the background thread, and switches to the spare one
+     */
+    private void swap() throws IOException {
+        await();
+        final ByteBuffer toWrite = current;
+        toWrite.flip();
+        current = spare;
+        current.clear();
+        spare = toWrite;
+        pending = EXECUTOR.submit(new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                while (toWrite.hasRemaining()) {
+                    wrapped.write(toWrite);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Waits for the background write in progress, if any, to complete
+     */
+    private void await() throws IOException {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            throw (IOException) new InterruptedIOException(
+                    "Interrupted while waiting for the background write to complete")
+                    .initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Background write failed", cause);
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * Writes down all the buffered data and waits for the writes to complete, after this call
+     * the wrapped channel is in sync with the writes performed so far
+     * 
+     * @throws IOException
+     */
+    public void sync() throws IOException {
+        await();
+        current.flip();
+        try {
+            while (current.hasRemaining()) {
+                wrapped.write(current);
+            }
+        } finally {
+            current.clear();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!isOpen()) {
+            throw new IOException("Channel is closed");
+        }
+    }
+
+    @Override
+    public long position() throws IOException {
+        sync();
+        return wrapped.position();
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+        sync();
+        wrapped.position(newPosition);
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        sync();
+        return wrapped.size();
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+        sync();
+        wrapped.truncate(size);
+        return this;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+        sync();
+        wrapped.force(metaData);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        sync();
+        return wrapped.read(dst);
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        sync();
+        return wrapped.read(dsts, offset, length);
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        sync();
+        return wrapped.read(dst, position);
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+        sync();
+        return wrapped.write(src, position);
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target)
+            throws IOException {
+        sync();
+        return wrapped.transferTo(position, count, target);
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count)
+            throws IOException {
+        sync();
+        return wrapped.transferFrom(src, position, count);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+        sync();
+        return wrapped.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+        sync();
+        return wrapped.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        sync();
+        return wrapped.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        try {
+            sync();
+        } finally {
+            try {
+                wrapped.close();
+            } finally {
+                NIOUtilities.clean(current, false);
+                NIOUtilities.clean(spare, false);
+            }
+        }
+    }
+}
@@ -50,6 +50,14 @@ public enum ShpFileType {
      * format the mapservers shptree tool generates
      */
     QIX("qix"),
+    /**
+     * the .hrx file, a packed Hilbert R-tree spatial index of the shapefile
+     */
+    HRX("hrx"),
+    /**
+     * the .aix file, sorted indexes on a selection of the dbf columns
+     */
+    AIX("aix"),
     /**
      * the .fix file, it contains all the Feature IDs for constant time lookup
      * by fid also so that the fids stay consistent across deletes and adds
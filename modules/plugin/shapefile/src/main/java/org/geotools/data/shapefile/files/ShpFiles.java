@@ -40,6 +40,7 @@ import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -95,9 +96,9 @@ public class ShpFiles {
     private final Map<Thread, Collection<ShpFilesLocker>> lockers = new ConcurrentHashMap<Thread, Collection<ShpFilesLocker>>();
 
     /**
-     * A cache for read only memory mapped buffers
+     * The cache for read only memory mapped buffers, shared with the other shapefiles
      */
-    private final MemoryMapCache mapCache = new MemoryMapCache();
+    private final MemoryMapCache mapCache = MemoryMapCache.getInstance();
 
     private boolean memoryMapCacheEnabled;
 
@@ -231,7 +232,18 @@ public class ShpFiles {
             logCurrentLockers(Level.SEVERE);
             lockers.clear(); // so as not to get this log again.
         }
-        mapCache.clean();
+        cleanMemoryMapCache();
+    }
+
+    /**
+     * Removes the mappings of this shapefile files from the shared memory map cache
+     */
+    private void cleanMemoryMapCache() {
+        if (isLocal()) {
+            for (URL url : urls.values()) {
+                mapCache.cleanFileCache(url);
+            }
+        }
     }
 
     /**
@@ -918,13 +930,15 @@ public class ShpFiles {
      * @param mode
      * @param position
      * @param size
+     * @param acquired the list collecting the cached mappings used by the channel, to be
+     *        released when the channel is closed
      * @return
      * @throws IOException
      */
-    MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size)
-            throws IOException {
+    MappedByteBuffer map(FileChannel wrapped, URL url, MapMode mode, long position, long size,
+            List<MemoryMapCache.Mapping> acquired) throws IOException {
         if (memoryMapCacheEnabled) {
-            return mapCache.map(wrapped, url, mode, position, size);
+            return mapCache.map(wrapped, url, mode, position, size, acquired);
         } else {
             return wrapped.map(mode, position, size);
         }
@@ -949,7 +963,7 @@ public class ShpFiles {
     public void setMemoryMapCacheEnabled(boolean memoryMapCacheEnabled) {
         this.memoryMapCacheEnabled = memoryMapCacheEnabled;
         if (!memoryMapCacheEnabled) {
-            mapCache.clean();
+            cleanMemoryMapCache();
         }
     }
 
@@ -0,0 +1,342 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.attribute;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.data.shapefile.index.quadtree.StoreException;
+import org.geotools.resources.NIOUtilities;
+import org.geotools.util.Converters;
+
+/**
+ * A set of sorted column indexes over the DBF attributes of a shapefile, stored in a single file.
+ * <p>
+ * The file starts with a header listing the indexed columns, followed by one section per column.
+ * A section is a sequence of fixed size (key, record number) entries, sorted by key, with null
+ * values and deleted rows left out. Numbers and dates are stored as doubles, strings as fixed
+ * width UTF-16 characters padded with zeroes. Range lookups are binary searches followed by a
+ * sequential scan of the matching entries.
+ * <p>
+ * Searches are inclusive and numeric keys are doubles, so the results are a superset of the
+ * matching records, the caller is expected to evaluate the original filter on them.
+ */
+public class AttributeIndex {
+
+    static final String SIGNATURE = "AIX";
+
+    static final byte VERSION = 1;
+
+    static final byte NUMBER = 0;
+
+    static final byte DATE = 1;
+
+    static final byte STRING = 2;
+
+    /**
+     * The number of entries read at once when scanning a range without memory mapping
+     */
+    static final int SCAN_BLOCK = 4096;
+
+    /**
+     * An indexed column
+     */
+    static class Column {
+        String name;
+
+        byte type;
+
+        int keySize;
+
+        int count;
+
+        long offset;
+
+        int getEntrySize() {
+            return keySize + 4;
+        }
+    }
+
+    RandomAccessFile raf;
+
+    FileChannel channel;
+
+    ByteBuffer mapped;
+
+    Map<String, Column> columns = new LinkedHashMap<String, Column>();
+
+    /**
+     * Opens an attribute index file
+     * 
+     * @param file
+     * @param useMemoryMapping
+     * @throws StoreException
+     */
+    public AttributeIndex(File file, boolean useMemoryMapping) throws StoreException {
+        try {
+            raf = new RandomAccessFile(file, "r");
+            channel = raf.getChannel();
+            if (useMemoryMapping) {
+                mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            }
+            // the header is small, read it with a stream
+            raf.seek(0);
+            byte[] signature = new byte[3];
+            raf.readFully(signature);
+            if (!SIGNATURE.equals(new String(signature, "US-ASCII"))) {
+                throw new StoreException("Not an attribute index file: " + file);
+            }
+            byte version = raf.readByte();
+            if (version != VERSION) {
+                throw new StoreException("Unsupported attribute index version " + version);
+            }
+            int numColumns = raf.readInt();
+            for (int i = 0; i < numColumns; i++) {
+                Column column = new Column();
+                column.name = raf.readUTF();
+                column.type = raf.readByte();
+                column.keySize = raf.readInt();
+                column.count = raf.readInt();
+                column.offset = raf.readLong();
+                columns.put(column.name, column);
+            }
+        } catch (StoreException e) {
+            close();
+            throw e;
+        } catch (IOException e) {
+            close();
+            throw new StoreException(e);
+        }
+    }
+
+    /**
+     * The names of the indexed columns, in file order
+     */
+    public List<String> getColumnNames() {
+        return Collections.unmodifiableList(new ArrayList<String>(columns.keySet()));
+    }
+
+    /**
+     * Returns true if the specified column is indexed
+     */
+    public boolean isIndexed(String column) {
+        return columns.containsKey(column);
+    }
+
+    /**
+     * Returns true if the specified column contains strings
+     */
+    public boolean isStringColumn(String column) {
+        Column c = columns.get(column);
+        return c != null && c.type == STRING;
+    }
+
+    /**
+     * Returns the number of indexed (non null) values in the column, or -1 if the column is not
+     * indexed
+     */
+    public int getCount(String column) {
+        Column c = columns.get(column);
+        return c == null ? -1 : c.count;
+    }
+
+    /**
+     * Returns the record numbers whose value is between min and max, both included. A null min or
+     * max means the range is unbounded on that side.
+     * 
+     * @param column The column name
+     * @param min The minimum value, or null
+     * @param max The maximum value, or null
+     * @return The one based record numbers, in no particular order, or null if the column is not
+     *         indexed or the values cannot be converted to the column type
+     * @throws StoreException
+     */
+    public int[] search(String column, Object min, Object max) throws StoreException {
+        Column c = columns.get(column);
+        if (c == null) {
+            return null;
+        }
+        Object minKey = null;
+        Object maxKey = null;
+        if (min != null && (minKey = toKey(c, min)) == null) {
+            return null;
+        }
+        if (max != null && (maxKey = toKey(c, max)) == null) {
+            return null;
+        }
+
+        // first entry greater or equal than min, first entry greater than max
+        int start = minKey == null ? 0 : lowerBound(c, minKey, false);
+        int end = maxKey == null ? c.count : lowerBound(c, maxKey, true);
+        if (end <= start) {
+            return new int[0];
+        }
+        int[] result = new int[end - start];
+        int entrySize = c.getEntrySize();
+        for (int i = start; i < end;) {
+            int count = Math.min(SCAN_BLOCK, end - i);
+            ByteBuffer entries = load(c, i, count);
+            for (int j = 0; j < count; j++) {
+                result[i - start + j] = entries.getInt(j * entrySize + c.keySize);
+            }
+            i += count;
+        }
+        return result;
+    }
+
+    /**
+     * Converts the value to the column key type: a Double for numbers and dates, a String for
+     * strings
+     */
+    Object toKey(Column c, Object value) {
+        if (c.type == STRING) {
+            return value instanceof String ? value : Converters.convert(value, String.class);
+        } else if (c.type == DATE) {
+            Date date = value instanceof Date ? (Date) value : Converters.convert(value, Date.class);
+            return date == null ? null : (double) date.getTime();
+        } else {
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            return Converters.convert(value, Double.class);
+        }
+    }
+
+    /**
+     * Binary search returning the position of the first entry whose key is greater (or equal, if
+     * strict is false) than the given key
+     */
+    int lowerBound(Column c, Object key, boolean strict) throws StoreException {
+        int low = 0;
+        int high = c.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            ByteBuffer entry = load(c, mid, 1);
+            int cmp = compare(c, entry, key);
+            if (cmp < 0 || (strict && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the key stored at the beginning of the buffer with the given one
+     */
+    int compare(Column c, ByteBuffer entry, Object key) {
+        if (c.type == STRING) {
+            String s = (String) key;
+            int length = c.keySize / 2;
+            for (int i = 0; i < length; i++) {
+                char stored = entry.getChar(i * 2);
+                if (stored == 0) {
+                    return i < s.length() ? -1 : 0;
+                }
+                if (i >= s.length()) {
+                    return 1;
+                }
+                char other = s.charAt(i);
+                if (stored != other) {
+                    return stored - other;
+                }
+            }
+            return length < s.length() ? -1 : 0;
+        } else {
+            return Double.compare(entry.getDouble(0), (Double) key);
+        }
+    }
+
+    /**
+     * Returns a buffer containing the specified entries of the column, starting at position zero
+     */
+    ByteBuffer load(Column c, int first, int count) throws StoreException {
+        int entrySize = c.getEntrySize();
+        long position = c.offset + (long) first * entrySize;
+        if (mapped != null) {
+            ByteBuffer result = mapped.duplicate();
+            result.position((int) position);
+            result.limit((int) position + count * entrySize);
+            return result.slice();
+        } else {
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(count * entrySize);
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position + buffer.position());
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of the attribute index file");
+                    }
+                }
+                buffer.flip();
+                return buffer;
+            } catch (IOException e) {
+                throw new StoreException(e);
+            }
+        }
+    }
+
+    /**
+     * Releases the file resources
+     */
+    public void close() {
+        if (mapped != null) {
+            NIOUtilities.clean(mapped, true);
+            mapped = null;
+        }
+        try {
+            if (raf != null) {
+                raf.close();
+            }
+        } catch (IOException e) {
+            // nothing to do
+        }
+        raf = null;
+        channel = null;
+    }
+
+    /**
+     * Sorts and removes duplicates from an array of record numbers
+     * 
+     * @param records
+     * @return
+     */
+    public static int[] sortUnique(int[] records) {
+        if (records.length < 2) {
+            return records;
+        }
+        Arrays.sort(records);
+        int size = 1;
+        for (int i = 1; i < records.length; i++) {
+            if (records[i] != records[size - 1]) {
+                records[size++] = records[i];
+            }
+        }
+        return size == records.length ? records : Arrays.copyOf(records, size);
+    }
+}
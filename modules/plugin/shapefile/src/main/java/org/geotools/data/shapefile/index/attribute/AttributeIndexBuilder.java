@@ -0,0 +1,221 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.attribute;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.dbf.DbaseFileReader.Row;
+
+/**
+ * Builds an {@link AttributeIndex} for a set of DBF columns, reading the DBF file once
+ */
+public class AttributeIndexBuilder {
+
+    /**
+     * The values of a column being indexed
+     */
+    static class ColumnValues {
+        String name;
+
+        int field;
+
+        byte type;
+
+        int keySize;
+
+        int size;
+
+        double[] numbers;
+
+        String[] strings;
+
+        int[] recnos = new int[1024];
+
+        void add(Object value, int recno) {
+            if (size == recnos.length) {
+                recnos = Arrays.copyOf(recnos, size * 2);
+                if (numbers != null) {
+                    numbers = Arrays.copyOf(numbers, size * 2);
+                } else {
+                    strings = Arrays.copyOf(strings, size * 2);
+                }
+            }
+            if (type == AttributeIndex.STRING) {
+                strings[size] = value.toString();
+            } else if (type == AttributeIndex.DATE) {
+                numbers[size] = ((Date) value).getTime();
+            } else {
+                numbers[size] = ((Number) value).doubleValue();
+            }
+            recnos[size] = recno;
+            size++;
+        }
+
+        /**
+         * Returns the positions of the values, sorted by value
+         */
+        Integer[] sort() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            if (type == AttributeIndex.STRING) {
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer o1, Integer o2) {
+                        return strings[o1].compareTo(strings[o2]);
+                    }
+                });
+            } else {
+                Arrays.sort(order, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer o1, Integer o2) {
+                        return Double.compare(numbers[o1], numbers[o2]);
+                    }
+                });
+            }
+            return order;
+        }
+    }
+
+    void writeHeader(DataOutputStream out, List<ColumnValues> values, long offset)
+            throws IOException {
+        out.write(AttributeIndex.SIGNATURE.getBytes("US-ASCII"));
+        out.writeByte(AttributeIndex.VERSION);
+        out.writeInt(values.size());
+        for (ColumnValues cv : values) {
+            out.writeUTF(cv.name);
+            out.writeByte(cv.type);
+            out.writeInt(cv.keySize);
+            out.writeInt(cv.size);
+            out.writeLong(offset);
+            offset += (long) cv.size * (cv.keySize + 4);
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns true if the DBF column can be indexed, that is, if it contains numbers, dates or
+     * strings
+     */
+    public static boolean isIndexable(DbaseFileHeader header, int field) {
+        Class<?> binding = header.getFieldClass(field);
+        return Number.class.isAssignableFrom(binding) || Date.class.isAssignableFrom(binding)
+                || String.class.equals(binding);
+    }
+
+    /**
+     * Indexes the specified columns and writes the index to the target file
+     * 
+     * @param dbf The DBF reader, positioned at the first row. It will be fully read, but not closed
+     * @param columns The DBF column names
+     * @param file The target file
+     * @throws IOException If a column does not exist or cannot be indexed
+     */
+    public void build(DbaseFileReader dbf, List<String> columns, File file) throws IOException {
+        DbaseFileHeader header = dbf.getHeader();
+        List<ColumnValues> values = new ArrayList<ColumnValues>();
+        for (String name : columns) {
+            ColumnValues cv = new ColumnValues();
+            cv.name = name;
+            cv.field = -1;
+            for (int i = 0; i < header.getNumFields(); i++) {
+                if (header.getFieldName(i).equals(name)) {
+                    cv.field = i;
+                    break;
+                }
+            }
+            if (cv.field == -1) {
+                throw new IOException("Cannot index column " + name + ", it does not exist");
+            }
+            if (!isIndexable(header, cv.field)) {
+                throw new IOException("Cannot index column " + name + " of type "
+                        + header.getFieldClass(cv.field).getSimpleName());
+            }
+            Class<?> binding = header.getFieldClass(cv.field);
+            if (String.class.equals(binding)) {
+                cv.type = AttributeIndex.STRING;
+                cv.keySize = header.getFieldLength(cv.field) * 2;
+                cv.strings = new String[cv.recnos.length];
+            } else {
+                cv.type = Date.class.isAssignableFrom(binding) ? AttributeIndex.DATE
+                        : AttributeIndex.NUMBER;
+                cv.keySize = 8;
+                cv.numbers = new double[cv.recnos.length];
+            }
+            values.add(cv);
+        }
+
+        // collect the values
+        int recno = 0;
+        while (dbf.hasNext()) {
+            Row row = dbf.readRow();
+            recno++;
+            if (row.isDeleted()) {
+                continue;
+            }
+            for (ColumnValues cv : values) {
+                Object value = row.read(cv.field);
+                if (value != null) {
+                    cv.add(value, recno);
+                }
+            }
+        }
+
+        // write the header once to compute its size, then again with the actual offsets
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        writeHeader(new DataOutputStream(headerBytes), values, 0);
+        long dataStart = headerBytes.size();
+        headerBytes.reset();
+        writeHeader(new DataOutputStream(headerBytes), values, dataStart);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 64 * 1024));
+        try {
+            headerBytes.writeTo(out);
+            for (ColumnValues cv : values) {
+                Integer[] order = cv.sort();
+                int length = cv.keySize / 2;
+                for (Integer i : order) {
+                    if (cv.type == AttributeIndex.STRING) {
+                        String s = cv.strings[i];
+                        for (int j = 0; j < length; j++) {
+                            out.writeChar(j < s.length() ? s.charAt(j) : 0);
+                        }
+                    } else {
+                        out.writeDouble(cv.numbers[i]);
+                    }
+                    out.writeInt(cv.recnos[i]);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
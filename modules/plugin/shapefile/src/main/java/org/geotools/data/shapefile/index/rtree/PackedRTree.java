@@ -0,0 +1,346 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.DataDefinition;
+import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.data.shapefile.index.quadtree.StoreException;
+import org.geotools.resources.NIOUtilities;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A static, packed R-tree stored in a single file, with the items sorted along a Hilbert curve and
+ * every node, but the last one of each level, completely full.
+ * <p>
+ * The file layout is:
+ * <ul>
+ * <li>a 16 bytes header: the "HRX" signature, the version byte, the node size, the number of
+ * items, and the total number of entries (items and nodes)</li>
+ * <li>the entries, each one made of four floats (minX, minY, maxX, maxY, rounded outwards) and two
+ * ints. Items come first, in Hilbert order, and the two ints are the record number and the record
+ * offset in the .shp file, the latter to be read as unsigned. The nodes follow level by level, the root being the last entry, and the
+ * two ints are the position of the first child and the number of children</li>
+ * </ul>
+ * Since the entries have a fixed size, the file can be memory mapped and searched without being
+ * parsed. The records matching a search are returned sorted by offset, so that the .shp file is
+ * read in sequential order.
+ * <p>
+ * Searches can be run concurrently, the tree can be kept open and shared among threads as long as
+ * it's not closed while a search is running.
+ */
+public class PackedRTree {
+
+    static final String SIGNATURE = "HRX";
+
+    static final byte VERSION = 1;
+
+    static final int HEADER_SIZE = 16;
+
+    static final int ENTRY_SIZE = 24;
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    }
+
+    RandomAccessFile raf;
+
+    FileChannel channel;
+
+    ByteBuffer mapped;
+
+    int nodeSize;
+
+    int numItems;
+
+    int numEntries;
+
+    /**
+     * Opens a packed R-tree file
+     * 
+     * @param file The index file
+     * @param useMemoryMapping If true the file will be memory mapped, otherwise the nodes will be
+     *        read on demand
+     * @throws StoreException If the file cannot be read or is not a packed R-tree
+     */
+    public PackedRTree(File file, boolean useMemoryMapping) throws StoreException {
+        try {
+            raf = new RandomAccessFile(file, "r");
+            channel = raf.getChannel();
+            ByteBuffer header;
+            if (useMemoryMapping) {
+                mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+                header = mapped.duplicate();
+            } else {
+                header = ByteBuffer.allocate(HEADER_SIZE);
+                readFully(header, 0);
+            }
+
+            byte[] signature = new byte[3];
+            header.get(signature);
+            if (!SIGNATURE.equals(new String(signature, "US-ASCII"))) {
+                throw new StoreException("Not a packed R-tree file: " + file);
+            }
+            byte version = header.get();
+            if (version != VERSION) {
+                throw new StoreException("Unsupported packed R-tree version " + version);
+            }
+            nodeSize = header.getInt();
+            numItems = header.getInt();
+            numEntries = header.getInt();
+            if (channel.size() < HEADER_SIZE + (long) numEntries * ENTRY_SIZE) {
+                throw new StoreException("Truncated packed R-tree file: " + file);
+            }
+        } catch (StoreException e) {
+            close();
+            throw e;
+        } catch (IOException e) {
+            close();
+            throw new StoreException(e);
+        }
+    }
+
+    /**
+     * The number of indexed items
+     */
+    public int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * The maximum number of children of a node
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Returns the bounds of the whole tree, or an empty envelope if the tree is empty
+     */
+    public Envelope getBounds() throws StoreException {
+        if (numEntries == 0) {
+            return new Envelope();
+        }
+        ByteBuffer entries = load(numEntries - 1, 1, newBlock());
+        return new Envelope(entries.getFloat(0), entries.getFloat(8), entries.getFloat(4),
+                entries.getFloat(12));
+    }
+
+    /**
+     * Returns the record number and offset of all the items whose bounds intersect the
+     * specified envelope, sorted by offset
+     * 
+     * @param bounds The search area
+     * @return An iterator of {@link Data} with the one based record number and the record offset
+     * @throws StoreException
+     */
+    public CloseableIterator<Data> search(Envelope bounds) throws StoreException {
+        long[] results = new long[16];
+        int found = 0;
+        if (numEntries > 0) {
+            ByteBuffer block = newBlock();
+            int[] stack = new int[64];
+            int top = 0;
+            stack[top++] = numEntries - 1;
+            ByteBuffer entries = load(numEntries - 1, 1, block);
+            if (!intersects(entries, 0, bounds)) {
+                top = 0;
+            }
+            while (top > 0) {
+                int pos = stack[--top];
+                if (pos < numItems) {
+                    // a single item tree
+                    entries = load(pos, 1, block);
+                    results[found++] = toResult(entries, 0);
+                    continue;
+                }
+                entries = load(pos, 1, block);
+                int first = entries.getInt(16);
+                int count = entries.getInt(20);
+                entries = load(first, count, block);
+                for (int i = 0; i < count; i++) {
+                    int base = i * ENTRY_SIZE;
+                    if (!intersects(entries, base, bounds)) {
+                        continue;
+                    }
+                    if (first + i < numItems) {
+                        if (found == results.length) {
+                            results = Arrays.copyOf(results, found * 2);
+                        }
+                        results[found++] = toResult(entries, base);
+                    } else {
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, top * 2);
+                        }
+                        stack[top++] = first + i;
+                    }
+                }
+            }
+        }
+
+        // sort by offset, so that the shapefile is read sequentially (the results are positive, see
+        // toResult)
+        Arrays.sort(results, 0, found);
+        return new ResultIterator(results, found);
+    }
+
+    boolean intersects(ByteBuffer entries, int base, Envelope bounds) {
+        return !(entries.getFloat(base) > bounds.getMaxX()
+                || entries.getFloat(base + 8) < bounds.getMinX()
+                || entries.getFloat(base + 4) > bounds.getMaxY()
+                || entries.getFloat(base + 12) < bounds.getMinY());
+    }
+
+    /**
+     * Packs the record number and offset of an item in a long, the record number, always positive,
+     * in the lower 31 bits and the unsigned offset in the 32 bits above them. The result is
+     * positive, and sorting the results sorts them by offset.
+     */
+    long toResult(ByteBuffer entries, int base) {
+        int recno = entries.getInt(base + 16);
+        long offset = entries.getInt(base + 20) & 0xFFFFFFFFL;
+        return (offset << 31) | recno;
+    }
+
+    /**
+     * Returns a buffer large enough to read a node children, or null if the file is memory mapped
+     */
+    ByteBuffer newBlock() {
+        if (mapped != null) {
+            return null;
+        }
+        return ByteBuffer.allocate(Math.max(1, nodeSize) * ENTRY_SIZE);
+    }
+
+    /**
+     * Returns a buffer containing the specified entries, starting at position zero
+     * 
+     * @param block The buffer used to read the entries if the file is not memory mapped, see
+     *        {@link #newBlock()}
+     */
+    ByteBuffer load(int first, int count, ByteBuffer block) throws StoreException {
+        long position = HEADER_SIZE + (long) first * ENTRY_SIZE;
+        if (mapped != null) {
+            ByteBuffer result = mapped.duplicate();
+            result.position((int) position);
+            result.limit((int) position + count * ENTRY_SIZE);
+            return result.slice();
+        } else {
+            try {
+                block.clear();
+                block.limit(count * ENTRY_SIZE);
+                readFully(block, position);
+                return block;
+            } catch (IOException e) {
+                throw new StoreException(e);
+            }
+        }
+    }
+
+    void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file while reading the packed R-tree");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Releases the file resources
+     */
+    public void close() {
+        if (mapped != null) {
+            NIOUtilities.clean(mapped, true);
+            mapped = null;
+        }
+        try {
+            if (raf != null) {
+                raf.close();
+            }
+        } catch (IOException e) {
+            // nothing to do
+        }
+        raf = null;
+        channel = null;
+    }
+
+    /**
+     * Iterates over the sorted search results, the results are all in memory, so there is nothing
+     * to release on close
+     */
+    static class ResultIterator implements CloseableIterator<Data> {
+
+        long[] results;
+
+        int size;
+
+        int curr;
+
+        public ResultIterator(long[] results, int size) {
+            this.results = results;
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return curr < size;
+        }
+
+        @Override
+        public Data next() {
+            if (curr >= size) {
+                throw new NoSuchElementException("No more elements available");
+            }
+            long result = results[curr++];
+            try {
+                Data data = new Data(DATA_DEFINITION);
+                data.addValue(Integer.valueOf((int) (result & 0x7FFFFFFF)));
+                data.addValue(Long.valueOf(result >>> 31));
+                return data;
+            } catch (TreeException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws IOException {
+            results = null;
+        }
+    }
+}
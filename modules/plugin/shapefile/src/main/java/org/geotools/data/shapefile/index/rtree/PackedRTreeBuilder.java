@@ -0,0 +1,282 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.geotools.data.shapefile.shp.ShapefileReader.Record;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Bulk loads a {@link PackedRTree}: the record bounds are collected in a single sequential scan of
+ * the shapefile, sorted by the Hilbert code of their centers, and then packed bottom up in nodes of
+ * fixed size.
+ */
+public class PackedRTreeBuilder {
+
+    /**
+     * The default number of children per node
+     */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    static final int HILBERT_MAX = (1 << 16) - 1;
+
+    int nodeSize = DEFAULT_NODE_SIZE;
+
+    int numItems;
+
+    float[] bounds;
+
+    int[] recnos;
+
+    int[] offsets;
+
+    Envelope extent = new Envelope();
+
+    public PackedRTreeBuilder() {
+        this(1024);
+    }
+
+    /**
+     * Builds a new packed R-tree builder
+     * 
+     * @param expectedItems The expected number of items, used to size the internal arrays
+     */
+    public PackedRTreeBuilder(int expectedItems) {
+        int capacity = Math.max(16, expectedItems);
+        bounds = new float[capacity * 4];
+        recnos = new int[capacity];
+        offsets = new int[capacity];
+    }
+
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Sets the max number of children per node
+     * 
+     * @param nodeSize
+     */
+    public void setNodeSize(int nodeSize) {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("The node size must be at least 2");
+        }
+        this.nodeSize = nodeSize;
+    }
+
+    /**
+     * Adds all the non null records of the shapefile reader
+     * 
+     * @param reader
+     * @return The number of items added
+     * @throws IOException
+     */
+    public int addAll(ShapefileReader reader) throws IOException {
+        int count = 0;
+        while (reader.hasNext()) {
+            Record rec = reader.nextRecord();
+            if (rec.type == ShapeType.NULL) {
+                continue;
+            }
+            add(rec.number, rec.offset() & 0xFFFFFFFFL, rec.minX, rec.minY, rec.maxX, rec.maxY);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Adds an item to the tree
+     * 
+     * @param recno The one based record number
+     * @param offset The record offset in the .shp file, stored as an unsigned int
+     */
+    public void add(int recno, long offset, double minX, double minY, double maxX, double maxY) {
+        if (offset < 0 || offset > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Record offset " + offset
+                    + " cannot be stored in the packed R-tree");
+        }
+        if (numItems == recnos.length) {
+            int capacity = numItems * 2;
+            bounds = Arrays.copyOf(bounds, capacity * 4);
+            recnos = Arrays.copyOf(recnos, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+        int base = numItems * 4;
+        bounds[base] = roundDown(minX);
+        bounds[base + 1] = roundDown(minY);
+        bounds[base + 2] = roundUp(maxX);
+        bounds[base + 3] = roundUp(maxY);
+        recnos[numItems] = recno;
+        offsets[numItems] = (int) offset;
+        extent.expandToInclude(minX, minY);
+        extent.expandToInclude(maxX, maxY);
+        numItems++;
+    }
+
+    /**
+     * Sorts the items and writes down the tree
+     * 
+     * @param file The target file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException {
+        // sort the items along the Hilbert curve, the key contains the hilbert code in the
+        // high 32 bits, and the item index in the low 31 bits
+        long[] keys = new long[numItems];
+        double width = extent.getWidth() > 0 ? extent.getWidth() : 1;
+        double height = extent.getHeight() > 0 ? extent.getHeight() : 1;
+        for (int i = 0; i < numItems; i++) {
+            int base = i * 4;
+            double cx = (bounds[base] + bounds[base + 2]) / 2;
+            double cy = (bounds[base + 1] + bounds[base + 3]) / 2;
+            int hx = clamp((int) (HILBERT_MAX * (cx - extent.getMinX()) / width));
+            int hy = clamp((int) (HILBERT_MAX * (cy - extent.getMinY()) / height));
+            keys[i] = (hilbert(hx, hy) << 31) | i;
+        }
+        Arrays.parallelSort(keys);
+
+        // compute the number of entries of the whole tree
+        int numEntries = numItems;
+        for (int n = numItems; n > 1;) {
+            n = (n + nodeSize - 1) / nodeSize;
+            numEntries += n;
+        }
+        int numNodes = numEntries - numItems;
+        float[] nodeBounds = new float[numNodes * 4];
+        int[] firstChild = new int[numNodes];
+        int[] childCount = new int[numNodes];
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 64 * 1024));
+        try {
+            out.write(PackedRTree.SIGNATURE.getBytes("US-ASCII"));
+            out.writeByte(PackedRTree.VERSION);
+            out.writeInt(nodeSize);
+            out.writeInt(numItems);
+            out.writeInt(numEntries);
+
+            // the items, while collecting the bounds of the first level of nodes
+            for (int i = 0; i < numItems; i++) {
+                int item = (int) (keys[i] & Integer.MAX_VALUE);
+                int base = item * 4;
+                for (int j = 0; j < 4; j++) {
+                    out.writeFloat(bounds[base + j]);
+                }
+                out.writeInt(recnos[item]);
+                out.writeInt(offsets[item]);
+                if (numNodes > 0) {
+                    include(nodeBounds, firstChild, childCount, i / nodeSize, i, bounds, base);
+                }
+            }
+
+            // the upper levels, each level is written after its own children
+            int levelStart = numItems;
+            int levelEnd = numItems + (numItems + nodeSize - 1) / nodeSize;
+            while (levelStart < numEntries) {
+                for (int pos = levelStart; pos < levelEnd; pos++) {
+                    int node = pos - numItems;
+                    int base = node * 4;
+                    for (int j = 0; j < 4; j++) {
+                        out.writeFloat(nodeBounds[base + j]);
+                    }
+                    out.writeInt(firstChild[node]);
+                    out.writeInt(childCount[node]);
+                    if (levelEnd < numEntries) {
+                        int parent = levelEnd - numItems + (pos - levelStart) / nodeSize;
+                        include(nodeBounds, firstChild, childCount, parent, pos, nodeBounds,
+                                base);
+                    }
+                }
+                int count = levelEnd - levelStart;
+                levelStart = levelEnd;
+                levelEnd = levelEnd + (count + nodeSize - 1) / nodeSize;
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Adds a child entry to the specified node
+     */
+    void include(float[] nodeBounds, int[] firstChild, int[] childCount, int node, int child,
+            float[] childBounds, int childBase) {
+        int base = node * 4;
+        if (childCount[node] == 0) {
+            firstChild[node] = child;
+            System.arraycopy(childBounds, childBase, nodeBounds, base, 4);
+        } else {
+            nodeBounds[base] = Math.min(nodeBounds[base], childBounds[childBase]);
+            nodeBounds[base + 1] = Math.min(nodeBounds[base + 1], childBounds[childBase + 1]);
+            nodeBounds[base + 2] = Math.max(nodeBounds[base + 2], childBounds[childBase + 2]);
+            nodeBounds[base + 3] = Math.max(nodeBounds[base + 3], childBounds[childBase + 3]);
+        }
+        childCount[node]++;
+    }
+
+    static int clamp(int value) {
+        return value < 0 ? 0 : (value > HILBERT_MAX ? HILBERT_MAX : value);
+    }
+
+    /**
+     * Returns the position of the specified cell along a Hilbert curve covering a 65536x65536 grid
+     */
+    static long hilbert(int x, int y) {
+        long d = 0;
+        for (int s = 1 << 15; s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_MAX - x;
+                    y = HILBERT_MAX - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Returns the largest float that is lower or equal to the given value
+     */
+    static float roundDown(double value) {
+        float result = (float) value;
+        return result > value ? Math.nextDown(result) : result;
+    }
+
+    /**
+     * Returns the smallest float that is greater or equal to the given value
+     */
+    static float roundUp(double value) {
+        float result = (float) value;
+        return result < value ? Math.nextUp(result) : result;
+    }
+}
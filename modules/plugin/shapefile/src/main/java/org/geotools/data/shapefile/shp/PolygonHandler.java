@@ -19,6 +19,7 @@ package org.geotools.data.shapefile.shp;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -27,14 +28,18 @@ import org.geotools.geometry.jts.coordinatesequence.CoordinateSequences;
 
 import com.vividsolutions.jts.algorithm.CGAlgorithms;
 import com.vividsolutions.jts.algorithm.RobustDeterminant;
+import com.vividsolutions.jts.algorithm.locate.IndexedPointInAreaLocator;
+import com.vividsolutions.jts.algorithm.locate.PointOnGeometryLocator;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Location;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.index.quadtree.Quadtree;
 
 /**
  * Wrapper for a Shapefile polygon.
@@ -53,6 +58,13 @@ public class PolygonHandler implements ShapeHandler {
 
     final ShapeType shapeType;
 
+    /**
+     * Number of point in ring tests against a shell after which an indexed locator is built
+     */
+    static final int INDEXED_LOCATOR_TESTS = 8;
+
+    boolean fastHoleAssignment;
+
     public PolygonHandler(GeometryFactory gf) {
         shapeType = ShapeType.POLYGON;
         this.geometryFactory = gf;
@@ -88,6 +100,19 @@ public class PolygonHandler implements ShapeHandler {
         return false;
     }
 
+    /**
+     * When enabled, holes of 2D geometries are assigned to the smallest shell whose envelope
+     * contains them, skipping the point in ring tests. The results are suitable for rendering,
+     * but the geometries might not be valid when the shell envelopes overlap
+     */
+    public void setFastHoleAssignment(boolean fastHoleAssignment) {
+        this.fastHoleAssignment = fastHoleAssignment;
+    }
+
+    public boolean isFastHoleAssignment() {
+        return fastHoleAssignment;
+    }
+
     public ShapeType getShapeType() {
         return shapeType;
     }
@@ -222,7 +247,8 @@ public class PolygonHandler implements ShapeHandler {
         } else {
 
             // build an association between shells and holes
-            final ArrayList holesForShells = assignHolesToShells(shells, holes);
+            final ArrayList holesForShells = assignHolesToShells(shells, holes,
+                    !(flatFeature && fastHoleAssignment));
 
             Geometry g = buildGeometries(shells, holes, holesForShells);
 
@@ -304,43 +330,55 @@ public class PolygonHandler implements ShapeHandler {
      * @param holes
      */
     ArrayList assignHolesToShells(final ArrayList shells, final ArrayList holes) {
+        return assignHolesToShells(shells, holes, true);
+    }
+
+    /**
+     * Assigns each hole to the smallest shell containing it, holes not contained in any shell
+     * are turned into shells. The candidate shells are looked up in a spatial index of their
+     * envelopes, and the point in ring tests against shells with many holes are performed using
+     * an indexed locator, so that records with many rings are assembled in near linear time.
+     * 
+     * @param shells
+     * @param holes
+     * @param containmentTests if false, a hole is considered to be contained in any shell whose
+     *        envelope contains the hole envelope
+     */
+    ArrayList assignHolesToShells(final ArrayList shells, final ArrayList holes,
+            boolean containmentTests) {
         ArrayList holesForShells = new ArrayList(shells.size());
+        Quadtree index = new Quadtree();
         for (int i = 0; i < shells.size(); i++) {
             holesForShells.add(new ArrayList());
+            ShellCandidate candidate = new ShellCandidate(i, (LinearRing) shells.get(i));
+            // empty shells cannot contain anything
+            if (!candidate.envelope.isNull()) {
+                index.insert(candidate.envelope, candidate);
+            }
         }
 
         // find homes
         for (int i = 0; i < holes.size(); i++) {
             LinearRing testRing = (LinearRing) holes.get(i);
-            LinearRing minShell = null;
-            Envelope minEnv = null;
             Envelope testEnv = testRing.getEnvelopeInternal();
             Coordinate testPt = testRing.getCoordinateN(0);
-            LinearRing tryRing;
 
-            for (int j = 0; j < shells.size(); j++) {
-                tryRing = (LinearRing) shells.get(j);
-
-                Envelope tryEnv = tryRing.getEnvelopeInternal();
-                if (minShell != null) {
-                    minEnv = minShell.getEnvelopeInternal();
-                }
-
-                boolean isContained = false;
-                Coordinate[] coordList = tryRing.getCoordinates();
-
-                if (tryEnv.contains(testEnv)
-                        && (CGAlgorithms.isPointInRing(testPt, coordList) || (pointInList(
-                                testPt, coordList)))) {
-                    isContained = true;
+            // visit the candidates in the shells order, the choice among shells with
+            // the same envelope depends on it
+            List candidates = index.query(testEnv);
+            Collections.sort(candidates);
+            ShellCandidate minShell = null;
+            for (int j = 0; j < candidates.size(); j++) {
+                ShellCandidate tryShell = (ShellCandidate) candidates.get(j);
+                if (!tryShell.envelope.contains(testEnv)
+                        || (containmentTests && !tryShell.contains(testPt))) {
+                    continue;
                 }
 
                 // check if this new containing ring is smaller than the current
                 // minimum ring
-                if (isContained) {
-                    if ((minShell == null) || minEnv.contains(tryEnv)) {
-                        minShell = tryRing;
-                    }
+                if ((minShell == null) || minShell.envelope.contains(tryShell.envelope)) {
+                    minShell = tryShell;
                 }
             }
 
@@ -348,15 +386,62 @@ public class PolygonHandler implements ShapeHandler {
                 // now reverse this bad "hole" and turn it into a shell
                 shells.add(testRing);
                 holesForShells.add(new ArrayList());
+                ShellCandidate candidate = new ShellCandidate(shells.size() - 1, testRing);
+                index.insert(candidate.envelope, candidate);
             } else {
-                ((ArrayList) holesForShells.get(shells.indexOf(minShell)))
-                        .add(testRing);
+                ((ArrayList) holesForShells.get(minShell.index)).add(testRing);
             }
         }
 
         return holesForShells;
     }
 
+    /**
+     * A shell that holes can be assigned to, switches to an indexed point in ring test once it
+     * has been tested against a few holes
+     */
+    private class ShellCandidate implements Comparable<ShellCandidate> {
+        final int index;
+
+        final LinearRing ring;
+
+        final Envelope envelope;
+
+        Coordinate[] coordinates;
+
+        PointOnGeometryLocator locator;
+
+        int tests;
+
+        ShellCandidate(int index, LinearRing ring) {
+            this.index = index;
+            this.ring = ring;
+            this.envelope = ring.getEnvelopeInternal();
+        }
+
+        /**
+         * Returns true if the point is inside the shell, or on its boundary
+         */
+        boolean contains(Coordinate point) {
+            if (locator != null) {
+                return locator.locate(point) != Location.EXTERIOR;
+            } else if (++tests > INDEXED_LOCATOR_TESTS) {
+                locator = new IndexedPointInAreaLocator(geometryFactory.createPolygon(ring,
+                        null));
+                coordinates = null;
+                return locator.locate(point) != Location.EXTERIOR;
+            }
+            if (coordinates == null) {
+                coordinates = ring.getCoordinates();
+            }
+            return CGAlgorithms.isPointInRing(point, coordinates);
+        }
+
+        public int compareTo(ShellCandidate other) {
+            return index - other.index;
+        }
+    }
+
     private MultiPolygon createMulti(LinearRing single) {
         return createMulti(single, java.util.Collections.EMPTY_LIST);
     }
@@ -21,6 +21,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -459,7 +460,8 @@ public class ShapefileReader implements FileReader {
      * 
      * @param bounds
      *                double array of length four for transfering the bounds
-     *                into
+     *                into, as minx, miny, maxx, maxy. The values are set to NaN
+     *                for null shapes
      * @return The length of the record transfered in bytes
      */
     public int transferTo(ShapefileWriter writer, int recordNum, double[] bounds)
@@ -470,8 +472,9 @@ public class ShapefileReader implements FileReader {
 
         buffer.getInt(); // record number
         int rl = buffer.getInt();
-        int mark = buffer.position();
         int len = rl * 2;
+        ensureRecordLoaded(len);
+        int mark = buffer.position();
 
         buffer.order(ByteOrder.LITTLE_ENDIAN);
         ShapeType recordType = ShapeType.forID(buffer.getInt());
@@ -481,8 +484,10 @@ public class ShapefileReader implements FileReader {
                 bounds[i] = buffer.getDouble();
             }
         } else if (recordType != ShapeType.NULL) {
-            bounds[0] = bounds[1] = buffer.getDouble();
-            bounds[2] = bounds[3] = buffer.getDouble();
+            bounds[0] = bounds[2] = buffer.getDouble();
+            bounds[1] = bounds[3] = buffer.getDouble();
+        } else {
+            Arrays.fill(bounds, Double.NaN);
         }
 
         // write header to shp and shx
@@ -505,6 +510,39 @@ public class ShapefileReader implements FileReader {
         return len;
     }
 
+    /**
+     * Makes sure the record whose header has just been read is fully loaded in the buffer,
+     * together with the header of the next one, reading more data from the channel if needed
+     * 
+     * @param recordLength the record content length, in bytes
+     */
+    private void ensureRecordLoaded(int recordLength) throws IOException {
+        if (!buffer.isReadOnly() && !useMemoryMappedBuffer) {
+            // capacity is less than required for the record
+            // copy the old into the newly allocated
+            if (buffer.capacity() < recordLength + 8) {
+                this.currentOffset += buffer.position();
+                ByteBuffer old = buffer;
+                // ensure enough capacity for one more record header
+                buffer = ensureCapacity(buffer, recordLength + 8,
+                        useMemoryMappedBuffer);
+                buffer.put(old);
+                NIOUtilities.clean(old, useMemoryMappedBuffer);
+                fill(buffer, channel);
+                buffer.position(0);
+            } else
+            // remaining is less than record length
+            // compact the remaining data and read again,
+            // allowing enough room for one more record header
+            if (buffer.remaining() < recordLength + 8) {
+                this.currentOffset += buffer.position();
+                buffer.compact();
+                fill(buffer, channel);
+                buffer.position(0);
+            }
+        }
+    }
+
     private void positionBufferForOffset(ByteBuffer buffer, int offset) throws IOException {
         if (useMemoryMappedBuffer) {
             buffer.position(offset);
@@ -551,30 +589,7 @@ public class ShapefileReader implements FileReader {
         // track the record location
         int recordLength = buffer.getInt() * 2;
 
-        if (!buffer.isReadOnly() && !useMemoryMappedBuffer) {
-            // capacity is less than required for the record
-            // copy the old into the newly allocated
-            if (buffer.capacity() < recordLength + 8) {
-                this.currentOffset += buffer.position();
-                ByteBuffer old = buffer;
-                // ensure enough capacity for one more record header
-                buffer = ensureCapacity(buffer, recordLength + 8,
-                        useMemoryMappedBuffer);
-                buffer.put(old);
-                NIOUtilities.clean(old, useMemoryMappedBuffer);
-                fill(buffer, channel);
-                buffer.position(0);
-            } else
-            // remaining is less than record length
-            // compact the remaining data and read again,
-            // allowing enough room for one more record header
-            if (buffer.remaining() < recordLength + 8) {
-                this.currentOffset += buffer.position();
-                buffer.compact();
-                fill(buffer, channel);
-                buffer.position(0);
-            }
-        }
+        ensureRecordLoaded(recordLength);
 
         // shape record is all little endian
         buffer.order(ByteOrder.LITTLE_ENDIAN);
@@ -776,4 +791,14 @@ public class ShapefileReader implements FileReader {
     public void setFlatGeometry(boolean flatGeometry) {
         this.flatGeometry = flatGeometry;        
     }
+
+    /**
+     * Enables the fast assignment of holes to shells when reading flat polygons, see
+     * {@link PolygonHandler#setFastHoleAssignment(boolean)}
+     */
+    public void setFastHoleAssignment(boolean fastHoleAssignment) {
+        if (handler instanceof PolygonHandler) {
+            ((PolygonHandler) handler).setFastHoleAssignment(fastHoleAssignment);
+        }
+    }
 }
@@ -186,6 +186,46 @@ public class DbaseFileTest extends TestCaseSupport {
         f.delete();
     }
 
+    @Test
+    public void testNumberParsing() throws Exception {
+        DbaseFileHeader header = new DbaseFileHeader();
+        header.addColumn("int", 'N', 9, 0);
+        header.addColumn("long", 'N', 20, 0);
+        header.addColumn("double", 'N', 20, 5);
+        header.addColumn("float", 'F', 20, 5);
+        Object[][] rows = new Object[][] {
+                { 0, 0L, 0d, 0d },
+                { -12, 123456789012L, -0.5, 12.25 },
+                { 999999999, Long.MAX_VALUE, 123456.12345, -99999999.99999 },
+                { -99999999, Long.MIN_VALUE + 1, 1e-5, 0.1 },
+                { null, null, null, null } };
+        header.setNumRecords(rows.length);
+        File f = new File(System.getProperty("java.io.tmpdir"), "scratchNumbersDBF.dbf");
+        f.deleteOnExit();
+        FileOutputStream fout = new FileOutputStream(f);
+        DbaseFileWriter writer = new DbaseFileWriter(header, fout.getChannel(),
+                Charset.defaultCharset());
+        for (Object[] row : rows) {
+            writer.write(row);
+        }
+        writer.close();
+
+        DbaseFileReader r = new DbaseFileReader(new ShpFiles(f), false,
+                ShapefileDataStore.DEFAULT_STRING_CHARSET);
+        try {
+            for (Object[] expected : rows) {
+                assertTrue(r.hasNext());
+                Object[] actual = r.readEntry();
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(expected[i], actual[i]);
+                }
+            }
+        } finally {
+            r.close();
+        }
+        f.delete();
+    }
+
     @Test
     public void testFieldFormatter() throws Exception {
         DbaseFileWriter.FieldFormatter formatter = new DbaseFileWriter.FieldFormatter(Charset.defaultCharset(), TimeZone.getDefault(), false);
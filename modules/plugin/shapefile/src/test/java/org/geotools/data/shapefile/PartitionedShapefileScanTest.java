@@ -0,0 +1,176 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.visitor.AverageVisitor;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.Feature;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class PartitionedShapefileScanTest extends TestCaseSupport {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    ShapefileDataStore sequential;
+
+    ShapefileDataStore partitioned;
+
+    @Before
+    public void setupStores() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        sequential = new ShapefileDataStore(shpFile.toURI().toURL());
+        partitioned = new ShapefileDataStore(shpFile.toURI().toURL());
+        partitioned.setScanThreads(4);
+        // statepop has 49 records, force the split
+        partitioned.minScanPartitionSize = 5;
+    }
+
+    @After
+    public void disposeStores() {
+        sequential.dispose();
+        partitioned.dispose();
+    }
+
+    @Test
+    public void testPartitions() throws Exception {
+        ShapefileFeatureSource source = ((ShapefileFeatureStore) sequential.getFeatureSource()).delegate;
+        PartitionedShapefileScan scan = new PartitionedShapefileScan(source, 4, 10);
+        assertArrayEquals(new int[] { 0, 12, 24, 36, 49 }, scan.getPartitions(49));
+        assertArrayEquals(new int[] { 0, 10, 20 }, scan.getPartitions(20));
+        assertNull(scan.getPartitions(19));
+    }
+
+    @Test
+    public void testAggregates() throws Exception {
+        assertSameResult(Filter.INCLUDE, new CountVisitor(), new CountVisitor());
+        assertSameResult(Filter.INCLUDE, new SumVisitor(FF.property("PERSONS")),
+                new SumVisitor(FF.property("PERSONS")));
+        assertSameResult(Filter.INCLUDE, new MinVisitor(FF.property("LAND_KM")), new MinVisitor(
+                FF.property("LAND_KM")));
+        assertSameResult(Filter.INCLUDE, new MaxVisitor(FF.property("STATE_NAME")),
+                new MaxVisitor(FF.property("STATE_NAME")));
+        assertSameResult(Filter.INCLUDE, new AverageVisitor(FF.property("PERSONS")),
+                new AverageVisitor(FF.property("PERSONS")));
+        assertSameResult(Filter.INCLUDE, new UniqueVisitor(FF.property("SUB_REGION")),
+                new UniqueVisitor(FF.property("SUB_REGION")));
+        assertSameResult(Filter.INCLUDE, new BoundsVisitor(), new BoundsVisitor());
+    }
+
+    @Test
+    public void testFilteredAggregates() throws Exception {
+        Filter filter = FF.greater(FF.property("PERSONS"), FF.literal(3000000));
+        assertSameResult(filter, new CountVisitor(), new CountVisitor());
+        assertSameResult(filter, new SumVisitor(FF.property("LAND_KM")),
+                new SumVisitor(FF.property("LAND_KM")));
+        assertSameResult(filter, new BoundsVisitor(), new BoundsVisitor());
+    }
+
+    @Test
+    public void testUniquePreserveOrder() throws Exception {
+        UniqueVisitor expected = new UniqueVisitor(FF.property("SUB_REGION"));
+        expected.setPreserveOrder(true);
+        UniqueVisitor actual = new UniqueVisitor(FF.property("SUB_REGION"));
+        actual.setPreserveOrder(true);
+        sequential.getFeatureSource().getFeatures().accepts(expected, null);
+        partitioned.getFeatureSource().getFeatures().accepts(actual, null);
+        assertEquals(new ArrayList<Object>(expected.getUnique()),
+                new ArrayList<Object>(actual.getUnique()));
+    }
+
+    @Test
+    public void testCount() throws Exception {
+        Query query = new Query(sequential.getTypeName().getLocalPart(), FF.like(
+                FF.property("STATE_NAME"), "N*"));
+        int expected = sequential.getFeatureSource().getFeatures(query).size();
+        assertTrue(expected > 0);
+        ShapefileFeatureSource source = ((ShapefileFeatureStore) partitioned.getFeatureSource()).delegate;
+        assertEquals(expected, source.getCountInternal(query));
+        // no partitioned scan for the sequential store, the count requires a reader
+        ShapefileFeatureSource sequentialSource = ((ShapefileFeatureStore) sequential.getFeatureSource()).delegate;
+        assertEquals(-1, sequentialSource.getCountInternal(query));
+    }
+
+    @Test
+    public void testNotPartitioned() throws Exception {
+        ShapefileFeatureSource source = ((ShapefileFeatureStore) partitioned.getFeatureSource()).delegate;
+        // a generic visitor cannot be merged
+        final List<Feature> features = new ArrayList<Feature>();
+        FeatureVisitor collector = new FeatureVisitor() {
+
+            @Override
+            public void visit(Feature feature) {
+                features.add(feature);
+            }
+        };
+        assertFalse(source.handleVisitor(Query.ALL, collector));
+        source.getFeatures().accepts(collector, null);
+        assertEquals(49, features.size());
+
+        // a spatial filter goes through the spatial index
+        Query query = new Query(Query.ALL);
+        query.setFilter(FF.bbox("", -100, 30, -90, 40, null));
+        assertNull(source.getPartitionedScan(query));
+
+        // paging is not supported
+        query = new Query(Query.ALL);
+        query.setMaxFeatures(10);
+        assertNull(source.getPartitionedScan(query));
+    }
+
+    void assertSameResult(Filter filter, FeatureCalc expected, FeatureCalc actual)
+            throws Exception {
+        SimpleFeatureCollection fc = sequential.getFeatureSource().getFeatures(filter);
+        fc.accepts(expected, null);
+        ShapefileFeatureSource source = ((ShapefileFeatureStore) partitioned.getFeatureSource()).delegate;
+        Query query = new Query(Query.ALL);
+        query.setFilter(filter);
+        assertTrue(source.handleVisitor(query, actual));
+        Object expectedValue = expected.getResult().getValue();
+        Object actualValue = actual.getResult().getValue();
+        if (expectedValue instanceof Double) {
+            // partial sums are combined in a different order, allow for rounding
+            assertEquals((Double) expectedValue, ((Number) actualValue).doubleValue(),
+                    Math.abs((Double) expectedValue) * 1e-12);
+        } else {
+            assertEquals(expectedValue, actualValue);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+public class RecordBoundsTest {
+
+    @Test
+    public void testInMemory() throws Exception {
+        RecordBounds records = new RecordBounds(16);
+        records.add(100, new Envelope(0, 1, 2, 3));
+        records.add(200, null);
+        records.add(300, new Envelope(-1, 0, 0, 1));
+        assertNull(records.file);
+        assertEquals(3, records.size());
+        assertEquals(new Envelope(0, 1, 2, 3), records.getEnvelope(0));
+        assertTrue(records.isNull(1));
+        assertEquals(300, records.getOffset(2));
+        assertEquals(new Envelope(-1, 1, 0, 3), records.getExtent());
+        records.dispose();
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        RecordBounds records = new RecordBounds();
+        int count = RecordBounds.MAX_MEMORY_RECORDS * 2 + 1000;
+        for (int i = 0; i < count; i++) {
+            // offsets past 4GB are preserved
+            records.add((1L << 32) + i * 100L, i % 7 == 3 ? null : new Envelope(i, i + 1, 0, 1));
+        }
+        File file = records.file;
+        assertNotNull(file);
+        assertTrue(file.exists());
+        assertEquals(count, records.size());
+        assertEquals(new Envelope(0, count, 0, 1), records.getExtent());
+
+        // sequential access, then a few random ones across the spilled blocks and the memory tail
+        for (int i = 0; i < count; i++) {
+            assertRecord(records, i);
+        }
+        for (int i : new int[] { count - 1, 0, RecordBounds.BLOCK_RECORDS * 3 + 5, 10,
+                RecordBounds.MAX_MEMORY_RECORDS * 2 + 10 }) {
+            assertRecord(records, i);
+        }
+
+        records.dispose();
+        assertFalse(file.exists());
+    }
+
+    void assertRecord(RecordBounds records, int i) {
+        assertEquals((1L << 32) + i * 100L, records.getOffset(i));
+        if (i % 7 == 3) {
+            assertTrue(records.isNull(i));
+        } else {
+            assertFalse(records.isNull(i));
+            assertEquals(i, records.getMinX(i), 0d);
+            assertEquals(i + 1, records.getMaxX(i), 0d);
+            assertEquals(new Envelope(i, i + 1, 0, 1), records.getEnvelope(i));
+        }
+    }
+}
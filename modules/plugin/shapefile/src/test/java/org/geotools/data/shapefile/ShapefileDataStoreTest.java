@@ -24,8 +24,11 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -53,7 +56,9 @@ import org.geotools.data.FeatureReader;
 import org.geotools.data.FeatureWriter;
 import org.geotools.data.Query;
 import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.files.MemoryMapCache;
 import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.index.rtree.PackedRTree;
 import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
@@ -87,6 +92,7 @@ import org.opengis.geometry.BoundingBox;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateFilter;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryCollection;
@@ -382,6 +388,269 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         ds2.dispose();
     }
     
+    @Test
+    public void testCreateAndReadHRX() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+        File file = sibling(shpFile, "hrx");
+        file.deleteOnExit();
+
+        ShapefileDataStore ds = new ShapefileDataStore(url);
+        ds.setPackedSpatialIndex(true);
+        ShapefileDataStore ds2 = new ShapefileDataStore(url);
+        ds2.setIndexed(false);
+
+        // reduce the bounds, thus making the store use the spatial index
+        SimpleFeatureCollection features = ds.getFeatureSource().getFeatures();
+        Envelope newBounds = ds.getFeatureSource().getBounds(Query.ALL);
+        double dx = newBounds.getWidth() / 4;
+        double dy = newBounds.getHeight() / 4;
+        newBounds = new Envelope(newBounds.getMinX() + dx, newBounds.getMaxX()
+                - dx, newBounds.getMinY() + dy, newBounds.getMaxY() - dy);
+        CoordinateReferenceSystem crs = features.getSchema().getCoordinateReferenceSystem();
+        performQueryComparison(ds, ds2, new ReferencedEnvelope(newBounds, crs));
+
+        // the packed R-tree is used instead of the quadtree
+        assertTrue(file.exists());
+        assertFalse(sibling(shpFile, "qix").exists());
+
+        // and kept open between queries
+        PackedRTree tree = ds.indexManager.packedTree;
+        assertNotNull(tree);
+        performQueryComparison(ds, ds2, new ReferencedEnvelope(newBounds, crs));
+        assertSame(tree, ds.indexManager.packedTree);
+        ds.dispose();
+        assertNull(ds.indexManager.packedTree);
+        ds2.dispose();
+    }
+    
+    @Test
+    public void testQIXUpdatedOnWrite() throws Exception {
+        checkSpatialIndexUpdatedOnWrite(false, false);
+    }
+
+    @Test
+    public void testHRXUpdatedOnWrite() throws Exception {
+        checkSpatialIndexUpdatedOnWrite(true, true);
+    }
+
+    private void checkSpatialIndexUpdatedOnWrite(boolean packed, boolean pipelined)
+            throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+        ShpFileType indexType = packed ? ShpFileType.HRX : ShpFileType.QIX;
+        File file = sibling(shpFile, indexType.extension);
+        file.deleteOnExit();
+
+        ShapefileDataStore ds = new ShapefileDataStore(url);
+        ds.setPackedSpatialIndex(packed);
+        ds.setPipelinedWrites(pipelined);
+        ShapefileDataStore ds2 = new ShapefileDataStore(url);
+        ds2.setIndexed(false);
+
+        // build the index with a first query
+        ReferencedEnvelope bounds = ds.getFeatureSource().getBounds();
+        ReferencedEnvelope west = new ReferencedEnvelope(bounds.getMinX(), bounds.getMedian(0),
+                bounds.getMinY(), bounds.getMaxY(), bounds.getCoordinateReferenceSystem());
+        performQueryComparison(ds, ds2, west);
+        assertTrue(file.exists());
+
+        // remove a feature, then modify the first one and let the writer copy over the rest
+        SimpleFeatureStore store = (SimpleFeatureStore) ds.getFeatureSource();
+        store.removeFeatures(ff.equals(ff.property("STATE_NAME"), ff.literal("Ohio")));
+        FeatureWriter<SimpleFeatureType, SimpleFeature> writer = ds
+                .getFeatureWriter(Transaction.AUTO_COMMIT);
+        SimpleFeature first = writer.next();
+        Geometry moved = (Geometry) ((Geometry) first.getDefaultGeometry()).clone();
+        moved.apply(new CoordinateFilter() {
+
+            public void filter(Coordinate coord) {
+                coord.x += bounds.getWidth() / 2;
+            }
+        });
+        first.setDefaultGeometry(moved);
+        writer.write();
+        writer.close();
+
+        // the index has been rebuilt during the write, and still matches the data
+        assertTrue(file.exists());
+        assertFalse(ds.indexManager.isIndexStale(indexType));
+        performQueryComparison(ds, ds2, west);
+        performQueryComparison(ds, ds2, new ReferencedEnvelope(moved.getEnvelopeInternal(),
+                bounds.getCoordinateReferenceSystem()));
+        Filter westFilter = ff.bbox(ff.property("the_geom"), west);
+        assertEquals(ds2.getFeatureSource().getCount(Query.ALL),
+                getFids(ds.getFeatureSource().getFeatures(westFilter)).size()
+                        + getFids(ds.getFeatureSource().getFeatures(ff.not(westFilter))).size());
+        assertHeaderLength(shpFile);
+        ds.dispose();
+        ds2.dispose();
+    }
+
+    @Test
+    public void testSharedMemoryMapCache() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+        MemoryMapCache cache = MemoryMapCache.getInstance();
+        long maxMappedBytes = cache.getMaxMappedBytes();
+        ShapefileDataStore ds1 = new ShapefileDataStore(url);
+        ds1.setMemoryMapped(true);
+        ds1.setIndexed(false);
+        ds1.setFidIndexed(false);
+        ShapefileDataStore ds2 = new ShapefileDataStore(url);
+        ds2.setMemoryMapped(true);
+        ds2.setIndexed(false);
+        ds2.setFidIndexed(false);
+        try {
+            long misses = cache.getMisses();
+            Set<String> fids = getFids(ds1.getFeatureSource().getFeatures());
+            assertTrue(cache.getMisses() > misses);
+
+            // the second store uses the mappings of the first one
+            misses = cache.getMisses();
+            long hits = cache.getHits();
+            assertEquals(fids, getFids(ds2.getFeatureSource().getFeatures()));
+            assertEquals(misses, cache.getMisses());
+            assertTrue(cache.getHits() > hits);
+
+            // shrink the budget while reading, the mappings in use must stay valid
+            SimpleFeatureIterator it = ds1.getFeatureSource().getFeatures().features();
+            Set<String> read = new HashSet<String>();
+            try {
+                read.add(it.next().getID());
+                long evictions = cache.getEvictions();
+                cache.setMaxMappedBytes(1);
+                assertTrue(cache.getEvictions() > evictions);
+                while (it.hasNext()) {
+                    read.add(it.next().getID());
+                }
+            } finally {
+                it.close();
+            }
+            assertEquals(fids, read);
+        } finally {
+            cache.setMaxMappedBytes(maxMappedBytes);
+            ds1.dispose();
+            ds2.dispose();
+        }
+    }
+
+    @Test
+    public void testPipelinedWrites() throws Exception {
+        File sourceFile = copyShapefiles(STATE_POP);
+        ShapefileDataStore source = new ShapefileDataStore(sourceFile.toURI().toURL());
+        SimpleFeatureCollection features = source.getFeatureSource().getFeatures();
+
+        File plainFile = getTempFile();
+        File pipelinedFile = getTempFile();
+        for (File file : new File[] { plainFile, pipelinedFile }) {
+            ShapefileDataStore ds = new ShapefileDataStore(file.toURI().toURL());
+            ds.setPipelinedWrites(file == pipelinedFile);
+            ds.createSchema(features.getSchema());
+            SimpleFeatureStore store = (SimpleFeatureStore) ds.getFeatureSource();
+            store.addFeatures(features);
+            // partial update, the rest of the file is transferred on close
+            FeatureWriter<SimpleFeatureType, SimpleFeature> writer = ds
+                    .getFeatureWriter(Transaction.AUTO_COMMIT);
+            writer.next().setAttribute("STATE_NAME", "Renamed");
+            writer.write();
+            writer.close();
+            ds.dispose();
+        }
+        source.dispose();
+
+        for (String extension : new String[] { "shp", "shx", "dbf" }) {
+            File plain = sibling(plainFile, extension);
+            File pipelined = sibling(pipelinedFile, extension);
+            assertTrue(Arrays.equals(Files.readAllBytes(plain.toPath()),
+                    Files.readAllBytes(pipelined.toPath())));
+        }
+        assertHeaderLength(pipelinedFile);
+    }
+
+    /**
+     * Checks the file length stored in the shp header matches the actual file size
+     */
+    private void assertHeaderLength(File shpFile) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(shpFile.toPath()));
+        header.order(ByteOrder.BIG_ENDIAN);
+        assertEquals(shpFile.length(), header.getInt(24) * 2L);
+    }
+
+    @Test
+    public void testAttributeIndex() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+        File file = sibling(shpFile, "aix");
+
+        ShapefileDataStore ds = new ShapefileDataStore(url);
+        ds.setIndexedAttributes("STATE_NAME", "PERSONS");
+        ShapefileDataStore ds2 = new ShapefileDataStore(url);
+
+        Filter[] filters = new Filter[] {
+                ff.equals(ff.property("STATE_NAME"), ff.literal("Texas")),
+                ff.or(ff.equals(ff.property("STATE_NAME"), ff.literal("Texas")),
+                        ff.equals(ff.property("STATE_NAME"), ff.literal("Ohio"))),
+                ff.greater(ff.property("PERSONS"), ff.literal(10000000)),
+                ff.between(ff.property("PERSONS"), ff.literal(1000000), ff.literal(2000000)),
+                ff.and(ff.less(ff.literal(5000000), ff.property("PERSONS")),
+                        ff.like(ff.property("STATE_NAME"), "N*")),
+                ff.equal(ff.property("STATE_NAME"), ff.literal("texas"), false) };
+        for (Filter filter : filters) {
+            Set<String> expected = getFids(ds2.getFeatureSource().getFeatures(filter));
+            Set<String> actual = getFids(ds.getFeatureSource().getFeatures(filter));
+            assertEquals(filter.toString(), expected, actual);
+        }
+        assertTrue(file.exists());
+
+        // combined with the spatial index
+        ds.setIndexedAttributes("STATE_NAME");
+        ReferencedEnvelope bounds = ds.getFeatureSource().getBounds();
+        Filter filter = ff.and(
+                ff.bbox(ff.property("the_geom"), new ReferencedEnvelope(bounds.getMinX(),
+                        bounds.getMedian(0), bounds.getMinY(), bounds.getMaxY(), bounds
+                                .getCoordinateReferenceSystem())),
+                ff.greaterOrEqual(ff.property("STATE_NAME"), ff.literal("M")));
+        assertEquals(getFids(ds2.getFeatureSource().getFeatures(filter)),
+                getFids(ds.getFeatureSource().getFeatures(filter)));
+
+        ds.dispose();
+        ds2.dispose();
+    }
+
+    @Test
+    public void testAttributeIndexWithoutShx() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        assertTrue(sibling(shpFile, "shx").delete());
+        URL url = shpFile.toURI().toURL();
+
+        ShapefileDataStore ds = new ShapefileDataStore(url);
+        ds.setIndexedAttributes("STATE_NAME");
+        ShapefileDataStore ds2 = new ShapefileDataStore(url);
+
+        // no record offsets, falls back on a full scan
+        Filter filter = ff.equals(ff.property("STATE_NAME"), ff.literal("Texas"));
+        Set<String> fids = getFids(ds.getFeatureSource().getFeatures(filter));
+        assertEquals(1, fids.size());
+        assertEquals(getFids(ds2.getFeatureSource().getFeatures(filter)), fids);
+
+        ds.dispose();
+        ds2.dispose();
+    }
+
+    private Set<String> getFids(SimpleFeatureCollection features) {
+        Set<String> fids = new TreeSet<String>();
+        SimpleFeatureIterator it = features.features();
+        try {
+            while (it.hasNext()) {
+                fids.add(it.next().getID());
+            }
+        } finally {
+            it.close();
+        }
+        return fids;
+    }
+
     @Test
     public void testRemove() throws Exception {
         File shpFile = copyShapefiles(STATE_POP);
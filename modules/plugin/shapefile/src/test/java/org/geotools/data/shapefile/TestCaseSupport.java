@@ -113,6 +113,10 @@ public class TestCaseSupport {
             dieDieDIE(sibling(targetFile, "fix"));
             // R-Tree index
             dieDieDIE(sibling(targetFile, "grx"));
+            // Packed R-Tree index
+            dieDieDIE(sibling(targetFile, "hrx"));
+            // Attribute index
+            dieDieDIE(sibling(targetFile, "aix"));
             dieDieDIE(sibling(targetFile, "prj"));
             dieDieDIE(sibling(targetFile, "shp.xml"));
 
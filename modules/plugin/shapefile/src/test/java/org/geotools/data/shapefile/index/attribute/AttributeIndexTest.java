@@ -0,0 +1,202 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.attribute;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.dbf.DbaseFileWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AttributeIndexTest {
+
+    static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
+    File dbfFile;
+
+    File indexFile;
+
+    @Before
+    public void setup() throws Exception {
+        dbfFile = File.createTempFile("attributes", ".dbf");
+        indexFile = File.createTempFile("attributes", ".aix");
+
+        DbaseFileHeader header = new DbaseFileHeader();
+        header.addColumn("ID", 'N', 9, 0);
+        header.addColumn("NAME", 'C', 10, 0);
+        header.addColumn("VALUE", 'N', 10, 2);
+        header.addColumn("DAY", 'D', 8, 0);
+        header.setNumRecords(100);
+        FileOutputStream fos = new FileOutputStream(dbfFile);
+        DbaseFileWriter writer = new DbaseFileWriter(header, fos.getChannel(), CHARSET, UTC);
+        try {
+            Calendar cal = new GregorianCalendar(UTC);
+            for (int i = 0; i < 100; i++) {
+                cal.clear();
+                cal.set(2016, 0, 1 + (i % 10));
+                // name is null every 7 records
+                String name = i % 7 == 0 ? null : "name" + (i % 5);
+                writer.write(new Object[] { i, name, (100 - i) / 4d, cal.getTime() });
+            }
+        } finally {
+            writer.close();
+            fos.close();
+        }
+    }
+
+    @After
+    public void cleanup() {
+        dbfFile.delete();
+        indexFile.delete();
+    }
+
+    AttributeIndex buildIndex(String... columns) throws Exception {
+        FileInputStream fis = new FileInputStream(dbfFile);
+        try {
+            DbaseFileReader reader = new DbaseFileReader(fis.getChannel(), false, CHARSET, UTC);
+            try {
+                new AttributeIndexBuilder().build(reader, Arrays.asList(columns), indexFile);
+            } finally {
+                reader.close();
+            }
+        } finally {
+            fis.close();
+        }
+        return new AttributeIndex(indexFile, false);
+    }
+
+    int[] search(AttributeIndex index, String column, Object min, Object max) throws Exception {
+        int[] result = index.search(column, min, max);
+        return result == null ? null : AttributeIndex.sortUnique(result);
+    }
+
+    @Test
+    public void testColumns() throws Exception {
+        AttributeIndex index = buildIndex("NAME", "ID");
+        try {
+            assertEquals(Arrays.asList("NAME", "ID"), index.getColumnNames());
+            assertTrue(index.isIndexed("ID"));
+            assertFalse(index.isIndexed("VALUE"));
+            assertTrue(index.isStringColumn("NAME"));
+            assertFalse(index.isStringColumn("ID"));
+            assertEquals(100, index.getCount("ID"));
+            // nulls are not indexed
+            assertEquals(100 - 15, index.getCount("NAME"));
+            assertNull(index.search("VALUE", 1, 2));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testNumbers() throws Exception {
+        AttributeIndex index = buildIndex("ID", "VALUE");
+        try {
+            // ids are 0 based, records are 1 based
+            assertArrayEquals(new int[] { 11 }, search(index, "ID", 10, 10));
+            assertArrayEquals(new int[] { 11, 12, 13 }, search(index, "ID", 10, 12));
+            assertArrayEquals(new int[] { 1, 2 }, search(index, "ID", null, 1));
+            assertArrayEquals(new int[] { 99, 100 }, search(index, "ID", "98", null));
+            assertEquals(0, search(index, "ID", 200, null).length);
+            assertEquals(0, search(index, "ID", 12, 10).length);
+            assertEquals(100, search(index, "ID", null, null).length);
+            // value is (100 - id) / 4
+            assertArrayEquals(new int[] { 91, 92, 93, 94, 95, 96 },
+                    search(index, "VALUE", 1.25, 2.5));
+            // not convertible
+            assertNull(index.search("ID", "abc", null));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testStrings() throws Exception {
+        AttributeIndex index = buildIndex("NAME");
+        try {
+            int[] records = search(index, "NAME", "name3", "name3");
+            assertTrue(records.length > 0);
+            for (int recno : records) {
+                int id = recno - 1;
+                assertTrue(id % 7 != 0);
+                assertEquals(3, id % 5);
+            }
+            assertEquals(0, search(index, "NAME", "name", "name").length);
+            int[] range = search(index, "NAME", "name1", "name2");
+            int[] name1 = search(index, "NAME", "name1", "name1");
+            int[] name2 = search(index, "NAME", "name2", "name2");
+            assertEquals(name1.length + name2.length, range.length);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testDates() throws Exception {
+        AttributeIndex index = buildIndex("DAY");
+        try {
+            Calendar cal = new GregorianCalendar(UTC);
+            cal.clear();
+            cal.set(2016, 0, 3);
+            Date date = cal.getTime();
+            int[] records = search(index, "DAY", date, date);
+            assertEquals(10, records.length);
+            for (int recno : records) {
+                assertEquals(2, (recno - 1) % 10);
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testMemoryMapped() throws Exception {
+        buildIndex("ID").close();
+        AttributeIndex index = new AttributeIndex(indexFile, true);
+        try {
+            assertArrayEquals(new int[] { 51, 52 }, search(index, "ID", 50, 51));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testSortUnique() {
+        assertArrayEquals(new int[] { 1, 3, 5 }, AttributeIndex.sortUnique(new int[] { 5, 3, 1,
+                3, 5 }));
+        assertArrayEquals(new int[0], AttributeIndex.sortUnique(new int[0]));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+public class PackedRTreeTest {
+
+    File file;
+
+    @Before
+    public void setup() throws Exception {
+        file = File.createTempFile("packed", ".hrx");
+    }
+
+    @After
+    public void cleanup() {
+        file.delete();
+    }
+
+    @Test
+    public void testHilbert() {
+        // the first order curve visits the four quadrants in a U shape
+        int h = PackedRTreeBuilder.HILBERT_MAX;
+        assertEquals(0, PackedRTreeBuilder.hilbert(0, 0));
+        assertTrue(PackedRTreeBuilder.hilbert(0, h) < PackedRTreeBuilder.hilbert(h, h));
+        assertTrue(PackedRTreeBuilder.hilbert(h, h) < PackedRTreeBuilder.hilbert(h, 0));
+        assertEquals((1L << 32) - 1, PackedRTreeBuilder.hilbert(h, 0));
+    }
+
+    @Test
+    public void testRounding() {
+        double value = 0.1;
+        assertTrue(PackedRTreeBuilder.roundDown(value) <= value);
+        assertTrue(PackedRTreeBuilder.roundUp(value) >= value);
+        assertEquals(1f, PackedRTreeBuilder.roundDown(1), 0f);
+        assertEquals(1f, PackedRTreeBuilder.roundUp(1), 0f);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        new PackedRTreeBuilder().write(file);
+        PackedRTree tree = new PackedRTree(file, false);
+        try {
+            assertEquals(0, tree.getNumItems());
+            assertTrue(tree.getBounds().isNull());
+            assertFalse(tree.search(new Envelope(-10, 10, -10, 10)).hasNext());
+        } finally {
+            tree.close();
+        }
+    }
+
+    @Test
+    public void testSingleItem() throws Exception {
+        PackedRTreeBuilder builder = new PackedRTreeBuilder();
+        builder.add(1, 100, 0, 0, 1, 1);
+        builder.write(file);
+        PackedRTree tree = new PackedRTree(file, true);
+        try {
+            assertEquals(new Envelope(0, 1, 0, 1), tree.getBounds());
+            CloseableIterator<Data> it = tree.search(new Envelope(0.5, 2, 0.5, 2));
+            assertTrue(it.hasNext());
+            Data data = it.next();
+            assertEquals(1, data.getValue(0));
+            assertEquals(100L, data.getValue(1));
+            assertFalse(it.hasNext());
+            assertFalse(tree.search(new Envelope(2, 3, 2, 3)).hasNext());
+        } finally {
+            tree.close();
+        }
+    }
+
+    @Test
+    public void testLargeOffsets() throws Exception {
+        // offsets past 2GB are stored as negative ints
+        PackedRTreeBuilder builder = new PackedRTreeBuilder();
+        builder.add(1, 3000000000L, 0, 0, 1, 1);
+        builder.add(2, 100, 0, 0, 1, 1);
+        builder.add(3, Integer.MAX_VALUE, 0, 0, 1, 1);
+        builder.write(file);
+        PackedRTree tree = new PackedRTree(file, false);
+        try {
+            CloseableIterator<Data> it = tree.search(new Envelope(0, 1, 0, 1));
+            Data data = it.next();
+            assertEquals(2, data.getValue(0));
+            assertEquals(100L, data.getValue(1));
+            data = it.next();
+            assertEquals(3, data.getValue(0));
+            assertEquals((long) Integer.MAX_VALUE, data.getValue(1));
+            data = it.next();
+            assertEquals(1, data.getValue(0));
+            assertEquals(3000000000L, data.getValue(1));
+            assertFalse(it.hasNext());
+        } finally {
+            tree.close();
+        }
+    }
+
+    @Test
+    public void testSearchMapped() throws Exception {
+        assertSearch(true);
+    }
+
+    @Test
+    public void testSearchChannel() throws Exception {
+        assertSearch(false);
+    }
+
+    void assertSearch(boolean memoryMapped) throws Exception {
+        // skewed data, most items clustered in a corner
+        Random random = new Random(0);
+        int count = 5000;
+        List<Envelope> envelopes = new ArrayList<Envelope>();
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(10);
+        builder.setNodeSize(8);
+        for (int i = 0; i < count; i++) {
+            double scale = i % 10 == 0 ? 1000 : 10;
+            double x = random.nextDouble() * scale;
+            double y = random.nextDouble() * scale;
+            Envelope env = new Envelope(x, x + random.nextDouble(), y, y + random.nextDouble());
+            envelopes.add(env);
+            builder.add(i + 1, 100 + i * 50, env.getMinX(), env.getMinY(), env.getMaxX(),
+                    env.getMaxY());
+        }
+        builder.write(file);
+        assertEquals(16 + 24 * (5000 + 625 + 79 + 10 + 2 + 1), file.length());
+
+        PackedRTree tree = new PackedRTree(file, memoryMapped);
+        try {
+            assertEquals(count, tree.getNumItems());
+            for (int q = 0; q < 50; q++) {
+                double scale = q % 2 == 0 ? 1000 : 10;
+                double x = random.nextDouble() * scale;
+                double y = random.nextDouble() * scale;
+                Envelope query = new Envelope(x, x + scale / 10, y, y + scale / 10);
+
+                List<Integer> expected = new ArrayList<Integer>();
+                for (int i = 0; i < count; i++) {
+                    if (envelopes.get(i).intersects(query)) {
+                        expected.add(i + 1);
+                    }
+                }
+
+                List<Integer> actual = new ArrayList<Integer>();
+                long lastOffset = -1;
+                CloseableIterator<Data> it = tree.search(query);
+                while (it.hasNext()) {
+                    Data data = it.next();
+                    int recno = (Integer) data.getValue(0);
+                    long offset = (Long) data.getValue(1);
+                    // sorted by offset
+                    assertTrue(offset > lastOffset);
+                    assertEquals(100 + (recno - 1) * 50, offset);
+                    lastOffset = offset;
+                    // the float rounding might add a few false positives, never lose items
+                    if (envelopes.get(recno - 1).intersects(query)) {
+                        actual.add(recno);
+                    }
+                }
+                it.close();
+                assertEquals(expected, actual);
+            }
+        } finally {
+            tree.close();
+        }
+    }
+}
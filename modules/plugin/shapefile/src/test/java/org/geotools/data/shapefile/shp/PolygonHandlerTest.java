@@ -19,6 +19,7 @@ package org.geotools.data.shapefile.shp;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.geotools.data.shapefile.TestCaseSupport;
 import org.junit.Test;
@@ -86,6 +87,68 @@ public class PolygonHandlerTest extends TestCaseSupport {
 
     }
 
+    @Test
+    public void testHoleAssignmentManyShells() {
+        PrecisionModel precision = new PrecisionModel();
+        ArrayList shells = new ArrayList();
+        ArrayList holes = new ArrayList();
+
+        // a large shell containing a grid of smaller shells, each one with its own hole
+        int n = 50;
+        shells.add(copyTo(0, 0, n * 20, n * 20, rectangle(precision, 0)));
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                shells.add(copyTo(i * 20 + 5, j * 20 + 5, 10, 10, rectangle(precision, 0)));
+                holes.add(copyTo(i * 20 + 8, j * 20 + 8, 4, 4, rectangle(precision, 0)));
+            }
+        }
+        // a hole between the small shells, and one outside of everything
+        LinearRing between = (LinearRing) copyTo(1, 1, 2, 2, rectangle(precision, 0));
+        holes.add(between);
+        LinearRing outside = (LinearRing) copyTo(-10, -10, 2, 2, rectangle(precision, 0));
+        holes.add(outside);
+
+        PolygonHandler ph = new PolygonHandler(new GeometryFactory());
+        ArrayList assigned = ph.assignHolesToShells(shells, holes);
+
+        // the hole outside has been turned into a shell
+        assertEquals(n * n + 2, shells.size());
+        assertEquals(shells.size(), assigned.size());
+        assertSame(outside, shells.get(shells.size() - 1));
+        assertEquals(1, ((ArrayList) assigned.get(0)).size());
+        assertSame(between, ((ArrayList) assigned.get(0)).get(0));
+        for (int i = 1; i <= n * n; i++) {
+            ArrayList shellHoles = (ArrayList) assigned.get(i);
+            assertEquals(1, shellHoles.size());
+            assertSame(holes.get(i - 1), shellHoles.get(0));
+        }
+        assertTrue(((ArrayList) assigned.get(shells.size() - 1)).isEmpty());
+    }
+
+    @Test
+    public void testFastHoleAssignment() {
+        GeometryFactory gf = new GeometryFactory();
+        // a triangle whose envelope contains the hole, while the triangle itself does not
+        LinearRing triangle = gf.createLinearRing(new Coordinate[] { new Coordinate(0, 0),
+                new Coordinate(10, 0), new Coordinate(10, 10), new Coordinate(0, 0) });
+        LinearRing other = (LinearRing) copyTo(20, 20, 10, 10, rectangle(null, 0));
+        LinearRing hole = (LinearRing) copyTo(1, 7, 1, 1, rectangle(null, 0));
+        PolygonHandler ph = new PolygonHandler(gf);
+
+        // with the containment tests the hole becomes a shell
+        ArrayList shells = new ArrayList(Arrays.asList(triangle, other));
+        ArrayList holes = new ArrayList(Arrays.asList(hole));
+        ArrayList assigned = ph.assignHolesToShells(shells, holes, true);
+        assertEquals(3, shells.size());
+        assertTrue(((ArrayList) assigned.get(0)).isEmpty());
+
+        // without, it's assigned to the triangle
+        shells = new ArrayList(Arrays.asList(triangle, other));
+        assigned = ph.assignHolesToShells(shells, holes, false);
+        assertEquals(2, shells.size());
+        assertSame(hole, ((ArrayList) assigned.get(0)).get(0));
+    }
+
     public static Geometry rectangle(PrecisionModel pm, int SRID) {
         Coordinate[] coords = new Coordinate[5];
         for (int i = 0; i < coords.length; i++) {
@@ -0,0 +1,132 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmark;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.TestData;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Gives access to the shapefiles of the sample data module. The sample data is packaged in a jar,
+ * the shapefiles are extracted once in a temporary directory so that they can be read with memory
+ * mapping, as in a production setup.
+ */
+public class BenchmarkData {
+
+    static final String[] EXTENSIONS = { "shp", "shx", "dbf", "prj" };
+
+    /**
+     * The size of the rendering area used by the benchmarks
+     */
+    public static final Rectangle PAINT_AREA = new Rectangle(0, 0, 1024, 768);
+
+    static File directory;
+
+    /**
+     * Returns a data store for the specified sample data shapefile, e.g. "roads"
+     *
+     * @param name
+     * @return
+     * @throws IOException
+     */
+    public static ShapefileDataStore getDataStore(String name) throws IOException {
+        ShapefileDataStore store = new ShapefileDataStore(getShapefile(name).toURI().toURL());
+        store.setMemoryMapped(true);
+        return store;
+    }
+
+    /**
+     * Returns all the features of the specified shapefile, loaded in memory
+     *
+     * @param name
+     * @return
+     * @throws IOException
+     */
+    public static List<SimpleFeature> getFeatures(String name) throws IOException {
+        ShapefileDataStore store = getDataStore(name);
+        try (SimpleFeatureIterator it = store.getFeatureSource().getFeatures().features()) {
+            List<SimpleFeature> result = new ArrayList<SimpleFeature>();
+            while (it.hasNext()) {
+                result.add(it.next());
+            }
+            return result;
+        } finally {
+            store.dispose();
+        }
+    }
+
+    /**
+     * Returns the default geometries of the specified shapefile, loaded in memory
+     *
+     * @param name
+     * @return
+     * @throws IOException
+     */
+    public static List<Geometry> getGeometries(String name) throws IOException {
+        List<Geometry> result = new ArrayList<Geometry>();
+        for (SimpleFeature feature : getFeatures(name)) {
+            result.add((Geometry) feature.getDefaultGeometry());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bounds of the specified shapefile
+     *
+     * @param name
+     * @return
+     * @throws IOException
+     */
+    public static ReferencedEnvelope getBounds(String name) throws IOException {
+        ShapefileDataStore store = getDataStore(name);
+        try {
+            return store.getFeatureSource().getBounds();
+        } finally {
+            store.dispose();
+        }
+    }
+
+    static synchronized File getShapefile(String name) throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("gt-benchmark").toFile();
+            directory.deleteOnExit();
+        }
+        for (String extension : EXTENSIONS) {
+            File file = new File(directory, name + "." + extension);
+            if (!file.exists()) {
+                try (InputStream is = TestData.openStream("shapes/" + name + "." + extension)) {
+                    Files.copy(is, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                file.deleteOnExit();
+            }
+        }
+        return new File(directory, name + ".shp");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmark;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.renderer.lite.DashedShape;
+import org.geotools.renderer.lite.RendererUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Walks the path of {@link DashedShape} wrappers around the screen space road shapes, the way
+ * the renderer does for lines using graphic strokes with dashes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DashedShapeBenchmark {
+
+    @Param({ "4,4", "10,2,2,2" })
+    String dashes;
+
+    List<Shape> shapes;
+
+    float[] dashArray;
+
+    @Setup
+    public void setup() throws Exception {
+        AffineTransform at = RendererUtilities.worldToScreenTransform(
+                BenchmarkData.getBounds("roads"), BenchmarkData.PAINT_AREA);
+        AffineTransform2D worldToScreen = new AffineTransform2D(at);
+        shapes = new ArrayList<Shape>();
+        for (Geometry geometry : BenchmarkData.getGeometries("roads")) {
+            shapes.add(new LiteShape2(geometry, worldToScreen, null, false));
+        }
+        String[] elements = dashes.split(",");
+        dashArray = new float[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            dashArray[i] = Float.parseFloat(elements[i]);
+        }
+    }
+
+    @Benchmark
+    public void dash(Blackhole bh) {
+        float[] coords = new float[6];
+        for (Shape shape : shapes) {
+            PathIterator it = new DashedShape(shape, dashArray, 0).getPathIterator(null);
+            while (!it.isDone()) {
+                bh.consume(it.currentSegment(coords));
+                it.next();
+            }
+        }
+        bh.consume(coords);
+    }
+}
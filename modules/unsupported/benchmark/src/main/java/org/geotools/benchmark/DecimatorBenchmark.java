@@ -0,0 +1,99 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmark;
+
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geometry.jts.Decimator;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.renderer.lite.RendererUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengis.referencing.operation.MathTransform;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Runs the {@link Decimator} generalization and transformation over a whole shapefile. The
+ * decimator works in place, so each geometry has to be copied first: the {@link #copy(Blackhole)}
+ * benchmark measures the cost of the copies alone, to be subtracted from the other results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DecimatorBenchmark {
+
+    @Param({ "roads", "statepop" })
+    String dataset;
+
+    List<Geometry> geometries;
+
+    MathTransform worldToScreen;
+
+    MathTransform screenToWorld;
+
+    @Setup
+    public void setup() throws Exception {
+        geometries = new ArrayList<Geometry>(BenchmarkData.getGeometries(dataset));
+        AffineTransform at = RendererUtilities.worldToScreenTransform(
+                BenchmarkData.getBounds(dataset), BenchmarkData.PAINT_AREA);
+        worldToScreen = new AffineTransform2D(at);
+        screenToWorld = worldToScreen.inverse();
+    }
+
+    @Benchmark
+    public void copy(Blackhole bh) {
+        for (Geometry geometry : geometries) {
+            bh.consume(geometry.clone());
+        }
+    }
+
+    @Benchmark
+    public void decimate(Blackhole bh) throws Exception {
+        Decimator decimator = new Decimator(screenToWorld, BenchmarkData.PAINT_AREA, 0.8);
+        for (Geometry geometry : geometries) {
+            Geometry copy = (Geometry) geometry.clone();
+            decimator.decimate(copy);
+            bh.consume(copy);
+        }
+    }
+
+    @Benchmark
+    public void decimateTransformGeneralize(Blackhole bh) throws Exception {
+        Decimator decimator = new Decimator(screenToWorld, BenchmarkData.PAINT_AREA, 0.8);
+        for (Geometry geometry : geometries) {
+            Geometry copy = (Geometry) geometry.clone();
+            bh.consume(decimator.decimateTransformGeneralize(copy, worldToScreen));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.renderer.label.LabelCacheImpl;
+import org.geotools.renderer.lite.RendererUtilities;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.TextSymbolizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.feature.simple.SimpleFeature;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Runs the whole label cache cycle, collection, conflict resolution and painting, over the
+ * Spearfish road network, using labels following the lines
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LabelCacheBenchmark {
+
+    static final String LAYER_ID = "roads";
+
+    @Param({ "false", "true" })
+    boolean gridLabelIndex;
+
+    List<SimpleFeature> features;
+
+    List<LiteShape2> shapes;
+
+    TextSymbolizer symbolizer;
+
+    BufferedImage image;
+
+    @Setup
+    public void setup() throws Exception {
+        features = BenchmarkData.getFeatures("roads");
+        AffineTransform at = RendererUtilities.worldToScreenTransform(
+                BenchmarkData.getBounds("roads"), BenchmarkData.PAINT_AREA);
+        AffineTransform2D worldToScreen = new AffineTransform2D(at);
+        shapes = new ArrayList<LiteShape2>();
+        for (SimpleFeature feature : features) {
+            shapes.add(new LiteShape2((Geometry) feature.getDefaultGeometry(), worldToScreen,
+                    null, false));
+        }
+
+        StyleBuilder sb = new StyleBuilder();
+        symbolizer = sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 10),
+                "CAT_DESC");
+        symbolizer.setLabelPlacement(sb.createLinePlacement(0));
+        symbolizer.getOptions().put(TextSymbolizer.FOLLOW_LINE_KEY, "true");
+        symbolizer.getOptions().put(TextSymbolizer.MAX_DISPLACEMENT_KEY, "50");
+        symbolizer.setHalo(sb.createHalo(Color.WHITE, 1));
+
+        image = new BufferedImage(BenchmarkData.PAINT_AREA.width,
+                BenchmarkData.PAINT_AREA.height, BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    @Benchmark
+    public BufferedImage label() throws Exception {
+        LabelCacheImpl labelCache = new LabelCacheImpl();
+        labelCache.setGridLabelIndexEnabled(gridLabelIndex);
+        labelCache.start();
+        labelCache.startLayer(LAYER_ID);
+        for (int i = 0; i < features.size(); i++) {
+            labelCache.put(LAYER_ID, symbolizer, features.get(i), shapes.get(i), null);
+        }
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setBackground(new Color(0, 0, 0, 0));
+            graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+            labelCache.endLayer(LAYER_ID, graphics, BenchmarkData.PAINT_AREA);
+            labelCache.end(graphics, BenchmarkData.PAINT_AREA);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmark;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geometry.jts.Decimator;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.renderer.lite.RendererUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengis.referencing.operation.MathTransform;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Transforms a whole shapefile to screen space with {@link LiteShape2}, the way the renderer does
+ * for each feature, and walks the resulting path like Java2D would
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LiteShape2Benchmark {
+
+    @Param({ "roads", "statepop" })
+    String dataset;
+
+    @Param({ "true", "false" })
+    boolean generalize;
+
+    List<Geometry> geometries;
+
+    MathTransform worldToScreen;
+
+    MathTransform screenToWorld;
+
+    @Setup
+    public void setup() throws Exception {
+        geometries = BenchmarkData.getGeometries(dataset);
+        AffineTransform at = RendererUtilities.worldToScreenTransform(
+                BenchmarkData.getBounds(dataset), BenchmarkData.PAINT_AREA);
+        worldToScreen = new AffineTransform2D(at);
+        screenToWorld = worldToScreen.inverse();
+    }
+
+    @Benchmark
+    public void transform(Blackhole bh) throws Exception {
+        float[] coords = new float[6];
+        for (Geometry geometry : geometries) {
+            // the decimator is built per geometry, as the renderer does
+            Decimator decimator = generalize ? new Decimator(screenToWorld,
+                    BenchmarkData.PAINT_AREA, 0.8) : null;
+            LiteShape2 shape = new LiteShape2(geometry, worldToScreen, decimator, false);
+            PathIterator it = shape.getPathIterator(null);
+            while (!it.isDone()) {
+                bh.consume(it.currentSegment(coords));
+                it.next();
+            }
+            bh.consume(coords);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.Graphic;
+import org.geotools.styling.LinePlacement;
+import org.geotools.styling.Mark;
+import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.Symbolizer;
+import org.geotools.styling.TextSymbolizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Renders a full map with {@link StreamingRenderer}, reading the data from memory mapped
+ * shapefiles. The "spearfish" map mixes polygons, lines, points and labels, the "states" map is
+ * a single polygon layer with labels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class RenderingBenchmark {
+
+    @Param({ "spearfish", "states" })
+    String map;
+
+    @Param({ "false", "true" })
+    boolean parallel;
+
+    StyleBuilder sb = new StyleBuilder();
+
+    MapContent content;
+
+    ReferencedEnvelope bounds;
+
+    ExecutorService threadPool;
+
+    StreamingRenderer renderer;
+
+    BufferedImage image;
+
+    @Setup
+    public void setup() throws Exception {
+        content = new MapContent();
+        if ("spearfish".equals(map)) {
+            addLayer("rstrct", sb.createPolygonSymbolizer(new Color(200, 240, 200),
+                    new Color(0, 128, 0), 1));
+            addLayer("streams", sb.createLineSymbolizer(Color.BLUE, 2));
+            addLayer("roads", sb.createLineSymbolizer(Color.GRAY, 1),
+                    lineLabel("CAT_DESC"));
+            addLayer("bugsites", mark(StyleBuilder.MARK_CIRCLE, Color.RED),
+                    pointLabel("CAT_ID"));
+            addLayer("archsites", mark(StyleBuilder.MARK_TRIANGLE, Color.ORANGE),
+                    pointLabel("CAT_DESC"));
+            bounds = BenchmarkData.getBounds("roads");
+        } else {
+            addLayer("statepop", sb.createPolygonSymbolizer(Color.LIGHT_GRAY, Color.BLACK, 1),
+                    pointLabel("STATE_ABBR"));
+            bounds = BenchmarkData.getBounds("statepop");
+        }
+
+        renderer = new StreamingRenderer();
+        renderer.setMapContent(content);
+        Map<Object, Object> hints = new HashMap<Object, Object>();
+        hints.put(StreamingRenderer.PARALLEL_LAYER_RENDERING_KEY, parallel);
+        renderer.setRendererHints(hints);
+        if (parallel) {
+            threadPool = Executors.newFixedThreadPool(Runtime.getRuntime()
+                    .availableProcessors());
+            renderer.setThreadPool(threadPool);
+        }
+        RenderingHints java2dHints = new RenderingHints(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        renderer.setJava2DHints(java2dHints);
+
+        image = new BufferedImage(BenchmarkData.PAINT_AREA.width,
+                BenchmarkData.PAINT_AREA.height, BufferedImage.TYPE_4BYTE_ABGR);
+    }
+
+    @TearDown
+    public void tearDown() {
+        content.dispose();
+        if (threadPool != null) {
+            threadPool.shutdown();
+        }
+    }
+
+    void addLayer(String name, Symbolizer... symbolizers) throws Exception {
+        ShapefileDataStore store = BenchmarkData.getDataStore(name);
+        SimpleFeatureSource source = store.getFeatureSource();
+        Rule rule = sb.createRule(symbolizers);
+        Style style = sb.createStyle();
+        style.featureTypeStyles().add(sb.createFeatureTypeStyle(name, rule));
+        FeatureLayer layer = new FeatureLayer(source, style) {
+            @Override
+            public void dispose() {
+                super.dispose();
+                store.dispose();
+            }
+        };
+        content.addLayer(layer);
+    }
+
+    Symbolizer mark(String name, Color color) {
+        Mark mark = sb.createMark(name, color, Color.BLACK, 1);
+        Graphic graphic = sb.createGraphic(null, mark, null);
+        graphic.setSize(sb.literalExpression(8));
+        return sb.createPointSymbolizer(graphic);
+    }
+
+    TextSymbolizer pointLabel(String attribute) throws Exception {
+        TextSymbolizer ts = sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 10),
+                attribute);
+        ts.setHalo(sb.createHalo(Color.WHITE, 1));
+        return ts;
+    }
+
+    TextSymbolizer lineLabel(String attribute) throws Exception {
+        TextSymbolizer ts = pointLabel(attribute);
+        LinePlacement placement = sb.createLinePlacement(0);
+        ts.setLabelPlacement(placement);
+        ts.getOptions().put(TextSymbolizer.FOLLOW_LINE_KEY, "true");
+        return ts;
+    }
+
+    @Benchmark
+    public BufferedImage render() {
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setBackground(Color.WHITE);
+            graphics.clearRect(0, 0, image.getWidth(), image.getHeight());
+            renderer.paint(graphics, BenchmarkData.PAINT_AREA, bounds);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2016, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmark;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.renderer.style.SLDStyleFactory;
+import org.geotools.styling.Graphic;
+import org.geotools.styling.LineSymbolizer;
+import org.geotools.styling.Mark;
+import org.geotools.styling.PointSymbolizer;
+import org.geotools.styling.PolygonSymbolizer;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.styling.Symbolizer;
+import org.geotools.styling.TextSymbolizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.FilterFactory2;
+
+/**
+ * Measures the conversion of SLD symbolizers into {@link org.geotools.renderer.style.Style2D}
+ * objects, for static symbolizers (which are cached by the style factory) and for symbolizers
+ * that need to be evaluated against each feature
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class StyleFactoryBenchmark {
+
+    SLDStyleFactory styleFactory;
+
+    List<SimpleFeature> states;
+
+    List<SimpleFeature> roads;
+
+    List<SimpleFeature> bugsites;
+
+    PolygonSymbolizer staticPolygon;
+
+    LineSymbolizer dynamicLine;
+
+    PointSymbolizer rotatedMark;
+
+    TextSymbolizer text;
+
+    @Setup
+    public void setup() throws Exception {
+        styleFactory = new SLDStyleFactory();
+        states = BenchmarkData.getFeatures("statepop");
+        roads = BenchmarkData.getFeatures("roads");
+        bugsites = BenchmarkData.getFeatures("bugsites");
+
+        StyleBuilder sb = new StyleBuilder();
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        staticPolygon = sb.createPolygonSymbolizer(Color.LIGHT_GRAY, Color.BLACK, 1);
+
+        // width depends on the road description
+        dynamicLine = sb.createLineSymbolizer(sb.createStroke(sb.colorExpression(Color.RED),
+                ff.divide(ff.function("strLength", ff.property("CAT_DESC")), ff.literal(5))));
+
+        Mark mark = sb.createMark(StyleBuilder.MARK_TRIANGLE, Color.YELLOW, Color.BLACK, 1);
+        Graphic graphic = sb.createGraphic(null, mark, null);
+        graphic.setSize(ff.literal(12));
+        graphic.setRotation(ff.multiply(ff.property("CAT_ID"), ff.literal(30)));
+        rotatedMark = sb.createPointSymbolizer(graphic);
+
+        text = sb.createTextSymbolizer(Color.BLACK, sb.createFont("Serif", 12), "STATE_NAME");
+        text.setHalo(sb.createHalo(Color.WHITE, 2));
+    }
+
+    void createStyles(List<SimpleFeature> features, Symbolizer symbolizer,
+            Blackhole bh) {
+        for (SimpleFeature feature : features) {
+            bh.consume(styleFactory.createStyle(feature, symbolizer));
+        }
+    }
+
+    @Benchmark
+    public void staticPolygon(Blackhole bh) {
+        createStyles(states, staticPolygon, bh);
+    }
+
+    @Benchmark
+    public void dynamicLine(Blackhole bh) {
+        createStyles(roads, dynamicLine, bh);
+    }
+
+    @Benchmark
+    public void rotatedMark(Blackhole bh) {
+        createStyles(bugsites, rotatedMark, bh);
+    }
+
+    @Benchmark
+    public void text(Blackhole bh) {
+        createStyles(states, text, bh);
+    }
+}